@@ -5,14 +5,20 @@ import no.ntnu.eitri.app.EitriRunner;
 import no.ntnu.eitri.app.RunResult;
 import no.ntnu.eitri.cli.CliOptions;
 import no.ntnu.eitri.cli.ManifestVersionProvider;
+import no.ntnu.eitri.config.ParseOptions;
+import no.ntnu.eitri.config.SourceFilter;
+import no.ntnu.eitri.config.TypeResolution;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Eitri - Class diagram generator.
@@ -29,6 +35,8 @@ import java.util.concurrent.Callable;
 )
 public class Main implements Callable<Integer> {
 
+    private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
+
     // === Required Arguments ===
 
     @Option(
@@ -49,7 +57,8 @@ public class Main implements Callable<Integer> {
 
     @Option(
             names = "--parser",
-            description = "Parser extension id (e.g., .java).",
+            description = "Parser extension id (e.g., .java, .java-scan for the declaration scanner, "
+                    + ".java-javac for javac, or .class and .jar for compiled classes).",
             paramLabel = "<ext>"
     )
     private String parserExtension;
@@ -78,6 +87,165 @@ public class Main implements Callable<Integer> {
     @Option(names = "--dry-run", description = "Parse only, don't write output file.")
     private boolean dryRun;
 
+    @Option(names = "--watch", description = "Keep running and regenerate the diagram when sources change.")
+    private boolean watch;
+
+    // === Git History Options ===
+
+    @Option(
+            names = "--git-repo",
+            description = "Git repository for --revision and --changed-since. Default: the repository of the "
+                    + "first source path.",
+            paramLabel = "<dir>"
+    )
+    private Path gitRepository;
+
+    @Option(
+            names = "--revision",
+            description = "Generate one diagram per git revision, written to <out dir>/<commit>/. "
+                    + "Can be specified multiple times or comma-separated.",
+            split = ",",
+            paramLabel = "<rev>"
+    )
+    private List<String> revisions = new ArrayList<>();
+
+    @Option(
+            names = "--changed-since",
+            description = "Parse the git revision, then re-parse only working-tree files changed since it. "
+                    + "The revision is parsed again on every run; with --parse-cache its files are read from the "
+                    + "cache instead.",
+            paramLabel = "<rev>"
+    )
+    private String changedSince;
+
+    // === Source Selection Options ===
+
+    @Option(
+            names = "--include",
+            description = "Only parse files matching this glob, relative to the source path. "
+                    + "Can be specified multiple times or comma-separated.",
+            split = ",",
+            paramLabel = "<glob>"
+    )
+    private List<String> includeGlobs = new ArrayList<>();
+
+    @Option(
+            names = "--exclude",
+            description = "Skip files and directories matching this glob, relative to the source path. "
+                    + "Can be specified multiple times or comma-separated.",
+            split = ",",
+            paramLabel = "<glob>"
+    )
+    private List<String> excludeGlobs = new ArrayList<>();
+
+    @Option(
+            names = "--no-default-excludes",
+            description = "Also parse .gradle/, node_modules/ and generated-sources/ directories, and build/ and "
+                    + "target/ directories next to a build file."
+    )
+    private boolean noDefaultExcludes;
+
+    @Option(
+            names = "--include-package",
+            description = "Only parse files declaring this package or a subpackage of it. "
+                    + "Can be specified multiple times or comma-separated.",
+            split = ",",
+            paramLabel = "<package>"
+    )
+    private List<String> includePackages = new ArrayList<>();
+
+    @Option(
+            names = "--exclude-package",
+            description = "Skip files declaring this package or a subpackage of it. "
+                    + "Can be specified multiple times or comma-separated.",
+            split = ",",
+            paramLabel = "<package>"
+    )
+    private List<String> excludePackages = new ArrayList<>();
+
+    // === Parser Options ===
+
+    @Option(
+            names = "--threads",
+            description = "Number of parse workers (0 = all processors). Default: ${DEFAULT-VALUE}.",
+            paramLabel = "<n>"
+    )
+    private int threads = ParseOptions.DEFAULT_THREADS;
+
+    @Option(
+            names = "--read-ahead-mb",
+            description = "Memory budget for sources read ahead of the parser, in MiB (0 = read on parse threads). "
+                    + "Default: ${DEFAULT-VALUE}.",
+            paramLabel = "<mb>"
+    )
+    private int readAheadMb = ParseOptions.DEFAULT_READ_AHEAD_MB;
+
+    @Option(
+            names = "--parse-cache",
+            description = "Directory for the persistent per-file parse cache. Unchanged files are not re-parsed.",
+            paramLabel = "<dir>"
+    )
+    private Path parseCacheDirectory;
+
+    @Option(
+            names = "--parse-cache-max-mb",
+            description = "Size cap of the parse cache in MiB (0 = unbounded). Default: ${DEFAULT-VALUE}.",
+            paramLabel = "<mb>"
+    )
+    private int parseCacheMaxMb = ParseOptions.DEFAULT_CACHE_MAX_MB;
+
+    @Option(
+            names = "--declarations-only",
+            description = "Parse every file without method bodies, initializer blocks and comments."
+    )
+    private boolean declarationsOnly;
+
+    @Option(
+            names = "--declarations-only-above-mb",
+            description = "Parse files of at least this size declaration-only (0 = never). Default: ${DEFAULT-VALUE}.",
+            paramLabel = "<mb>"
+    )
+    private int declarationsOnlyAboveMb = ParseOptions.DEFAULT_DECLARATIONS_ONLY_ABOVE_MB;
+
+    @Option(
+            names = "--type-resolution",
+            description = "How type names are resolved: solver (symbol solver over sources, JDK and jars), "
+                    + "tiered (imports and declared source types first, symbol solver for the rest) "
+                    + "or lexical (declared source types and imports only). Default: ${DEFAULT-VALUE}.",
+            paramLabel = "<mode>"
+    )
+    private String typeResolution = TypeResolution.SOLVER.id();
+
+    @Option(
+            names = "--solver-cache-entries",
+            description = "Entry cap of each symbol solver cache of a parse worker (0 = unbounded). "
+                    + "Default: ${DEFAULT-VALUE}.",
+            paramLabel = "<entries>"
+    )
+    private int solverCacheEntries = ParseOptions.DEFAULT_SOLVER_CACHE_ENTRIES;
+
+    @Option(
+            names = "--release-solver-caches-every",
+            description = "Drop each parse worker's symbol solver caches after this many files, and keep no "
+                    + "visited file for the solver (0 = never). Default: ${DEFAULT-VALUE}.",
+            paramLabel = "<files>"
+    )
+    private int releaseSolverCachesEvery;
+
+    @Option(
+            names = "--prune-classpath",
+            description = "Give the symbol solver only the dependency jars holding a package the sources declare "
+                    + "or import from. Jar types named only fully qualified are then left unresolved."
+    )
+    private boolean pruneClasspath;
+
+    @Option(
+            names = "--project-model",
+            description = "Only extract the members and relations the writer configuration can show. "
+                    + "Faster, but the model snapshot then holds the projected model."
+    )
+    private boolean projectModel;
+
     public static void main(String[] args) {
         int exitCode = new CommandLine(new Main()).execute(args);
         System.exit(exitCode);
@@ -92,10 +260,39 @@ public class Main implements Callable<Integer> {
                 parserExtension,
                 writerExtension,
                 verbose,
-                dryRun
+                dryRun,
+                ParseOptions.builder()
+                        .threads(threads)
+                        .readAheadBytes(ParseOptions.megabytes(readAheadMb))
+                        .cacheDirectory(parseCacheDirectory)
+                        .cacheMaxBytes(ParseOptions.megabytes(parseCacheMaxMb))
+                        .declarationsOnly(declarationsOnly)
+                        .declarationsOnlyAboveBytes(ParseOptions.megabytes(declarationsOnlyAboveMb))
+                        .typeResolution(resolveTypeResolution())
+                        .solverCacheEntries(solverCacheEntries)
+                        .releaseSolverCachesEvery(releaseSolverCachesEvery)
+                        .pruneClasspath(pruneClasspath)
+                        .build(),
+                resolveSourceFilter(),
+                projectModel
         );
         EitriRunner runner = new EitriRunner();
-        RunResult result = runner.run(cliOptions);
+        int modes = (watch ? 1 : 0) + (revisions.isEmpty() ? 0 : 1) + (changedSince != null ? 1 : 0);
+        if (modes > 1) {
+            throw new CommandLine.ParameterException(new CommandLine(this),
+                    "--watch, --revision and --changed-since cannot be combined");
+        }
+        if (!revisions.isEmpty()) {
+            List<RunResult> results = runner.history(cliOptions, resolveGitRepository(), revisions,
+                    result -> writeArtifactsAndContinue(cliOptions, result));
+            return results.stream().mapToInt(RunResult::exitCode).max().orElse(0);
+        }
+        if (watch) {
+            return runner.watch(cliOptions, result -> writeArtifactsAndContinue(cliOptions, result)).exitCode();
+        }
+        RunResult result = changedSince != null
+                ? runner.changedSince(cliOptions, resolveGitRepository(), changedSince)
+                : runner.run(cliOptions);
         if (result.exitCode() == 0) {
             try {
                 new CliArtifactsWriter().write(cliOptions, result);
@@ -106,4 +303,42 @@ public class Main implements Callable<Integer> {
         }
         return result.exitCode();
     }
+
+    private SourceFilter resolveSourceFilter() {
+        try {
+            return SourceFilter.of(includeGlobs, excludeGlobs, !noDefaultExcludes)
+                    .withPackages(includePackages, excludePackages);
+        } catch (IllegalArgumentException e) {
+            throw new CommandLine.ParameterException(new CommandLine(this), e.getMessage(), e);
+        }
+    }
+
+    private TypeResolution resolveTypeResolution() {
+        TypeResolution mode = TypeResolution.fromString(typeResolution);
+        if (mode == null) {
+            throw new CommandLine.ParameterException(new CommandLine(this),
+                    "Unknown --type-resolution mode: " + typeResolution + " (expected solver, tiered or lexical)");
+        }
+        return mode;
+    }
+
+    private Path resolveGitRepository() {
+        if (gitRepository != null) {
+            return gitRepository;
+        }
+        Path first = sourcePaths.getFirst().toAbsolutePath();
+        return Files.isDirectory(first) ? first : first.getParent();
+    }
+
+    private static void writeArtifactsAndContinue(CliOptions cliOptions, RunResult result) {
+        if (result.exitCode() != 0) {
+            return;
+        }
+        try {
+            new CliArtifactsWriter().write(cliOptions, result);
+        } catch (Exception e) {
+            // A failed artifact for one rebuild or revision should not end the session.
+            LOGGER.log(Level.WARNING, "Failed to write CLI artifacts: {0}", e.getMessage());
+        }
+    }
 }
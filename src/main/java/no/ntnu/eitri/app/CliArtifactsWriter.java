@@ -5,6 +5,10 @@ import no.ntnu.eitri.config.ConfigException;
 import no.ntnu.eitri.config.ConfigService;
 import no.ntnu.eitri.config.PlantUmlConfig;
 import no.ntnu.eitri.degradation.ModelDegrader;
+import no.ntnu.eitri.parser.BuildDiscoveryReport;
+import no.ntnu.eitri.parser.ClasspathPruningReport;
+import no.ntnu.eitri.parser.ParseScheduleReport;
+import no.ntnu.eitri.parser.SolverCacheReport;
 import no.ntnu.eitri.writer.WriteException;
 import no.ntnu.eitri.writer.plantuml.PlantUmlWriter;
 
@@ -16,6 +20,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Writes additive CLI-side artifacts for manual and local testing.
@@ -67,6 +72,10 @@ public final class CliArtifactsWriter {
         report.put("relation_count", result.relationCount());
         report.put("dry_run", result.dryRun());
         report.put("repository_stats", repositoryStatsDocument(result.repositoryStats()));
+        report.put("parse_schedule", parseScheduleDocument(result.parseRun().schedule()));
+        report.put("solver_caches", solverCachesDocument(result.parseRun().solverCaches()));
+        report.put("classpath_pruning", classpathPruningDocument(result.parseRun().classpathPruning()));
+        report.put("build_discovery", buildDiscoveryDocument(result.parseRun().buildDiscovery()));
 
         Map<String, Object> artifacts = new LinkedHashMap<>();
         artifacts.put("diagram_path", result.outputPath().toString());
@@ -95,6 +104,63 @@ public final class CliArtifactsWriter {
         return stats;
     }
 
+    private Map<String, Object> parseScheduleDocument(ParseScheduleReport parseSchedule) {
+        if (parseSchedule == null) {
+            return null;
+        }
+        Map<String, Object> schedule = new LinkedHashMap<>();
+        schedule.put("cost_model", parseSchedule.costModel());
+        schedule.put("workers", parseSchedule.workers());
+        schedule.put("file_count", parseSchedule.fileCount());
+        schedule.put("files_with_history", parseSchedule.filesWithHistory());
+        schedule.put("wall_ms", TimeUnit.NANOSECONDS.toMillis(parseSchedule.wallNanos()));
+        schedule.put("busy_ms", TimeUnit.NANOSECONDS.toMillis(parseSchedule.busyNanos()));
+        schedule.put("core_utilization", parseSchedule.coreUtilization());
+        schedule.put("slowest_file", parseSchedule.slowestFile());
+        schedule.put("slowest_file_ms", TimeUnit.NANOSECONDS.toMillis(parseSchedule.slowestFileNanos()));
+        return schedule;
+    }
+
+    private Map<String, Object> solverCachesDocument(SolverCacheReport solverCaches) {
+        if (solverCaches == null) {
+            return null;
+        }
+        Map<String, Object> caches = new LinkedHashMap<>();
+        caches.put("max_entries", solverCaches.maxEntries());
+        caches.put("release_every", solverCaches.releaseEvery());
+        caches.put("hits", solverCaches.hits());
+        caches.put("misses", solverCaches.misses());
+        caches.put("hit_rate", solverCaches.hitRate());
+        caches.put("evictions", solverCaches.evictions());
+        caches.put("releases", solverCaches.releases());
+        return caches;
+    }
+
+    private Map<String, Object> classpathPruningDocument(ClasspathPruningReport classpathPruning) {
+        if (classpathPruning == null) {
+            return null;
+        }
+        Map<String, Object> pruning = new LinkedHashMap<>();
+        pruning.put("applied", classpathPruning.applied());
+        pruning.put("referenced_packages", classpathPruning.referencedPackages());
+        pruning.put("candidate_jars", classpathPruning.candidateJars());
+        pruning.put("kept_jars", classpathPruning.keptJars());
+        pruning.put("pruned_jars", classpathPruning.prunedJars().stream().map(Path::toString).toList());
+        return pruning;
+    }
+
+    private Map<String, Object> buildDiscoveryDocument(BuildDiscoveryReport buildDiscovery) {
+        if (buildDiscovery == null) {
+            return null;
+        }
+        Map<String, Object> discovery = new LinkedHashMap<>();
+        discovery.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(buildDiscovery.nanos()));
+        discovery.put("modules_walked", buildDiscovery.modulesWalked());
+        discovery.put("scripts_read", buildDiscovery.scriptsRead());
+        discovery.put("scripts_reused", buildDiscovery.scriptsReused());
+        return discovery;
+    }
+
     private Map<String, Object> degradationDocument(
             Path outputPath,
             List<ModelDegrader.DiagramDegradationResult> variants) {
@@ -133,6 +199,8 @@ public final class CliArtifactsWriter {
         Map<String, Object> artifacts = (Map<String, Object>) report.get("artifacts");
         @SuppressWarnings("unchecked")
         Map<String, Object> degradation = (Map<String, Object>) report.get("degradation");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> parseSchedule = (Map<String, Object>) report.get("parse_schedule");
 
         return """
                 # Eitri CLI Run Report
@@ -153,6 +221,8 @@ public final class CliArtifactsWriter {
                 | diagram_v3_eligible_kind_counts | %s |
                 | diagram_v2_applied_kind_counts | %s |
                 | diagram_v3_applied_kind_counts | %s |
+                | parse_cost_model | %s |
+                | parse_core_utilization | %s |
                 | generated_at | %s |
                 """.formatted(
                 report.get("status"),
@@ -169,6 +239,8 @@ public final class CliArtifactsWriter {
                 eligibleKindCountsForVariant(degradation, "diagram_v3"),
                 appliedKindCountsForVariant(degradation, "diagram_v2"),
                 appliedKindCountsForVariant(degradation, "diagram_v3"),
+                parseSchedule != null ? parseSchedule.get("cost_model") : "",
+                parseSchedule != null ? parseSchedule.get("core_utilization") : "",
                 report.get("generated_at"));
     }
 
@@ -11,14 +11,23 @@ import no.ntnu.eitri.config.RunConfig;
 import no.ntnu.eitri.config.WriterConfig;
 import no.ntnu.eitri.model.UmlModel;
 import no.ntnu.eitri.parser.ParseException;
+import no.ntnu.eitri.parser.ParseSession;
 import no.ntnu.eitri.parser.SourceParser;
 import no.ntnu.eitri.util.PathExtension;
+import no.ntnu.eitri.util.SourceArchives;
 import no.ntnu.eitri.writer.DiagramWriter;
 import no.ntnu.eitri.writer.WriteException;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,6 +37,7 @@ import java.util.logging.Logger;
 public class EitriRunner {
 
     private static final Logger LOGGER = Logger.getLogger(EitriRunner.class.getName());
+    private static final int REVISION_LABEL_LENGTH = 12;
     private final ParserRegistry parserRegistry;
     private final WriterRegistry writerRegistry;
 
@@ -49,68 +59,292 @@ public class EitriRunner {
 
             SourceParser parser = resolveParser(runConfig);
             UmlModel model = parseSources(runConfig, parser);
-            RepositoryStats repositoryStats = RepositoryStatsCollector.collect(
-                    model,
-                    runConfig.sourcePaths(),
-                    parser.getSupportedExtensions());
+            return completeRun(model, runConfig, resolution, parser);
+
+        } catch (Exception e) {
+            return failedRun(e, cliOptions);
+        }
+    }
 
-            if (runConfig.dryRun()) {
-                runDryRun(model, runConfig, resolution);
-                return new RunResult(
-                        0,
-                        null,
-                        null,
-                        model.getTypes().size(),
-                        model.getRelations().size(),
-                        repositoryStats,
-                        runConfig.outputPath(),
-                        true,
-                        model);
+    /**
+     * Runs once, then keeps watching the source paths and regenerates the
+     * output after every batch of changes.
+     *
+     * <p>
+     * The parser session (symbol solver and per-file results) stays in memory
+     * between rebuilds, so only changed files are parsed again. Errors during
+     * a rebuild are logged and the watch continues; only errors in the
+     * initial run end it. The method returns when the calling thread is
+     * interrupted.
+     *
+     * @param cliOptions options for every run
+     * @param onRun      receives the result of the initial run and of every
+     *                   rebuild
+     * @return the result of the initial run if it failed, otherwise the last
+     *         successful result once interrupted
+     */
+    public RunResult watch(CliOptions cliOptions, Consumer<RunResult> onRun) {
+        return watch(cliOptions, onRun, SourceWatcher.DEFAULT_SETTLE_DELAY);
+    }
+
+    RunResult watch(CliOptions cliOptions, Consumer<RunResult> onRun, Duration settleDelay) {
+        ConfigResolution resolution;
+        RunConfig runConfig;
+        SourceParser parser;
+        try {
+            resolution = resolveConfig(cliOptions);
+            runConfig = resolution.runConfig();
+            logResolvedConfig(resolution);
+            parser = resolveParser(runConfig);
+        } catch (Exception e) {
+            return failedRun(e, cliOptions);
+        }
+
+        // The watcher starts before the initial parse so that edits made while it
+        // runs are picked up by the first update instead of being lost.
+        try (SourceWatcher watcher = SourceWatcher.start(
+                runConfig.sourcePaths(), runConfig.sourceFilter(), settleDelay)) {
+            RunResult result;
+            ParseSession session = null;
+            try {
+                session = parser.openSession(runConfig.sourcePaths(), runConfig);
+                result = completeRun(session.model(), runConfig, resolution, parser);
+            } catch (Exception e) {
+                if (session != null) {
+                    session.close();
+                }
+                return failedRun(e, cliOptions);
             }
+            onRun.accept(result);
+            return watchLoop(watcher, session, cliOptions, onRun, result, resolution, parser);
+        } catch (IOException e) {
+            return failedRun(e, cliOptions);
+        }
+    }
 
-            writeOutput(model, runConfig, resolution);
-            return new RunResult(
-                    0,
-                    null,
-                    null,
-                    model.getTypes().size(),
-                    model.getRelations().size(),
-                    repositoryStats,
-                    runConfig.outputPath(),
-                    false,
-                    model);
-
-        } catch (ConfigException e) {
-            LOGGER.log(Level.SEVERE, "Configuration error: {0}", e.getMessage());
-            return new RunResult(1, RunFailureKind.CONFIG_ERROR, e.getMessage(), 0, 0, null, null,
-                    cliOptions.dryRun(), null);
-        } catch (ParseException e) {
-            LOGGER.log(Level.SEVERE, "Parse error: {0}", e.getMessage());
-            if (cliOptions.verbose() && e.getCause() != null) {
-                LOGGER.log(Level.SEVERE, "Cause:", e.getCause());
-            }
-            return new RunResult(1, RunFailureKind.PARSE_ERROR, e.getMessage(), 0, 0, null, null,
-                    cliOptions.dryRun(), null);
-        } catch (WriteException e) {
-            LOGGER.log(Level.SEVERE, "Write error: {0}", e.getMessage());
-            if (cliOptions.verbose() && e.getCause() != null) {
-                LOGGER.log(Level.SEVERE, "Cause:", e.getCause());
-            }
-            return new RunResult(1, RunFailureKind.WRITE_ERROR, e.getMessage(), 0, 0, null, null,
-                    cliOptions.dryRun(), null);
+    private RunResult watchLoop(SourceWatcher watcher, ParseSession session, CliOptions cliOptions,
+            Consumer<RunResult> onRun, RunResult initial, ConfigResolution resolution, SourceParser parser) {
+        RunConfig runConfig = resolution.runConfig();
+        RunResult result = initial;
+        try (session) {
+            LOGGER.log(Level.INFO, "Watching {0} source path(s) for changes",
+                    runConfig.sourcePaths().size());
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changed = watcher.awaitChanges();
+                long started = System.nanoTime();
+                try {
+                    UmlModel model = session.update(changed);
+                    result = completeRun(model, runConfig, resolution, parser);
+                    LOGGER.log(Level.INFO, "Regenerated in {0} ms",
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                    onRun.accept(result);
+                } catch (Exception e) {
+                    onRun.accept(failedRun(e, cliOptions));
+                }
+            }
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    /**
+     * Generates one diagram and model snapshot per revision of a git
+     * repository, in the given order.
+     *
+     * <p>
+     * Each revision's files are materialized into a scratch worktree by git
+     * blob id, writing only blobs that differ from the previous revision. One
+     * parser session is kept across revisions, so a blob unchanged since the
+     * previous revision is not parsed again, and a blob seen at any earlier
+     * revision is reused from the session unless the types it references
+     * appeared or disappeared since. Outputs for a revision go to
+     * {@code <out dir>/<commit>/<out name>}, where {@code <commit>} is the
+     * abbreviated commit id. A revision that fails is reported and the next
+     * one is processed.
+     *
+     * <p>
+     * Source paths must lie inside the repository's working tree and are
+     * applied to every revision at the same repository-relative location.
+     * They need not exist on disk, only in the revisions.
+     *
+     * @param cliOptions     options for every revision
+     * @param repositoryPath any directory inside the repository's working tree
+     * @param revisions      revision expressions, processed in order
+     * @param onRun          receives each revision's result as it completes
+     * @return one result per revision, or a single failed result if the
+     *         repository or configuration cannot be used at all
+     */
+    public List<RunResult> history(CliOptions cliOptions, Path repositoryPath, List<String> revisions,
+            Consumer<RunResult> onRun) {
+        ConfigResolution resolution;
+        SourceParser parser;
+        RevisionSources sources;
+        try {
+            resolution = resolveConfig(cliOptions, false);
+            logResolvedConfig(resolution);
+            parser = resolveParser(resolution.runConfig());
+            sources = RevisionSources.open(repositoryPath, resolution.runConfig(), parser);
+        } catch (Exception e) {
+            RunResult failed = failedRun(e, cliOptions);
+            onRun.accept(failed);
+            return List.of(failed);
+        }
+
+        RunConfig runConfig = resolution.runConfig();
+        List<RunResult> results = new ArrayList<>();
+        ParseSession session = null;
+        try {
+            for (String revision : revisions) {
+                RunResult result;
+                long started = System.nanoTime();
+                try {
+                    String commit = sources.repository().resolveCommit(revision);
+                    Set<Path> changed = sources.worktree().checkout(sources.repository().listFiles(commit));
+                    RunConfig revisionConfig = sources.runConfig(runConfig,
+                            revisionOutputPath(runConfig.outputPath(), commit));
+                    UmlModel model;
+                    if (session == null) {
+                        session = parser.openSession(revisionConfig.sourcePaths(), revisionConfig);
+                        model = session.model();
+                    } else {
+                        model = session.update(changed);
+                    }
+                    result = completeRun(model, revisionConfig, resolution, parser);
+                    LOGGER.log(Level.INFO, "Revision {0}: {1} file(s) changed, done in {2} ms",
+                            new Object[] { revision, changed.size(),
+                                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) });
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Revision {0} failed", revision);
+                    result = failedRun(e, cliOptions);
+                }
+                results.add(result);
+                onRun.accept(result);
+            }
+        } finally {
+            if (session != null) {
+                session.close();
+            }
+            sources.close();
+        }
+        return results;
+    }
+
+    /**
+     * Generates the output for the repository's working tree by parsing
+     * {@code baseRevision} and then updating only the files that differ from
+     * it: tracked files changed since the base, and untracked files that are
+     * not ignored.
+     *
+     * <p>
+     * The base revision is materialized in a scratch worktree as in
+     * {@link #history}; with a parse cache configured the cache fingerprint
+     * leaves out where the worktree is, so the base is replayed from the cache
+     * rather than parsed.
+     *
+     * @param cliOptions     options for the run
+     * @param repositoryPath any directory inside the repository's working tree
+     * @param baseRevision   revision expression of the base
+     * @return the run result
+     */
+    public RunResult changedSince(CliOptions cliOptions, Path repositoryPath, String baseRevision) {
+        try {
+            ConfigResolution resolution = resolveConfig(cliOptions, false);
+            RunConfig runConfig = resolution.runConfig();
+            logResolvedConfig(resolution);
+            SourceParser parser = resolveParser(runConfig);
+            try (RevisionSources sources = RevisionSources.open(repositoryPath, runConfig, parser)) {
+                String commit = sources.repository().resolveCommit(baseRevision);
+                sources.worktree().checkout(sources.repository().listFiles(commit));
+                RunConfig worktreeConfig = sources.runConfig(runConfig, runConfig.outputPath());
+                try (ParseSession session = parser.openSession(worktreeConfig.sourcePaths(), worktreeConfig)) {
+                    Set<Path> changed = sources.worktree()
+                            .overlayWorkingTree(sources.repository().changedSince(commit));
+                    if (runConfig.verbose()) {
+                        LOGGER.log(Level.INFO, "{0} file(s) changed since {1}",
+                                new Object[] { changed.size(), baseRevision });
+                    }
+                    UmlModel model = session.update(changed);
+                    return completeRun(model, worktreeConfig, resolution, parser);
+                }
+            }
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Unexpected error: {0}", e.getMessage());
-            if (cliOptions.verbose()) {
-                LOGGER.log(Level.SEVERE, "Stack trace:", e);
+            return failedRun(e, cliOptions);
+        }
+    }
+
+    static Path revisionOutputPath(Path outputPath, String commit) {
+        String label = commit.substring(0, Math.min(REVISION_LABEL_LENGTH, commit.length()));
+        Path parent = outputPath.getParent();
+        Path directory = parent == null ? Path.of(label) : parent.resolve(label);
+        return directory.resolve(outputPath.getFileName());
+    }
+
+    private RunResult completeRun(UmlModel model, RunConfig runConfig, ConfigResolution resolution,
+            SourceParser parser) throws ConfigException, WriteException {
+        RepositoryStats repositoryStats = RepositoryStatsCollector.collect(
+                model,
+                runConfig.sourcePaths(),
+                parser.getSupportedExtensions(),
+                runConfig.sourceFilter(),
+                parser.lastSourceFiles());
+
+        if (runConfig.dryRun()) {
+            runDryRun(model, runConfig, resolution);
+        } else {
+            writeOutput(model, runConfig, resolution);
+        }
+        return new RunResult(
+                0,
+                null,
+                null,
+                model.getTypes().size(),
+                model.getRelations().size(),
+                repositoryStats,
+                parser.lastRunReport(),
+                runConfig.outputPath(),
+                runConfig.dryRun(),
+                model);
+    }
+
+    private RunResult failedRun(Exception exception, CliOptions cliOptions) {
+        switch (exception) {
+            case ConfigException e -> {
+                LOGGER.log(Level.SEVERE, "Configuration error: {0}", e.getMessage());
+                return RunResult.failure(RunFailureKind.CONFIG_ERROR, e.getMessage(), cliOptions.dryRun());
+            }
+            case ParseException e -> {
+                LOGGER.log(Level.SEVERE, "Parse error: {0}", e.getMessage());
+                if (cliOptions.verbose() && e.getCause() != null) {
+                    LOGGER.log(Level.SEVERE, "Cause:", e.getCause());
+                }
+                return RunResult.failure(RunFailureKind.PARSE_ERROR, e.getMessage(), cliOptions.dryRun());
+            }
+            case WriteException e -> {
+                LOGGER.log(Level.SEVERE, "Write error: {0}", e.getMessage());
+                if (cliOptions.verbose() && e.getCause() != null) {
+                    LOGGER.log(Level.SEVERE, "Cause:", e.getCause());
+                }
+                return RunResult.failure(RunFailureKind.WRITE_ERROR, e.getMessage(), cliOptions.dryRun());
+            }
+            default -> {
+                LOGGER.log(Level.SEVERE, "Unexpected error: {0}", exception.getMessage());
+                if (cliOptions.verbose()) {
+                    LOGGER.log(Level.SEVERE, "Stack trace:", exception);
+                }
+                return RunResult.failure(RunFailureKind.UNEXPECTED_ERROR, exception.getMessage(),
+                        cliOptions.dryRun());
             }
-            return new RunResult(1, RunFailureKind.UNEXPECTED_ERROR, e.getMessage(), 0, 0, null, null,
-                    cliOptions.dryRun(), null);
         }
     }
 
     private ConfigResolution resolveConfig(CliOptions cliOptions) throws ConfigException {
+        return resolveConfig(cliOptions, true);
+    }
+
+    private ConfigResolution resolveConfig(CliOptions cliOptions, boolean sourcesOnDisk) throws ConfigException {
         ConfigService configService = new ConfigService();
-        return configService.resolve(cliOptions);
+        return configService.resolve(cliOptions, sourcesOnDisk);
     }
 
     private void logResolvedConfig(ConfigResolution resolution) {
@@ -161,16 +395,16 @@ public class EitriRunner {
         OutputPathInitializer.initialize(runConfig.outputPath());
         DiagramWriter<?> writer = resolveWriter(runConfig);
         writeWithResolvedConfig(writer, model, runConfig.outputPath(), resolution);
-        writeSnapshot(model, runConfig.outputPath());
+        writeSnapshot(model, runConfig);
 
         LOGGER.log(Level.INFO, "Generated {0}",
                 new Object[] { runConfig.outputPath() });
     }
 
-    private void writeSnapshot(UmlModel model, Path outputPath) throws WriteException {
-        Path snapshotPath = ModelSnapshotWriter.defaultPath(outputPath);
+    private void writeSnapshot(UmlModel model, RunConfig runConfig) throws WriteException {
+        Path snapshotPath = ModelSnapshotWriter.defaultPath(runConfig.outputPath());
         try {
-            ModelSnapshotWriter.write(model, snapshotPath);
+            ModelSnapshotWriter.write(model, runConfig.modelProjection(), snapshotPath);
         } catch (Exception e) {
             throw new WriteException("Failed to write model snapshot", snapshotPath, e);
         }
@@ -224,7 +458,11 @@ public class EitriRunner {
                 continue;
             }
 
-            if (Files.isRegularFile(sourcePath)) {
+            // Other archives hold sources; a jar of classes is read by the class file parser.
+            if (SourceArchives.isClassJar(sourcePath)) {
+                return ".jar";
+            }
+            if (Files.isRegularFile(sourcePath) && SourceArchives.archiveFile(sourcePath) == null) {
                 String extension = PathExtension.fromPath(sourcePath);
                 if (extension != null) {
                     return extension;
@@ -233,4 +471,59 @@ public class EitriRunner {
         }
         return null;
     }
+
+    /**
+     * A repository, its scratch worktree and the configured source paths
+     * relative to the repository root.
+     */
+    private record RevisionSources(GitRepository repository, RevisionWorktree worktree, List<Path> relativeSources)
+            implements AutoCloseable {
+
+        static RevisionSources open(Path repositoryPath, RunConfig runConfig, SourceParser parser)
+                throws IOException, ConfigException {
+            GitRepository repository = GitRepository.open(repositoryPath);
+            List<Path> relativeSources = new ArrayList<>();
+            for (Path sourcePath : runConfig.sourcePaths()) {
+                relativeSources.add(relativeSource(repository.root(), sourcePath));
+            }
+            RevisionWorktree worktree = RevisionWorktree.open(repository, runConfig.parseOptions().cacheDirectory(),
+                    parser.getSupportedExtensions());
+            return new RevisionSources(repository, worktree, List.copyOf(relativeSources));
+        }
+
+        /**
+         * Locates a source path in the repository without requiring it to
+         * exist, since it may only exist in the revisions being read. Paths
+         * are compared lexically, then through the real repository root for
+         * a root reached through a symbolic link.
+         */
+        private static Path relativeSource(Path root, Path sourcePath) throws IOException, ConfigException {
+            Path absolute = sourcePath.toAbsolutePath().normalize();
+            Path lexicalRoot = root.toAbsolutePath().normalize();
+            if (absolute.startsWith(lexicalRoot)) {
+                return lexicalRoot.relativize(absolute);
+            }
+            Path realRoot = root.toRealPath();
+            if (absolute.startsWith(realRoot)) {
+                return realRoot.relativize(absolute);
+            }
+            if (Files.exists(absolute) && absolute.toRealPath().startsWith(realRoot)) {
+                return realRoot.relativize(absolute.toRealPath());
+            }
+            throw new ConfigException("Source path is not inside the git repository " + root + ": " + sourcePath);
+        }
+
+        @Override
+        public void close() {
+            worktree.close();
+        }
+
+        RunConfig runConfig(RunConfig base, Path outputPath) {
+            List<Path> worktreeSources = relativeSources.stream().map(worktree::resolve).toList();
+            return new RunConfig(worktreeSources, outputPath, base.parserExtension(), base.writerExtension(),
+                    base.verbose(), base.dryRun(), base.parseOptions().withFingerprintRoot(worktree.directory()),
+                    base.sourceFilter(),
+                    base.modelProjection());
+        }
+    }
 }
@@ -0,0 +1,222 @@
+package no.ntnu.eitri.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Read-only access to a local git repository through the {@code git} command
+ * line.
+ *
+ * <p>
+ * Only plumbing commands with NUL-separated output are used, so paths with
+ * spaces or non-ASCII characters need no unquoting.
+ */
+final class GitRepository {
+
+    private static final String REGULAR_FILE_MODE = "100644";
+    private static final String EXECUTABLE_FILE_MODE = "100755";
+
+    private final Path root;
+    private final Path gitDirectory;
+
+    private GitRepository(Path root, Path gitDirectory) {
+        this.root = root;
+        this.gitDirectory = gitDirectory;
+    }
+
+    /**
+     * Opens the repository containing {@code directory}.
+     *
+     * @param directory any directory inside the working tree
+     * @return the repository
+     * @throws IOException if {@code directory} is not inside a git working
+     *                     tree or git cannot be run
+     */
+    static GitRepository open(Path directory) throws IOException {
+        Path start = directory.toAbsolutePath().normalize();
+        String[] lines = runText(start, "rev-parse", "--show-toplevel", "--absolute-git-dir").split("\n");
+        if (lines.length < 2) {
+            throw new IOException("Not a git working tree: " + start);
+        }
+        return new GitRepository(Path.of(lines[0].trim()), Path.of(lines[1].trim()));
+    }
+
+    Path root() {
+        return root;
+    }
+
+    Path gitDirectory() {
+        return gitDirectory;
+    }
+
+    /**
+     * Resolves a revision expression to a full commit id.
+     *
+     * @param revision branch, tag, commit id or other revision expression
+     * @return the commit id
+     * @throws IOException if the revision does not name a commit
+     */
+    String resolveCommit(String revision) throws IOException {
+        return runText(root, "rev-parse", "--verify", "--end-of-options", revision + "^{commit}").trim();
+    }
+
+    /**
+     * Lists the regular files of a commit by blob id.
+     *
+     * <p>
+     * Symbolic links and submodules are left out; they have no content to
+     * parse.
+     *
+     * @param commit commit id
+     * @return blob id by repository-relative path, in tree order
+     * @throws IOException if git fails
+     */
+    Map<String, String> listFiles(String commit) throws IOException {
+        Map<String, String> files = new LinkedHashMap<>();
+        for (String entry : runNulSeparated(root, "ls-tree", "-r", "-z", "--full-tree", commit)) {
+            // <mode> SP <type> SP <object> TAB <path>
+            int tab = entry.indexOf('\t');
+            String[] header = entry.substring(0, tab).split(" ");
+            if (REGULAR_FILE_MODE.equals(header[0]) || EXECUTABLE_FILE_MODE.equals(header[0])) {
+                files.put(entry.substring(tab + 1), header[2]);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Lists working-tree paths whose content differs from a commit: tracked
+     * files modified, added or deleted since it, and untracked files that are
+     * not ignored.
+     *
+     * @param commit commit id
+     * @return repository-relative paths
+     * @throws IOException if git fails
+     */
+    Set<String> changedSince(String commit) throws IOException {
+        Set<String> paths = new LinkedHashSet<>(
+                runNulSeparated(root, "diff", "--name-only", "--no-renames", "-z", commit, "--"));
+        paths.addAll(runNulSeparated(root, "ls-files", "--others", "--exclude-standard", "-z"));
+        return paths;
+    }
+
+    /**
+     * Streams blob contents through a single {@code git cat-file --batch}
+     * process.
+     *
+     * @param blobIds  blobs to read
+     * @param consumer receives each blob id with its content, in order
+     * @throws IOException if git fails or a blob is missing
+     */
+    void readBlobs(List<String> blobIds, BlobConsumer consumer) throws IOException {
+        if (blobIds.isEmpty()) {
+            return;
+        }
+        Process process = start(root, "cat-file", "--batch");
+        CompletableFuture<Void> requests = CompletableFuture.runAsync(() -> {
+            try (OutputStream out = new BufferedOutputStream(process.getOutputStream())) {
+                for (String blobId : blobIds) {
+                    out.write((blobId + "\n").getBytes(StandardCharsets.US_ASCII));
+                }
+            } catch (IOException _) {
+                // git exited early; the reader below reports why.
+            }
+        });
+        try (InputStream in = new BufferedInputStream(process.getInputStream())) {
+            for (String blobId : blobIds) {
+                // <object> SP <type> SP <size> LF <content> LF
+                String header = readLine(in);
+                String[] parts = header.split(" ");
+                if (parts.length != 3 || !"blob".equals(parts[1])) {
+                    throw new IOException("Cannot read blob " + blobId + ": " + header);
+                }
+                byte[] content = in.readNBytes(Integer.parseInt(parts[2]));
+                in.read();
+                consumer.accept(blobId, content);
+            }
+        } finally {
+            requests.join();
+            process.destroy();
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int next;
+        while ((next = in.read()) != -1 && next != '\n') {
+            line.write(next);
+        }
+        if (next == -1 && line.size() == 0) {
+            throw new IOException("Unexpected end of git cat-file output");
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> runNulSeparated(Path directory, String... arguments) throws IOException {
+        List<String> entries = new ArrayList<>();
+        for (String entry : runText(directory, arguments).split("\0")) {
+            if (!entry.isEmpty()) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private static String runText(Path directory, String... arguments) throws IOException {
+        Process process = start(directory, arguments);
+        process.getOutputStream().close();
+        CompletableFuture<byte[]> errors = CompletableFuture.supplyAsync(() -> {
+            try (InputStream err = process.getErrorStream()) {
+                return err.readAllBytes();
+            } catch (IOException _) {
+                return new byte[0];
+            }
+        });
+        byte[] output;
+        try (InputStream in = process.getInputStream()) {
+            output = in.readAllBytes();
+        }
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("git " + arguments[0] + " failed (exit " + exitCode + "): "
+                        + new String(errors.join(), StandardCharsets.UTF_8).trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new IOException("Interrupted while running git " + arguments[0], e);
+        }
+        return new String(output, StandardCharsets.UTF_8);
+    }
+
+    private static Process start(Path directory, String... arguments) throws IOException {
+        List<String> command = new ArrayList<>(arguments.length + 3);
+        command.add("git");
+        command.add("-C");
+        command.add(directory.toString());
+        command.addAll(List.of(arguments));
+        return new ProcessBuilder(command).start();
+    }
+
+    /**
+     * Receives blob contents from {@link #readBlobs}.
+     */
+    @FunctionalInterface
+    interface BlobConsumer {
+        void accept(String blobId, byte[] content) throws IOException;
+    }
+}
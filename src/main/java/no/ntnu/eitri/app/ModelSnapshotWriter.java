@@ -1,5 +1,6 @@
 package no.ntnu.eitri.app;
 
+import no.ntnu.eitri.config.ModelProjection;
 import no.ntnu.eitri.model.Modifier;
 import no.ntnu.eitri.model.UmlField;
 import no.ntnu.eitri.model.UmlGeneric;
@@ -24,6 +25,10 @@ import java.util.Map;
 
 /**
  * Writes a deterministic JSON snapshot of the semantic UML model.
+ *
+ * <p>
+ * Snapshots of a projected model carry a {@code projection} entry naming what
+ * was left out; full snapshots look as they always have.
  */
 final class ModelSnapshotWriter {
 
@@ -52,11 +57,15 @@ final class ModelSnapshotWriter {
     }
 
     static void write(UmlModel model, Path outputPath) throws IOException {
+        write(model, ModelProjection.full(), outputPath);
+    }
+
+    static void write(UmlModel model, ModelProjection projection, Path outputPath) throws IOException {
         Path parent = outputPath.getParent();
         if (parent != null && !Files.exists(parent)) {
             Files.createDirectories(parent);
         }
-        Files.writeString(outputPath, toJson(document(model)) + System.lineSeparator(), StandardCharsets.UTF_8);
+        Files.writeString(outputPath, toJson(document(model, projection)) + System.lineSeparator(), StandardCharsets.UTF_8);
     }
 
     static Path defaultPath(Path diagramPath) {
@@ -65,8 +74,15 @@ final class ModelSnapshotWriter {
     }
 
     static Map<String, Object> document(UmlModel model) {
+        return document(model, ModelProjection.full());
+    }
+
+    static Map<String, Object> document(UmlModel model, ModelProjection projection) {
         LinkedHashMap<String, Object> document = new LinkedHashMap<>();
         document.put("schema_version", SCHEMA_VERSION);
+        if (!projection.isFull()) {
+            document.put("projection", projectionDocument(projection));
+        }
         document.put("model_name", model.getName());
         document.put("packages", model.getPackages());
         document.put("types", typeDocuments(model));
@@ -152,6 +168,19 @@ final class ModelSnapshotWriter {
         return relations;
     }
 
+    private static Map<String, Object> projectionDocument(ModelProjection projection) {
+        LinkedHashMap<String, Object> entry = new LinkedHashMap<>();
+        entry.put("field_visibilities", projection.fieldVisibilities().stream()
+                .map(ModelSnapshotWriter::enumName)
+                .toList());
+        entry.put("method_visibilities", projection.methodVisibilities().stream()
+                .map(ModelSnapshotWriter::enumName)
+                .toList());
+        entry.put("field_relations", projection.fieldRelations());
+        entry.put("method_dependencies", projection.methodDependencies());
+        return entry;
+    }
+
     private static List<Map<String, Object>> genericDocuments(List<UmlGeneric> generics) {
         return generics.stream()
                 .sorted(Comparator.comparing(UmlGeneric::identifier)
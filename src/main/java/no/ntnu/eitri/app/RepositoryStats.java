@@ -7,6 +7,15 @@ import java.util.Map;
 
 /**
  * Aggregated repository statistics for a parse run.
+ *
+ * <p>
+ * {@code sourceFileCount} is the number of source files the parser selected
+ * for the run, after include and exclude globs, default excludes, test
+ * directories and package selection, as reported by
+ * {@link no.ntnu.eitri.parser.SourceParser#lastSourceFiles()}. For a parser
+ * that does not report its selection, it counts the files with a supported
+ * extension that the globs and default excludes admit, which includes test
+ * directories and packages left out by package selection.
  */
 public record RepositoryStats(
         int sourcePathCount,
@@ -1,12 +1,17 @@
 package no.ntnu.eitri.app;
 
+import no.ntnu.eitri.config.SourceFilter;
 import no.ntnu.eitri.model.TypeKind;
 import no.ntnu.eitri.model.UmlModel;
 import no.ntnu.eitri.model.UmlType;
+import no.ntnu.eitri.util.SourceArchives;
 
 import java.io.IOException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -16,7 +21,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Stream;
 
 /**
  * Derives repository-level statistics from parsed sources and the UML model.
@@ -26,7 +30,23 @@ final class RepositoryStatsCollector {
     private RepositoryStatsCollector() {
     }
 
-    static RepositoryStats collect(UmlModel model, List<Path> sourcePaths, List<String> supportedExtensions) {
+    /**
+     * Collects statistics for a parsed model.
+     *
+     * @param model               the parsed model
+     * @param sourcePaths         configured source paths
+     * @param supportedExtensions extensions counted as source files
+     * @param sourceFilter        filter applied when the source paths have to
+     *                            be walked
+     * @param sourceFiles         files the parser selected, or null if it does
+     *                            not report them; the source paths are then
+     *                            walked here, with the source filter but
+     *                            without the parser's own rules (see
+     *                            {@link RepositoryStats})
+     * @return the statistics
+     */
+    static RepositoryStats collect(UmlModel model, List<Path> sourcePaths, List<String> supportedExtensions,
+            SourceFilter sourceFilter, List<Path> sourceFiles) {
         Objects.requireNonNull(model, "model");
         Objects.requireNonNull(sourcePaths, "sourcePaths");
 
@@ -58,7 +78,9 @@ final class RepositoryStatsCollector {
 
         return new RepositoryStats(
                 sourcePaths.size(),
-                countSourceFiles(sourcePaths, supportedExtensions),
+                sourceFiles != null
+                        ? (int) sourceFiles.stream().map(path -> path.toAbsolutePath().normalize()).distinct().count()
+                        : countSourceFiles(sourcePaths, supportedExtensions, sourceFilter),
                 model.getTypes().size(),
                 model.getTypes().size() - nestedTypeCount,
                 nestedTypeCount,
@@ -68,31 +90,59 @@ final class RepositoryStatsCollector {
                 typeKindCounts);
     }
 
-    private static int countSourceFiles(List<Path> sourcePaths, List<String> supportedExtensions) {
+    private static int countSourceFiles(List<Path> sourcePaths, List<String> supportedExtensions,
+            SourceFilter sourceFilter) {
         Set<Path> files = new LinkedHashSet<>();
-        for (Path sourcePath : sourcePaths) {
-            if (sourcePath == null || !Files.exists(sourcePath)) {
-                continue;
+        try (SourceArchives archives = SourceArchives.mount(sourcePaths, supportedExtensions)) {
+            for (Path sourcePath : archives.paths()) {
+                collectSourceFiles(sourcePath, supportedExtensions, sourceFilter, files);
             }
+        } catch (IOException _ignored) {
+            // Keep stats best effort; parsing already succeeded, so report what we can.
+        }
+        return files.size();
+    }
 
-            Path normalized = sourcePath.toAbsolutePath().normalize();
-            if (Files.isRegularFile(normalized)) {
-                if (matchesSupportedExtension(normalized, supportedExtensions)) {
-                    files.add(normalized);
-                }
-                continue;
-            }
+    private static void collectSourceFiles(Path sourcePath, List<String> supportedExtensions,
+            SourceFilter sourceFilter, Set<Path> files) {
+        if (sourcePath == null || !Files.exists(sourcePath)) {
+            return;
+        }
 
-            try (Stream<Path> stream = Files.walk(normalized)) {
-                stream.filter(Files::isRegularFile)
-                        .filter(path -> matchesSupportedExtension(path, supportedExtensions))
-                        .map(path -> path.toAbsolutePath().normalize())
-                        .forEach(files::add);
-            } catch (IOException _ignored) {
-                // Keep stats best effort; parsing already succeeded, so report what we can.
+        Path normalized = sourcePath.toAbsolutePath().normalize();
+        if (Files.isRegularFile(normalized)) {
+            if (matchesSupportedExtension(normalized, supportedExtensions)) {
+                files.add(normalized);
             }
+            return;
+        }
+
+        try {
+            Files.walkFileTree(normalized, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return sourceFilter.excludesDirectory(normalized, dir)
+                            ? FileVisitResult.SKIP_SUBTREE
+                            : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && matchesSupportedExtension(file, supportedExtensions)
+                            && sourceFilter.includesFile(normalized, file)) {
+                        files.add(file.toAbsolutePath().normalize());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException _ignored) {
+            // Keep stats best effort; parsing already succeeded, so report what we can.
         }
-        return files.size();
     }
 
     private static boolean matchesSupportedExtension(Path path, List<String> supportedExtensions) {
@@ -0,0 +1,276 @@
+package no.ntnu.eitri.app;
+
+import no.ntnu.eitri.util.ParseInputs;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * A scratch directory holding the files of one repository revision at a
+ * time, for parsers that read sources from disk.
+ *
+ * <p>
+ * Only files a parse can read are materialized: sources with one of the
+ * parser's extensions, Gradle build and settings scripts, Maven POMs and
+ * checked-in jars. With a parse cache directory the worktree is a directory of
+ * its own under it, otherwise a temporary directory. Either way it is deleted
+ * on {@link #close()}. Under a cache directory each worktree holds a lock file
+ * while it is open, so runs sharing the cache never touch each other's
+ * worktree, and worktrees left behind by runs that did not close them are
+ * deleted by the next {@link #open}. Cache fingerprints name paths below the
+ * worktree relative to it (see {@code ParseOptions#fingerprintRoot}), so they
+ * stay valid although the directory differs per run.
+ *
+ * <p>
+ * Moving to another revision only writes files whose blob id differs and
+ * deletes files the revision does not have; unchanged files keep their
+ * modification time, so parse sessions see them as unchanged.
+ */
+final class RevisionWorktree implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(RevisionWorktree.class.getName());
+    private static final String WORKTREES_DIRECTORY = "worktrees";
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final String OPEN_LOCK_FILE = "open" + LOCK_SUFFIX;
+    private static final String WORKING_TREE_MARKER = "-";
+
+    private final GitRepository repository;
+    private final Path directory;
+    private final List<String> sourceExtensions;
+    private final Map<String, String> materialized = new HashMap<>();
+    private final Path lockFile;
+    private final FileChannel lockChannel;
+
+    private RevisionWorktree(GitRepository repository, Path directory, List<String> sourceExtensions,
+            Path lockFile, FileChannel lockChannel) {
+        this.repository = repository;
+        this.directory = directory;
+        this.sourceExtensions = List.copyOf(sourceExtensions);
+        this.lockFile = lockFile;
+        this.lockChannel = lockChannel;
+    }
+
+    /**
+     * Creates an empty scratch worktree for a repository.
+     *
+     * @param repository       the repository whose revisions are materialized
+     * @param cacheDirectory   parse cache directory, or null for a temporary
+     *                         directory
+     * @param sourceExtensions extensions of the files the parser reads, e.g.
+     *                         {@code .java}
+     * @return the worktree
+     * @throws IOException if the scratch directory cannot be created
+     */
+    static RevisionWorktree open(GitRepository repository, Path cacheDirectory, List<String> sourceExtensions)
+            throws IOException {
+        if (cacheDirectory == null) {
+            return new RevisionWorktree(repository, Files.createTempDirectory("eitri-worktree-"), sourceExtensions,
+                    null, null);
+        }
+        Path worktrees = cacheDirectory.resolve(WORKTREES_DIRECTORY);
+        Files.createDirectories(worktrees);
+        // Creating a worktree and deleting abandoned ones never overlap between runs.
+        try (FileChannel openChannel = FileChannel.open(worktrees.resolve(OPEN_LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock _ = openChannel.lock()) {
+            deleteAbandoned(worktrees);
+            Path lockFile = Files.createTempFile(worktrees, repositoryKey(repository) + "-", LOCK_SUFFIX);
+            FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.WRITE);
+            try {
+                lockChannel.lock();
+                Path directory = Files.createDirectory(worktreeOf(lockFile));
+                return new RevisionWorktree(repository, directory, sourceExtensions, lockFile, lockChannel);
+            } catch (IOException | RuntimeException e) {
+                lockChannel.close();
+                Files.deleteIfExists(lockFile);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Deletes the worktrees whose lock file no open worktree holds.
+     */
+    private static void deleteAbandoned(Path worktrees) throws IOException {
+        try (DirectoryStream<Path> lockFiles = Files.newDirectoryStream(worktrees, "*-*" + LOCK_SUFFIX)) {
+            for (Path lockFile : lockFiles) {
+                try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE);
+                        FileLock lock = channel.tryLock()) {
+                    if (lock != null) {
+                        deleteTree(worktreeOf(lockFile));
+                        Files.deleteIfExists(lockFile);
+                    }
+                } catch (OverlappingFileLockException _) {
+                    // Held by a worktree open in this process.
+                }
+            }
+        }
+    }
+
+    private static Path worktreeOf(Path lockFile) {
+        String name = lockFile.getFileName().toString();
+        return lockFile.resolveSibling(name.substring(0, name.length() - LOCK_SUFFIX.length()));
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * Resolves a repository-relative path inside the worktree.
+     *
+     * @param relativePath path relative to the repository root
+     * @return the corresponding worktree path
+     */
+    Path resolve(Path relativePath) {
+        return directory.resolve(relativePath.toString());
+    }
+
+    /**
+     * Makes the worktree hold exactly the given files, leaving out those no
+     * parse reads.
+     *
+     * @param files blob id by repository-relative path
+     * @return worktree paths that were written or deleted
+     * @throws IOException if a file cannot be written or git fails
+     */
+    Set<Path> checkout(Map<String, String> files) throws IOException {
+        Map<String, String> read = new LinkedHashMap<>();
+        files.forEach((path, blobId) -> {
+            if (isRead(path)) {
+                read.put(path, blobId);
+            }
+        });
+        Set<Path> changed = new LinkedHashSet<>();
+        for (String path : List.copyOf(materialized.keySet())) {
+            if (!read.containsKey(path)) {
+                Files.deleteIfExists(directory.resolve(path));
+                materialized.remove(path);
+                changed.add(directory.resolve(path));
+            }
+        }
+
+        // Each distinct blob is read from git once, even if several paths share it.
+        Map<String, List<String>> pathsByBlob = new LinkedHashMap<>();
+        for (Map.Entry<String, String> file : read.entrySet()) {
+            if (!file.getValue().equals(materialized.get(file.getKey()))) {
+                pathsByBlob.computeIfAbsent(file.getValue(), _ -> new ArrayList<>()).add(file.getKey());
+            }
+        }
+        repository.readBlobs(List.copyOf(pathsByBlob.keySet()), (blobId, content) -> {
+            for (String path : pathsByBlob.get(blobId)) {
+                Path target = directory.resolve(path);
+                Files.createDirectories(target.getParent());
+                Files.write(target, content);
+                materialized.put(path, blobId);
+                changed.add(target);
+            }
+        });
+        return changed;
+    }
+
+    /**
+     * Copies working-tree files of the repository over the worktree.
+     *
+     * <p>
+     * Copied files are recorded as not matching any blob, so the next
+     * {@link #checkout} rewrites them.
+     *
+     * @param paths repository-relative paths; paths missing from the working
+     *              tree are deleted from the worktree
+     * @return worktree paths that were written or deleted
+     * @throws IOException if a file cannot be copied
+     */
+    Set<Path> overlayWorkingTree(Set<String> paths) throws IOException {
+        Set<Path> changed = new LinkedHashSet<>();
+        for (String path : paths) {
+            if (!isRead(path)) {
+                continue;
+            }
+            Path source = repository.root().resolve(path);
+            Path target = directory.resolve(path);
+            if (Files.isRegularFile(source)) {
+                Files.createDirectories(target.getParent());
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+                materialized.put(path, WORKING_TREE_MARKER);
+            } else {
+                Files.deleteIfExists(target);
+                materialized.remove(path);
+            }
+            changed.add(target);
+        }
+        return changed;
+    }
+
+    /**
+     * Deletes the worktree. Failures are logged; a worktree under the cache
+     * directory is deleted by a later {@link #open} instead.
+     */
+    @Override
+    public void close() {
+        try {
+            deleteTree(directory);
+            if (lockFile != null) {
+                Files.deleteIfExists(lockFile);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete scratch worktree {0} - {1}",
+                    new Object[] { directory, e.getMessage() });
+        } finally {
+            if (lockChannel != null) {
+                try {
+                    lockChannel.close();
+                } catch (IOException _) {
+                    // Closing the channel only releases the lock.
+                }
+            }
+        }
+    }
+
+    private boolean isRead(String path) {
+        return ParseInputs.isRead(path, sourceExtensions);
+    }
+
+    private static String repositoryKey(GitRepository repository) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(repository.gitDirectory().toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void deleteTree(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
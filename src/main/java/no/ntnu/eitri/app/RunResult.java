@@ -1,6 +1,7 @@
 package no.ntnu.eitri.app;
 
 import no.ntnu.eitri.model.UmlModel;
+import no.ntnu.eitri.parser.ParseRunReport;
 
 import java.nio.file.Path;
 
@@ -14,7 +15,21 @@ public record RunResult(
         int typeCount,
         int relationCount,
         RepositoryStats repositoryStats,
+        ParseRunReport parseRun,
         Path outputPath,
         boolean dryRun,
         UmlModel model
-) {}
+) {
+
+    /**
+     * Creates the result of a run that failed before it produced a model.
+     *
+     * @param failureKind  what failed
+     * @param errorMessage the failure message
+     * @param dryRun       whether the run was a dry run
+     * @return the result
+     */
+    public static RunResult failure(RunFailureKind failureKind, String errorMessage, boolean dryRun) {
+        return new RunResult(1, failureKind, errorMessage, 0, 0, null, ParseRunReport.NONE, null, dryRun, null);
+    }
+}
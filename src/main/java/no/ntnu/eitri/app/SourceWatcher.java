@@ -0,0 +1,172 @@
+package no.ntnu.eitri.app;
+
+import no.ntnu.eitri.config.SourceFilter;
+import no.ntnu.eitri.util.SourceArchives;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches source paths for changes using {@link WatchService}.
+ *
+ * <p>
+ * {@code WatchService} only reports direct children of a registered
+ * directory, so every directory below the source paths is registered, and
+ * directories created later are registered as they appear. Events are
+ * collected until the tree has been quiet for the settle delay, so an editor
+ * writing a file in several steps (or a branch switch touching hundreds of
+ * files) produces one batch. Directories excluded by the source filter are
+ * not registered, so build output written during a run causes no events.
+ */
+final class SourceWatcher implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(SourceWatcher.class.getName());
+    static final Duration DEFAULT_SETTLE_DELAY = Duration.ofMillis(100);
+
+    private final WatchService watchService;
+    private final Map<WatchKey, WatchedDirectory> directories = new HashMap<>();
+    private final SourceFilter sourceFilter;
+    private final Duration settleDelay;
+
+    private SourceWatcher(WatchService watchService, SourceFilter sourceFilter, Duration settleDelay) {
+        this.watchService = watchService;
+        this.sourceFilter = sourceFilter;
+        this.settleDelay = settleDelay;
+    }
+
+    /**
+     * Starts watching the given source paths. A source path that is a file is
+     * watched through its parent directory.
+     *
+     * @param sourcePaths  source directories or files
+     * @param sourceFilter filter whose excluded directories are not watched
+     * @param settleDelay  quiet period that ends a batch of changes
+     * @return a running watcher
+     * @throws IOException if the watch service cannot be created
+     */
+    static SourceWatcher start(List<Path> sourcePaths, SourceFilter sourceFilter, Duration settleDelay)
+            throws IOException {
+        Path first = sourcePaths.getFirst().toAbsolutePath();
+        SourceWatcher watcher = new SourceWatcher(first.getFileSystem().newWatchService(), sourceFilter, settleDelay);
+        try {
+            for (Path sourcePath : sourcePaths) {
+                // A path into an archive changes when the archive file does.
+                Path archive = SourceArchives.archiveFile(sourcePath);
+                Path absolute = (archive != null ? archive : sourcePath).toAbsolutePath().normalize();
+                if (Files.isDirectory(absolute)) {
+                    watcher.registerTree(absolute, absolute);
+                } else if (absolute.getParent() != null) {
+                    // Only the file itself matters; the filter does not apply to it.
+                    watcher.register(absolute.getParent(), null);
+                }
+            }
+        } catch (IOException e) {
+            watcher.close();
+            throw e;
+        }
+        return watcher;
+    }
+
+    /**
+     * Blocks until at least one change happened and the tree has been quiet
+     * for the settle delay.
+     *
+     * @return changed paths (files and directories); may be empty after a
+     *         watch overflow, in which case the caller should rescan
+     * @throws InterruptedException if interrupted while waiting
+     */
+    Set<Path> awaitChanges() throws InterruptedException {
+        Set<Path> changed = new LinkedHashSet<>();
+        WatchKey key = watchService.take();
+        while (key != null) {
+            collect(key, changed);
+            key = watchService.poll(settleDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to close watch service: {0}", e.getMessage());
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        WatchedDirectory directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                continue;
+            }
+            Path child = directory.path().resolve((Path) event.context());
+            Path root = directory.sourceRoot();
+            if (root != null && Files.isDirectory(child) && sourceFilter.excludesDirectory(root, child)) {
+                continue;
+            }
+            changed.add(child);
+            if (root != null && event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                try {
+                    registerTree(child, root);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to watch new directory {0} - {1}",
+                            new Object[] { child, e.getMessage() });
+                }
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void registerTree(Path tree, Path sourceRoot) throws IOException {
+        Files.walkFileTree(tree, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (sourceFilter.excludesDirectory(sourceRoot, dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                register(dir, sourceRoot);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void register(Path dir, Path sourceRoot) throws IOException {
+        WatchKey key = dir.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        directories.put(key, new WatchedDirectory(dir, sourceRoot));
+    }
+
+    /**
+     * A registered directory and the source path it was found under, or a null
+     * source root for the parent of a single-file source path.
+     */
+    private record WatchedDirectory(Path path, Path sourceRoot) {
+    }
+}
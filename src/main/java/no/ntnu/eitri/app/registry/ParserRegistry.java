@@ -1,7 +1,10 @@
 package no.ntnu.eitri.app.registry;
 
 import no.ntnu.eitri.parser.SourceParser;
+import no.ntnu.eitri.parser.java.ClassFileSourceParser;
 import no.ntnu.eitri.parser.java.JavaSourceParser;
+import no.ntnu.eitri.parser.java.JavacSourceParser;
+import no.ntnu.eitri.parser.java.ScanningJavaSourceParser;
 import no.ntnu.eitri.util.ExtensionNormalizer;
 
 import java.util.LinkedHashMap;
@@ -13,7 +16,11 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * Registry for source parsers, keyed by file extension.
+ * Registry for source parsers, keyed by parser id.
+ *
+ * <p>
+ * A parser's ids are its file extensions unless it declares its own
+ * ({@link SourceParser#getParserIds()}).
  */
 public final class ParserRegistry {
 
@@ -72,11 +79,14 @@ public final class ParserRegistry {
         // Use ServiceLoader providers so each lookup can create a new SourceParser instance.
         for (ServiceLoader.Provider<SourceParser> provider : loader.stream().toList()) {
             SourceParser parser = provider.get();
-            register(provider::get, parser.getSupportedExtensions());
+            register(provider::get, parser.getParserIds());
         }
     }
 
     private void registerBuiltIns() {
-        register(JavaSourceParser::new, new JavaSourceParser().getSupportedExtensions());
+        register(JavaSourceParser::new, new JavaSourceParser().getParserIds());
+        register(ScanningJavaSourceParser::new, new ScanningJavaSourceParser().getParserIds());
+        register(JavacSourceParser::new, new JavacSourceParser().getParserIds());
+        register(ClassFileSourceParser::new, new ClassFileSourceParser().getParserIds());
     }
 }
@@ -1,5 +1,8 @@
 package no.ntnu.eitri.cli;
 
+import no.ntnu.eitri.config.ParseOptions;
+import no.ntnu.eitri.config.SourceFilter;
+
 import java.nio.file.Path;
 import java.util.List;
 
@@ -13,9 +16,56 @@ public record CliOptions(
         String parserExtension,
         String writerExtension,
         boolean verbose,
-        boolean dryRun
+        boolean dryRun,
+        ParseOptions parseOptions,
+        SourceFilter sourceFilter,
+        boolean projectModel
 ) {
     public CliOptions {
         sourcePaths = sourcePaths != null ? List.copyOf(sourcePaths) : List.of();
+        parseOptions = parseOptions != null ? parseOptions : ParseOptions.defaults();
+        sourceFilter = sourceFilter != null ? sourceFilter : SourceFilter.defaults();
+    }
+
+    public CliOptions(
+            List<Path> sourcePaths,
+            Path outputPath,
+            Path configPath,
+            String parserExtension,
+            String writerExtension,
+            boolean verbose,
+            boolean dryRun,
+            ParseOptions parseOptions,
+            SourceFilter sourceFilter
+    ) {
+        this(sourcePaths, outputPath, configPath, parserExtension, writerExtension, verbose, dryRun, parseOptions,
+                sourceFilter, false);
+    }
+
+    public CliOptions(
+            List<Path> sourcePaths,
+            Path outputPath,
+            Path configPath,
+            String parserExtension,
+            String writerExtension,
+            boolean verbose,
+            boolean dryRun,
+            ParseOptions parseOptions
+    ) {
+        this(sourcePaths, outputPath, configPath, parserExtension, writerExtension, verbose, dryRun, parseOptions,
+                SourceFilter.defaults());
+    }
+
+    public CliOptions(
+            List<Path> sourcePaths,
+            Path outputPath,
+            Path configPath,
+            String parserExtension,
+            String writerExtension,
+            boolean verbose,
+            boolean dryRun
+    ) {
+        this(sourcePaths, outputPath, configPath, parserExtension, writerExtension, verbose, dryRun,
+                ParseOptions.defaults(), SourceFilter.defaults());
     }
 }
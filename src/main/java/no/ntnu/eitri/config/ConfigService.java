@@ -12,6 +12,19 @@ import java.util.Objects;
 public final class ConfigService {
 
     public ConfigResolution resolve(CliOptions cliOptions) throws ConfigException {
+        return resolve(cliOptions, true);
+    }
+
+    /**
+     * Resolves and validates the configuration of a run.
+     *
+     * @param cliOptions    options from the command line
+     * @param sourcesOnDisk whether source paths must exist on disk; runs over
+     *                      git revisions read them from the revision instead
+     * @return the resolved configuration
+     * @throws ConfigException if the configuration is invalid
+     */
+    public ConfigResolution resolve(CliOptions cliOptions, boolean sourcesOnDisk) throws ConfigException {
         Objects.requireNonNull(cliOptions, "cliOptions");
 
         RunConfig runConfig = RunConfig.fromCli(cliOptions);
@@ -20,7 +33,11 @@ public final class ConfigService {
                 ? PlantUmlConfig.defaults()
                 : ConfigLoader.loadPlantUmlConfig(configFileUsed);
 
-        ValidationResult validation = ConfigValidator.validate(runConfig);
+        if (cliOptions.projectModel()) {
+            runConfig = runConfig.withModelProjection(ModelProjection.of(plantUmlConfig));
+        }
+
+        ValidationResult validation = ConfigValidator.validate(runConfig, sourcesOnDisk);
         if (!validation.isValid()) {
             throw new ConfigException(validation.formatMessages());
         }
@@ -2,6 +2,7 @@ package no.ntnu.eitri.config;
 
 import no.ntnu.eitri.app.registry.ParserRegistry;
 import no.ntnu.eitri.app.registry.WriterRegistry;
+import no.ntnu.eitri.util.SourceArchives;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -15,22 +16,42 @@ public final class ConfigValidator {
     private static final String FIELD_OUTPUT_PATH = "outputPath";
     private static final String FIELD_PARSER_EXTENSION = "parserExtension";
     private static final String FIELD_WRITER_EXTENSION = "writerExtension";
+    private static final String FIELD_PARSE_THREADS = "parseOptions.threads";
+    private static final String FIELD_PARSE_READ_AHEAD = "parseOptions.readAheadBytes";
+    private static final String FIELD_PARSE_CACHE_DIRECTORY = "parseOptions.cacheDirectory";
+    private static final String FIELD_PARSE_CACHE_MAX = "parseOptions.cacheMaxBytes";
+    private static final String FIELD_PARSE_DECLARATIONS_ONLY_ABOVE = "parseOptions.declarationsOnlyAboveBytes";
+    private static final String FIELD_PARSE_SOLVER_CACHE_ENTRIES = "parseOptions.solverCacheEntries";
+    private static final String FIELD_PARSE_RELEASE_SOLVER_CACHES = "parseOptions.releaseSolverCachesEvery";
 
     private ConfigValidator() {
     }
 
     public static ValidationResult validate(RunConfig config) {
+        return validate(config, true);
+    }
+
+    /**
+     * Validates a configuration whose source paths may name locations that
+     * only exist in a git revision, not on disk.
+     *
+     * @param config        configuration to check
+     * @param sourcesOnDisk whether source paths must exist on disk
+     * @return the validation errors, if any
+     */
+    public static ValidationResult validate(RunConfig config, boolean sourcesOnDisk) {
         ValidationResult result = new ValidationResult();
 
-        validateSourcePaths(config, result);
+        validateSourcePaths(config, sourcesOnDisk, result);
         validateOutputPath(config, result);
         validateParserExtension(config, result);
         validateWriterExtension(config, result);
+        validateParseOptions(config, result);
 
         return result;
     }
 
-    private static void validateSourcePaths(RunConfig config, ValidationResult result) {
+    private static void validateSourcePaths(RunConfig config, boolean sourcesOnDisk, ValidationResult result) {
         if (config.sourcePaths().isEmpty()) {
             result.add(ValidationError.error(
                     "SOURCE_PATHS_REQUIRED",
@@ -39,9 +60,22 @@ public final class ConfigValidator {
             ));
             return;
         }
+        if (!sourcesOnDisk) {
+            return;
+        }
 
         for (Path src : config.sourcePaths()) {
-            if (!Files.exists(src)) {
+            // Paths inside an archive are checked when the archive is opened for parsing.
+            Path archive = SourceArchives.archiveFile(src);
+            if (archive != null) {
+                if (!Files.isRegularFile(archive)) {
+                    result.add(ValidationError.error(
+                            "SOURCE_PATH_NOT_FOUND",
+                            "Source archive does not exist: " + archive,
+                            FIELD_SOURCE_PATHS
+                    ));
+                }
+            } else if (!Files.exists(src)) {
                 result.add(ValidationError.error(
                         "SOURCE_PATH_NOT_FOUND",
                         "Source path does not exist: " + src,
@@ -108,4 +142,62 @@ public final class ConfigValidator {
             ));
         }
     }
+
+    private static void validateParseOptions(RunConfig config, ValidationResult result) {
+        ParseOptions parseOptions = config.parseOptions();
+        if (parseOptions.threads() < 0) {
+            result.add(ValidationError.error(
+                    "PARSE_THREADS_INVALID",
+                    "Parse thread count (--threads) must be 0 or greater: " + parseOptions.threads(),
+                    FIELD_PARSE_THREADS
+            ));
+        }
+        if (parseOptions.readAheadBytes() < 0) {
+            result.add(ValidationError.error(
+                    "PARSE_READ_AHEAD_INVALID",
+                    "Read-ahead budget (--read-ahead-mb) must be 0 or greater: " + parseOptions.readAheadBytes(),
+                    FIELD_PARSE_READ_AHEAD
+            ));
+        }
+        if (parseOptions.cacheMaxBytes() < 0) {
+            result.add(ValidationError.error(
+                    "PARSE_CACHE_MAX_INVALID",
+                    "Parse cache size cap (--parse-cache-max-mb) must be 0 or greater: "
+                            + parseOptions.cacheMaxBytes(),
+                    FIELD_PARSE_CACHE_MAX
+            ));
+        }
+        if (parseOptions.declarationsOnlyAboveBytes() < 0) {
+            result.add(ValidationError.error(
+                    "PARSE_DECLARATIONS_ONLY_ABOVE_INVALID",
+                    "Declaration-only size threshold (--declarations-only-above-mb) must be 0 or greater: "
+                            + parseOptions.declarationsOnlyAboveBytes(),
+                    FIELD_PARSE_DECLARATIONS_ONLY_ABOVE
+            ));
+        }
+        if (parseOptions.solverCacheEntries() < 0) {
+            result.add(ValidationError.error(
+                    "PARSE_SOLVER_CACHE_ENTRIES_INVALID",
+                    "Solver cache size cap (--solver-cache-entries) must be 0 or greater: "
+                            + parseOptions.solverCacheEntries(),
+                    FIELD_PARSE_SOLVER_CACHE_ENTRIES
+            ));
+        }
+        if (parseOptions.releaseSolverCachesEvery() < 0) {
+            result.add(ValidationError.error(
+                    "PARSE_RELEASE_SOLVER_CACHES_INVALID",
+                    "Solver cache release interval (--release-solver-caches-every) must be 0 or greater: "
+                            + parseOptions.releaseSolverCachesEvery(),
+                    FIELD_PARSE_RELEASE_SOLVER_CACHES
+            ));
+        }
+        Path cacheDirectory = parseOptions.cacheDirectory();
+        if (cacheDirectory != null && Files.exists(cacheDirectory) && !Files.isDirectory(cacheDirectory)) {
+            result.add(ValidationError.error(
+                    "PARSE_CACHE_NOT_DIRECTORY",
+                    "Parse cache path is not a directory: " + cacheDirectory,
+                    FIELD_PARSE_CACHE_DIRECTORY
+            ));
+        }
+    }
 }
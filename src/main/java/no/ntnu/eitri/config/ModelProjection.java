@@ -0,0 +1,108 @@
+package no.ntnu.eitri.config;
+
+import no.ntnu.eitri.model.Visibility;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The part of the UML model a writer configuration can show, so the parser
+ * can skip extracting and symbol-resolving everything else.
+ *
+ * <p>
+ * A projection derived with {@link #of(PlantUmlConfig)} must render exactly
+ * like the full model under that configuration. Members are therefore only
+ * left out when they are neither rendered nor the source of a relation that
+ * could be rendered, and relation kinds are only left out when that cannot
+ * change which relation wins between two types or whether a type counts as
+ * linked.
+ *
+ * @param fieldVisibilities  visibilities of fields to extract
+ * @param methodVisibilities visibilities of methods and constructors to
+ *                           extract
+ * @param fieldRelations     whether composition, aggregation and association
+ *                           relations are detected from fields
+ * @param methodDependencies whether dependency relations are detected from
+ *                           method signatures
+ */
+public record ModelProjection(
+        Set<Visibility> fieldVisibilities,
+        Set<Visibility> methodVisibilities,
+        boolean fieldRelations,
+        boolean methodDependencies) {
+
+    private static final ModelProjection FULL = new ModelProjection(
+            EnumSet.allOf(Visibility.class), EnumSet.allOf(Visibility.class), true, true);
+
+    public ModelProjection {
+        fieldVisibilities = copyOf(fieldVisibilities);
+        methodVisibilities = copyOf(methodVisibilities);
+    }
+
+    /**
+     * Returns the projection that keeps the whole model.
+     *
+     * @return the full projection
+     */
+    public static ModelProjection full() {
+        return FULL;
+    }
+
+    /**
+     * Derives the projection a PlantUML configuration needs.
+     *
+     * @param config writer configuration
+     * @return the narrowest projection that renders like the full model
+     */
+    public static ModelProjection of(PlantUmlConfig config) {
+        // Hidden relations still mark their endpoints as linked, so with
+        // showUnlinked off every relation (and every member behind one) matters.
+        if (!config.showUnlinked()) {
+            return FULL;
+        }
+        boolean methodDependencies = config.showDependency();
+        // Relations are reduced to the strongest per type pair. Dropping field
+        // relations would let a weaker dependency take their place.
+        boolean fieldRelations = config.showComposition() || config.showAggregation()
+                || config.showAssociation() || config.showDependency();
+
+        Set<Visibility> rendered = EnumSet.of(Visibility.PUBLIC);
+        if (!config.hidePrivate()) {
+            rendered.add(Visibility.PRIVATE);
+        }
+        if (!config.hideProtected()) {
+            rendered.add(Visibility.PROTECTED);
+        }
+        if (!config.hidePackage()) {
+            rendered.add(Visibility.PACKAGE);
+        }
+        Set<Visibility> fieldVisibilities = fieldRelations ? EnumSet.allOf(Visibility.class)
+                : config.hideFields() ? EnumSet.noneOf(Visibility.class) : rendered;
+        Set<Visibility> methodVisibilities = methodDependencies ? EnumSet.allOf(Visibility.class)
+                : config.hideMethods() ? EnumSet.noneOf(Visibility.class) : rendered;
+        return new ModelProjection(fieldVisibilities, methodVisibilities, fieldRelations, methodDependencies);
+    }
+
+    public boolean isFull() {
+        return equals(FULL);
+    }
+
+    public boolean includesField(Visibility visibility) {
+        return fieldVisibilities.contains(visibility);
+    }
+
+    public boolean includesMethod(Visibility visibility) {
+        return methodVisibilities.contains(visibility);
+    }
+
+    /**
+     * Copies into an enum set, so iteration order and {@link #toString()} are
+     * stable across runs; the string form is part of parse cache keys.
+     */
+    private static Set<Visibility> copyOf(Set<Visibility> visibilities) {
+        EnumSet<Visibility> copy = EnumSet.noneOf(Visibility.class);
+        copy.addAll(visibilities);
+        return Collections.unmodifiableSet(copy);
+    }
+}
@@ -0,0 +1,208 @@
+package no.ntnu.eitri.config;
+
+import java.nio.file.Path;
+
+/**
+ * Parser tuning options sourced from CLI flags or the service manifest.
+ *
+ * <p>
+ * These options change how sources are parsed, never what the resulting model
+ * means: every combination must produce the same {@code UmlModel} as the
+ * defaults. The exceptions are declaration-only parsing, which also reads
+ * files whose only syntax errors are inside method bodies, and lexical type
+ * resolution, which leaves names it cannot find in the sources unqualified.
+ * Tiered type resolution only differs for simple names shadowed by a member
+ * type inherited from a supertype, and classpath pruning for jar types that
+ * the sources only name fully qualified, without importing their package.
+ *
+ * @param threads        number of parse workers; {@code 0} uses all available
+ *                       processors, {@code 1} parses sequentially on the caller
+ *                       thread
+ * @param readAheadBytes budget for sources read and decoded ahead of the
+ *                       parser; {@code 0} reads each file on the parse thread
+ * @param cacheDirectory directory of the persistent per-file parse cache, or
+ *                       {@code null} to parse every file
+ * @param cacheMaxBytes  size cap of the parse cache; least recently used
+ *                       entries are evicted beyond it ({@code 0} = unbounded)
+ * @param declarationsOnly           whether every file is parsed without its
+ *                                   method bodies and initializer blocks
+ * @param declarationsOnlyAboveBytes source size, in characters, from which a
+ *                                   file is parsed declaration-only anyway
+ *                                   ({@code 0} = never)
+ * @param typeResolution             how type names are resolved to fully
+ *                                   qualified names
+ * @param solverCacheEntries         entry cap of each symbol solver cache of
+ *                                   a parse worker; least recently used
+ *                                   entries are evicted beyond it
+ *                                   ({@code 0} = unbounded)
+ * @param releaseSolverCachesEvery   number of files after which a parse
+ *                                   worker drops its solver caches, and
+ *                                   visited files are not kept for the
+ *                                   solver ({@code 0} = never)
+ * @param pruneClasspath             whether dependency jars holding no
+ *                                   package the sources declare or import
+ *                                   from are left out of the symbol solver
+ * @param fingerprintRoot            directory whose location is left out of
+ *                                   the parse cache fingerprint, which names
+ *                                   the solver inputs below it relative to
+ *                                   it; {@code null} names every input by
+ *                                   its absolute path
+ */
+public record ParseOptions(
+        int threads,
+        long readAheadBytes,
+        Path cacheDirectory,
+        long cacheMaxBytes,
+        boolean declarationsOnly,
+        long declarationsOnlyAboveBytes,
+        TypeResolution typeResolution,
+        int solverCacheEntries,
+        int releaseSolverCachesEvery,
+        boolean pruneClasspath,
+        Path fingerprintRoot) {
+
+    public ParseOptions {
+        typeResolution = typeResolution != null ? typeResolution : TypeResolution.SOLVER;
+    }
+
+    public static final int DEFAULT_THREADS = 1;
+    public static final int DEFAULT_READ_AHEAD_MB = 64;
+    public static final long DEFAULT_READ_AHEAD_BYTES = megabytes(DEFAULT_READ_AHEAD_MB);
+    public static final int DEFAULT_CACHE_MAX_MB = 512;
+    public static final long DEFAULT_CACHE_MAX_BYTES = megabytes(DEFAULT_CACHE_MAX_MB);
+    public static final int DEFAULT_DECLARATIONS_ONLY_ABOVE_MB = 1;
+    public static final long DEFAULT_DECLARATIONS_ONLY_ABOVE_BYTES = megabytes(DEFAULT_DECLARATIONS_ONLY_ABOVE_MB);
+    public static final int DEFAULT_SOLVER_CACHE_ENTRIES = 50_000;
+
+    public static ParseOptions defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Converts a megabyte count from CLI flags or the manifest to bytes.
+     *
+     * @param megabytes size in MiB
+     * @return size in bytes
+     */
+    public static long megabytes(int megabytes) {
+        return megabytes * 1024L * 1024L;
+    }
+
+    /**
+     * Returns the number of workers to start, resolving {@code 0} to the number
+     * of available processors.
+     *
+     * @return effective worker count (at least 1)
+     */
+    public int effectiveThreads() {
+        if (threads == 0) {
+            return Math.max(1, Runtime.getRuntime().availableProcessors());
+        }
+        return Math.max(1, threads);
+    }
+
+    /**
+     * Returns these options with another fingerprint root, for sources
+     * materialized in a directory that differs between runs.
+     *
+     * @param root directory to leave out of the parse cache fingerprint
+     * @return options that differ only in {@link #fingerprintRoot()}
+     */
+    public ParseOptions withFingerprintRoot(Path root) {
+        return new ParseOptions(threads, readAheadBytes, cacheDirectory, cacheMaxBytes, declarationsOnly,
+                declarationsOnlyAboveBytes, typeResolution, solverCacheEntries, releaseSolverCachesEvery,
+                pruneClasspath, root);
+    }
+
+    /**
+     * Decides whether a source is parsed declaration-only.
+     *
+     * @param sourceLength length of the decoded source
+     * @return true when bodies are skipped for this source
+     */
+    public boolean declarationsOnly(long sourceLength) {
+        return declarationsOnly || (declarationsOnlyAboveBytes > 0 && sourceLength >= declarationsOnlyAboveBytes);
+    }
+
+    public static final class Builder {
+        private int threads = DEFAULT_THREADS;
+        private long readAheadBytes = DEFAULT_READ_AHEAD_BYTES;
+        private Path cacheDirectory;
+        private long cacheMaxBytes = DEFAULT_CACHE_MAX_BYTES;
+        private boolean declarationsOnly;
+        private long declarationsOnlyAboveBytes = DEFAULT_DECLARATIONS_ONLY_ABOVE_BYTES;
+        private TypeResolution typeResolution = TypeResolution.SOLVER;
+        private int solverCacheEntries = DEFAULT_SOLVER_CACHE_ENTRIES;
+        private int releaseSolverCachesEvery;
+        private boolean pruneClasspath;
+        private Path fingerprintRoot;
+
+        private Builder() {
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder readAheadBytes(long readAheadBytes) {
+            this.readAheadBytes = readAheadBytes;
+            return this;
+        }
+
+        public Builder cacheDirectory(Path cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+            return this;
+        }
+
+        public Builder cacheMaxBytes(long cacheMaxBytes) {
+            this.cacheMaxBytes = cacheMaxBytes;
+            return this;
+        }
+
+        public Builder declarationsOnly(boolean declarationsOnly) {
+            this.declarationsOnly = declarationsOnly;
+            return this;
+        }
+
+        public Builder declarationsOnlyAboveBytes(long declarationsOnlyAboveBytes) {
+            this.declarationsOnlyAboveBytes = declarationsOnlyAboveBytes;
+            return this;
+        }
+
+        public Builder typeResolution(TypeResolution typeResolution) {
+            this.typeResolution = typeResolution;
+            return this;
+        }
+
+        public Builder solverCacheEntries(int solverCacheEntries) {
+            this.solverCacheEntries = solverCacheEntries;
+            return this;
+        }
+
+        public Builder releaseSolverCachesEvery(int releaseSolverCachesEvery) {
+            this.releaseSolverCachesEvery = releaseSolverCachesEvery;
+            return this;
+        }
+
+        public Builder pruneClasspath(boolean pruneClasspath) {
+            this.pruneClasspath = pruneClasspath;
+            return this;
+        }
+
+        public Builder fingerprintRoot(Path fingerprintRoot) {
+            this.fingerprintRoot = fingerprintRoot;
+            return this;
+        }
+
+        public ParseOptions build() {
+            return new ParseOptions(threads, readAheadBytes, cacheDirectory, cacheMaxBytes, declarationsOnly,
+                    declarationsOnlyAboveBytes, typeResolution, solverCacheEntries, releaseSolverCachesEvery,
+                    pruneClasspath, fingerprintRoot);
+        }
+    }
+}
@@ -14,12 +14,22 @@ public record RunConfig(
         String parserExtension,
         String writerExtension,
         boolean verbose,
-        boolean dryRun) {
+        boolean dryRun,
+        ParseOptions parseOptions,
+        SourceFilter sourceFilter,
+        ModelProjection modelProjection) {
 
     public RunConfig {
         sourcePaths = sourcePaths != null ? List.copyOf(sourcePaths) : List.of();
         parserExtension = ExtensionNormalizer.normalizeExtension(parserExtension);
         writerExtension = ExtensionNormalizer.normalizeExtension(writerExtension);
+        parseOptions = parseOptions != null ? parseOptions : ParseOptions.defaults();
+        sourceFilter = sourceFilter != null ? sourceFilter : SourceFilter.defaults();
+        modelProjection = modelProjection != null ? modelProjection : ModelProjection.full();
+    }
+
+    public static Builder builder() {
+        return new Builder();
     }
 
     public static RunConfig fromCli(no.ntnu.eitri.cli.CliOptions options) {
@@ -29,6 +39,86 @@ public record RunConfig(
                 options.parserExtension(),
                 options.writerExtension(),
                 options.verbose(),
-                options.dryRun());
+                options.dryRun(),
+                options.parseOptions(),
+                options.sourceFilter(),
+                ModelProjection.full());
+    }
+
+    /**
+     * Returns a copy of this configuration that parses only what the given
+     * projection needs.
+     *
+     * @param projection the model projection
+     * @return the new configuration
+     */
+    public RunConfig withModelProjection(ModelProjection projection) {
+        return new RunConfig(sourcePaths, outputPath, parserExtension, writerExtension, verbose, dryRun,
+                parseOptions, sourceFilter, projection);
+    }
+
+    public static final class Builder {
+        private List<Path> sourcePaths;
+        private Path outputPath;
+        private String parserExtension;
+        private String writerExtension;
+        private boolean verbose;
+        private boolean dryRun;
+        private ParseOptions parseOptions;
+        private SourceFilter sourceFilter;
+        private ModelProjection modelProjection;
+
+        private Builder() {
+        }
+
+        public Builder sourcePaths(List<Path> sourcePaths) {
+            this.sourcePaths = sourcePaths;
+            return this;
+        }
+
+        public Builder outputPath(Path outputPath) {
+            this.outputPath = outputPath;
+            return this;
+        }
+
+        public Builder parserExtension(String parserExtension) {
+            this.parserExtension = parserExtension;
+            return this;
+        }
+
+        public Builder writerExtension(String writerExtension) {
+            this.writerExtension = writerExtension;
+            return this;
+        }
+
+        public Builder verbose(boolean verbose) {
+            this.verbose = verbose;
+            return this;
+        }
+
+        public Builder dryRun(boolean dryRun) {
+            this.dryRun = dryRun;
+            return this;
+        }
+
+        public Builder parseOptions(ParseOptions parseOptions) {
+            this.parseOptions = parseOptions;
+            return this;
+        }
+
+        public Builder sourceFilter(SourceFilter sourceFilter) {
+            this.sourceFilter = sourceFilter;
+            return this;
+        }
+
+        public Builder modelProjection(ModelProjection modelProjection) {
+            this.modelProjection = modelProjection;
+            return this;
+        }
+
+        public RunConfig build() {
+            return new RunConfig(sourcePaths, outputPath, parserExtension, writerExtension, verbose, dryRun,
+                    parseOptions, sourceFilter, modelProjection);
+        }
     }
 }
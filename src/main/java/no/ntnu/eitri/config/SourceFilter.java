@@ -0,0 +1,362 @@
+package no.ntnu.eitri.config;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compiled include and exclude globs applied while walking a source
+ * directory.
+ *
+ * <p>
+ * Patterns are matched against paths relative to the source path being
+ * walked, with {@code /} as separator. A pattern without {@code /} matches a
+ * file or directory name at any depth ({@code node_modules},
+ * {@code *_pb2.java}); a pattern with {@code /} matches the whole relative path,
+ * where {@code **} crosses directories ({@code src/gen/**}). A leading
+ * {@code **}{@code /} also matches at the top level, and a trailing
+ * {@code /**} also matches the directory itself.
+ *
+ * <p>
+ * A directory matched by an exclude is skipped with everything below it. A
+ * file is selected when it matches no exclude and, if includes are given, at
+ * least one include. Unless turned off, {@link #DEFAULT_EXCLUDES} are applied
+ * in addition to the configured excludes, and so are build output
+ * directories: a {@code build} or {@code target} directory next to a Maven or
+ * Gradle build file. A package directory of that name is kept. Source paths
+ * naming a single file are never filtered by globs.
+ *
+ * <p>
+ * A filter may also select packages. A package pattern such as
+ * {@code com.acme.billing} (or {@code com.acme.billing.*}) matches that
+ * package and every package below it. Package selection is applied by the
+ * parser after the walk, from each file's {@code package} declaration.
+ */
+public final class SourceFilter {
+
+    /** Tool directories skipped unless default excludes are disabled. */
+    public static final List<String> DEFAULT_EXCLUDES = List.of(".gradle", "node_modules", "generated-sources");
+
+    /** Build output directory names, skipped by default when next to a build file. */
+    public static final List<String> BUILD_OUTPUT_DIRECTORIES = List.of("build", "target");
+
+    private static final List<String> BUILD_FILES = List.of(
+            "pom.xml", "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts");
+
+    private static final String ANY_DIRECTORY_PREFIX = "**/";
+    private static final String ANY_DESCENDANT_SUFFIX = "/**";
+    private static final String SUBPACKAGES_SUFFIX = ".*";
+    private static final String ALL_SUBPACKAGES_SUFFIX = ".**";
+    private static final SourceFilter DEFAULTS = new SourceFilter(List.of(), List.of(), true, List.of(), List.of());
+
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final boolean defaultExcludes;
+    private final List<Glob> includeGlobs;
+    private final List<Glob> excludeGlobs;
+    private final List<String> includePackages;
+    private final List<String> excludePackages;
+
+    private SourceFilter(List<String> includes, List<String> excludes, boolean defaultExcludes,
+            List<String> includePackages, List<String> excludePackages) {
+        this.includes = List.copyOf(includes);
+        this.excludes = List.copyOf(excludes);
+        this.defaultExcludes = defaultExcludes;
+        this.includePackages = normalizePackages(includePackages);
+        this.excludePackages = normalizePackages(excludePackages);
+        this.includeGlobs = compile(this.includes);
+        List<String> effectiveExcludes = new ArrayList<>(this.excludes);
+        if (defaultExcludes) {
+            effectiveExcludes.addAll(DEFAULT_EXCLUDES);
+        }
+        this.excludeGlobs = compile(effectiveExcludes);
+    }
+
+    /**
+     * Returns the filter used when nothing is configured: default excludes
+     * only.
+     *
+     * @return the default filter
+     */
+    public static SourceFilter defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Compiles a filter.
+     *
+     * @param includes        globs a file must match one of; empty selects
+     *                        every file
+     * @param excludes        globs of files and directories to skip
+     * @param defaultExcludes whether to also skip {@link #DEFAULT_EXCLUDES}
+     *                        and build output directories
+     * @return the compiled filter
+     * @throws IllegalArgumentException if a pattern is not a valid glob
+     */
+    public static SourceFilter of(List<String> includes, List<String> excludes, boolean defaultExcludes) {
+        return new SourceFilter(
+                includes != null ? includes : List.of(),
+                excludes != null ? excludes : List.of(),
+                defaultExcludes,
+                List.of(),
+                List.of());
+    }
+
+    /**
+     * Returns a copy of this filter that also selects packages.
+     *
+     * @param includePackages packages a file must be in one of, with their
+     *                        subpackages; empty selects every package
+     * @param excludePackages packages to skip, with their subpackages
+     * @return the new filter
+     * @throws IllegalArgumentException if a pattern is not a package name
+     */
+    public SourceFilter withPackages(List<String> includePackages, List<String> excludePackages) {
+        return new SourceFilter(includes, excludes, defaultExcludes,
+                includePackages != null ? includePackages : List.of(),
+                excludePackages != null ? excludePackages : List.of());
+    }
+
+    /**
+     * Returns a copy of this filter that applies only the configured globs,
+     * for inputs such as compiled classes that live in build output.
+     *
+     * @return the new filter
+     */
+    public SourceFilter withoutDefaultExcludes() {
+        return new SourceFilter(includes, excludes, false, includePackages, excludePackages);
+    }
+
+    public List<String> includes() {
+        return includes;
+    }
+
+    public List<String> excludes() {
+        return excludes;
+    }
+
+    public boolean defaultExcludes() {
+        return defaultExcludes;
+    }
+
+    public List<String> includePackages() {
+        return includePackages;
+    }
+
+    public List<String> excludePackages() {
+        return excludePackages;
+    }
+
+    /**
+     * Returns whether files have to be checked with {@link #includesPackage}.
+     *
+     * @return true if package includes or excludes are configured
+     */
+    public boolean selectsPackages() {
+        return !includePackages.isEmpty() || !excludePackages.isEmpty();
+    }
+
+    /**
+     * Returns whether a package is selected.
+     *
+     * @param packageName package name, empty for the default package
+     * @return true if the package is below no excluded package and, when
+     *         package includes are configured, below at least one of them
+     */
+    public boolean includesPackage(String packageName) {
+        if (matchesAnyPackage(excludePackages, packageName)) {
+            return false;
+        }
+        return includePackages.isEmpty() || matchesAnyPackage(includePackages, packageName);
+    }
+
+    /**
+     * Returns whether a directory and its subtree are skipped.
+     *
+     * @param root      the source path being walked
+     * @param directory a directory below {@code root}
+     * @return true if an exclude matches the directory, or it is a build
+     *         output directory and default excludes apply
+     */
+    public boolean excludesDirectory(Path root, Path directory) {
+        String relative = relativize(root, directory);
+        if (relative.isEmpty()) {
+            return false;
+        }
+        return matchesAny(excludeGlobs, relative) || defaultExcludes && isBuildOutput(directory);
+    }
+
+    private static boolean isBuildOutput(Path directory) {
+        Path name = directory.getFileName();
+        Path parent = directory.getParent();
+        if (name == null || parent == null || !BUILD_OUTPUT_DIRECTORIES.contains(name.toString())) {
+            return false;
+        }
+        for (String buildFile : BUILD_FILES) {
+            if (Files.isRegularFile(parent.resolve(buildFile))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a file is selected. Directories above it are assumed to
+     * have been checked with {@link #excludesDirectory} during the walk.
+     *
+     * @param root the source path being walked
+     * @param file a file below {@code root}
+     * @return true if the file matches no exclude and, when includes are
+     *         configured, at least one include
+     */
+    public boolean includesFile(Path root, Path file) {
+        String relative = relativize(root, file);
+        if (matchesAny(excludeGlobs, relative)) {
+            return false;
+        }
+        return includeGlobs.isEmpty() || matchesAny(includeGlobs, relative);
+    }
+
+    private static String relativize(Path root, Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    private static boolean matchesAny(List<Glob> globs, String relative) {
+        if (globs.isEmpty()) {
+            return false;
+        }
+        Path relativePath = Path.of(relative);
+        Path name = relativePath.getFileName();
+        for (Glob glob : globs) {
+            if (glob.matches(relativePath, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesAnyPackage(List<String> packages, String packageName) {
+        for (String selected : packages) {
+            if (packageName.equals(selected)
+                    || packageName.startsWith(selected) && packageName.charAt(selected.length()) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> normalizePackages(List<String> patterns) {
+        List<String> packages = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            String normalized = pattern.trim();
+            if (normalized.endsWith(ALL_SUBPACKAGES_SUFFIX)) {
+                normalized = normalized.substring(0, normalized.length() - ALL_SUBPACKAGES_SUFFIX.length());
+            } else if (normalized.endsWith(SUBPACKAGES_SUFFIX)) {
+                normalized = normalized.substring(0, normalized.length() - SUBPACKAGES_SUFFIX.length());
+            }
+            if (!isQualifiedName(normalized)) {
+                throw new IllegalArgumentException("Invalid package pattern '" + pattern + "'");
+            }
+            packages.add(normalized);
+        }
+        return List.copyOf(packages);
+    }
+
+    private static boolean isQualifiedName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (String part : name.split("\\.", -1)) {
+            if (part.isEmpty() || !Character.isJavaIdentifierStart(part.charAt(0))) {
+                return false;
+            }
+            for (int i = 1; i < part.length(); i++) {
+                if (!Character.isJavaIdentifierPart(part.charAt(i))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static List<Glob> compile(List<String> patterns) {
+        List<Glob> globs = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            globs.add(Glob.compile(pattern));
+        }
+        return List.copyOf(globs);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SourceFilter filter
+                && includes.equals(filter.includes)
+                && excludes.equals(filter.excludes)
+                && defaultExcludes == filter.defaultExcludes
+                && includePackages.equals(filter.includePackages)
+                && excludePackages.equals(filter.excludePackages);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(includes, excludes, defaultExcludes, includePackages, excludePackages);
+    }
+
+    @Override
+    public String toString() {
+        return "SourceFilter[includes=" + includes + ", excludes=" + excludes
+                + ", defaultExcludes=" + defaultExcludes + ", includePackages=" + includePackages
+                + ", excludePackages=" + excludePackages + "]";
+    }
+
+    /**
+     * One pattern compiled into the matchers its shorthand expands to.
+     */
+    private record Glob(boolean nameOnly, List<PathMatcher> matchers) {
+
+        static Glob compile(String pattern) {
+            String normalized = pattern.trim().replace('\\', '/');
+            if (normalized.isEmpty()) {
+                throw new IllegalArgumentException("Empty glob pattern");
+            }
+            List<String> variants = new ArrayList<>();
+            variants.add(normalized);
+            if (normalized.startsWith(ANY_DIRECTORY_PREFIX)) {
+                variants.add(normalized.substring(ANY_DIRECTORY_PREFIX.length()));
+            }
+            if (normalized.endsWith(ANY_DESCENDANT_SUFFIX)) {
+                for (String variant : List.copyOf(variants)) {
+                    variants.add(variant.substring(0, variant.length() - ANY_DESCENDANT_SUFFIX.length()));
+                }
+            }
+            List<PathMatcher> matchers = new ArrayList<>(variants.size());
+            try {
+                for (String variant : variants) {
+                    if (!variant.isEmpty()) {
+                        matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + variant));
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid glob pattern '" + pattern + "': " + e.getMessage(), e);
+            }
+            return new Glob(normalized.indexOf('/') < 0, List.copyOf(matchers));
+        }
+
+        boolean matches(Path relativePath, Path name) {
+            Path target = nameOnly ? name : relativePath;
+            if (target == null) {
+                return false;
+            }
+            for (PathMatcher matcher : matchers) {
+                if (matcher.matches(target)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
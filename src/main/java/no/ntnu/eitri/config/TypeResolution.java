@@ -0,0 +1,54 @@
+package no.ntnu.eitri.config;
+
+import java.util.Locale;
+
+/**
+ * How the parser turns type names in the sources into fully qualified names.
+ */
+public enum TypeResolution {
+    /**
+     * JavaParser's symbol solver, over the source roots, the JDK, the
+     * classpath and the detected dependency jars.
+     */
+    SOLVER,
+    /**
+     * Cheap lookups first (the compilation unit, imports, the same package,
+     * {@code java.lang}), over the same index as {@link #LEXICAL}; the symbol
+     * solver only runs for names those cannot settle. Member types inherited
+     * from a supertype are not seen by the cheap lookups.
+     */
+    TIERED,
+    /**
+     * Lookup of names in the types declared by the parsed sources, following
+     * imports, the current package and {@code java.lang}. No symbol solver is
+     * created and no jars are opened; names that are not found stay simple.
+     */
+    LEXICAL;
+
+    /**
+     * Parses a mode from a CLI flag or manifest value (case-insensitive).
+     *
+     * @param value "solver", "tiered" or "lexical"
+     * @return the mode, or null when {@code value} names no mode
+     */
+    public static TypeResolution fromString(String value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "solver", "symbol-solver" -> SOLVER;
+            case "tiered" -> TIERED;
+            case "lexical" -> LEXICAL;
+            default -> null;
+        };
+    }
+
+    /**
+     * Returns the name used by the CLI flag and the manifest.
+     *
+     * @return the lower-case mode name
+     */
+    public String id() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
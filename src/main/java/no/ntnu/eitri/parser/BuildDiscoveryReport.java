@@ -0,0 +1,20 @@
+package no.ntnu.eitri.parser;
+
+/**
+ * How long a parse run spent finding the build around its sources before
+ * parsing: module and repository roots, build scripts, source roots,
+ * compiled outputs and dependency jars.
+ *
+ * @param nanos         wall time of discovery
+ * @param modulesWalked module directories walked for Gradle build scripts
+ * @param scriptsRead   Gradle build scripts read
+ * @param scriptsReused Gradle build scripts taken unchanged from an earlier
+ *                      run
+ */
+public record BuildDiscoveryReport(
+        long nanos,
+        int modulesWalked,
+        int scriptsRead,
+        int scriptsReused
+) {
+}
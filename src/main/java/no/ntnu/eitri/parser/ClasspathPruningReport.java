@@ -0,0 +1,37 @@
+package no.ntnu.eitri.parser;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Which dependency jars a parse run handed to the symbol solver, after
+ * leaving out those holding no package its sources refer to.
+ *
+ * @param applied            whether jars were pruned; false when pruning was
+ *                           turned off, no jar was found, the sources were
+ *                           opened as a session, or an import header could
+ *                           not be read
+ * @param referencedPackages packages the sources declare or import from
+ * @param candidateJars      jars found for the solver that could be listed
+ * @param prunedJars         jars left out, in lookup order
+ */
+public record ClasspathPruningReport(
+        boolean applied,
+        int referencedPackages,
+        int candidateJars,
+        List<Path> prunedJars
+) {
+
+    public ClasspathPruningReport {
+        prunedJars = List.copyOf(prunedJars);
+    }
+
+    /**
+     * Returns how many jars the solver was given.
+     *
+     * @return candidate jars that were not pruned
+     */
+    public int keptJars() {
+        return candidateJars - prunedJars.size();
+    }
+}
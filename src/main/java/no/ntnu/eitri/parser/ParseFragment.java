@@ -0,0 +1,136 @@
+package no.ntnu.eitri.parser;
+
+import no.ntnu.eitri.model.UmlRelation;
+import no.ntnu.eitri.model.UmlType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-file parse context that records every mutation in order so it can be
+ * replayed into a shared {@link ParseContext}.
+ *
+ * <p>
+ * Parallel parse workers each visit into their own fragment, so no parse state
+ * is shared between threads. Fragments are then replayed in source-file order,
+ * which makes the merged context identical to a sequential run: types,
+ * relations, pending inheritance and warnings end up in the same order, and a
+ * duplicate type registration fails at the same point it would have failed
+ * sequentially.
+ *
+ * <p>
+ * The recorded {@link Operation}s are plain data, so a fragment can also be
+ * stored and rebuilt later (see the parse cache) without revisiting the file.
+ */
+public class ParseFragment extends ParseContext {
+
+    private final List<Operation> operations = new ArrayList<>();
+
+    public ParseFragment() {
+        super(false);
+    }
+
+    @Override
+    public void addType(UmlType type) {
+        super.addType(type);
+        operations.add(new TypeAdded(type));
+    }
+
+    @Override
+    public void addRelation(UmlRelation relation) {
+        super.addRelation(relation);
+        operations.add(new RelationAdded(relation));
+    }
+
+    @Override
+    public void addPendingInheritance(PendingInheritance pending) {
+        super.addPendingInheritance(pending);
+        operations.add(new InheritancePending(pending));
+    }
+
+    @Override
+    public void addWarning(String warning) {
+        super.addWarning(warning);
+        operations.add(new WarningAdded(warning));
+    }
+
+    @Override
+    public void addSourcePackage(String packageName) {
+        super.addSourcePackage(packageName);
+        operations.add(new SourcePackageAdded(packageName));
+    }
+
+    /**
+     * Replays the recorded mutations into the target context, in recording
+     * order.
+     *
+     * <p>
+     * Replay stops at the first operation the target rejects (for example a
+     * type already registered by an earlier file) and rethrows its exception.
+     *
+     * @param target the shared context to merge into
+     */
+    public void replayInto(ParseContext target) {
+        for (Operation operation : operations) {
+            operation.applyTo(target);
+        }
+    }
+
+    /**
+     * Returns the recorded mutations in recording order.
+     *
+     * @return unmodifiable view of the operations
+     */
+    public List<Operation> operations() {
+        return List.copyOf(operations);
+    }
+
+    /**
+     * A single recorded mutation of a {@link ParseContext}.
+     */
+    public sealed interface Operation
+            permits TypeAdded, RelationAdded, InheritancePending, WarningAdded, SourcePackageAdded {
+
+        /**
+         * Applies this mutation to a context.
+         *
+         * @param target the context to mutate
+         */
+        void applyTo(ParseContext target);
+    }
+
+    public record TypeAdded(UmlType type) implements Operation {
+        @Override
+        public void applyTo(ParseContext target) {
+            target.addType(type);
+        }
+    }
+
+    public record RelationAdded(UmlRelation relation) implements Operation {
+        @Override
+        public void applyTo(ParseContext target) {
+            target.addRelation(relation);
+        }
+    }
+
+    public record InheritancePending(PendingInheritance pending) implements Operation {
+        @Override
+        public void applyTo(ParseContext target) {
+            target.addPendingInheritance(pending);
+        }
+    }
+
+    public record WarningAdded(String warning) implements Operation {
+        @Override
+        public void applyTo(ParseContext target) {
+            target.addWarning(warning);
+        }
+    }
+
+    public record SourcePackageAdded(String packageName) implements Operation {
+        @Override
+        public void applyTo(ParseContext target) {
+            target.addSourcePackage(packageName);
+        }
+    }
+}
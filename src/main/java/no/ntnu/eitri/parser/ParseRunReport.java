@@ -0,0 +1,22 @@
+package no.ntnu.eitri.parser;
+
+/**
+ * How a parse run went: how files were scheduled, how the symbol solver
+ * caches were used, which jars were pruned and how long build discovery
+ * took. A part is null when the parser does not report it.
+ *
+ * @param schedule         how files were scheduled across workers
+ * @param solverCaches     how the symbol solver caches were used
+ * @param classpathPruning which dependency jars were left out of the solver
+ * @param buildDiscovery   how long finding the build around the sources took
+ */
+public record ParseRunReport(
+        ParseScheduleReport schedule,
+        SolverCacheReport solverCaches,
+        ClasspathPruningReport classpathPruning,
+        BuildDiscoveryReport buildDiscovery
+) {
+
+    /** The report of a parser that reports nothing. */
+    public static final ParseRunReport NONE = new ParseRunReport(null, null, null, null);
+}
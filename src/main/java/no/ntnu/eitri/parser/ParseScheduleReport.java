@@ -0,0 +1,48 @@
+package no.ntnu.eitri.parser;
+
+/**
+ * How the files of a parse run were ordered and spread over parse workers.
+ *
+ * @param costModel        how file costs were estimated: {@link #FILE_ORDER}
+ *                         when files were parsed in discovery order,
+ *                         {@link #FILE_SIZE} when ordered by size only, or
+ *                         {@link #HISTORY} when timings from earlier runs
+ *                         were used
+ * @param workers          number of parse workers
+ * @param fileCount        number of files scheduled
+ * @param filesWithHistory files whose cost came from a recorded timing
+ * @param wallNanos        time from the first file started to the last one
+ *                         finished
+ * @param busyNanos        time workers spent parsing or replaying files,
+ *                         summed over all workers
+ * @param slowestFile      the file that took longest, or null if none was
+ *                         parsed
+ * @param slowestFileNanos time spent on {@code slowestFile}
+ */
+public record ParseScheduleReport(
+        String costModel,
+        int workers,
+        int fileCount,
+        int filesWithHistory,
+        long wallNanos,
+        long busyNanos,
+        String slowestFile,
+        long slowestFileNanos
+) {
+
+    public static final String FILE_ORDER = "file_order";
+    public static final String FILE_SIZE = "file_size";
+    public static final String HISTORY = "history";
+
+    /**
+     * Returns the share of available worker time spent parsing.
+     *
+     * @return busy time divided by wall time times workers, between 0 and 1
+     */
+    public double coreUtilization() {
+        if (wallNanos <= 0 || workers <= 0) {
+            return 0.0d;
+        }
+        return Math.min(1.0d, busyNanos / ((double) wallNanos * workers));
+    }
+}
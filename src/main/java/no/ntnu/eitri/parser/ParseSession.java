@@ -0,0 +1,43 @@
+package no.ntnu.eitri.parser;
+
+import no.ntnu.eitri.model.UmlModel;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * A long-lived parse of a fixed set of source paths that can be brought up to
+ * date after files change on disk.
+ *
+ * <p>
+ * Sessions back the CLI {@code --watch} mode. Implementations keep whatever
+ * state makes an update cheaper than a full {@link SourceParser#parse} (symbol
+ * solver, per-file results); the default {@link ReparsingParseSession} keeps
+ * nothing and parses everything again.
+ */
+public interface ParseSession extends AutoCloseable {
+
+    /**
+     * Returns the model produced by the most recent parse or update.
+     *
+     * @return current model
+     */
+    UmlModel model();
+
+    /**
+     * Brings the model up to date with the files on disk.
+     *
+     * <p>
+     * {@code changedPaths} are hints from a file watcher (created, modified or
+     * deleted files and directories). Implementations must also pick up
+     * changes that are not listed, for example after a watcher overflow.
+     *
+     * @param changedPaths paths reported as changed; may be empty
+     * @return the updated model
+     * @throws ParseException if the sources can no longer be parsed at all
+     */
+    UmlModel update(Set<Path> changedPaths) throws ParseException;
+
+    @Override
+    void close();
+}
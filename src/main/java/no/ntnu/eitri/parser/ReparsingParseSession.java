@@ -0,0 +1,44 @@
+package no.ntnu.eitri.parser;
+
+import no.ntnu.eitri.config.RunConfig;
+import no.ntnu.eitri.model.UmlModel;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parse session for parsers without incremental support: every update is a
+ * full {@link SourceParser#parse}.
+ */
+public final class ReparsingParseSession implements ParseSession {
+
+    private final SourceParser parser;
+    private final List<Path> sourcePaths;
+    private final RunConfig runConfig;
+    private UmlModel model;
+
+    public ReparsingParseSession(SourceParser parser, List<Path> sourcePaths, RunConfig runConfig)
+            throws ParseException {
+        this.parser = parser;
+        this.sourcePaths = List.copyOf(sourcePaths);
+        this.runConfig = runConfig;
+        this.model = parser.parse(this.sourcePaths, runConfig);
+    }
+
+    @Override
+    public UmlModel model() {
+        return model;
+    }
+
+    @Override
+    public UmlModel update(Set<Path> changedPaths) throws ParseException {
+        model = parser.parse(sourcePaths, runConfig);
+        return model;
+    }
+
+    @Override
+    public void close() {
+        // Nothing is held between updates.
+    }
+}
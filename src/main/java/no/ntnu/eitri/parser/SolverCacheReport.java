@@ -0,0 +1,33 @@
+package no.ntnu.eitri.parser;
+
+/**
+ * How the symbol solver caches of a parse run were bounded and used, summed
+ * over all parse workers.
+ *
+ * @param maxEntries   entry cap of each cache ({@code 0} = unbounded)
+ * @param releaseEvery files after which a worker dropped its caches
+ *                     ({@code 0} = never)
+ * @param hits         lookups answered from a cache
+ * @param misses       lookups the solvers had to answer themselves
+ * @param evictions    entries dropped to stay within {@code maxEntries}
+ * @param releases     times a worker dropped all of its caches
+ */
+public record SolverCacheReport(
+        int maxEntries,
+        int releaseEvery,
+        long hits,
+        long misses,
+        long evictions,
+        long releases
+) {
+
+    /**
+     * Returns the share of lookups answered from a cache.
+     *
+     * @return hits divided by lookups, between 0 and 1
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups > 0 ? hits / (double) lookups : 0.0d;
+    }
+}
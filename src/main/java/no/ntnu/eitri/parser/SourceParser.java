@@ -33,6 +33,46 @@ public interface SourceParser {
      */
     UmlModel parse(List<Path> sourcePaths, RunConfig runConfig) throws ParseException;
 
+    /**
+     * Parses the sources and keeps a session open for incremental updates.
+     *
+     * <p>
+     * The default session simply parses everything again on each update;
+     * parsers that can reuse per-file results should override this.
+     *
+     * @param sourcePaths list of source directories or files to parse
+     * @param runConfig   the configuration to use during parsing
+     * @return an open session holding the initial model
+     * @throws ParseException if the initial parse fails
+     */
+    default ParseSession openSession(List<Path> sourcePaths, RunConfig runConfig) throws ParseException {
+        return new ReparsingParseSession(this, sourcePaths, runConfig);
+    }
+
+    /**
+     * Returns how the most recent {@link #parse} or {@link #openSession} call
+     * on this instance went.
+     *
+     * @return the run report; {@link ParseRunReport#NONE} if the parser does
+     *         not report one
+     */
+    default ParseRunReport lastRunReport() {
+        return ParseRunReport.NONE;
+    }
+
+    /**
+     * Returns the source files selected by the most recent {@link #parse},
+     * {@link #openSession} or session update on this instance, so callers can
+     * report on them without walking the source paths again. Repository
+     * statistics count these as the run's source files; without them they
+     * can only apply the source filter, not the parser's own selection.
+     *
+     * @return the selected files, or null if the parser does not track them
+     */
+    default List<Path> lastSourceFiles() {
+        return null;
+    }
+
     /**
      * Returns the name of this parser implementation.
      * Used for logging and diagnostics.
@@ -47,4 +87,15 @@ public interface SourceParser {
      * @return list of file extensions (e.g., ".java", ".kt")
      */
     List<String> getSupportedExtensions();
+
+    /**
+     * Returns the ids this parser is registered under, which select it with
+     * {@code --parser}. A parser for the same files as another one needs an
+     * id of its own (e.g., ".java-scan").
+     *
+     * @return parser ids; the supported extensions by default
+     */
+    default List<String> getParserIds() {
+        return getSupportedExtensions();
+    }
 }
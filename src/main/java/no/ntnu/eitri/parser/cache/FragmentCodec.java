@@ -0,0 +1,355 @@
+package no.ntnu.eitri.parser.cache;
+
+import no.ntnu.eitri.model.Modifier;
+import no.ntnu.eitri.model.RelationKind;
+import no.ntnu.eitri.model.TypeKind;
+import no.ntnu.eitri.model.UmlField;
+import no.ntnu.eitri.model.UmlGeneric;
+import no.ntnu.eitri.model.UmlMethod;
+import no.ntnu.eitri.model.UmlParameter;
+import no.ntnu.eitri.model.UmlRelation;
+import no.ntnu.eitri.model.UmlStereotype;
+import no.ntnu.eitri.model.UmlType;
+import no.ntnu.eitri.model.Visibility;
+import no.ntnu.eitri.parser.ParseContext.PendingInheritance;
+import no.ntnu.eitri.parser.ParseFragment;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Binary encoding of {@link ParseFragment} operations for the parse cache.
+ *
+ * <p>
+ * Every model field that the visitor can set is written, so a decoded
+ * fragment replays exactly like the one that was encoded. Bump
+ * {@link #FORMAT_VERSION} whenever the model or the encoding changes; entries
+ * written with another version are treated as misses.
+ */
+final class FragmentCodec {
+
+    static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x45504331; // "EPC1"
+
+    private static final int MAX_STRING_BYTES = 16 * 1024 * 1024;
+
+    private static final byte OP_TYPE = 1;
+    private static final byte OP_RELATION = 2;
+    private static final byte OP_INHERITANCE = 3;
+    private static final byte OP_WARNING = 4;
+    private static final byte OP_SOURCE_PACKAGE = 5;
+
+    private FragmentCodec() {
+    }
+
+    static void write(ParseFragment fragment, DataOutput out) throws IOException {
+        List<ParseFragment.Operation> operations = fragment.operations();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(operations.size());
+        for (ParseFragment.Operation operation : operations) {
+            switch (operation) {
+                case ParseFragment.TypeAdded(UmlType type) -> {
+                    out.writeByte(OP_TYPE);
+                    writeType(type, out);
+                }
+                case ParseFragment.RelationAdded(UmlRelation relation) -> {
+                    out.writeByte(OP_RELATION);
+                    writeRelation(relation, out);
+                }
+                case ParseFragment.InheritancePending(PendingInheritance pending) -> {
+                    out.writeByte(OP_INHERITANCE);
+                    writeString(pending.fromFqn(), out);
+                    writeString(pending.toFqn(), out);
+                    writeEnum(pending.kind(), out);
+                }
+                case ParseFragment.WarningAdded(String warning) -> {
+                    out.writeByte(OP_WARNING);
+                    writeString(warning, out);
+                }
+                case ParseFragment.SourcePackageAdded(String packageName) -> {
+                    out.writeByte(OP_SOURCE_PACKAGE);
+                    writeString(packageName, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes a fragment.
+     *
+     * @param in encoded entry
+     * @return the rebuilt fragment
+     * @throws IOException if the entry is truncated, corrupt or from another
+     *                     format version
+     */
+    static ParseFragment read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a parse cache entry");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported parse cache format version: " + version);
+        }
+        int count = readCount(in);
+        ParseFragment fragment = new ParseFragment();
+        for (int i = 0; i < count; i++) {
+            byte opcode = in.readByte();
+            switch (opcode) {
+                case OP_TYPE -> fragment.addType(readType(in));
+                case OP_RELATION -> fragment.addRelation(readRelation(in));
+                case OP_INHERITANCE -> fragment.addPendingInheritance(new PendingInheritance(
+                        readString(in), readString(in), readEnum(RelationKind.class, in)));
+                case OP_WARNING -> fragment.addWarning(readString(in));
+                case OP_SOURCE_PACKAGE -> fragment.addSourcePackage(readString(in));
+                default -> throw new IOException("Unknown parse cache operation: " + opcode);
+            }
+        }
+        return fragment;
+    }
+
+    private static void writeType(UmlType type, DataOutput out) throws IOException {
+        writeString(type.getFqn(), out);
+        writeString(type.getSimpleName(), out);
+        writeString(type.getAlias(), out);
+        writeEnum(type.getKind(), out);
+        writeEnum(type.getVisibility(), out);
+        out.writeInt(type.getStereotypes().size());
+        for (UmlStereotype stereotype : type.getStereotypes()) {
+            writeString(stereotype.name(), out);
+            writeString(stereotype.spotChar() != null ? stereotype.spotChar().toString() : null, out);
+            writeString(stereotype.spotColor(), out);
+            writeStrings(stereotype.values(), out);
+        }
+        writeStrings(type.getTags(), out);
+        writeString(type.getStyle(), out);
+        writeGenerics(type.getGenerics(), out);
+        out.writeInt(type.getFields().size());
+        for (UmlField field : type.getFields()) {
+            writeField(field, out);
+        }
+        out.writeInt(type.getMethods().size());
+        for (UmlMethod method : type.getMethods()) {
+            writeMethod(method, out);
+        }
+        writeString(type.getOuterTypeFqn(), out);
+    }
+
+    private static UmlType readType(DataInput in) throws IOException {
+        UmlType.Builder builder = UmlType.builder()
+                .fqn(readString(in))
+                .simpleName(readString(in))
+                .alias(readString(in))
+                .kind(readEnum(TypeKind.class, in))
+                .visibility(readEnum(Visibility.class, in));
+        int stereotypes = readCount(in);
+        for (int i = 0; i < stereotypes; i++) {
+            String name = readString(in);
+            String spotChar = readString(in);
+            String spotColor = readString(in);
+            List<String> values = readStrings(in);
+            builder.addStereotype(new UmlStereotype(name,
+                    spotChar != null && !spotChar.isEmpty() ? spotChar.charAt(0) : null, spotColor, values));
+        }
+        readStrings(in).forEach(builder::addTag);
+        builder.style(readString(in));
+        readGenerics(in).forEach(builder::addGeneric);
+        int fields = readCount(in);
+        for (int i = 0; i < fields; i++) {
+            builder.addField(readField(in));
+        }
+        int methods = readCount(in);
+        for (int i = 0; i < methods; i++) {
+            builder.addMethod(readMethod(in));
+        }
+        return builder.outerTypeFqn(readString(in)).build();
+    }
+
+    private static void writeField(UmlField field, DataOutput out) throws IOException {
+        writeString(field.getName(), out);
+        writeString(field.getType(), out);
+        writeString(field.getTypeSimpleName(), out);
+        writeEnum(field.getVisibility(), out);
+        writeModifiers(field.getModifiers(), out);
+        out.writeBoolean(field.isReadOnly());
+        writeStrings(field.getAnnotations(), out);
+    }
+
+    private static UmlField readField(DataInput in) throws IOException {
+        return UmlField.builder()
+                .name(readString(in))
+                .type(readString(in))
+                .typeSimpleName(readString(in))
+                .visibility(readEnum(Visibility.class, in))
+                .modifiers(readModifiers(in))
+                .readOnly(in.readBoolean())
+                .annotations(readStrings(in))
+                .build();
+    }
+
+    private static void writeMethod(UmlMethod method, DataOutput out) throws IOException {
+        writeString(method.getName(), out);
+        writeString(method.getReturnType(), out);
+        writeString(method.getReturnTypeSimpleName(), out);
+        out.writeInt(method.getParameters().size());
+        for (UmlParameter parameter : method.getParameters()) {
+            writeString(parameter.name(), out);
+            writeString(parameter.type(), out);
+            writeString(parameter.typeSimpleName(), out);
+        }
+        writeEnum(method.getVisibility(), out);
+        writeModifiers(method.getModifiers(), out);
+        out.writeBoolean(method.isConstructor());
+        writeStrings(method.getAnnotations(), out);
+        writeStrings(method.getThrownExceptions(), out);
+        writeGenerics(method.getGenerics(), out);
+    }
+
+    private static UmlMethod readMethod(DataInput in) throws IOException {
+        UmlMethod.Builder builder = UmlMethod.builder()
+                .name(readString(in))
+                .returnType(readString(in))
+                .returnTypeSimpleName(readString(in));
+        int parameters = readCount(in);
+        List<UmlParameter> parameterList = new ArrayList<>(parameters);
+        for (int i = 0; i < parameters; i++) {
+            parameterList.add(new UmlParameter(readString(in), readString(in), readString(in)));
+        }
+        return builder.parameters(parameterList)
+                .visibility(readEnum(Visibility.class, in))
+                .modifiers(readModifiers(in))
+                .constructor(in.readBoolean())
+                .annotations(readStrings(in))
+                .thrownExceptions(readStrings(in))
+                .generics(readGenerics(in))
+                .build();
+    }
+
+    private static void writeRelation(UmlRelation relation, DataOutput out) throws IOException {
+        writeString(relation.getFromTypeFqn(), out);
+        writeString(relation.getToTypeFqn(), out);
+        writeEnum(relation.getKind(), out);
+        writeString(relation.getLabel(), out);
+        writeString(relation.getFromMultiplicity(), out);
+        writeString(relation.getToMultiplicity(), out);
+        writeString(relation.getFromMember(), out);
+        writeString(relation.getToMember(), out);
+    }
+
+    private static UmlRelation readRelation(DataInput in) throws IOException {
+        return UmlRelation.builder()
+                .fromTypeFqn(readString(in))
+                .toTypeFqn(readString(in))
+                .kind(readEnum(RelationKind.class, in))
+                .label(readString(in))
+                .fromMultiplicity(readString(in))
+                .toMultiplicity(readString(in))
+                .fromMember(readString(in))
+                .toMember(readString(in))
+                .build();
+    }
+
+    private static void writeGenerics(List<UmlGeneric> generics, DataOutput out) throws IOException {
+        out.writeInt(generics.size());
+        for (UmlGeneric generic : generics) {
+            writeString(generic.identifier(), out);
+            writeString(generic.bounds(), out);
+        }
+    }
+
+    private static List<UmlGeneric> readGenerics(DataInput in) throws IOException {
+        int count = readCount(in);
+        List<UmlGeneric> generics = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            generics.add(new UmlGeneric(readString(in), readString(in)));
+        }
+        return generics;
+    }
+
+    private static void writeModifiers(Set<Modifier> modifiers, DataOutput out) throws IOException {
+        out.writeInt(modifiers.size());
+        for (Modifier modifier : modifiers) {
+            writeEnum(modifier, out);
+        }
+    }
+
+    private static Set<Modifier> readModifiers(DataInput in) throws IOException {
+        int count = readCount(in);
+        Set<Modifier> modifiers = EnumSet.noneOf(Modifier.class);
+        for (int i = 0; i < count; i++) {
+            modifiers.add(readEnum(Modifier.class, in));
+        }
+        return modifiers;
+    }
+
+    private static void writeStrings(List<String> values, DataOutput out) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(value, out);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int count = readCount(in);
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static void writeEnum(Enum<?> value, DataOutput out) throws IOException {
+        writeString(value != null ? value.name() : null, out);
+    }
+
+    private static <E extends Enum<E>> E readEnum(Class<E> type, DataInput in) throws IOException {
+        String name = readString(in);
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException _) {
+            throw new IOException("Unknown " + type.getSimpleName() + " constant: " + name);
+        }
+    }
+
+    // DataOutput.writeUTF caps strings at 64 KiB and cannot encode null, so strings
+    // are written as a byte length (-1 for null) followed by UTF-8 bytes.
+    private static void writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Corrupt parse cache entry: string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt parse cache entry: negative count");
+        }
+        return count;
+    }
+}
@@ -0,0 +1,266 @@
+package no.ntnu.eitri.parser.cache;
+
+import no.ntnu.eitri.parser.ParseFragment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * On-disk, content-addressed cache of per-file parse results.
+ *
+ * <p>
+ * Each entry holds the {@link ParseFragment} produced by visiting one source
+ * file: its types, nested relations, pending inheritance, source packages and
+ * warnings. Entries are keyed by a SHA-256 of the file content combined with a
+ * fingerprint of everything else that can change the visitor's output (solver
+ * classpath, source roots, tool build) and, per entry, a description of the
+ * other sources the visit depended on. A hit lets the parser skip the AST
+ * visit entirely; relation detection and finalization still run on the merged
+ * context.
+ *
+ * <p>
+ * The cache is bounded by {@code maxBytes}. Hits refresh an entry's
+ * modification time, and {@link #close()} evicts least recently used entries
+ * until the directory fits the cap again.
+ *
+ * <p>
+ * The cache is best effort: unreadable or corrupt entries count as misses
+ * and are deleted, and write failures are logged without failing the run.
+ * All methods are safe to call from parse worker threads.
+ */
+public final class ParseCache implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ParseCache.class.getName());
+    private static final String ENTRY_SUFFIX = ".frag";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final byte[] fingerprint;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger writes = new AtomicInteger();
+    private final AtomicInteger evictions = new AtomicInteger();
+
+    private ParseCache(Path directory, long maxBytes, byte[] fingerprint) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Opens (and creates if needed) a cache directory.
+     *
+     * @param directory   cache directory
+     * @param maxBytes    size cap for all entries; {@code 0} means unbounded
+     * @param fingerprint components describing the parser environment; entries
+     *                    written under a different fingerprint are never hit
+     * @return the opened cache
+     * @throws IOException if the directory cannot be created
+     */
+    public static ParseCache open(Path directory, long maxBytes, List<String> fingerprint) throws IOException {
+        Files.createDirectories(directory);
+        MessageDigest digest = sha256();
+        digest.update(Integer.toString(FragmentCodec.FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+        for (String component : fingerprint) {
+            digest.update((byte) 0);
+            digest.update(component.getBytes(StandardCharsets.UTF_8));
+        }
+        return new ParseCache(directory, maxBytes, digest.digest());
+    }
+
+    /**
+     * Computes the cache key for a source file whose visit also depends on
+     * other files, such as the types it can name.
+     *
+     * @param source       decoded file content
+     * @param dependencies description of what else the visit read; entries
+     *                     written for a different description are never hit
+     * @return hex key combining the content hash, the dependencies and the
+     *         cache fingerprint
+     */
+    public String keyFor(String source, String dependencies) {
+        MessageDigest digest = sha256();
+        digest.update(fingerprint);
+        digest.update(dependencies.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(source.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Looks up a cached fragment.
+     *
+     * @param key key from {@link #keyFor(String, String)}
+     * @return the cached fragment, or null on a miss
+     */
+    public ParseFragment get(String key) {
+        Path entry = entryPath(key);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(entry))) {
+            ParseFragment fragment = FragmentCodec.read(new DataInputStream(in));
+            touch(entry);
+            hits.incrementAndGet();
+            return fragment;
+        } catch (NoSuchFileException _) {
+            misses.incrementAndGet();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Discarding unreadable parse cache entry {0} - {1}",
+                    new Object[] { entry, e.getMessage() });
+            deleteQuietly(entry);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores a fragment. Concurrent writers of the same key are harmless: each
+     * writes a temporary file and the last atomic rename wins.
+     *
+     * @param key      key from {@link #keyFor(String, String)}
+     * @param fragment fragment to store
+     */
+    public void put(String key, ParseFragment fragment) {
+        Path entry = entryPath(key);
+        Path temp = null;
+        try {
+            Files.createDirectories(entry.getParent());
+            temp = Files.createTempFile(entry.getParent(), key, TEMP_SUFFIX);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                FragmentCodec.write(fragment, new DataOutputStream(out));
+            }
+            moveIntoPlace(temp, entry);
+            writes.incrementAndGet();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write parse cache entry {0} - {1}",
+                    new Object[] { entry, e.getMessage() });
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.get(), misses.get(), writes.get(), evictions.get());
+    }
+
+    /**
+     * Evicts least recently used entries until the cache fits its size cap.
+     */
+    @Override
+    public void close() {
+        if (maxBytes <= 0) {
+            return;
+        }
+        try {
+            evictToCap();
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.log(Level.WARNING, "Failed to evict parse cache entries in {0} - {1}",
+                    new Object[] { directory, e.getMessage() });
+        }
+    }
+
+    private void evictToCap() throws IOException {
+        List<CachedEntry> entries = new ArrayList<>();
+        long totalBytes = 0;
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(ENTRY_SUFFIX)).toList()) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    entries.add(new CachedEntry(file, attributes.size(), attributes.lastModifiedTime()));
+                    totalBytes += attributes.size();
+                } catch (IOException _) {
+                    // Removed by a concurrent run; nothing to evict.
+                }
+            }
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        entries.sort(Comparator.comparing(CachedEntry::lastUsed));
+        for (CachedEntry entry : entries) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            if (deleteQuietly(entry.path())) {
+                evictions.incrementAndGet();
+            }
+            totalBytes -= entry.size();
+        }
+    }
+
+    private Path entryPath(String key) {
+        // Two-character fan-out keeps directory listings small on large repositories.
+        return directory.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+    }
+
+    private static void moveIntoPlace(Path temp, Path entry) throws IOException {
+        try {
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException _) {
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException _) {
+            // Only affects eviction order.
+        }
+    }
+
+    private static boolean deleteQuietly(Path path) {
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException _) {
+            return false;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record CachedEntry(Path path, long size, FileTime lastUsed) {
+    }
+
+    /**
+     * Cache activity for a parse run.
+     *
+     * @param hits      files whose fragment was loaded from the cache
+     * @param misses    files that had to be visited
+     * @param writes    entries written
+     * @param evictions entries removed to respect the size cap
+     */
+    public record CacheStats(int hits, int misses, int writes, int evictions) {
+    }
+}
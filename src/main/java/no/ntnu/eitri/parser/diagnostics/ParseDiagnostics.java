@@ -6,6 +6,9 @@ import java.util.logging.Logger;
 
 /**
  * Collects non-fatal parse diagnostics.
+ *
+ * <p>
+ * Safe to share between threads; warnings keep their insertion order.
  */
 public final class ParseDiagnostics {
 
@@ -18,14 +21,14 @@ public final class ParseDiagnostics {
         this.verbose = verbose;
     }
 
-    public void addWarning(String warning) {
+    public synchronized void addWarning(String warning) {
         warnings.add(warning);
         if (verbose) {
             logger.warning(warning);
         }
     }
 
-    public List<String> getWarnings() {
+    public synchronized List<String> getWarnings() {
         return new ArrayList<>(warnings);
     }
 }
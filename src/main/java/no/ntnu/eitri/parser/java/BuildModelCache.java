@@ -0,0 +1,471 @@
+package no.ntnu.eitri.parser.java;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What the build scripts around the parsed sources declare, found and read
+ * once per run.
+ *
+ * <p>
+ * Source roots, compiled outputs and dependency jars are all detected from
+ * the same module roots, Gradle repository roots, settings files and build
+ * scripts, often for many source paths of one repository. This cache answers
+ * each of those lookups once: a module is walked for its build scripts once,
+ * a directory's repository root is found once (and so are those of the
+ * directories passed on the way up), and each build script is read once for
+ * both its dependency coordinates and its applied plugins. The contents of
+ * build scripts are also kept across runs in the parse cache directory, keyed
+ * like the {@link JarIndexCache} by the script's path, size and modification
+ * time. Without a cache directory they only live for the run.
+ *
+ * <p>
+ * Discovery runs on one thread; instances are not thread-safe.
+ */
+final class BuildModelCache {
+
+    private static final Logger LOGGER = Logger.getLogger(BuildModelCache.class.getName());
+    static final String INDEX_FILE = "build-model.idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String SETTINGS_GRADLE = "settings.gradle";
+    private static final String SETTINGS_GRADLE_KTS = "settings.gradle.kts";
+    private static final String BUILD_GRADLE = "build.gradle";
+    private static final String BUILD_GRADLE_KTS = "build.gradle.kts";
+    private static final Pattern GRADLE_DEPENDENCY_COORDINATE = Pattern
+            .compile(
+                    "(?:implementation|api|compileOnly|runtimeOnly|testImplementation)\\s*\\(\\s*\"([^\"]+:[^\"]+:[^\"]+)\"\\s*\\)");
+    private static final Pattern GRADLE_PLUGIN_ID = Pattern.compile("id\\(\\s*\"([^\"]+)\"\\s*\\)");
+
+    /**
+     * What a Gradle build script declares.
+     *
+     * @param size                  script size in bytes
+     * @param modified              script modification time in milliseconds
+     * @param dependencyCoordinates {@code group:artifact:version} coordinates
+     *                              of its dependencies
+     * @param pluginIds             ids of the plugins it applies
+     */
+    record Script(long size, long modified, List<String> dependencyCoordinates, List<String> pluginIds) {
+    }
+
+    private final Path indexFile;
+    private final Map<String, Script> scripts;
+    private final Map<Path, Path> moduleRoots = new HashMap<>();
+    private final Map<Path, Optional<Path>> repoRoots = new HashMap<>();
+    private final Map<Path, Optional<Path>> settingsFiles = new HashMap<>();
+    private final Map<Path, Set<String>> includedModules = new HashMap<>();
+    private final Map<Path, Set<Path>> mavenModules = new HashMap<>();
+    private final Map<Path, Set<String>> mavenDependencies = new HashMap<>();
+    private final Map<Path, Set<Path>> buildFiles = new HashMap<>();
+    private boolean changed;
+    private int modulesWalked;
+    private int scriptsRead;
+    private int scriptsReused;
+
+    private BuildModelCache(Path indexFile, Map<String, Script> scripts) {
+        this.indexFile = indexFile;
+        this.scripts = scripts;
+    }
+
+    /**
+     * Loads the build scripts recorded in a parse cache directory.
+     *
+     * @param cacheDirectory parse cache directory, or null for a cache that is
+     *                       not kept across runs
+     * @return the cache
+     */
+    static BuildModelCache load(Path cacheDirectory) {
+        if (cacheDirectory == null) {
+            return new BuildModelCache(null, new HashMap<>());
+        }
+        Path indexFile = cacheDirectory.resolve(INDEX_FILE);
+        return new BuildModelCache(indexFile, readIndex(indexFile));
+    }
+
+    /**
+     * Returns the module directory of a source path: the directory above
+     * {@code src/main/java}, or the path itself.
+     *
+     * @param sourcePath a source path, or null
+     * @return the normalized module root, or null for a null path
+     */
+    Path moduleRoot(Path sourcePath) {
+        if (sourcePath == null) {
+            return null;
+        }
+        return moduleRoots.computeIfAbsent(sourcePath, path -> {
+            Path normalized = path.normalize();
+            int count = normalized.getNameCount();
+            if (count >= 3
+                    && "src".equals(normalized.getName(count - 3).toString())
+                    && "main".equals(normalized.getName(count - 2).toString())
+                    && "java".equals(normalized.getName(count - 1).toString())) {
+                return normalized.getParent().getParent().getParent();
+            }
+            return normalized;
+        });
+    }
+
+    /**
+     * Returns the closest directory at or above {@code start} with a Gradle
+     * settings file.
+     *
+     * @param start a directory, or null
+     * @return the repository root, or null when there is none
+     */
+    Path repoRoot(Path start) {
+        if (start == null) {
+            return null;
+        }
+        Optional<Path> known = repoRoots.get(start);
+        if (known != null) {
+            return known.orElse(null);
+        }
+        // Recursion records every directory passed, so sibling modules stop one level up.
+        Path root = settingsFile(start) != null ? start : repoRoot(start.getParent());
+        repoRoots.put(start, Optional.ofNullable(root));
+        return root;
+    }
+
+    /**
+     * Returns the Gradle settings file of a directory, preferring the Kotlin
+     * script.
+     *
+     * @param dir a directory, or null
+     * @return the settings file, or null when there is none
+     */
+    Path settingsFile(Path dir) {
+        if (dir == null) {
+            return null;
+        }
+        return settingsFiles.computeIfAbsent(dir, directory -> Optional
+                .ofNullable(existingFile(directory, SETTINGS_GRADLE_KTS, SETTINGS_GRADLE)))
+                .orElse(null);
+    }
+
+    /**
+     * Returns the module ids a settings file includes.
+     *
+     * @param settingsFile a Gradle settings file
+     * @return the ids, read once per run
+     */
+    Set<String> includedModules(Path settingsFile) {
+        return includedModules.computeIfAbsent(settingsFile, JavaSourceParser::parseIncludedModuleIds);
+    }
+
+    /**
+     * Returns the module directories a directory's {@code pom.xml} lists.
+     *
+     * @param directory a directory, or null
+     * @return the modules, read once per run
+     */
+    Set<Path> mavenModules(Path directory) {
+        if (directory == null) {
+            return Set.of();
+        }
+        return mavenModules.computeIfAbsent(directory, JavaSourceParser::detectMavenModules);
+    }
+
+    /**
+     * Returns the dependency coordinates a POM declares.
+     *
+     * @param pom a Maven POM
+     * @return the coordinates, read once per run
+     */
+    Set<String> mavenDependencies(Path pom) {
+        return mavenDependencies.computeIfAbsent(pom, JavaSourceParser::parseMavenDependencyCoordinates);
+    }
+
+    /**
+     * Returns the Gradle build scripts of a module: its own and those of the
+     * modules nested under it, skipping build outputs and VCS and Gradle
+     * internals. A module under one that was already walked is answered from
+     * that walk.
+     *
+     * @param moduleRoot a module directory
+     * @return absolute paths of the build scripts
+     */
+    Set<Path> buildFiles(Path moduleRoot) {
+        Set<Path> known = buildFiles.get(moduleRoot);
+        if (known != null) {
+            return known;
+        }
+        Path absoluteRoot = moduleRoot.toAbsolutePath().normalize();
+        for (Map.Entry<Path, Set<Path>> walked : buildFiles.entrySet()) {
+            Path walkedRoot = walked.getKey().toAbsolutePath().normalize();
+            if (!walkedRoot.equals(absoluteRoot) && absoluteRoot.startsWith(walkedRoot)
+                    && !isUnderExcludedDirectory(walkedRoot, absoluteRoot)) {
+                Set<Path> nested = new LinkedHashSet<>();
+                walked.getValue().stream().filter(file -> file.startsWith(absoluteRoot)).forEach(nested::add);
+                buildFiles.put(moduleRoot, nested);
+                return nested;
+            }
+        }
+        Set<Path> found = walkBuildFiles(moduleRoot);
+        modulesWalked++;
+        buildFiles.put(moduleRoot, found);
+        return found;
+    }
+
+    /**
+     * Returns what a Gradle build script declares, reading it unless its
+     * current size and modification time were recorded.
+     *
+     * @param buildFile a build script
+     * @return the script's declarations; empty when it cannot be read
+     */
+    Script script(Path buildFile) {
+        String key = buildFile.toAbsolutePath().normalize().toString();
+        long size;
+        long modified;
+        try {
+            size = Files.size(buildFile);
+            modified = Files.getLastModifiedTime(buildFile).toMillis();
+        } catch (IOException _) {
+            LOGGER.log(Level.WARNING, "Failed to read build file: {0}", buildFile);
+            return new Script(-1L, -1L, List.of(), List.of());
+        }
+        Script script = scripts.get(key);
+        if (script != null && script.size() == size && script.modified() == modified) {
+            scriptsReused++;
+            return script;
+        }
+        script = readScript(buildFile, size, modified);
+        scriptsRead++;
+        scripts.put(key, script);
+        changed = true;
+        return script;
+    }
+
+    /**
+     * Returns how many module directories were walked for build scripts.
+     *
+     * @return directory walks
+     */
+    int modulesWalked() {
+        return modulesWalked;
+    }
+
+    /**
+     * Returns how many build scripts were read in this run.
+     *
+     * @return scripts read
+     */
+    int scriptsRead() {
+        return scriptsRead;
+    }
+
+    /**
+     * Returns how many build scripts were taken from an earlier run.
+     *
+     * @return scripts not read again
+     */
+    int scriptsReused() {
+        return scriptsReused;
+    }
+
+    /**
+     * Writes the recorded build scripts back to the cache directory if they
+     * changed. Failures are logged and only cost the next run its reads.
+     */
+    void save() {
+        if (indexFile == null || !changed) {
+            return;
+        }
+        changed = false;
+        Path temp = null;
+        try {
+            Files.createDirectories(indexFile.getParent());
+            temp = Files.createTempFile(indexFile.getParent(), INDEX_FILE, TEMP_SUFFIX);
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Script> entry : new TreeMap<>(scripts).entrySet()) {
+                    Script script = entry.getValue();
+                    writer.write(script.size() + "\t" + script.modified() + "\t"
+                            + String.join(" ", script.dependencyCoordinates()) + "\t"
+                            + String.join(" ", script.pluginIds()) + "\t" + entry.getKey());
+                    writer.write('\0');
+                }
+            }
+            moveIntoPlace(temp, indexFile);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write build model index {0} - {1}",
+                    new Object[] { indexFile, e.getMessage() });
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    /**
+     * Reads a build script's dependency coordinates and applied plugins in
+     * one pass over its lines.
+     */
+    static Script readScript(Path buildFile, long size, long modified) {
+        Set<String> coordinates = new LinkedHashSet<>();
+        Set<String> pluginIds = new LinkedHashSet<>();
+        try {
+            for (String line : Files.readAllLines(buildFile)) {
+                String trimmed = line.trim();
+                collect(GRADLE_DEPENDENCY_COORDINATE.matcher(trimmed), coordinates);
+                collect(GRADLE_PLUGIN_ID.matcher(trimmed), pluginIds);
+            }
+        } catch (IOException _) {
+            LOGGER.log(Level.WARNING, "Failed to read build file: {0}", buildFile);
+        }
+        return new Script(size, modified, List.copyOf(coordinates), List.copyOf(pluginIds));
+    }
+
+    private static void collect(Matcher matcher, Set<String> target) {
+        while (matcher.find()) {
+            target.add(matcher.group(1));
+        }
+    }
+
+    private static Set<Path> walkBuildFiles(Path moduleRoot) {
+        Set<Path> found = new LinkedHashSet<>();
+        Path rootBuildFile = existingFile(moduleRoot, BUILD_GRADLE_KTS, BUILD_GRADLE);
+        if (rootBuildFile != null) {
+            found.add(rootBuildFile.toAbsolutePath().normalize());
+        }
+        if (!Files.isDirectory(moduleRoot)) {
+            return found;
+        }
+
+        try {
+            Files.walkFileTree(moduleRoot, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (isExcludedBuildScanDirectory(moduleRoot, dir)) {
+                        // Build outputs and Gradle internals can contain copied/generated
+                        // build scripts that should not be interpreted as source module
+                        // definitions.
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String fileName = file.getFileName() == null ? "" : file.getFileName().toString();
+                    if (BUILD_GRADLE.equals(fileName) || BUILD_GRADLE_KTS.equals(fileName)) {
+                        found.add(file.toAbsolutePath().normalize());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException _) {
+            LOGGER.log(Level.WARNING, "Failed to scan Gradle build files under: {0}", moduleRoot);
+        }
+        return found;
+    }
+
+    private static boolean isExcludedBuildScanDirectory(Path moduleRoot, Path dir) {
+        Path relative = moduleRoot.relativize(dir);
+        if (relative.getNameCount() == 0) {
+            return false;
+        }
+        String name = relative.getFileName() == null ? "" : relative.getFileName().toString();
+        return isExcludedName(name);
+    }
+
+    /**
+     * Returns whether a walk of {@code walkedRoot} skipped {@code dir}, so its
+     * result says nothing about the build scripts under it.
+     */
+    private static boolean isUnderExcludedDirectory(Path walkedRoot, Path dir) {
+        for (Path name : walkedRoot.relativize(dir)) {
+            if (isExcludedName(name.toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isExcludedName(String name) {
+        return ".git".equals(name)
+                || ".gradle".equals(name)
+                || "build".equals(name)
+                || "target".equals(name);
+    }
+
+    private static Path existingFile(Path dir, String preferred, String fallback) {
+        Path preferredFile = dir.resolve(preferred);
+        if (Files.isRegularFile(preferredFile)) {
+            return preferredFile;
+        }
+        Path fallbackFile = dir.resolve(fallback);
+        if (Files.isRegularFile(fallbackFile)) {
+            return fallbackFile;
+        }
+        return null;
+    }
+
+    private static Map<String, Script> readIndex(Path indexFile) {
+        Map<String, Script> index = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            StringBuilder entry = new StringBuilder();
+            int next;
+            while ((next = reader.read()) != -1) {
+                if (next != '\0') {
+                    entry.append((char) next);
+                    continue;
+                }
+                // <size> TAB <modified> TAB <coordinates> TAB <plugin ids> TAB <path>
+                String[] parts = entry.toString().split("\t", 5);
+                if (parts.length == 5) {
+                    index.put(parts[4], new Script(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                            words(parts[2]), words(parts[3])));
+                }
+                entry.setLength(0);
+            }
+        } catch (NoSuchFileException _) {
+            return index;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.FINE, "Ignoring unreadable build model index {0} - {1}",
+                    new Object[] { indexFile, e.getMessage() });
+            return new HashMap<>();
+        }
+        return index;
+    }
+
+    private static List<String> words(String joined) {
+        return joined.isEmpty() ? List.of() : List.of(joined.split(" "));
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException _) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException _) {
+            // Left behind in the cache directory; the next save replaces the index anyway.
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.cache.InMemoryCache;
+import com.github.javaparser.symbolsolver.javassistmodel.JavassistFactory;
+import javassist.ClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Solves types from class files, reading their declarations without loading
+ * the classes into the running JVM.
+ *
+ * <p>
+ * It takes the place of JavaParser's reflection-based solvers, which load and
+ * link every class they are asked about. Declarations are read through
+ * Javassist, the way the jar and compiled output solvers read them, either
+ * from the JDK's {@code jrt:/} image ({@link #jdk()}) or from the resources
+ * of a class loader ({@link #classLoader(ClassLoader)}). Like every type
+ * solver it is confined to one parse worker.
+ */
+final class BytecodeTypeSolver implements TypeSolver {
+
+    private final ClassPool classPool = new ClassPool();
+    private final Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes;
+    private TypeSolver parent;
+
+    private BytecodeTypeSolver(ClassPath classPath,
+            Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes) {
+        classPool.appendClassPath(classPath);
+        this.foundTypes = foundTypes;
+    }
+
+    /**
+     * Creates a solver for the types of the running JDK.
+     *
+     * @return a solver over {@link JdkClassFiles#system()}
+     */
+    static BytecodeTypeSolver jdk() {
+        return jdk(InMemoryCache.create());
+    }
+
+    /**
+     * Creates a solver for the types of the running JDK.
+     *
+     * @param foundTypes cache of the names looked up so far
+     * @return a solver over {@link JdkClassFiles#system()}
+     */
+    static BytecodeTypeSolver jdk(Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes) {
+        return new BytecodeTypeSolver(JdkClassFiles.system().classPath(), foundTypes);
+    }
+
+    /**
+     * Creates a solver for the class files a class loader can find, read as
+     * resources.
+     *
+     * @param classLoader the class loader
+     * @param foundTypes  cache of the names looked up so far
+     * @return a solver over the loader's resources
+     */
+    static BytecodeTypeSolver classLoader(ClassLoader classLoader,
+            Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes) {
+        return new BytecodeTypeSolver(new LoaderClassPath(classLoader), foundTypes);
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        if (this.parent != null) {
+            throw new IllegalStateException("This TypeSolver already has a parent.");
+        }
+        if (parent == this) {
+            throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+        }
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        Optional<SymbolReference<ResolvedReferenceTypeDeclaration>> cached = foundTypes.get(name);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        SymbolReference<ResolvedReferenceTypeDeclaration> found = solve(name);
+        foundTypes.put(name, found);
+        return found;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveTypeInModule(String qualifiedModuleName,
+            String simpleTypeName) {
+        return SymbolReference.unsolved();
+    }
+
+    private SymbolReference<ResolvedReferenceTypeDeclaration> solve(String name) {
+        String[] segments = name.split("\\.");
+        // Top-level classes first: com.example.Outer.Inner is com/example/Outer$Inner.class, ...
+        for (int packageEnd = segments.length - 1; packageEnd >= 0; packageEnd--) {
+            String packageName = String.join(".", List.of(segments).subList(0, packageEnd));
+            String className = String.join("$", List.of(segments).subList(packageEnd, segments.length));
+            String binaryName = packageName.isEmpty() ? className : packageName + "." + className;
+            if (classPool.find(binaryName) == null) {
+                continue;
+            }
+            try {
+                CtClass ctClass = classPool.get(binaryName);
+                return SymbolReference.solved(JavassistFactory.toTypeDeclaration(ctClass, getRoot()));
+            } catch (NotFoundException | RuntimeException _) {
+                // An unreadable class file is left to the solvers after this one.
+                return SymbolReference.unsolved();
+            }
+        }
+        return SymbolReference.unsolved();
+    }
+}
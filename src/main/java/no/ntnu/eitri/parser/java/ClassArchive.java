@@ -0,0 +1,272 @@
+package no.ntnu.eitri.parser.java;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The class files of a jar, readable from several threads at once.
+ *
+ * <p>
+ * The jar is memory-mapped and its central directory read from the mapping,
+ * so an entry is read by copying or inflating its bytes straight out of the
+ * mapping, without a shared stream or lock. A jar that cannot be read that
+ * way (larger than 2 GB, zip64, encrypted or compressed with something other
+ * than deflate) is read through {@link ZipFile} instead.
+ *
+ * <p>
+ * Entries under {@code META-INF}, such as the versioned classes of a
+ * multi-release jar, and module and package descriptors are left out.
+ * Entries are listed with every enclosing class ahead of its member classes.
+ */
+final class ClassArchive implements Closeable {
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int END_RECORD_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final ByteBuffer mapped;
+    private final ZipFile zipFile;
+    private final List<Entry> entries;
+
+    private ClassArchive(ByteBuffer mapped, ZipFile zipFile, List<Entry> entries) {
+        this.mapped = mapped;
+        this.zipFile = zipFile;
+        this.entries = entries;
+    }
+
+    /**
+     * Opens a jar, memory-mapped when possible.
+     *
+     * @param jar the jar file
+     * @return the open archive
+     * @throws IOException if the jar cannot be read
+     */
+    static ClassArchive open(Path jar) throws IOException {
+        ByteBuffer mapped = map(jar);
+        if (mapped != null) {
+            List<Entry> entries = readCentralDirectory(mapped);
+            if (entries != null) {
+                return new ClassArchive(mapped, null, sorted(entries));
+            }
+        }
+        ZipFile zipFile = new ZipFile(jar.toFile());
+        List<Entry> entries = new ArrayList<>();
+        zipFile.stream().forEach(entry -> {
+            if (!entry.isDirectory() && isClassEntry(entry.getName())) {
+                entries.add(new Entry(entry.getName(), -1, 0, 0, 0));
+            }
+        });
+        return new ClassArchive(null, zipFile, sorted(entries));
+    }
+
+    /**
+     * @return whether entries are read from a memory mapping
+     */
+    boolean isMapped() {
+        return mapped != null;
+    }
+
+    /**
+     * @return the number of class entries
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param index entry index, in listing order
+     * @return the entry's name within the jar
+     */
+    String entryName(int index) {
+        return entries.get(index).name();
+    }
+
+    /**
+     * Reads the bytes of an entry. Safe to call from several threads.
+     *
+     * @param index entry index, in listing order
+     * @return the uncompressed entry
+     * @throws IOException if the entry is corrupt or cannot be read
+     */
+    byte[] read(int index) throws IOException {
+        Entry entry = entries.get(index);
+        if (zipFile != null) {
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry(entry.name()))) {
+                return in.readAllBytes();
+            }
+        }
+        try {
+            return readMapped(entry);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt jar entry " + entry.name(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // A mapping is released by the garbage collector.
+        if (zipFile != null) {
+            zipFile.close();
+        }
+    }
+
+    private byte[] readMapped(Entry entry) throws IOException {
+        int header = entry.localHeaderOffset();
+        if (mapped.getInt(header) != LOCAL_FILE_HEADER) {
+            throw new IOException("Missing local header for jar entry " + entry.name());
+        }
+        int dataStart = header + 30 + unsignedShort(mapped, header + 26) + unsignedShort(mapped, header + 28);
+        byte[] bytes = new byte[entry.size()];
+        if (entry.method() == STORED) {
+            mapped.get(dataStart, bytes);
+            return bytes;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(mapped.slice(dataStart, entry.compressedSize()));
+            int read = 0;
+            while (read < bytes.length && !inflater.finished()) {
+                int inflated = inflater.inflate(bytes, read, bytes.length - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += inflated;
+            }
+            if (read != bytes.length) {
+                throw new IOException("Truncated jar entry " + entry.name());
+            }
+            return bytes;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt jar entry " + entry.name(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static ByteBuffer map(Path jar) throws IOException {
+        try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < END_RECORD_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (UnsupportedOperationException _) {
+            // Not a file on the default file system, e.g. inside another archive.
+            return null;
+        }
+    }
+
+    /**
+     * Reads the class entries listed in the central directory.
+     *
+     * @return the entries, or null when the jar has to be read through
+     *         {@link ZipFile}
+     */
+    private static List<Entry> readCentralDirectory(ByteBuffer jar) {
+        int end = findEndRecord(jar);
+        if (end < 0) {
+            return null;
+        }
+        int count = unsignedShort(jar, end + 10);
+        long directoryOffset = Integer.toUnsignedLong(jar.getInt(end + 16));
+        if (count == 0xFFFF || directoryOffset == 0xFFFFFFFFL || directoryOffset >= end) {
+            return null;
+        }
+        List<Entry> entries = new ArrayList<>();
+        int position = (int) directoryOffset;
+        for (int i = 0; i < count; i++) {
+            if (position + 46 > end || jar.getInt(position) != CENTRAL_DIRECTORY_HEADER) {
+                return null;
+            }
+            int flags = unsignedShort(jar, position + 8);
+            int method = unsignedShort(jar, position + 10);
+            long compressedSize = Integer.toUnsignedLong(jar.getInt(position + 20));
+            long size = Integer.toUnsignedLong(jar.getInt(position + 24));
+            int nameLength = unsignedShort(jar, position + 28);
+            int extraLength = unsignedShort(jar, position + 30);
+            int commentLength = unsignedShort(jar, position + 32);
+            long localHeaderOffset = Integer.toUnsignedLong(jar.getInt(position + 42));
+            byte[] name = new byte[nameLength];
+            jar.get(position + 46, name);
+            String entryName = new String(name, StandardCharsets.UTF_8);
+            position += 46 + nameLength + extraLength + commentLength;
+
+            if (!isClassEntry(entryName)) {
+                continue;
+            }
+            boolean encrypted = (flags & 1) != 0;
+            boolean readable = method == STORED || method == DEFLATED;
+            if (encrypted || !readable || compressedSize >= 0xFFFFFFFFL || size >= Integer.MAX_VALUE
+                    || localHeaderOffset >= directoryOffset) {
+                return null;
+            }
+            entries.add(new Entry(entryName, method, (int) compressedSize, (int) size, (int) localHeaderOffset));
+        }
+        return entries;
+    }
+
+    private static int findEndRecord(ByteBuffer jar) {
+        int last = jar.limit() - END_RECORD_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT_SIZE);
+        for (int position = last; position >= first; position--) {
+            if (jar.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isClassEntry(String name) {
+        if (!name.endsWith(CLASS_SUFFIX) || name.startsWith("META-INF/")) {
+            return false;
+        }
+        String simpleName = name.substring(name.lastIndexOf('/') + 1);
+        return !simpleName.equals("module-info.class") && !simpleName.equals("package-info.class");
+    }
+
+    /**
+     * Orders entries so that {@code Outer.class} comes before
+     * {@code Outer$Inner.class}.
+     */
+    private static List<Entry> sorted(List<Entry> entries) {
+        entries.sort(Comparator.comparing(entry -> classOrderKey(entry.name())));
+        return List.copyOf(entries);
+    }
+
+    /**
+     * A sort key that places a class ahead of its member classes, which share
+     * its name up to a {@code $}.
+     *
+     * @param classFileName a class file path or entry name
+     * @return the key
+     */
+    static String classOrderKey(String classFileName) {
+        return classFileName.replace('$', '/');
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int position) {
+        return Short.toUnsignedInt(buffer.getShort(position));
+    }
+
+    private record Entry(String name, int method, int compressedSize, int size, int localHeaderOffset) {
+    }
+}
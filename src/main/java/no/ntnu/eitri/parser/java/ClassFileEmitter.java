@@ -0,0 +1,713 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.config.ModelProjection;
+import no.ntnu.eitri.model.Modifier;
+import no.ntnu.eitri.model.RelationKind;
+import no.ntnu.eitri.model.TypeKind;
+import no.ntnu.eitri.model.UmlField;
+import no.ntnu.eitri.model.UmlGeneric;
+import no.ntnu.eitri.model.UmlMethod;
+import no.ntnu.eitri.model.UmlParameter;
+import no.ntnu.eitri.model.UmlRelation;
+import no.ntnu.eitri.model.UmlStereotype;
+import no.ntnu.eitri.model.UmlType;
+import no.ntnu.eitri.model.Visibility;
+import no.ntnu.eitri.parser.ParseContext;
+
+import java.lang.classfile.Annotation;
+import java.lang.classfile.AnnotationElement;
+import java.lang.classfile.AnnotationValue;
+import java.lang.classfile.AttributedElement;
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.ClassSignature;
+import java.lang.classfile.FieldModel;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.MethodSignature;
+import java.lang.classfile.Signature;
+import java.lang.classfile.attribute.InnerClassInfo;
+import java.lang.classfile.attribute.LocalVariableInfo;
+import java.lang.classfile.attribute.MethodParameterInfo;
+import java.lang.classfile.attribute.RecordComponentInfo;
+import java.lang.classfile.attribute.SignatureAttribute;
+import java.lang.classfile.constantpool.ClassEntry;
+import java.lang.classfile.constantpool.Utf8Entry;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDesc;
+import java.lang.reflect.AccessFlag;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Adds the type declared by a class file to a {@link ParseContext}, in the
+ * same shape {@link TypeVisitor} gives the type declared in source.
+ *
+ * <p>
+ * Names, members and generic signatures come from the class file and its
+ * {@code Signature}, {@code InnerClasses}, {@code Record} and annotation
+ * attributes, so names are already fully qualified. What the compiler adds
+ * is left out: synthetic and bridge members, the {@code values} and
+ * {@code valueOf} methods of enums, the members a record gets from its
+ * components, and the outer instance and enum name and ordinal parameters of
+ * constructors. Parameter names come from the {@code MethodParameters} or
+ * local variable tables when the classes were compiled with them, and are
+ * {@code arg0}, {@code arg1}, ... otherwise. Only annotations kept in the
+ * class file show, and field initializers only for compile-time constants.
+ *
+ * <p>
+ * An emitter holds no per-class state, so parse workers can share one.
+ */
+final class ClassFileEmitter {
+
+    private static final String STATIC_STEREOTYPE = "static";
+    private static final String ABSTRACT_STEREOTYPE = "abstract";
+    private static final String FINAL_STEREOTYPE = "final";
+    private static final String RECORD_STEREOTYPE = "record";
+    private static final String CONSTRUCTOR = "<init>";
+    private static final String STATIC_INITIALIZER = "<clinit>";
+    private static final String OBJECT = "java/lang/Object";
+
+    private final ModelProjection projection;
+
+    /**
+     * @param projection the members to keep
+     */
+    ClassFileEmitter(ModelProjection projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * The package of a class, from its internal name.
+     *
+     * @param classModel a parsed class file
+     * @return the package name, empty for the default package
+     */
+    static String packageName(ClassModel classModel) {
+        String internalName = classModel.thisClass().asInternalName();
+        int slash = internalName.lastIndexOf('/');
+        return slash < 0 ? "" : internalName.substring(0, slash).replace('/', '.');
+    }
+
+    /**
+     * Adds the type of one class file, with its nested and inheritance
+     * relations. Local, anonymous and synthetic classes and module
+     * descriptors are not part of the model.
+     *
+     * @param classModel the parsed class file
+     * @param context    receives the type
+     * @return whether a type was added
+     */
+    boolean emit(ClassModel classModel, ParseContext context) {
+        if (classModel.flags().has(AccessFlag.MODULE) || classModel.flags().has(AccessFlag.SYNTHETIC)
+                || classModel.findAttribute(Attributes.enclosingMethod()).isPresent()) {
+            return false;
+        }
+        ClassNames names = new ClassNames(classModel);
+        InnerClassInfo self = names.innerClassInfo(classModel.thisClass().asInternalName());
+        if (self != null && (self.outerClass().isEmpty() || self.innerName().isEmpty())) {
+            return false;
+        }
+        new ClassEmission(classModel, names, self, context).run();
+        return true;
+    }
+
+    private final class ClassEmission {
+        private final ClassModel classModel;
+        private final ClassNames names;
+        private final InnerClassInfo self;
+        private final ParseContext context;
+        private final String internalName;
+        private final String fqn;
+        private final TypeKind kind;
+
+        ClassEmission(ClassModel classModel, ClassNames names, InnerClassInfo self, ParseContext context) {
+            this.classModel = classModel;
+            this.names = names;
+            this.self = self;
+            this.context = context;
+            this.internalName = classModel.thisClass().asInternalName();
+            this.fqn = names.fqn(internalName);
+            this.kind = kindOf(classModel);
+        }
+
+        void run() {
+            // A member class's own access flags lose private, protected and static.
+            Set<AccessFlag> flags = self != null ? self.flags() : classModel.flags().flags();
+            String outerFqn = self != null ? names.fqn(self.outerClass().orElseThrow().asInternalName()) : null;
+            String simpleName = self != null
+                    ? self.innerName().orElseThrow().stringValue()
+                    : internalName.substring(internalName.lastIndexOf('/') + 1);
+
+            UmlType.Builder builder = UmlType.builder()
+                    .fqn(fqn)
+                    .simpleName(simpleName)
+                    .kind(kind)
+                    .visibility(visibilityOf(flags));
+            if (outerFqn != null) {
+                builder.outerTypeFqn(outerFqn);
+                // Nested interfaces, enums, records and annotations are implicitly static.
+                if (kind != TypeKind.CLASS || flags.contains(AccessFlag.STATIC)) {
+                    builder.addStereotype(STATIC_STEREOTYPE);
+                }
+            }
+            for (Annotation annotation : annotations(classModel)) {
+                builder.addStereotype(toStereotype(annotation));
+            }
+            if (kind == TypeKind.CLASS && flags.contains(AccessFlag.ABSTRACT)) {
+                builder.addStereotype(ABSTRACT_STEREOTYPE);
+            }
+            if (kind == TypeKind.CLASS && flags.contains(AccessFlag.FINAL)) {
+                builder.addStereotype(FINAL_STEREOTYPE);
+            }
+            if (kind == TypeKind.RECORD) {
+                builder.addStereotype(RECORD_STEREOTYPE);
+            }
+            if (kind == TypeKind.CLASS || kind == TypeKind.INTERFACE || kind == TypeKind.RECORD) {
+                Optional<ClassSignature> signature = classModel.findAttribute(Attributes.signature())
+                        .map(SignatureAttribute::asClassSignature);
+                if (signature.isPresent()) {
+                    for (Signature.TypeParam typeParameter : signature.get().typeParameters()) {
+                        builder.addGeneric(toGeneric(typeParameter));
+                    }
+                }
+            }
+
+            addFields(builder);
+            List<UmlMethod> constructors = new ArrayList<>();
+            for (MethodModel method : classModel.methods()) {
+                if (isDeclared(method)) {
+                    addMethod(method, builder, constructors);
+                }
+            }
+            constructors.forEach(builder::addMethod);
+
+            context.addType(builder.build());
+            if (outerFqn != null) {
+                context.addRelation(UmlRelation.nestedRelation(outerFqn, fqn));
+            }
+            addInheritance();
+        }
+
+        private void addFields(UmlType.Builder builder) {
+            if (kind == TypeKind.RECORD) {
+                if (projection.includesField(Visibility.PRIVATE)) {
+                    List<RecordComponentInfo> components = classModel.findAttribute(Attributes.record())
+                            .map(record -> record.components())
+                            .orElse(List.of());
+                    for (RecordComponentInfo component : components) {
+                        builder.addField(UmlField.builder()
+                                .name(component.name().stringValue())
+                                .type(describe(typeSignature(component, component.descriptor())))
+                                .visibility(Visibility.PRIVATE)
+                                .isFinal(true)
+                                .build());
+                    }
+                }
+                return;
+            }
+            if (kind == TypeKind.ANNOTATION) {
+                return;
+            }
+            // Enum constants come first, as in TypeVisitor.
+            if (kind == TypeKind.ENUM && projection.includesField(Visibility.PUBLIC)) {
+                for (FieldModel field : classModel.fields()) {
+                    if (field.flags().has(AccessFlag.ENUM)) {
+                        builder.addField(UmlField.builder()
+                                .name(field.fieldName().stringValue())
+                                .type(fqn)
+                                .visibility(Visibility.PUBLIC)
+                                .isStatic(true)
+                                .isFinal(true)
+                                .build());
+                    }
+                }
+            }
+            for (FieldModel field : classModel.fields()) {
+                Set<AccessFlag> flags = field.flags().flags();
+                Visibility visibility = visibilityOf(flags);
+                if (flags.contains(AccessFlag.SYNTHETIC) || flags.contains(AccessFlag.ENUM)
+                        || !projection.includesField(visibility)) {
+                    continue;
+                }
+                boolean isFinal = flags.contains(AccessFlag.FINAL);
+                UmlField.Builder fieldBuilder = UmlField.builder()
+                        .name(field.fieldName().stringValue())
+                        .type(describe(typeSignature(field, field.fieldType())))
+                        .visibility(visibility)
+                        .isStatic(flags.contains(AccessFlag.STATIC))
+                        .isFinal(isFinal)
+                        .readOnly(isFinal);
+                for (Annotation annotation : annotations(field)) {
+                    fieldBuilder.addAnnotation(simpleName(annotation.className()));
+                }
+                Optional<String> constant = field.findAttribute(Attributes.constantValue())
+                        .map(value -> literal(value.constant().constantValue(), field.fieldType().stringValue()));
+                if (constant.isPresent() && constant.get().length() <= 50) {
+                    fieldBuilder.addAnnotation("init:" + constant.get());
+                }
+                builder.addField(fieldBuilder.build());
+            }
+        }
+
+        /**
+         * Whether a method was declared in source, as far as the class file
+         * tells.
+         */
+        private boolean isDeclared(MethodModel method) {
+            Set<AccessFlag> flags = method.flags().flags();
+            String name = method.methodName().stringValue();
+            String descriptor = method.methodType().stringValue();
+            if (flags.contains(AccessFlag.SYNTHETIC) || flags.contains(AccessFlag.BRIDGE)
+                    || name.equals(STATIC_INITIALIZER)) {
+                return false;
+            }
+            if (kind == TypeKind.ENUM && flags.contains(AccessFlag.STATIC)) {
+                String self = "L" + internalName + ";";
+                return !(name.equals("values") && descriptor.equals("()[" + self))
+                        && !(name.equals("valueOf") && descriptor.equals("(Ljava/lang/String;)" + self));
+            }
+            if (kind == TypeKind.RECORD) {
+                if (name.equals(CONSTRUCTOR)) {
+                    return false;
+                }
+                // Accessors and the final toString, hashCode and equals are generated from the components.
+                boolean objectMethod = flags.contains(AccessFlag.FINAL) && (descriptor.equals("()Ljava/lang/String;")
+                        && name.equals("toString") || descriptor.equals("()I") && name.equals("hashCode")
+                        || descriptor.equals("(Ljava/lang/Object;)Z") && name.equals("equals"));
+                boolean accessor = descriptor.startsWith("()") && classModel.findAttribute(Attributes.record())
+                        .map(record -> record.components().stream()
+                                .anyMatch(component -> component.name().stringValue().equals(name)))
+                        .orElse(false);
+                return !objectMethod && !accessor;
+            }
+            return true;
+        }
+
+        private void addMethod(MethodModel method, UmlType.Builder builder, List<UmlMethod> constructors) {
+            Set<AccessFlag> flags = method.flags().flags();
+            MethodSignature descriptor = MethodSignature.parseFrom(method.methodType().stringValue());
+            MethodSignature signature = method.findAttribute(Attributes.signature())
+                    .map(SignatureAttribute::asMethodSignature)
+                    .orElse(descriptor);
+            String name = method.methodName().stringValue();
+
+            if (kind == TypeKind.ANNOTATION) {
+                if (projection.includesMethod(Visibility.PUBLIC)) {
+                    String defaultValue = method.findAttribute(Attributes.annotationDefault())
+                            .map(value -> " = " + value(value.defaultValue()))
+                            .orElse("");
+                    builder.addMethod(UmlMethod.builder()
+                            .name(name + "()" + defaultValue)
+                            .returnType(describe(signature.result()))
+                            .visibility(Visibility.PUBLIC)
+                            .isAbstract(true)
+                            .build());
+                }
+                return;
+            }
+            Visibility visibility = visibilityOf(flags);
+            if (!projection.includesMethod(visibility)) {
+                return;
+            }
+
+            boolean isConstructor = name.equals(CONSTRUCTOR);
+            UmlMethod.Builder methodBuilder = UmlMethod.builder().visibility(visibility);
+            if (isConstructor) {
+                methodBuilder.name(fqn.substring(fqn.lastIndexOf('.') + 1))
+                        .returnType("")
+                        .constructor(true)
+                        .addAnnotation("constructor");
+            } else {
+                boolean isStatic = flags.contains(AccessFlag.STATIC);
+                boolean isAbstract = flags.contains(AccessFlag.ABSTRACT);
+                EnumSet<Modifier> modifiers = toModifiers(flags);
+                if (kind == TypeKind.INTERFACE && !isStatic && !isAbstract && !flags.contains(AccessFlag.PRIVATE)) {
+                    modifiers.add(Modifier.DEFAULT);
+                }
+                methodBuilder.name(name)
+                        .returnType(describe(signature.result()))
+                        .isStatic(isStatic)
+                        .isAbstract(isAbstract)
+                        .modifiers(modifiers);
+            }
+            for (Signature.TypeParam typeParameter : signature.typeParameters()) {
+                methodBuilder.addGeneric(toGeneric(typeParameter));
+            }
+            addParameters(method, descriptor, signature, isConstructor, methodBuilder);
+            for (String thrown : thrownTypes(method, signature)) {
+                methodBuilder.addThrownException(thrown);
+            }
+            if (isConstructor) {
+                constructors.add(methodBuilder.build());
+                return;
+            }
+            for (Annotation annotation : annotations(method)) {
+                String annotationName = simpleName(annotation.className());
+                if (!annotationName.equals("Override")) {
+                    methodBuilder.addAnnotation(annotationName);
+                }
+            }
+            builder.addMethod(methodBuilder.build());
+        }
+
+        private void addParameters(MethodModel method, MethodSignature descriptor, MethodSignature signature,
+                boolean isConstructor, UmlMethod.Builder methodBuilder) {
+            List<Signature> descriptorTypes = descriptor.arguments();
+            boolean[] implicit = implicitParameters(method, descriptorTypes, isConstructor);
+            List<Integer> declared = new ArrayList<>();
+            for (int i = 0; i < implicit.length; i++) {
+                if (!implicit[i]) {
+                    declared.add(i);
+                }
+            }
+            // A Signature attribute leaves out the implicit parameters the descriptor has.
+            boolean signatureMatches = signature != descriptor && signature.arguments().size() == declared.size();
+            List<String> names = parameterNames(method, descriptorTypes);
+            boolean varargs = method.flags().has(AccessFlag.VARARGS);
+            for (int i = 0; i < declared.size(); i++) {
+                int index = declared.get(i);
+                Signature type = signatureMatches ? signature.arguments().get(i) : descriptorTypes.get(index);
+                // JavaParser gives a varargs parameter its element type.
+                if (varargs && i == declared.size() - 1 && type instanceof Signature.ArrayTypeSig array) {
+                    type = array.componentSignature();
+                }
+                methodBuilder.addParameter(new UmlParameter(names.get(index), describe(type)));
+            }
+        }
+
+        /**
+         * Marks the parameters the compiler added: the outer instance of an
+         * inner class and the name and ordinal of an enum constant.
+         */
+        private boolean[] implicitParameters(MethodModel method, List<Signature> descriptorTypes,
+                boolean isConstructor) {
+            boolean[] implicit = new boolean[descriptorTypes.size()];
+            List<MethodParameterInfo> parameters = method.findAttribute(Attributes.methodParameters())
+                    .map(attribute -> attribute.parameters())
+                    .orElse(List.of());
+            if (parameters.size() == implicit.length) {
+                for (int i = 0; i < implicit.length; i++) {
+                    Set<AccessFlag> flags = parameters.get(i).flags();
+                    implicit[i] = flags.contains(AccessFlag.SYNTHETIC) || flags.contains(AccessFlag.MANDATED);
+                }
+                return implicit;
+            }
+            if (!isConstructor) {
+                return implicit;
+            }
+            if (kind == TypeKind.ENUM && implicit.length >= 2
+                    && descriptorTypes.get(0).signatureString().equals("Ljava/lang/String;")
+                    && descriptorTypes.get(1).signatureString().equals("I")) {
+                implicit[0] = true;
+                implicit[1] = true;
+            } else if (kind == TypeKind.CLASS && self != null && !self.flags().contains(AccessFlag.STATIC)
+                    && implicit.length >= 1) {
+                String outer = "L" + self.outerClass().orElseThrow().asInternalName() + ";";
+                implicit[0] = descriptorTypes.get(0).signatureString().equals(outer);
+            }
+            return implicit;
+        }
+
+        /**
+         * Names every parameter of the descriptor, from the method parameters
+         * table, else from the local variable table, else by position.
+         */
+        private List<String> parameterNames(MethodModel method, List<Signature> descriptorTypes) {
+            List<String> names = new ArrayList<>(descriptorTypes.size());
+            List<MethodParameterInfo> parameters = method.findAttribute(Attributes.methodParameters())
+                    .map(attribute -> attribute.parameters())
+                    .orElse(List.of());
+            if (parameters.size() == descriptorTypes.size()) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    int index = i;
+                    names.add(parameters.get(i).name().map(Utf8Entry::stringValue).orElseGet(() -> "arg" + index));
+                }
+                return names;
+            }
+
+            Map<Integer, String> bySlot = new HashMap<>();
+            method.code()
+                    .flatMap(code -> code.findAttribute(Attributes.localVariableTable()))
+                    .ifPresent(table -> {
+                        for (LocalVariableInfo variable : table.localVariables()) {
+                            if (variable.startPc() == 0) {
+                                bySlot.put(variable.slot(), variable.name().stringValue());
+                            }
+                        }
+                    });
+            int slot = method.flags().has(AccessFlag.STATIC) ? 0 : 1;
+            for (int i = 0; i < descriptorTypes.size(); i++) {
+                names.add(bySlot.getOrDefault(slot, "arg" + i));
+                String type = descriptorTypes.get(i).signatureString();
+                slot += type.equals("J") || type.equals("D") ? 2 : 1;
+            }
+            return names;
+        }
+
+        private List<String> thrownTypes(MethodModel method, MethodSignature signature) {
+            if (!signature.throwableSignatures().isEmpty()) {
+                return signature.throwableSignatures().stream().map(thrown -> describe(thrown)).toList();
+            }
+            return method.findAttribute(Attributes.exceptions())
+                    .map(attribute -> attribute.exceptions().stream()
+                            .map(exception -> names.fqn(exception.asInternalName()))
+                            .toList())
+                    .orElse(List.of());
+        }
+
+        private void addInheritance() {
+            Optional<ClassEntry> superclass = classModel.superclass();
+            if (superclass.isPresent() && kind == TypeKind.CLASS
+                    && !superclass.get().asInternalName().equals(OBJECT)) {
+                context.addPendingInheritance(new ParseContext.PendingInheritance(fqn,
+                        names.fqn(superclass.get().asInternalName()), RelationKind.EXTENDS));
+            }
+            // Interfaces extend interfaces; annotations implement Annotation implicitly.
+            if (kind == TypeKind.ANNOTATION) {
+                return;
+            }
+            RelationKind interfaceKind = kind == TypeKind.INTERFACE ? RelationKind.EXTENDS : RelationKind.IMPLEMENTS;
+            for (ClassEntry implemented : classModel.interfaces()) {
+                context.addPendingInheritance(new ParseContext.PendingInheritance(fqn,
+                        names.fqn(implemented.asInternalName()), interfaceKind));
+            }
+        }
+
+        private UmlGeneric toGeneric(Signature.TypeParam typeParameter) {
+            List<String> bounds = new ArrayList<>();
+            typeParameter.classBound().ifPresent(bound -> bounds.add(describe(bound)));
+            typeParameter.interfaceBounds().forEach(bound -> bounds.add(describe(bound)));
+            // An unbounded type parameter is bounded by Object in the class file.
+            if (bounds.isEmpty() || bounds.equals(List.of("java.lang.Object"))) {
+                return new UmlGeneric(typeParameter.identifier());
+            }
+            return new UmlGeneric(typeParameter.identifier(), "extends " + String.join(" & ", bounds));
+        }
+
+        private UmlStereotype toStereotype(Annotation annotation) {
+            String name = simpleName(annotation.className());
+            List<AnnotationElement> elements = annotation.elements();
+            if (elements.isEmpty()) {
+                return new UmlStereotype(name);
+            }
+            // The class file cannot tell @A(x) from @A(value = x); show the shorter form.
+            if (elements.size() == 1 && elements.getFirst().name().stringValue().equals("value")) {
+                return new UmlStereotype(name, List.of(value(elements.getFirst().value())));
+            }
+            return new UmlStereotype(name, elements.stream()
+                    .map(element -> element.name().stringValue() + " = " + value(element.value()))
+                    .toList());
+        }
+
+        /**
+         * Renders an annotation value as it would be written in source.
+         */
+        private String value(AnnotationValue value) {
+            if (value instanceof AnnotationValue.OfString string) {
+                return quote(string.stringValue());
+            } else if (value instanceof AnnotationValue.OfBoolean bool) {
+                return String.valueOf(bool.booleanValue());
+            } else if (value instanceof AnnotationValue.OfChar character) {
+                return "'" + character.charValue() + "'";
+            } else if (value instanceof AnnotationValue.OfLong number) {
+                return number.longValue() + "L";
+            } else if (value instanceof AnnotationValue.OfFloat number) {
+                return number.floatValue() + "f";
+            } else if (value instanceof AnnotationValue.OfDouble number) {
+                return String.valueOf(number.doubleValue());
+            } else if (value instanceof AnnotationValue.OfInt number) {
+                return String.valueOf(number.intValue());
+            } else if (value instanceof AnnotationValue.OfShort number) {
+                return String.valueOf(number.shortValue());
+            } else if (value instanceof AnnotationValue.OfByte number) {
+                return String.valueOf(number.byteValue());
+            } else if (value instanceof AnnotationValue.OfEnum constant) {
+                return simpleName(constant.className()) + "." + constant.constantName().stringValue();
+            } else if (value instanceof AnnotationValue.OfClass type) {
+                return simpleName(type.className()) + ".class";
+            } else if (value instanceof AnnotationValue.OfAnnotation annotation) {
+                return "@" + simpleName(annotation.annotation().className());
+            } else if (value instanceof AnnotationValue.OfArray array) {
+                if (array.values().isEmpty()) {
+                    return "{}";
+                }
+                return "{ " + String.join(", ", array.values().stream().map(this::value).toList()) + " }";
+            }
+            return value.toString();
+        }
+
+        /**
+         * The simple name of a type given by its descriptor, as an annotation
+         * would usually be written.
+         */
+        private String simpleName(Utf8Entry descriptor) {
+            String name = describe(Signature.parseFrom(descriptor.stringValue()));
+            return name.substring(name.lastIndexOf('.') + 1);
+        }
+
+        /**
+         * Describes a type signature as {@link TypeVisitor} describes a type
+         * resolved by the symbol solver: qualified names, with type arguments
+         * separated by {@code ", "}.
+         */
+        private String describe(Signature signature) {
+            if (signature instanceof Signature.ArrayTypeSig array) {
+                return describe(array.componentSignature()) + "[]";
+            } else if (signature instanceof Signature.TypeVarSig typeVariable) {
+                return typeVariable.identifier();
+            } else if (signature instanceof Signature.ClassTypeSig classType) {
+                // A member of a generic class is written Outer<T>.Inner, and then named by its simple name.
+                String name = classType.outerType().isPresent()
+                        ? erasedName(classType.outerType().get()) + "." + classType.className()
+                        : names.fqn(classType.className());
+                if (classType.typeArgs().isEmpty()) {
+                    return name;
+                }
+                List<String> arguments = classType.typeArgs().stream().map(this::describe).toList();
+                return name + "<" + String.join(", ", arguments) + ">";
+            }
+            // A primitive type or void.
+            return ClassDesc.ofDescriptor(signature.signatureString()).displayName();
+        }
+
+        private String describe(Signature.TypeArg argument) {
+            if (argument instanceof Signature.TypeArg.Bounded bounded) {
+                String bound = describe(bounded.boundType());
+                return switch (bounded.wildcardIndicator()) {
+                    case EXTENDS -> "? extends " + bound;
+                    case SUPER -> "? super " + bound;
+                    default -> bound;
+                };
+            }
+            return "?";
+        }
+
+        private String erasedName(Signature.ClassTypeSig classType) {
+            return classType.outerType().isPresent()
+                    ? erasedName(classType.outerType().get()) + "." + classType.className()
+                    : names.fqn(classType.className());
+        }
+    }
+
+    /**
+     * Qualified names of the classes a class file refers to. Its
+     * {@code InnerClasses} attribute lists every member class it names, with
+     * the class that declares it, so {@code a/Outer$Inner} can be told from a
+     * top-level class with a {@code $} in its name.
+     */
+    private static final class ClassNames {
+        private final Map<String, InnerClassInfo> innerClasses = new HashMap<>();
+
+        ClassNames(ClassModel classModel) {
+            classModel.findAttribute(Attributes.innerClasses()).ifPresent(attribute -> {
+                for (InnerClassInfo info : attribute.classes()) {
+                    innerClasses.put(info.innerClass().asInternalName(), info);
+                }
+            });
+        }
+
+        InnerClassInfo innerClassInfo(String internalName) {
+            return innerClasses.get(internalName);
+        }
+
+        String fqn(String internalName) {
+            InnerClassInfo info = innerClasses.get(internalName);
+            if (info != null && info.outerClass().isPresent() && info.innerName().isPresent()
+                    && !info.outerClass().get().asInternalName().equals(internalName)) {
+                return fqn(info.outerClass().get().asInternalName()) + "." + info.innerName().get().stringValue();
+            }
+            return internalName.replace('/', '.');
+        }
+    }
+
+    private static TypeKind kindOf(ClassModel classModel) {
+        if (classModel.flags().has(AccessFlag.ANNOTATION)) {
+            return TypeKind.ANNOTATION;
+        } else if (classModel.flags().has(AccessFlag.INTERFACE)) {
+            return TypeKind.INTERFACE;
+        } else if (classModel.flags().has(AccessFlag.ENUM)) {
+            return TypeKind.ENUM;
+        } else if (classModel.findAttribute(Attributes.record()).isPresent()) {
+            return TypeKind.RECORD;
+        }
+        return TypeKind.CLASS;
+    }
+
+    /**
+     * The generic type of a field or record component, or the type of its
+     * descriptor when it has no {@code Signature} attribute.
+     */
+    private static Signature typeSignature(AttributedElement element, Utf8Entry descriptor) {
+        return element.findAttribute(Attributes.signature())
+                .map(SignatureAttribute::asTypeSignature)
+                .orElseGet(() -> Signature.parseFrom(descriptor.stringValue()));
+    }
+
+    /**
+     * Annotations kept in the class file, visible ones first.
+     */
+    private static List<Annotation> annotations(AttributedElement element) {
+        List<Annotation> annotations = new ArrayList<>();
+        element.findAttribute(Attributes.runtimeVisibleAnnotations())
+                .ifPresent(attribute -> annotations.addAll(attribute.annotations()));
+        element.findAttribute(Attributes.runtimeInvisibleAnnotations())
+                .ifPresent(attribute -> annotations.addAll(attribute.annotations()));
+        return annotations;
+    }
+
+    /**
+     * Renders the value of a constant field as it would be written in
+     * source; booleans and chars are stored as ints.
+     */
+    private static String literal(ConstantDesc value, String descriptor) {
+        return switch (descriptor) {
+            case "Z" -> ((Integer) value) != 0 ? "true" : "false";
+            case "C" -> "'" + (char) ((Integer) value).intValue() + "'";
+            case "J" -> value + "L";
+            case "F" -> value + "f";
+            case "Ljava/lang/String;" -> quote((String) value);
+            default -> String.valueOf(value);
+        };
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    private static Visibility visibilityOf(Set<AccessFlag> flags) {
+        if (flags.contains(AccessFlag.PUBLIC)) {
+            return Visibility.PUBLIC;
+        } else if (flags.contains(AccessFlag.PROTECTED)) {
+            return Visibility.PROTECTED;
+        } else if (flags.contains(AccessFlag.PRIVATE)) {
+            return Visibility.PRIVATE;
+        }
+        return Visibility.PACKAGE;
+    }
+
+    @SuppressWarnings("null")
+    private static EnumSet<Modifier> toModifiers(Set<AccessFlag> flags) {
+        EnumSet<Modifier> result = EnumSet.noneOf(Modifier.class);
+        if (flags.contains(AccessFlag.STATIC)) {
+            result.add(Modifier.STATIC);
+        }
+        if (flags.contains(AccessFlag.ABSTRACT)) {
+            result.add(Modifier.ABSTRACT);
+        }
+        if (flags.contains(AccessFlag.FINAL)) {
+            result.add(Modifier.FINAL);
+        }
+        if (flags.contains(AccessFlag.SYNCHRONIZED)) {
+            result.add(Modifier.SYNCHRONIZED);
+        }
+        if (flags.contains(AccessFlag.NATIVE)) {
+            result.add(Modifier.NATIVE);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,273 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.config.RunConfig;
+import no.ntnu.eitri.config.SourceFilter;
+import no.ntnu.eitri.model.UmlModel;
+import no.ntnu.eitri.parser.ParseContext;
+import no.ntnu.eitri.parser.ParseException;
+import no.ntnu.eitri.parser.ParseFragment;
+import no.ntnu.eitri.parser.SourceParser;
+import no.ntnu.eitri.util.SourceArchives;
+
+import java.io.IOException;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassModel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parser for compiled classes: {@code .class} files, directories of them
+ * and jars, read with the {@code java.lang.classfile} API.
+ *
+ * <p>
+ * Nothing is symbol-solved: a class file names every type it refers to by
+ * its qualified name, so each class is read on its own. Classes are read on
+ * the parse workers, each into its own {@link ParseFragment}, and replayed in
+ * name order with every class ahead of its member classes, so the model is
+ * the same for any number of workers. A jar is memory-mapped and its entries
+ * read straight from the mapping, see {@link ClassArchive}.
+ *
+ * <p>
+ * The model is that of the compiled classes, which differs from that of
+ * their source where the compiler fills in what source leaves implicit: for
+ * example the visibility of interface members and default constructors. See
+ * {@link ClassFileEmitter} for what is kept.
+ */
+public class ClassFileSourceParser implements SourceParser {
+
+    private static final Logger LOGGER = Logger.getLogger(ClassFileSourceParser.class.getName());
+    private static final String NAME = "ClassFile";
+    private static final String CLASS_EXTENSION = ".class";
+    private static final String JAR_EXTENSION = ".jar";
+    private static final List<String> EXTENSIONS = List.of(CLASS_EXTENSION, JAR_EXTENSION);
+
+    private volatile List<Path> lastSourceFiles;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<String> getSupportedExtensions() {
+        return EXTENSIONS;
+    }
+
+    @Override
+    public List<Path> lastSourceFiles() {
+        return lastSourceFiles;
+    }
+
+    @Override
+    public UmlModel parse(List<Path> sourcePaths, RunConfig runConfig) throws ParseException {
+        if (sourcePaths == null || sourcePaths.isEmpty()) {
+            throw new ParseException("No source paths provided");
+        }
+
+        List<ClassArchive> archives = new ArrayList<>();
+        try {
+            List<ClassInput> inputs = collectInputs(sourcePaths, runConfig.sourceFilter(), archives);
+            int threads = runConfig.parseOptions().effectiveThreads();
+            if (runConfig.verbose()) {
+                LOGGER.log(Level.INFO, "Found {0} class files to read using {1} worker(s)",
+                        new Object[] { inputs.size(), threads });
+            }
+
+            ExecutorService workers = threads > 1 && inputs.size() > 1
+                    ? Executors.newFixedThreadPool(threads, JavaSourceParser.parseWorkerThreadFactory())
+                    : null;
+            try {
+                return parseInputs(inputs, workers, runConfig);
+            } finally {
+                if (workers != null) {
+                    workers.shutdownNow();
+                }
+            }
+        } finally {
+            closeAll(archives);
+        }
+    }
+
+    private UmlModel parseInputs(List<ClassInput> inputs, ExecutorService workers, RunConfig runConfig)
+            throws ParseException {
+        ClassFileEmitter emitter = new ClassFileEmitter(runConfig.modelProjection());
+        SourceFilter filter = runConfig.sourceFilter();
+        List<ReadClass> read = ScanningJavaSourceParser.runAll(inputs.size(), workers,
+                i -> readClass(inputs.get(i), emitter, filter));
+
+        ParseContext context = new ParseContext(runConfig.verbose());
+        for (ReadClass readClass : read) {
+            merge(readClass, context);
+        }
+
+        RelationDetector relationDetector = new RelationDetector(context, runConfig.modelProjection());
+        relationDetector.detectRelations();
+        if (runConfig.verbose()) {
+            LOGGER.log(Level.INFO, "Found {0} types, {1} relations (including detected)",
+                    new Object[] { context.getTypeCount(), context.getRelationCount() });
+            int warnings = context.getReport().warningCount();
+            if (warnings > 0) {
+                LOGGER.log(Level.INFO, "Collected {0} warnings", warnings);
+            }
+        }
+        return context.build();
+    }
+
+    private static ReadClass readClass(ClassInput input, ClassFileEmitter emitter, SourceFilter filter) {
+        ParseFragment fragment = new ParseFragment();
+        ClassModel classModel;
+        try {
+            classModel = ClassFile.of().parse(input.read());
+        } catch (IOException | IllegalArgumentException e) {
+            fragment.addWarning("Failed to parse file: " + input.label() + " - " + e.getMessage());
+            return new ReadClass(input.label(), fragment, null);
+        }
+        try {
+            if (!filter.selectsPackages() || filter.includesPackage(ClassFileEmitter.packageName(classModel))) {
+                emitter.emit(classModel, fragment);
+            }
+            return new ReadClass(input.label(), fragment, null);
+        } catch (Exception e) {
+            return new ReadClass(input.label(), fragment, e);
+        }
+    }
+
+    private static void merge(ReadClass readClass, ParseContext context) {
+        Exception unexpectedError = readClass.unexpectedError();
+        if (unexpectedError == null) {
+            try {
+                readClass.fragment().replayInto(context);
+            } catch (Exception e) {
+                // For example a class that an earlier jar already holds.
+                unexpectedError = e;
+            }
+        }
+        if (unexpectedError != null) {
+            LOGGER.log(Level.WARNING, "Unexpected error parsing {0} - {1}",
+                    new Object[] { readClass.label(), unexpectedError.getMessage() });
+            context.addWarning("Unexpected error parsing: " + readClass.label() + " - "
+                    + unexpectedError.getMessage());
+        }
+    }
+
+    /**
+     * Lists the class files of every source path, in path order and within a
+     * path by class name. Jars are opened into {@code archives}. Class files
+     * live in build output, so only the configured globs apply, not the
+     * default excludes.
+     */
+    private List<ClassInput> collectInputs(List<Path> sourcePaths, SourceFilter filter, List<ClassArchive> archives)
+            throws ParseException {
+        List<ClassInput> inputs = new ArrayList<>();
+        List<Path> sourceFiles = new ArrayList<>();
+        SourceFilter classFilter = filter.withoutDefaultExcludes();
+        for (Path sourcePath : sourcePaths) {
+            if (!Files.exists(sourcePath)) {
+                throw new ParseException("Source path does not exist: " + sourcePath);
+            }
+            String fileName = sourcePath.getFileName() != null ? sourcePath.getFileName().toString() : "";
+            if (Files.isDirectory(sourcePath)) {
+                List<Path> classFiles = walkDirectory(sourcePath, classFilter);
+                classFiles.forEach(classFile -> inputs.add(ClassInput.ofFile(classFile)));
+                sourceFiles.addAll(classFiles);
+            } else if (fileName.endsWith(CLASS_EXTENSION)) {
+                inputs.add(ClassInput.ofFile(sourcePath));
+                sourceFiles.add(sourcePath);
+            } else if (fileName.endsWith(JAR_EXTENSION)) {
+                ClassArchive archive = openArchive(sourcePath);
+                archives.add(archive);
+                for (int i = 0; i < archive.size(); i++) {
+                    inputs.add(ClassInput.ofEntry(sourcePath, archive, i));
+                }
+                sourceFiles.add(sourcePath);
+            }
+        }
+        lastSourceFiles = List.copyOf(sourceFiles);
+        return inputs;
+    }
+
+    private static ClassArchive openArchive(Path jar) throws ParseException {
+        try {
+            ClassArchive archive = ClassArchive.open(jar);
+            LOGGER.log(Level.FINE, "Opened {0} with {1} class entries, {2}",
+                    new Object[] { jar, archive.size(), archive.isMapped() ? "memory-mapped" : "through ZipFile" });
+            return archive;
+        } catch (IOException e) {
+            throw new ParseException("Failed to open jar: " + jar, e);
+        }
+    }
+
+    private static List<Path> walkDirectory(Path root, SourceFilter filter) throws ParseException {
+        List<Path> classFiles = new ArrayList<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return filter.excludesDirectory(root, dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String fileName = file.getFileName().toString();
+                    if (fileName.endsWith(CLASS_EXTENSION) && !fileName.equals("module-info.class")
+                            && !fileName.equals("package-info.class") && filter.includesFile(root, file)) {
+                        classFiles.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    LOGGER.log(Level.WARNING, "Failed to access file: {0}", file);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new ParseException("Failed to walk source path: " + root, e);
+        }
+        classFiles.sort(Comparator.comparing(file -> ClassArchive.classOrderKey(root.relativize(file).toString())));
+        return classFiles;
+    }
+
+    private static void closeAll(List<ClassArchive> archives) {
+        for (ClassArchive archive : archives) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close jar", e);
+            }
+        }
+    }
+
+    /**
+     * A class file on disk or an entry of an open jar.
+     */
+    private record ClassInput(String label, Path file, ClassArchive archive, int index) {
+
+        static ClassInput ofFile(Path file) {
+            return new ClassInput(file.toString(), file, null, -1);
+        }
+
+        static ClassInput ofEntry(Path jar, ClassArchive archive, int index) {
+            return new ClassInput(jar + SourceArchives.ENTRY_SEPARATOR + archive.entryName(index), null, archive,
+                    index);
+        }
+
+        byte[] read() throws IOException {
+            return archive != null ? archive.read(index) : Files.readAllBytes(file);
+        }
+    }
+
+    private record ReadClass(String label, ParseFragment fragment, Exception unexpectedError) {
+    }
+}
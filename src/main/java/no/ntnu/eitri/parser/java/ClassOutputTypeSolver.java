@@ -0,0 +1,128 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.javassistmodel.JavassistFactory;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.NotFoundException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Solves types from compiled output directories, such as
+ * {@code target/classes}, instead of parsing their source.
+ *
+ * <p>
+ * A name is looked up by the class file it compiles to: {@code a.b.Outer.Inner}
+ * is {@code a/b/Outer$Inner.class}, or {@code a/b/Outer/Inner.class} should
+ * {@code Outer} be a package. Nothing is listed up front, so a directory costs
+ * one file check per name looked up. Declarations are read the way
+ * JavaParser's jar solver reads them, through Javassist, which loads a class
+ * file once and leaves its method bodies alone.
+ *
+ * <p>
+ * The classes are taken as they are; a type whose class file is missing,
+ * for example one added since the last build, is left to the source solvers.
+ * Like every type solver it is confined to one parse worker.
+ */
+final class ClassOutputTypeSolver implements TypeSolver {
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    private final List<Path> directories;
+    private final ClassPool classPool = new ClassPool();
+    private final Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes;
+    private TypeSolver parent;
+
+    /**
+     * @param directories compiled output directories, searched in order
+     * @param foundTypes  cache of the names looked up so far
+     */
+    ClassOutputTypeSolver(List<Path> directories,
+            Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes) {
+        this.directories = List.copyOf(directories);
+        this.foundTypes = foundTypes;
+        for (Path directory : this.directories) {
+            try {
+                classPool.appendClassPath(directory.toString());
+            } catch (NotFoundException _) {
+                // A directory removed since detection just holds no classes.
+            }
+        }
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        if (this.parent != null) {
+            throw new IllegalStateException("This TypeSolver already has a parent.");
+        }
+        if (parent == this) {
+            throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+        }
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        Optional<SymbolReference<ResolvedReferenceTypeDeclaration>> cached = foundTypes.get(name);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        SymbolReference<ResolvedReferenceTypeDeclaration> found = solve(name);
+        foundTypes.put(name, found);
+        return found;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveTypeInModule(String qualifiedModuleName,
+            String simpleTypeName) {
+        return SymbolReference.unsolved();
+    }
+
+    private SymbolReference<ResolvedReferenceTypeDeclaration> solve(String name) {
+        String binaryName = findBinaryName(name);
+        if (binaryName == null) {
+            return SymbolReference.unsolved();
+        }
+        try {
+            CtClass ctClass = classPool.get(binaryName);
+            return SymbolReference.solved(JavassistFactory.toTypeDeclaration(ctClass, getRoot()));
+        } catch (NotFoundException | RuntimeException _) {
+            // An unreadable class file is left to the source solvers.
+            return SymbolReference.unsolved();
+        }
+    }
+
+    /**
+     * Finds the class file a canonical name compiles to, trying top-level
+     * classes first and then ever more deeply nested member classes.
+     *
+     * @return the binary name, as in {@code a.b.Outer$Inner}, or null when no
+     *         directory holds a matching class file
+     */
+    private String findBinaryName(String name) {
+        String[] segments = name.split("\\.");
+        for (int packageEnd = segments.length - 1; packageEnd >= 0; packageEnd--) {
+            String packagePath = String.join("/", List.of(segments).subList(0, packageEnd));
+            String className = String.join("$", List.of(segments).subList(packageEnd, segments.length));
+            String file = (packagePath.isEmpty() ? "" : packagePath + "/") + className + CLASS_EXTENSION;
+            for (Path directory : directories) {
+                if (Files.isRegularFile(directory.resolve(file))) {
+                    return file.substring(0, file.length() - CLASS_EXTENSION.length()).replace('/', '.');
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,415 @@
+package no.ntnu.eitri.parser.java;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Blanks out the parts of a Java source that the UML model never reads, so
+ * JavaParser builds a declaration-only tree.
+ *
+ * <p>
+ * Method, constructor and compact constructor bodies and initializer blocks
+ * are replaced by spaces. Their braces and line breaks are kept, so positions
+ * reported by the parser still point at the original source. A body that
+ * declares a local class, interface, enum or record is kept as written, since
+ * the visitor registers those types. Field initializers, annotation values and
+ * enum constant arguments are never touched.
+ *
+ * <p>
+ * The same scan also lists the type declarations it passes, which is enough
+ * to index the types a source declares without parsing it.
+ *
+ * <p>
+ * The scan is lexical: it tracks comments, literals and bracket nesting, not
+ * the grammar. Anything it cannot classify is left as it is, and unbalanced
+ * input is returned unchanged for the parser to report.
+ */
+final class DeclarationSkeleton {
+
+    private enum Frame {
+        /** Compilation unit level: package, imports, module and type declarations. */
+        TOP,
+        /** Member level of a class, interface, record or annotation body. */
+        TYPE,
+        /** Start of an enum body, before the {@code ;} that ends the constants. */
+        ENUM_CONSTANTS
+    }
+
+    private final String source;
+    private final char[] output;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    // Qualified name of each frame above TOP; empty for anonymous class bodies.
+    private final Deque<String> typeNames = new ArrayDeque<>();
+    private final List<String> declaredTypes = new ArrayList<>();
+    private boolean blanked;
+
+    // State of the member header being scanned at the current frame.
+    private int nesting;
+    private boolean assigned;
+    private boolean declaresType;
+    private boolean declaresEnum;
+    private boolean expectsTypeName;
+    private String typeName;
+    private char lastSignificant;
+
+    private DeclarationSkeleton(String source) {
+        this.source = source;
+        this.output = source.toCharArray();
+    }
+
+    /**
+     * Returns the source with bodies blanked out.
+     *
+     * @param source Java source text
+     * @return the skeleton, or {@code source} itself when nothing was blanked
+     */
+    static String strip(String source) {
+        DeclarationSkeleton skeleton = new DeclarationSkeleton(source);
+        if (!skeleton.scan() || !skeleton.blanked) {
+            return source;
+        }
+        return new String(skeleton.output);
+    }
+
+    /**
+     * Lists the named types a source declares, outermost first, as dotted
+     * names relative to its package ({@code Outer}, {@code Outer.Inner}).
+     * Local and anonymous classes are not listed. For unbalanced input, the
+     * types found before the scan gave up are returned.
+     *
+     * @param source Java source text
+     * @return the declared type names
+     */
+    static List<String> declaredTypes(String source) {
+        DeclarationSkeleton skeleton = new DeclarationSkeleton(source);
+        skeleton.scan();
+        return List.copyOf(skeleton.declaredTypes);
+    }
+
+    private boolean scan() {
+        frames.push(Frame.TOP);
+        int length = source.length();
+        int pos = 0;
+        while (pos < length) {
+            char c = source.charAt(pos);
+            int skipped = skipTrivia(pos);
+            if (skipped != pos) {
+                pos = skipped;
+                continue;
+            }
+            if (c == '"' || c == '\'') {
+                pos = literalEnd(pos);
+                lastSignificant = c;
+                continue;
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                int end = identifierEnd(pos);
+                onWord(source.substring(pos, end), end);
+                pos = end;
+                continue;
+            }
+            switch (c) {
+                case '(', '[' -> nesting++;
+                case ')', ']' -> nesting--;
+                case '=' -> assigned |= nesting == 0;
+                case ',' -> {
+                    if (nesting == 0 && frames.peek() == Frame.ENUM_CONSTANTS) {
+                        resetHeader();
+                    }
+                }
+                case ';' -> {
+                    if (nesting == 0) {
+                        if (frames.peek() == Frame.ENUM_CONSTANTS) {
+                            frames.pop();
+                            frames.push(Frame.TYPE);
+                        }
+                        resetHeader();
+                    }
+                }
+                case '{' -> {
+                    int next = onOpenBrace(pos);
+                    if (next < 0) {
+                        return false;
+                    }
+                    if (next != pos + 1) {
+                        pos = next;
+                        continue;
+                    }
+                }
+                case '}' -> {
+                    if (nesting > 0) {
+                        nesting--;
+                    } else {
+                        if (frames.size() == 1) {
+                            return false;
+                        }
+                        frames.pop();
+                        typeNames.pop();
+                        resetHeader();
+                    }
+                }
+                default -> {
+                    // Other punctuation does not change the member structure.
+                }
+            }
+            if (nesting < 0) {
+                return false;
+            }
+            lastSignificant = c;
+            pos++;
+        }
+        return frames.size() == 1;
+    }
+
+    private void onWord(String word, int end) {
+        if (nesting == 0) {
+            if (expectsTypeName) {
+                typeName = word;
+                expectsTypeName = false;
+            }
+            switch (word) {
+                case "class", "interface" -> {
+                    declaresType = true;
+                    expectsTypeName = lastSignificant != '.';
+                }
+                case "enum" -> {
+                    declaresType = true;
+                    declaresEnum = true;
+                    expectsTypeName = true;
+                }
+                case "record" -> {
+                    boolean declaration = startsRecordDeclaration(end);
+                    declaresType |= declaration;
+                    expectsTypeName |= declaration;
+                }
+                // An annotation element's default value, like a field initializer.
+                case "default" -> assigned |= lastSignificant == ')';
+                default -> {
+                    // Modifiers, types and names.
+                }
+            }
+        }
+        lastSignificant = 'a';
+    }
+
+    /**
+     * Handles an opening brace and returns where scanning continues, or
+     * {@code -1} when a body is never closed.
+     */
+    private int onOpenBrace(int pos) {
+        if (nesting > 0 || assigned) {
+            nesting++;
+            return pos + 1;
+        }
+        Frame frame = frames.peek();
+        if (declaresType) {
+            frames.push(declaresEnum ? Frame.ENUM_CONSTANTS : Frame.TYPE);
+            enterType(typeName);
+            resetHeader();
+            return pos + 1;
+        }
+        if (frame == Frame.TOP) {
+            // A module declaration; its directives are left alone.
+            nesting++;
+            return pos + 1;
+        }
+        if (frame == Frame.ENUM_CONSTANTS) {
+            // The class body of an enum constant.
+            frames.push(Frame.TYPE);
+            enterType(null);
+            resetHeader();
+            return pos + 1;
+        }
+        int close = closingBrace(pos);
+        if (close < 0) {
+            return -1;
+        }
+        if (!declaresLocalType(pos + 1, close)) {
+            blank(pos + 1, close);
+        }
+        resetHeader();
+        lastSignificant = '}';
+        return close + 1;
+    }
+
+    private void resetHeader() {
+        nesting = 0;
+        assigned = false;
+        declaresType = false;
+        declaresEnum = false;
+        expectsTypeName = false;
+        typeName = null;
+    }
+
+    /**
+     * Names the type frame just pushed; types inside an anonymous body are
+     * not named either.
+     */
+    private void enterType(String simpleName) {
+        String enclosing = typeNames.peek();
+        if (simpleName == null || "".equals(enclosing)) {
+            typeNames.push("");
+            return;
+        }
+        String qualified = enclosing == null ? simpleName : enclosing + "." + simpleName;
+        typeNames.push(qualified);
+        declaredTypes.add(qualified);
+    }
+
+    /**
+     * Finds the brace closing the one at {@code open}, or {@code -1}.
+     */
+    private int closingBrace(int open) {
+        int depth = 0;
+        int pos = open;
+        int length = source.length();
+        while (pos < length) {
+            int skipped = skipTrivia(pos);
+            if (skipped != pos) {
+                pos = skipped;
+                continue;
+            }
+            char c = source.charAt(pos);
+            if (c == '"' || c == '\'') {
+                pos = literalEnd(pos);
+                continue;
+            }
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return pos;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a body declares a local type. Class literals such as
+     * {@code Foo.class} are not declarations.
+     */
+    private boolean declaresLocalType(int start, int end) {
+        char previous = 0;
+        int pos = start;
+        while (pos < end) {
+            int skipped = skipTrivia(pos);
+            if (skipped != pos) {
+                pos = skipped;
+                continue;
+            }
+            char c = source.charAt(pos);
+            if (c == '"' || c == '\'') {
+                pos = literalEnd(pos);
+                previous = c;
+                continue;
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                int wordEnd = identifierEnd(pos);
+                String word = source.substring(pos, wordEnd);
+                boolean declaration = switch (word) {
+                    case "class", "interface", "enum" -> previous != '.';
+                    case "record" -> startsRecordDeclaration(wordEnd);
+                    default -> false;
+                };
+                if (declaration) {
+                    return true;
+                }
+                previous = 'a';
+                pos = wordEnd;
+                continue;
+            }
+            previous = c;
+            pos++;
+        }
+        return false;
+    }
+
+    /**
+     * {@code record} is only a keyword when a type name follows it.
+     */
+    private boolean startsRecordDeclaration(int end) {
+        int pos = end;
+        while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+            pos++;
+        }
+        return pos < source.length() && pos > end && Character.isJavaIdentifierStart(source.charAt(pos));
+    }
+
+    private void blank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = output[i];
+            if (c != '\n' && c != '\r' && c != ' ') {
+                output[i] = ' ';
+                blanked = true;
+            }
+        }
+    }
+
+    /**
+     * Skips whitespace and comments starting at {@code pos}.
+     */
+    private int skipTrivia(int pos) {
+        int length = source.length();
+        char c = source.charAt(pos);
+        if (Character.isWhitespace(c)) {
+            return pos + 1;
+        }
+        if (c == '/' && pos + 1 < length) {
+            char next = source.charAt(pos + 1);
+            if (next == '/') {
+                int end = source.indexOf('\n', pos);
+                return end < 0 ? length : end;
+            }
+            if (next == '*') {
+                int end = source.indexOf("*/", pos + 2);
+                return end < 0 ? length : end + 2;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the index after a string, text block or character literal.
+     */
+    private int literalEnd(int pos) {
+        int length = source.length();
+        char quote = source.charAt(pos);
+        if (quote == '"' && source.startsWith("\"\"\"", pos)) {
+            int i = pos + 3;
+            while (i < length) {
+                if (source.charAt(i) == '\\') {
+                    i += 2;
+                } else if (source.startsWith("\"\"\"", i)) {
+                    return i + 3;
+                } else {
+                    i++;
+                }
+            }
+            return length;
+        }
+        int i = pos + 1;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private int identifierEnd(int pos) {
+        int end = pos + 1;
+        while (end < source.length() && Character.isJavaIdentifierPart(source.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+}
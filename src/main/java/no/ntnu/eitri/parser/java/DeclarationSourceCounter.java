@@ -0,0 +1,132 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the declarations the symbol solver takes from each kind of type
+ * solver.
+ *
+ * <p>
+ * One counter is shared by the solvers of all parse workers, so updates are
+ * lock-free adders. Each solver of a combined solver is wrapped by
+ * {@link #counting(TypeSolver, Source)}; the combined solver asks them in
+ * turn and stops at the first that solves a name, so a hit is counted once,
+ * against the solver that served it.
+ */
+final class DeclarationSourceCounter {
+
+    /**
+     * Where the symbol solver finds declarations, in the order it looks.
+     */
+    enum Source {
+        /** The running JDK. */
+        JDK,
+        /** The tool's own classpath. */
+        CLASSPATH,
+        /** Compiled output directories of the parsed modules. */
+        CLASS_OUTPUT,
+        /** Source roots, parsed on demand. */
+        SOURCE,
+        /** Dependency jars. */
+        JAR;
+
+        /**
+         * Returns the name used in logs.
+         *
+         * @return the lower-case source name, with dashes
+         */
+        String id() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private static final Source[] SOURCES = Source.values();
+
+    private final LongAdder[] hits = new LongAdder[SOURCES.length];
+
+    DeclarationSourceCounter() {
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Wraps a solver so that the names it solves are counted against
+     * {@code source}.
+     *
+     * @param solver the solver to count
+     * @param source the kind of solver
+     * @return a solver to add to a combined solver in place of {@code solver}
+     */
+    TypeSolver counting(TypeSolver solver, Source source) {
+        return new CountingTypeSolver(solver, hits[source.ordinal()]);
+    }
+
+    /**
+     * Returns the hits so far, one entry per source in source order.
+     *
+     * @return hits by source
+     */
+    Map<Source, Long> snapshot() {
+        Map<Source, Long> snapshot = new LinkedHashMap<>();
+        for (Source source : SOURCES) {
+            snapshot.put(source, hits[source.ordinal()].sum());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Delegates to a solver and counts what it solves. The solver's parent is
+     * the wrapper, so declarations it builds still resolve through the root.
+     */
+    private static final class CountingTypeSolver implements TypeSolver {
+
+        private final TypeSolver delegate;
+        private final LongAdder hits;
+        private TypeSolver parent;
+
+        CountingTypeSolver(TypeSolver delegate, LongAdder hits) {
+            this.delegate = delegate;
+            this.hits = hits;
+            delegate.setParent(this);
+        }
+
+        @Override
+        public TypeSolver getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(TypeSolver parent) {
+            if (this.parent != null) {
+                throw new IllegalStateException("This TypeSolver already has a parent.");
+            }
+            if (parent == this) {
+                throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+            }
+            this.parent = parent;
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            SymbolReference<ResolvedReferenceTypeDeclaration> found = delegate.tryToSolveType(name);
+            if (found.isSolved()) {
+                hits.increment();
+            }
+            return found;
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveTypeInModule(String qualifiedModuleName,
+                String simpleTypeName) {
+            return delegate.tryToSolveTypeInModule(qualifiedModuleName, simpleTypeName);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package no.ntnu.eitri.parser.java;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fully qualified names of the types declared by a set of source files, for
+ * lexical type resolution.
+ *
+ * <p>
+ * Files are not parsed: each one is read once and scanned for its package
+ * declaration ({@link PackageSniffer}) and its type declarations
+ * ({@link DeclarationSkeleton#declaredTypes(String)}). Nested types are
+ * indexed with dotted names ({@code com.example.Outer.Inner}), the same form
+ * the visitor gives them.
+ *
+ * <p>
+ * Lookups may come from several parse workers at once. {@link #refresh}
+ * replaces the index contents and must not run concurrently with a parse.
+ */
+final class DeclaredTypeIndex {
+
+    private final Map<Path, Declarations> declarationsByFile = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> platformTypes = new ConcurrentHashMap<>();
+    private volatile Set<String> types = Set.of();
+    private volatile Map<String, String> typesByPackage = Map.of();
+
+    /** What one file declares. */
+    private record Declarations(String packageName, List<String> types) {
+        static final Declarations NONE = new Declarations(null, List.of());
+    }
+
+    private DeclaredTypeIndex() {
+    }
+
+    /**
+     * Indexes the given source files. Unreadable files are skipped; the parse
+     * reports them.
+     *
+     * @param javaFiles source files
+     * @return the index
+     */
+    static DeclaredTypeIndex build(Collection<Path> javaFiles) {
+        DeclaredTypeIndex index = new DeclaredTypeIndex();
+        index.refresh(javaFiles, List.of());
+        return index;
+    }
+
+    /**
+     * Indexes types whose names are already known, for sources that were
+     * scanned some other way.
+     *
+     * @param fqns dotted fully qualified names
+     * @return the index
+     */
+    static DeclaredTypeIndex of(Collection<String> fqns) {
+        DeclaredTypeIndex index = new DeclaredTypeIndex();
+        index.types = Set.copyOf(fqns);
+        return index;
+    }
+
+    /**
+     * Rescans changed files and forgets removed ones.
+     *
+     * @param changed files added or changed since the last scan
+     * @param removed files that no longer exist
+     */
+    void refresh(Collection<Path> changed, Collection<Path> removed) {
+        removed.forEach(declarationsByFile::remove);
+        for (Path file : changed) {
+            declarationsByFile.put(file, scan(file));
+        }
+        Set<String> all = new HashSet<>();
+        Map<String, Set<String>> byPackage = new HashMap<>();
+        for (Declarations declarations : declarationsByFile.values()) {
+            all.addAll(declarations.types());
+            if (declarations.packageName() != null && !declarations.types().isEmpty()) {
+                byPackage.computeIfAbsent(declarations.packageName(), _ -> new TreeSet<>())
+                        .addAll(declarations.types());
+            }
+        }
+        Map<String, String> joined = new HashMap<>();
+        byPackage.forEach((packageName, names) -> joined.put(packageName, String.join(",", names)));
+        types = Set.copyOf(all);
+        typesByPackage = Map.copyOf(joined);
+    }
+
+    /**
+     * Checks whether a source file declares a type.
+     *
+     * @param fqn dotted fully qualified name
+     * @return true when the type is declared in the indexed sources
+     */
+    boolean contains(String fqn) {
+        return types.contains(fqn);
+    }
+
+    /**
+     * Checks whether a type exists in the running JDK, without loading it.
+     * Only the JDK's class files are consulted, so classes on the tool's own
+     * classpath never leak into the model.
+     *
+     * @param fqn dotted fully qualified name, e.g. {@code java.util.Map.Entry}
+     * @return true when the JDK has the type
+     */
+    boolean isPlatformType(String fqn) {
+        return platformTypes.computeIfAbsent(fqn, JdkClassFiles.system()::contains);
+    }
+
+    /**
+     * Lists the types the indexed sources declare in one package, nested
+     * types included, in a stable order.
+     *
+     * @param packageName dotted package name, empty for the default package
+     * @return comma-separated fully qualified names, empty when the package
+     *         declares none
+     */
+    String packageTypes(String packageName) {
+        return typesByPackage.getOrDefault(packageName, "");
+    }
+
+    /**
+     * Lists every type the indexed sources declare, in a stable order.
+     *
+     * @return comma-separated fully qualified names
+     */
+    String allTypes() {
+        return String.join(",", new TreeSet<>(types));
+    }
+
+    int size() {
+        return types.size();
+    }
+
+    private static Declarations scan(Path file) {
+        String source;
+        try {
+            source = SourceReadAhead.decode(ByteBuffer.wrap(Files.readAllBytes(file))).text();
+        } catch (IOException _) {
+            return Declarations.NONE;
+        }
+        String packageName = PackageSniffer.scan(source, true).packageName;
+        if (packageName == null) {
+            return Declarations.NONE;
+        }
+        String prefix = packageName.isEmpty() ? "" : packageName + ".";
+        return new Declarations(packageName, DeclarationSkeleton.declaredTypes(source).stream()
+                .map(name -> prefix + name)
+                .toList());
+    }
+}
@@ -0,0 +1,421 @@
+package no.ntnu.eitri.parser.java;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Finds the jars of dependency coordinates in the local Gradle and Maven
+ * caches, remembering what their directories held across runs.
+ *
+ * <p>
+ * The Gradle cache ({@code ~/.gradle/caches/modules-2/files-2.1}) keeps a
+ * version's files under {@code group/artifact/version/<hash>/}; the Maven
+ * repository ({@code ~/.m2/repository}) under
+ * {@code group/as/path/artifact/version/}. Each directory a lookup needs is
+ * listed once and recorded with its modification time. A directory gains a
+ * new modification time whenever an entry is added to or removed from it, so
+ * a recorded listing is reused for as long as the time matches, and a lookup
+ * only checks the times of the directories of its own group. Every directory
+ * is checked at most once per run; later lookups are map lookups. Like the
+ * {@link JarIndexCache}, the index is kept in the parse cache directory and
+ * rewritten after a run that changed it. Without a cache directory it only
+ * lives for the run.
+ *
+ * <p>
+ * A coordinate resolves to the binary jars of its own version directory and
+ * of every other artifact of its group at the same version. Some ecosystems
+ * split APIs and implementations across artifacts (for example
+ * {@code directories-jni} and {@code directories}), and resolving only the
+ * direct artifact can leave otherwise importable types missing. A coordinate
+ * without a version, as Maven POMs leave managed dependencies, takes the
+ * highest version in the cache that has a binary jar.
+ *
+ * <p>
+ * Lookups may come from several threads at once.
+ */
+final class DependencyCacheIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(DependencyCacheIndex.class.getName());
+    static final String INDEX_FILE = "dependency-index.idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String JAR_EXTENSION = ".jar";
+    // Gradle adds a hash directory between a version and its files.
+    private static final int GRADLE_JAR_DEPTH = 3;
+    private static final int MAVEN_JAR_DEPTH = 1;
+    // A version directory is listed for its jars, any other for its subdirectories.
+    private static final String JARS_KEY = "jars:";
+    private static final String DIRECTORIES_KEY = "dirs:";
+
+    /**
+     * What a directory held when it was listed.
+     *
+     * @param modified directory modification time in milliseconds
+     * @param names    names of its subdirectories, or the paths of the binary
+     *                 jars under it relative to it
+     */
+    record Listing(long modified, List<String> names) {
+    }
+
+    private final Path indexFile;
+    private final Path gradleCacheRoot;
+    private final Path mavenRepository;
+    private final Map<String, Listing> listings;
+    private final Set<String> checked = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder listed = new LongAdder();
+
+    private DependencyCacheIndex(Path indexFile, Path gradleCacheRoot, Path mavenRepository,
+            Map<String, Listing> listings) {
+        this.indexFile = indexFile;
+        this.gradleCacheRoot = gradleCacheRoot;
+        this.mavenRepository = mavenRepository;
+        this.listings = listings;
+    }
+
+    /**
+     * Loads the index of the current user's Gradle and Maven caches.
+     *
+     * @param cacheDirectory parse cache directory, or null for an index that
+     *                       is not kept across runs
+     * @return the index
+     */
+    static DependencyCacheIndex load(Path cacheDirectory) {
+        Path home = Path.of(System.getProperty("user.home"));
+        return load(cacheDirectory, home.resolve(".gradle/caches/modules-2/files-2.1"),
+                home.resolve(".m2/repository"));
+    }
+
+    /**
+     * Loads the index of the given caches.
+     *
+     * @param cacheDirectory  parse cache directory, or null for an index that
+     *                        is not kept across runs
+     * @param gradleCacheRoot Gradle's {@code files-2.1} directory, or null
+     * @param mavenRepository Maven's local repository, or null
+     * @return the index
+     */
+    static DependencyCacheIndex load(Path cacheDirectory, Path gradleCacheRoot, Path mavenRepository) {
+        if (cacheDirectory == null) {
+            return new DependencyCacheIndex(null, gradleCacheRoot, mavenRepository, new ConcurrentHashMap<>());
+        }
+        Path indexFile = cacheDirectory.resolve(INDEX_FILE);
+        return new DependencyCacheIndex(indexFile, gradleCacheRoot, mavenRepository, readIndex(indexFile));
+    }
+
+    /**
+     * Resolves Gradle coordinates against the Gradle cache.
+     *
+     * @param coordinates {@code group:artifact:version} coordinates; malformed
+     *                    ones are skipped
+     * @return binary jars in coordinate order
+     */
+    Set<Path> gradleJars(Collection<String> coordinates) {
+        return resolve(coordinates, gradleCacheRoot, false, GRADLE_JAR_DEPTH);
+    }
+
+    /**
+     * Resolves Maven coordinates against the Maven repository.
+     *
+     * @param coordinates {@code group:artifact:version} or
+     *                    {@code group:artifact} coordinates
+     * @return binary jars in coordinate order
+     */
+    Set<Path> mavenJars(Collection<String> coordinates) {
+        return resolve(coordinates, mavenRepository, true, MAVEN_JAR_DEPTH);
+    }
+
+    /**
+     * Returns how many directory listings were reused from the index.
+     *
+     * @return directories not listed again
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns how many directories were listed because the index had no
+     * current listing of them.
+     *
+     * @return directories listed
+     */
+    long listed() {
+        return listed.sum();
+    }
+
+    /**
+     * Writes the index back to the cache directory if it changed. Failures
+     * are logged and only cost the next run its listings.
+     */
+    void save() {
+        if (indexFile == null || !changed.getAndSet(false)) {
+            return;
+        }
+        Path temp = null;
+        try {
+            Files.createDirectories(indexFile.getParent());
+            temp = Files.createTempFile(indexFile.getParent(), INDEX_FILE, TEMP_SUFFIX);
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Listing> entry : new TreeMap<>(listings).entrySet()) {
+                    Listing listing = entry.getValue();
+                    writer.write(listing.modified() + "\t" + String.join("\n", listing.names()) + "\t"
+                            + entry.getKey());
+                    writer.write('\0');
+                }
+            }
+            moveIntoPlace(temp, indexFile);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write dependency index {0} - {1}",
+                    new Object[] { indexFile, e.getMessage() });
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    private Set<Path> resolve(Collection<String> coordinates, Path root, boolean mavenLayout, int jarDepth) {
+        Set<Path> jars = new LinkedHashSet<>();
+        if (coordinates == null || root == null || root.getFileSystem() != FileSystems.getDefault()) {
+            return jars;
+        }
+        Path absoluteRoot = root.toAbsolutePath().normalize();
+        for (String coordinate : coordinates) {
+            String[] parts = coordinate.split(":");
+            if (parts.length < 2 || (parts.length < 3 && !mavenLayout)) {
+                continue;
+            }
+            Path groupDir = absoluteRoot.resolve(mavenLayout ? parts[0].replace('.', '/') : parts[0]);
+            String artifact = parts[1];
+            String version = parts.length >= 3 ? parts[2] : highestVersion(groupDir.resolve(artifact), jarDepth);
+            if (version == null) {
+                continue;
+            }
+            addVersionJars(groupDir.resolve(artifact), version, jarDepth, jars);
+            for (String sibling : subdirectories(groupDir)) {
+                if (!sibling.equals(artifact)) {
+                    addVersionJars(groupDir.resolve(sibling), version, jarDepth, jars);
+                }
+            }
+        }
+        return jars;
+    }
+
+    private void addVersionJars(Path artifactDir, String version, int jarDepth, Set<Path> jars) {
+        if (!subdirectories(artifactDir).contains(version)) {
+            return;
+        }
+        Path versionDir = artifactDir.resolve(version);
+        for (String jar : versionJars(versionDir, jarDepth)) {
+            jars.add(versionDir.resolve(jar));
+        }
+    }
+
+    /**
+     * Returns the highest version of an artifact that has a binary jar, so a
+     * version directory holding only a POM is passed over.
+     */
+    private String highestVersion(Path artifactDir, int jarDepth) {
+        return subdirectories(artifactDir).stream()
+                .sorted(((Comparator<String>) DependencyCacheIndex::compareVersions).reversed())
+                .filter(version -> !versionJars(artifactDir.resolve(version), jarDepth).isEmpty())
+                .findFirst()
+                .orElse(null);
+    }
+
+    private List<String> versionJars(Path versionDir, int jarDepth) {
+        return listing(JARS_KEY, versionDir, () -> listJars(versionDir, jarDepth));
+    }
+
+    private List<String> subdirectories(Path dir) {
+        return listing(DIRECTORIES_KEY, dir, () -> listSubdirectories(dir));
+    }
+
+    /**
+     * Returns the recorded listing of a directory, listing it again when its
+     * modification time changed since. A missing directory lists as empty.
+     */
+    private List<String> listing(String kind, Path dir, Lister lister) {
+        String key = kind + dir;
+        Listing recorded = listings.get(key);
+        if (recorded != null && checked.contains(key)) {
+            return recorded.names();
+        }
+        long modified;
+        try {
+            modified = Files.getLastModifiedTime(dir).toMillis();
+        } catch (IOException _) {
+            checked.add(key);
+            if (listings.remove(key) != null) {
+                changed.set(true);
+            }
+            return List.of();
+        }
+        if (recorded != null && recorded.modified() == modified) {
+            hits.increment();
+            checked.add(key);
+            return recorded.names();
+        }
+        List<String> names;
+        try {
+            names = lister.list();
+        } catch (IOException _) {
+            LOGGER.log(Level.WARNING, "Failed to scan dependency cache directory: {0}", dir);
+            checked.add(key);
+            return List.of();
+        }
+        listed.increment();
+        listings.put(key, new Listing(modified, names));
+        checked.add(key);
+        changed.set(true);
+        return names;
+    }
+
+    @FunctionalInterface
+    private interface Lister {
+        List<String> list() throws IOException;
+    }
+
+    private static List<String> listSubdirectories(Path dir) throws IOException {
+        try (Stream<Path> children = Files.list(dir)) {
+            return children.filter(Files::isDirectory)
+                    .map(child -> child.getFileName().toString())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static List<String> listJars(Path versionDir, int depth) throws IOException {
+        try (Stream<Path> files = Files.walk(versionDir, depth)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(DependencyCacheIndex::isBinaryJar)
+                    .map(file -> versionDir.relativize(file).toString())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static boolean isBinaryJar(Path jarPath) {
+        String fileName = jarPath.getFileName().toString();
+        // Source and javadoc jars hold no bytecode for symbol solving and can trigger avoidable loader failures.
+        return fileName.endsWith(JAR_EXTENSION)
+                && !fileName.endsWith("-sources.jar")
+                && !fileName.endsWith("-javadoc.jar");
+    }
+
+    /**
+     * Orders versions by their dot- or dash-separated parts, numeric parts
+     * numerically, so that {@code 1.10} follows {@code 1.9}. A qualifier
+     * sorts before the release it qualifies.
+     */
+    static int compareVersions(String left, String right) {
+        String[] leftParts = left.split("[.-]");
+        String[] rightParts = right.split("[.-]");
+        for (int i = 0; i < Math.min(leftParts.length, rightParts.length); i++) {
+            int order = compareVersionPart(leftParts[i], rightParts[i]);
+            if (order != 0) {
+                return order;
+            }
+        }
+        if (leftParts.length == rightParts.length) {
+            return 0;
+        }
+        // 1.0.1 follows 1.0, but 1.0-RC1 and 1.0-SNAPSHOT come before it.
+        String[] longer = leftParts.length > rightParts.length ? leftParts : rightParts;
+        boolean longerIsHigher = isNumeric(longer[Math.min(leftParts.length, rightParts.length)]);
+        return (longerIsHigher == (longer == leftParts)) ? 1 : -1;
+    }
+
+    private static boolean isNumeric(String part) {
+        return !part.isEmpty() && part.chars().allMatch(Character::isDigit);
+    }
+
+    private static int compareVersionPart(String left, String right) {
+        boolean leftNumeric = isNumeric(left);
+        boolean rightNumeric = isNumeric(right);
+        if (leftNumeric && rightNumeric) {
+            String leftDigits = stripLeadingZeros(left);
+            String rightDigits = stripLeadingZeros(right);
+            int order = Integer.compare(leftDigits.length(), rightDigits.length());
+            return order != 0 ? order : leftDigits.compareTo(rightDigits);
+        }
+        if (leftNumeric != rightNumeric) {
+            // A release part sorts after a qualifier such as "RC1" or "SNAPSHOT".
+            return leftNumeric ? 1 : -1;
+        }
+        return left.compareTo(right);
+    }
+
+    private static String stripLeadingZeros(String digits) {
+        int start = 0;
+        while (start < digits.length() - 1 && digits.charAt(start) == '0') {
+            start++;
+        }
+        return digits.substring(start);
+    }
+
+    private static Map<String, Listing> readIndex(Path indexFile) {
+        Map<String, Listing> index = new ConcurrentHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            StringBuilder entry = new StringBuilder();
+            int next;
+            while ((next = reader.read()) != -1) {
+                if (next != '\0') {
+                    entry.append((char) next);
+                    continue;
+                }
+                // <modified> TAB <names, one per line> TAB <kind>:<directory>
+                String[] parts = entry.toString().split("\t", 3);
+                if (parts.length == 3) {
+                    List<String> names = parts[1].isEmpty() ? List.of() : List.of(parts[1].split("\n"));
+                    index.put(parts[2], new Listing(Long.parseLong(parts[0]), names));
+                }
+                entry.setLength(0);
+            }
+        } catch (NoSuchFileException _) {
+            return index;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.FINE, "Ignoring unreadable dependency index {0} - {1}",
+                    new Object[] { indexFile, e.getMessage() });
+            return new ConcurrentHashMap<>();
+        }
+        return index;
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException _) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException _) {
+            // Left behind in the cache directory; the next save replaces the index anyway.
+        }
+    }
+}
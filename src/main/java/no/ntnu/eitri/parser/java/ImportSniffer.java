@@ -0,0 +1,216 @@
+package no.ntnu.eitri.parser.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the package and import declarations of a Java file from its leading
+ * bytes, without parsing the file.
+ *
+ * <p>
+ * The scan uses the cursor of {@link PackageSniffer} and stops at the first
+ * token that starts neither a package nor an import declaration, so a file is
+ * read up to its first type declaration, and never past
+ * {@link PackageSniffer#MAX_BYTES}.
+ */
+final class ImportSniffer {
+
+    static final Header NEED_MORE = new Header("", List.of());
+
+    private ImportSniffer() {
+    }
+
+    /**
+     * The declarations at the head of a file.
+     *
+     * @param packageName the declared package, empty for the default package
+     * @param imports     imported names as written, without {@code static};
+     *                    on-demand imports end in {@code .*}
+     */
+    record Header(String packageName, List<String> imports) {
+    }
+
+    /**
+     * Returns every package whose types the files can name without
+     * qualifying them: the packages they declare, and those they import
+     * from. As an imported name does not tell a package from an enclosing
+     * class, each of its dotted prefixes is taken as a package.
+     *
+     * <p>
+     * A file that cannot be read refers to nothing; the parse reports it.
+     *
+     * @param javaFiles source files
+     * @return dotted package names, or null when a header could not be
+     *         understood and any package may be referred to
+     */
+    static Set<String> referencedPackages(Collection<Path> javaFiles) {
+        Set<String> packages = ConcurrentHashMap.newKeySet();
+        boolean understood = javaFiles.parallelStream().allMatch(file -> {
+            Header header;
+            try {
+                header = sniff(file);
+            } catch (IOException | UncheckedIOException _) {
+                return true;
+            }
+            if (header == null) {
+                return false;
+            }
+            packages.addAll(referencedPackages(header));
+            return true;
+        });
+        return understood ? packages : null;
+    }
+
+    /**
+     * Returns the packages one file can name types from without qualifying
+     * them, the same way as {@link #referencedPackages(Collection)}.
+     *
+     * @param header the file's header
+     * @return dotted package names
+     */
+    static Set<String> referencedPackages(Header header) {
+        Set<String> packages = new HashSet<>();
+        packages.add(header.packageName());
+        for (String imported : header.imports()) {
+            addPackages(imported, packages);
+        }
+        return packages;
+    }
+
+    /**
+     * Returns the declarations at the head of a file.
+     *
+     * @param file Java source file
+     * @return the header, or null when the prefix could not be understood
+     * @throws IOException if the file cannot be read
+     */
+    static Header sniff(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[PackageSniffer.INITIAL_BYTES];
+            int length = 0;
+            while (true) {
+                int read = in.readNBytes(buffer, length, buffer.length - length);
+                length += read;
+                boolean complete = length < buffer.length;
+                Header header = scan(PackageSniffer.decode(buffer, length, complete), complete);
+                if (header != NEED_MORE) {
+                    return header;
+                }
+                if (buffer.length >= PackageSniffer.MAX_BYTES) {
+                    return null;
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(PackageSniffer.MAX_BYTES, buffer.length * 2));
+            }
+        }
+    }
+
+    /**
+     * Scans source text for its package and import declarations.
+     *
+     * @param text     leading source text
+     * @param complete whether {@code text} is the whole file
+     * @return the header, {@link #NEED_MORE} when the text ends inside it, or
+     *         null when it could not be understood
+     */
+    static Header scan(String text, boolean complete) {
+        PackageSniffer.Scanner scanner = new PackageSniffer.Scanner(text);
+        Header incomplete = complete ? null : NEED_MORE;
+        scanner.skipBlank();
+        while (scanner.peek() == '@') {
+            if (!scanner.skipAnnotation()) {
+                return scanner.atEnd() ? incomplete : null;
+            }
+            scanner.skipBlank();
+        }
+        String packageName = "";
+        List<String> imports = new ArrayList<>();
+        while (true) {
+            scanner.skipBlank();
+            if (scanner.atEnd()) {
+                return complete ? new Header(packageName, imports) : NEED_MORE;
+            }
+            if (scanner.peek() == ';') {
+                scanner.advance();
+                continue;
+            }
+            String keyword = scanner.identifier();
+            if (keyword == null) {
+                // An annotation here belongs to the first type declaration.
+                return new Header(packageName, imports);
+            }
+            if (scanner.atEnd() && !complete) {
+                // The keyword may be cut off at the end of the prefix ("imp").
+                return NEED_MORE;
+            }
+            if (!"package".equals(keyword) && !"import".equals(keyword)) {
+                return new Header(packageName, imports);
+            }
+            scanner.skipBlank();
+            String name = qualifiedName(scanner, "import".equals(keyword));
+            if (name == null) {
+                return scanner.atEnd() ? incomplete : null;
+            }
+            if ("package".equals(keyword)) {
+                packageName = name;
+            } else {
+                imports.add(name);
+            }
+        }
+    }
+
+    /**
+     * Reads a dotted name up to its semicolon, skipping a leading
+     * {@code static} and allowing a trailing {@code .*} in imports.
+     */
+    private static String qualifiedName(PackageSniffer.Scanner scanner, boolean importName) {
+        StringBuilder name = new StringBuilder();
+        while (true) {
+            scanner.skipBlank();
+            if (importName && scanner.peek() == '*' && !name.isEmpty()) {
+                scanner.advance();
+                name.append('*');
+            } else {
+                String part = scanner.identifier();
+                if (part == null) {
+                    return null;
+                }
+                if (importName && name.isEmpty() && "static".equals(part)) {
+                    continue;
+                }
+                name.append(part);
+            }
+            scanner.skipBlank();
+            char next = scanner.peek();
+            if (next == ';') {
+                scanner.advance();
+                return name.toString();
+            }
+            if (next != '.' || name.charAt(name.length() - 1) == '*') {
+                return null;
+            }
+            scanner.advance();
+            name.append('.');
+        }
+    }
+
+    private static void addPackages(String imported, Set<String> packages) {
+        String name = imported;
+        if (name.endsWith(".*")) {
+            name = name.substring(0, name.length() - 2);
+            packages.add(name);
+        }
+        for (int dot = name.lastIndexOf('.'); dot > 0; dot = name.lastIndexOf('.', dot - 1)) {
+            packages.add(name.substring(0, dot));
+        }
+    }
+}
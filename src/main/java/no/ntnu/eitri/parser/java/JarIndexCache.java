@@ -0,0 +1,245 @@
+package no.ntnu.eitri.parser.java;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Remembers the classes each dependency jar holds across runs, so a jar is
+ * listed once rather than on every run.
+ *
+ * <p>
+ * Entries are keyed by the jar's absolute path, size and modification time;
+ * a jar that changed since it was listed is listed again. Besides the class
+ * names, an entry records whether the jar could be listed at all and whether
+ * the symbol solver failed to open it, so a jar known to be bad is skipped
+ * without being retried. The index is kept in the parse cache directory, next
+ * to the parse cost history, and rewritten after a run that changed it.
+ * Without a cache directory it only lives for the run.
+ */
+final class JarIndexCache {
+
+    private static final Logger LOGGER = Logger.getLogger(JarIndexCache.class.getName());
+    static final String INDEX_FILE = "jar-index.idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String CLASS_EXTENSION = ".class";
+
+    /**
+     * What became of a jar when it was last listed or opened.
+     */
+    enum Status {
+        /** Listed; the solver may open it. */
+        OK,
+        /** Its entries could not be listed. */
+        UNREADABLE,
+        /** Listed, but the solver failed to open it. */
+        FAILED
+    }
+
+    /**
+     * What a jar held when it was listed.
+     *
+     * @param size       jar size in bytes
+     * @param modified   jar modification time in milliseconds
+     * @param status     whether the jar is usable
+     * @param classNames binary names of its classes, dotted
+     *                   ({@code a.b.Outer$Inner}); empty unless listed
+     */
+    record Entry(long size, long modified, Status status, List<String> classNames) {
+    }
+
+    private final Path indexFile;
+    private final Map<String, Entry> entries;
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder listed = new LongAdder();
+
+    private JarIndexCache(Path indexFile, Map<String, Entry> entries) {
+        this.indexFile = indexFile;
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the jar index kept in a parse cache directory.
+     *
+     * @param cacheDirectory parse cache directory, or null for an index that
+     *                       is not kept across runs
+     * @return the index
+     */
+    static JarIndexCache load(Path cacheDirectory) {
+        if (cacheDirectory == null) {
+            return new JarIndexCache(null, new ConcurrentHashMap<>());
+        }
+        Path indexFile = cacheDirectory.resolve(INDEX_FILE);
+        return new JarIndexCache(indexFile, readIndex(indexFile));
+    }
+
+    /**
+     * Returns what a jar holds, listing it unless the index has an entry for
+     * its current size and modification time.
+     *
+     * @param jar a dependency jar
+     * @return the jar's entry
+     */
+    Entry lookup(Path jar) {
+        String key = key(jar);
+        long size;
+        long modified;
+        try {
+            size = Files.size(jar);
+            modified = Files.getLastModifiedTime(jar).toMillis();
+        } catch (IOException _) {
+            return new Entry(-1L, -1L, Status.UNREADABLE, List.of());
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && entry.size() == size && entry.modified() == modified) {
+            hits.increment();
+            return entry;
+        }
+        entry = list(jar, size, modified);
+        listed.increment();
+        entries.put(key, entry);
+        changed.set(true);
+        return entry;
+    }
+
+    /**
+     * Records that the solver failed to open a jar, so later runs skip it
+     * until it changes.
+     *
+     * @param jar a jar previously returned as {@link Status#OK}
+     */
+    void markFailed(Path jar) {
+        entries.computeIfPresent(key(jar), (_, entry) -> {
+            changed.set(true);
+            return new Entry(entry.size(), entry.modified(), Status.FAILED, List.of());
+        });
+    }
+
+    /**
+     * Returns how many lookups were served from the index.
+     *
+     * @return jars not listed again
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns how many jars were listed because the index had no current
+     * entry for them.
+     *
+     * @return jars listed
+     */
+    long listed() {
+        return listed.sum();
+    }
+
+    /**
+     * Writes the index back to the cache directory if it changed. Failures
+     * are logged and only cost the next run its listings.
+     */
+    void save() {
+        if (indexFile == null || !changed.getAndSet(false)) {
+            return;
+        }
+        Path temp = null;
+        try {
+            Files.createDirectories(indexFile.getParent());
+            temp = Files.createTempFile(indexFile.getParent(), INDEX_FILE, TEMP_SUFFIX);
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Entry> entry : new TreeMap<>(entries).entrySet()) {
+                    Entry value = entry.getValue();
+                    writer.write(value.size() + "\t" + value.modified() + "\t" + value.status() + "\t"
+                            + String.join(" ", value.classNames()) + "\t" + entry.getKey());
+                    writer.write('\0');
+                }
+            }
+            moveIntoPlace(temp, indexFile);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write jar index {0} - {1}",
+                    new Object[] { indexFile, e.getMessage() });
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    private static Entry list(Path jar, long size, long modified) {
+        List<String> classNames = new ArrayList<>();
+        try (ClassArchive archive = ClassArchive.open(jar)) {
+            for (int i = 0; i < archive.size(); i++) {
+                String entryName = archive.entryName(i);
+                classNames.add(entryName.substring(0, entryName.length() - CLASS_EXTENSION.length())
+                        .replace('/', '.'));
+            }
+        } catch (IOException | RuntimeException _) {
+            return new Entry(size, modified, Status.UNREADABLE, List.of());
+        }
+        return new Entry(size, modified, Status.OK, List.copyOf(classNames));
+    }
+
+    private static Map<String, Entry> readIndex(Path indexFile) {
+        Map<String, Entry> index = new ConcurrentHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            StringBuilder entry = new StringBuilder();
+            int next;
+            while ((next = reader.read()) != -1) {
+                if (next != '\0') {
+                    entry.append((char) next);
+                    continue;
+                }
+                // <size> TAB <modified> TAB <status> TAB <class names> TAB <jar>
+                String[] parts = entry.toString().split("\t", 5);
+                if (parts.length == 5) {
+                    List<String> classNames = parts[3].isEmpty() ? List.of() : List.of(parts[3].split(" "));
+                    index.put(parts[4], new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                            Status.valueOf(parts[2]), classNames));
+                }
+                entry.setLength(0);
+            }
+        } catch (NoSuchFileException _) {
+            return index;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.FINE, "Ignoring unreadable jar index {0} - {1}",
+                    new Object[] { indexFile, e.getMessage() });
+            return new ConcurrentHashMap<>();
+        }
+        return index;
+    }
+
+    private static String key(Path jar) {
+        return jar.toAbsolutePath().normalize().toString();
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException _) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException _) {
+            // Left behind in the cache directory; the next save replaces the index anyway.
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package no.ntnu.eitri.parser.java;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The packages and classes each dependency jar holds, so that the symbol
+ * solver opens a jar only when it looks up a class the jar contains.
+ *
+ * <p>
+ * Building the index reads nothing but each jar's central directory, through
+ * a {@link JarIndexCache} that skips even that for jars listed by an earlier
+ * run; no class is loaded and no solver is created. Jars that could not be
+ * listed, or that the solver failed to open before, are left out. The
+ * {@link RoutingJarTypeSolver}s of all parse workers share one index and
+ * record in it which jars they went on to open, so a run can report how
+ * many of the discovered jars it actually needed.
+ *
+ * <p>
+ * An index may also be pruned to the packages the sources refer to, so
+ * that jars holding none of them are not handed to the solver at all.
+ */
+final class JarPackageIndex {
+
+    private final List<Path> jars;
+    private final List<Path> skipped;
+    private final List<Path> pruned;
+    private final Map<String, List<Path>> jarsByPackage;
+    private final Map<String, List<Path>> jarsByClass;
+    private final JarIndexCache cache;
+    private final Set<Path> opened = ConcurrentHashMap.newKeySet();
+    private final Set<Path> failed = ConcurrentHashMap.newKeySet();
+
+    private JarPackageIndex(List<Path> jars, List<Path> skipped, List<Path> pruned,
+            Map<String, List<Path>> jarsByPackage, Map<String, List<Path>> jarsByClass, JarIndexCache cache) {
+        this.jars = List.copyOf(jars);
+        this.skipped = List.copyOf(skipped);
+        this.pruned = List.copyOf(pruned);
+        this.jarsByPackage = jarsByPackage;
+        this.jarsByClass = jarsByClass;
+        this.cache = cache;
+    }
+
+    /**
+     * Indexes the given jars for this run only.
+     *
+     * @param jarPaths dependency jars, in lookup order
+     * @return the index
+     */
+    static JarPackageIndex build(Collection<Path> jarPaths) {
+        return build(jarPaths, JarIndexCache.load(null));
+    }
+
+    /**
+     * Indexes the given jars, taking their listings from {@code cache} where
+     * it has them. A jar that cannot be listed, or that the solver failed to
+     * open before, is left out and reported by {@link #skipped()}.
+     *
+     * @param jarPaths dependency jars, in lookup order
+     * @param cache    listings of earlier runs, which failures are recorded in
+     * @return the index
+     */
+    static JarPackageIndex build(Collection<Path> jarPaths, JarIndexCache cache) {
+        return build(jarPaths, cache, null);
+    }
+
+    /**
+     * Indexes the given jars like {@link #build(Collection, JarIndexCache)},
+     * keeping only those holding classes in one of {@code packages}. The
+     * others are reported by {@link #pruned()}.
+     *
+     * @param jarPaths dependency jars, in lookup order
+     * @param cache    listings of earlier runs, which failures are recorded in
+     * @param packages dotted names of the packages the sources refer to, or
+     *                 null to keep every jar
+     * @return the index
+     */
+    static JarPackageIndex build(Collection<Path> jarPaths, JarIndexCache cache, Set<String> packages) {
+        List<Path> jars = new ArrayList<>();
+        List<Path> skipped = new ArrayList<>();
+        Map<String, List<Path>> jarsByPackage = new HashMap<>();
+        Map<String, List<Path>> jarsByClass = new HashMap<>();
+        for (Path jar : jarPaths) {
+            JarIndexCache.Entry entry = cache.lookup(jar);
+            if (entry.status() != JarIndexCache.Status.OK) {
+                skipped.add(jar);
+                continue;
+            }
+            jars.add(jar);
+            for (String className : entry.classNames()) {
+                jarsByClass.computeIfAbsent(className, _ -> new ArrayList<>(1)).add(jar);
+                int lastDot = className.lastIndexOf('.');
+                List<Path> packageJars = jarsByPackage.computeIfAbsent(
+                        lastDot < 0 ? "" : className.substring(0, lastDot), _ -> new ArrayList<>());
+                // Jars are indexed one after another, so a jar already added is the last one.
+                if (packageJars.isEmpty() || packageJars.getLast() != jar) {
+                    packageJars.add(jar);
+                }
+            }
+        }
+        if (packages == null) {
+            return new JarPackageIndex(jars, skipped, List.of(), jarsByPackage, jarsByClass, cache);
+        }
+        Set<Path> referenced = new HashSet<>();
+        for (String packageName : packages) {
+            referenced.addAll(jarsByPackage.getOrDefault(packageName, List.of()));
+        }
+        List<Path> pruned = jars.stream().filter(jar -> !referenced.contains(jar)).toList();
+        if (!pruned.isEmpty()) {
+            jars.removeIf(jar -> !referenced.contains(jar));
+            retainReferenced(jarsByPackage, referenced);
+            retainReferenced(jarsByClass, referenced);
+        }
+        return new JarPackageIndex(jars, skipped, pruned, jarsByPackage, jarsByClass, cache);
+    }
+
+    private static void retainReferenced(Map<String, List<Path>> jarsByName, Set<Path> referenced) {
+        jarsByName.values().removeIf(nameJars -> {
+            nameJars.removeIf(jar -> !referenced.contains(jar));
+            return nameJars.isEmpty();
+        });
+    }
+
+    /**
+     * Returns the jars whose entries could be listed.
+     *
+     * @return usable jars, in lookup order
+     */
+    List<Path> jars() {
+        return jars;
+    }
+
+    /**
+     * Returns the jars that were left out because their entries could not be
+     * listed or the solver failed to open them in an earlier run.
+     *
+     * @return skipped jars, in the order given
+     */
+    List<Path> skipped() {
+        return skipped;
+    }
+
+    /**
+     * Returns the jars that were left out because they hold no class in a
+     * package the sources refer to.
+     *
+     * @return pruned jars, in lookup order
+     */
+    List<Path> pruned() {
+        return pruned;
+    }
+
+    /**
+     * Returns the jars holding classes in a package.
+     *
+     * @param packageName dotted package name, empty for the unnamed package
+     * @return jars in lookup order; empty if none holds the package
+     */
+    List<Path> jarsFor(String packageName) {
+        return jarsByPackage.getOrDefault(packageName, List.of());
+    }
+
+    /**
+     * Returns the jars holding a class.
+     *
+     * @param binaryName dotted binary name, as in {@code a.b.Outer$Inner}
+     * @return jars in lookup order; empty if none holds the class
+     */
+    List<Path> jarsForClass(String binaryName) {
+        return jarsByClass.getOrDefault(binaryName, List.of());
+    }
+
+    /**
+     * Records that a worker opened a jar.
+     *
+     * @param jar the jar
+     */
+    void opened(Path jar) {
+        opened.add(jar);
+    }
+
+    /**
+     * Records that a jar could be listed but not opened by the solver. Later
+     * runs skip it until it changes.
+     *
+     * @param jar the jar
+     * @return true the first time the jar is reported, so it is logged once
+     */
+    boolean failed(Path jar) {
+        if (!failed.add(jar)) {
+            return false;
+        }
+        cache.markFailed(jar);
+        return true;
+    }
+
+    /**
+     * Returns the listings the index was built from.
+     *
+     * @return the jar index cache
+     */
+    JarIndexCache cache() {
+        return cache;
+    }
+
+    /**
+     * Returns how many distinct jars any worker has opened so far.
+     *
+     * @return opened jars
+     */
+    int openedCount() {
+        return opened.size();
+    }
+}
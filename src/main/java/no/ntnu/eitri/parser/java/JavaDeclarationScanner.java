@@ -0,0 +1,1029 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.model.TypeKind;
+import no.ntnu.eitri.model.Visibility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hand-written recognizer for the declarations of one Java source file.
+ *
+ * <p>
+ * The source is tokenized once into parallel arrays of token kinds and
+ * offsets, without comments and whitespace. A recursive recognizer then reads
+ * the package and import declarations, type headers, fields, constructors,
+ * method signatures, record components and enum constants. Method bodies,
+ * initializer blocks and field initializers are skipped by bracket matching;
+ * no syntax tree is built.
+ *
+ * <p>
+ * Recognition is forgiving: a declaration that cannot be read is skipped up to
+ * the next {@code ;} or balanced block and recorded as a {@link Problem}, and
+ * the rest of the file is still read. Local and anonymous classes live in
+ * bodies and are never seen.
+ *
+ * <p>
+ * Types are returned in declaration order, each outer type before the types
+ * nested in it, which is the order {@link TypeVisitor} registers them in.
+ */
+final class JavaDeclarationScanner {
+
+    /** Kind of identifier and keyword tokens; symbol tokens use their character as kind. */
+    static final int IDENTIFIER = -1;
+    /** Kind of string, text block, character and number literals. */
+    static final int LITERAL = -2;
+
+    static final int PUBLIC = 1;
+    static final int PROTECTED = 1 << 1;
+    static final int PRIVATE = 1 << 2;
+    static final int STATIC = 1 << 3;
+    static final int ABSTRACT = 1 << 4;
+    static final int FINAL = 1 << 5;
+    static final int NATIVE = 1 << 6;
+    static final int SYNCHRONIZED = 1 << 7;
+    static final int TRANSIENT = 1 << 8;
+    static final int VOLATILE = 1 << 9;
+    static final int STRICTFP = 1 << 10;
+    static final int DEFAULT = 1 << 11;
+    static final int SEALED = 1 << 12;
+    static final int NON_SEALED = 1 << 13;
+
+    private final String source;
+    private int[] kinds = new int[256];
+    private int[] starts = new int[256];
+    private int[] ends = new int[256];
+    private int count;
+    private int pos;
+    private final List<ScannedType> types = new ArrayList<>();
+    private final List<Problem> problems = new ArrayList<>();
+
+    private JavaDeclarationScanner(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Reads the declarations of a source file.
+     *
+     * @param source decoded file content
+     * @return the declarations, with any parts that could not be read
+     */
+    static ScannedFile scan(String source) {
+        return new JavaDeclarationScanner(source).scanFile();
+    }
+
+    /**
+     * Tokenizes a source file, for tests.
+     *
+     * @param source decoded file content
+     * @return the token texts, in order
+     */
+    static List<String> tokens(String source) {
+        JavaDeclarationScanner scanner = new JavaDeclarationScanner(source);
+        scanner.tokenize();
+        List<String> tokens = new ArrayList<>(scanner.count);
+        for (int i = 0; i < scanner.count; i++) {
+            tokens.add(scanner.text(i));
+        }
+        return tokens;
+    }
+
+    private ScannedFile scanFile() {
+        tokenize();
+        String packageName = "";
+        List<Import> imports = new ArrayList<>();
+        while (pos < count) {
+            int start = pos;
+            try {
+                if (at(pos, ';')) {
+                    pos++;
+                } else if (atWord(pos, "import")) {
+                    Import imported = readImport();
+                    if (imported != null) {
+                        imports.add(imported);
+                    }
+                } else {
+                    Modifiers modifiers = readModifiers();
+                    if (atWord(pos, "package")) {
+                        pos++;
+                        packageName = readQualifiedName();
+                        expect(';');
+                    } else if (atWord(pos, "module") || atWord(pos, "open")) {
+                        // A module declaration declares no types.
+                        pos = count;
+                    } else if (!readTypeDeclaration(modifiers, packageName, null)) {
+                        throw unreadable("expected a type declaration");
+                    }
+                }
+            } catch (Unreadable e) {
+                recover(start, e);
+            }
+        }
+        return new ScannedFile(packageName, imports, types, problems, lineStarts());
+    }
+
+    // ---------------------------------------------------------------------
+    // Tokenizer
+    // ---------------------------------------------------------------------
+
+    private void tokenize() {
+        int length = source.length();
+        int i = 0;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                int newline = source.indexOf('\n', i + 2);
+                i = newline < 0 ? length : newline + 1;
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                int close = source.indexOf("*/", i + 2);
+                i = close < 0 ? length : close + 2;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i++;
+                while (i < length && Character.isJavaIdentifierPart(source.charAt(i))) {
+                    i++;
+                }
+                add(IDENTIFIER, start, i);
+            } else if (c == '"') {
+                int start = i;
+                i = source.startsWith("\"\"\"", i) ? skipTextBlock(i + 3) : skipQuoted(i + 1, '"');
+                add(LITERAL, start, i);
+            } else if (c == '\'') {
+                int start = i;
+                i = skipQuoted(i + 1, '\'');
+                add(LITERAL, start, i);
+            } else if (isDigit(c) || (c == '.' && i + 1 < length && isDigit(source.charAt(i + 1)))) {
+                int start = i;
+                i = skipNumber(i);
+                add(LITERAL, start, i);
+            } else {
+                add(c, i, i + 1);
+                i++;
+            }
+        }
+    }
+
+    private void add(int kind, int start, int end) {
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        kinds[count] = kind;
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /** Returns the offset after the closing quote, or the end of the line when unterminated. */
+    private int skipQuoted(int i, char quote) {
+        int length = source.length();
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private int skipTextBlock(int i) {
+        int length = source.length();
+        while (i < length) {
+            if (source.charAt(i) == '\\') {
+                i += 2;
+            } else if (source.startsWith("\"\"\"", i)) {
+                return i + 3;
+            } else {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private int skipNumber(int i) {
+        int length = source.length();
+        int start = i;
+        boolean hex = source.startsWith("0x", i) || source.startsWith("0X", i);
+        while (i < length) {
+            char c = source.charAt(i);
+            if (Character.isJavaIdentifierPart(c) || c == '.') {
+                i++;
+            } else if ((c == '+' || c == '-') && i > start && isExponent(source.charAt(i - 1), hex)) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isExponent(char c, boolean hex) {
+        return hex ? c == 'p' || c == 'P' : c == 'e' || c == 'E';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private int[] lineStarts() {
+        int[] lines = new int[64];
+        int lineCount = 1;
+        for (int i = source.indexOf('\n'); i >= 0; i = source.indexOf('\n', i + 1)) {
+            if (lineCount == lines.length) {
+                lines = Arrays.copyOf(lines, lineCount * 2);
+            }
+            lines[lineCount++] = i + 1;
+        }
+        return Arrays.copyOf(lines, lineCount);
+    }
+
+    // ---------------------------------------------------------------------
+    // Declarations
+    // ---------------------------------------------------------------------
+
+    private Import readImport() {
+        pos++;
+        if (atWord(pos, "module") && atIdentifier(pos + 1)) {
+            // Module imports name no type.
+            skipPast(';');
+            return null;
+        }
+        boolean isStatic = atWord(pos, "static");
+        if (isStatic) {
+            pos++;
+        }
+        StringBuilder name = new StringBuilder(expectIdentifier("an imported name"));
+        boolean onDemand = false;
+        while (at(pos, '.')) {
+            pos++;
+            if (at(pos, '*')) {
+                pos++;
+                onDemand = true;
+                break;
+            }
+            name.append('.').append(expectIdentifier("an imported name"));
+        }
+        expect(';');
+        return new Import(name.toString(), isStatic, onDemand);
+    }
+
+    /**
+     * Reads a type declaration at the current token, if there is one.
+     *
+     * @param prefix   package name or qualified name of the enclosing type
+     * @param outerFqn qualified name of the enclosing type, null when
+     *                 top-level
+     * @return false when the current token does not start a type declaration
+     */
+    private boolean readTypeDeclaration(Modifiers modifiers, String prefix, String outerFqn) {
+        TypeKind kind = typeKindAt(pos);
+        if (kind == null) {
+            return false;
+        }
+        pos += kind == TypeKind.ANNOTATION ? 2 : 1;
+        String name = expectIdentifier("a type name");
+        String fqn = prefix.isEmpty() ? name : prefix + "." + name;
+        List<TypeParameter> typeParameters = at(pos, '<') ? readTypeParameters() : List.of();
+        List<Parameter> components = kind == TypeKind.RECORD ? readParameters() : List.of();
+        List<TypeRef> extendedTypes = List.of();
+        List<TypeRef> implementedTypes = List.of();
+        while (!at(pos, '{')) {
+            if (atWord(pos, "extends")) {
+                pos++;
+                extendedTypes = readTypeList();
+            } else if (atWord(pos, "implements")) {
+                pos++;
+                implementedTypes = readTypeList();
+            } else if (atWord(pos, "permits")) {
+                pos++;
+                readTypeList();
+            } else {
+                throw unreadable("unexpected token in the header of " + name);
+            }
+        }
+        pos++;
+
+        // Reserve the slot so the type precedes its nested types.
+        int slot = types.size();
+        types.add(null);
+        Members members = new Members();
+        if (kind == TypeKind.ENUM) {
+            readEnumConstants(members.enumConstants);
+        }
+        readMembers(name, fqn, kind, members);
+        types.set(slot, new ScannedType(name, fqn, outerFqn, kind, modifiers, typeParameters, extendedTypes,
+                implementedTypes, components, members.enumConstants, members.fields, members.methods,
+                members.constructors));
+        return true;
+    }
+
+    private TypeKind typeKindAt(int i) {
+        if (atWord(i, "class")) {
+            return TypeKind.CLASS;
+        }
+        if (atWord(i, "interface")) {
+            return TypeKind.INTERFACE;
+        }
+        if (atWord(i, "enum")) {
+            return TypeKind.ENUM;
+        }
+        if (at(i, '@') && atWord(i + 1, "interface")) {
+            return TypeKind.ANNOTATION;
+        }
+        // "record" is only a keyword in front of a record header.
+        if (atWord(i, "record") && atIdentifier(i + 1) && (at(i + 2, '(') || at(i + 2, '<'))) {
+            return TypeKind.RECORD;
+        }
+        return null;
+    }
+
+    private void readEnumConstants(List<String> constants) {
+        while (pos < count && !at(pos, '}')) {
+            if (at(pos, ';')) {
+                pos++;
+                return;
+            }
+            int start = pos;
+            try {
+                readModifiers();
+                constants.add(expectIdentifier("an enum constant"));
+                if (at(pos, '(')) {
+                    skipBalanced('(', ')');
+                }
+                if (at(pos, '{')) {
+                    skipBalanced('{', '}');
+                }
+                if (at(pos, ',')) {
+                    pos++;
+                } else if (!at(pos, ';') && !at(pos, '}')) {
+                    throw unreadable("expected ',' or ';' after an enum constant");
+                }
+            } catch (Unreadable e) {
+                recover(start, e);
+                return;
+            }
+        }
+    }
+
+    private void readMembers(String typeName, String fqn, TypeKind kind, Members members) {
+        int bodyStart = pos;
+        while (pos < count && !at(pos, '}')) {
+            int start = pos;
+            try {
+                readMember(typeName, fqn, kind, members);
+            } catch (Unreadable e) {
+                recover(start, e);
+            }
+        }
+        if (pos < count) {
+            pos++;
+        } else {
+            problem(bodyStart, "unterminated body of " + typeName);
+        }
+    }
+
+    private void readMember(String typeName, String fqn, TypeKind kind, Members members) {
+        if (at(pos, ';')) {
+            pos++;
+            return;
+        }
+        Modifiers modifiers = readModifiers();
+        if (at(pos, '{')) {
+            // Instance or static initializer.
+            skipBalanced('{', '}');
+            return;
+        }
+        if (readTypeDeclaration(modifiers, fqn, fqn)) {
+            return;
+        }
+        List<TypeParameter> typeParameters = at(pos, '<') ? readTypeParameters() : List.of();
+        if (atWord(pos, typeName) && (at(pos + 1, '(') || (kind == TypeKind.RECORD && at(pos + 1, '{')))) {
+            pos++;
+            if (at(pos, '{')) {
+                // Compact canonical constructor of a record.
+                skipBalanced('{', '}');
+                return;
+            }
+            List<Parameter> parameters = readParameters();
+            List<TypeRef> thrownTypes = readThrows();
+            skipBody();
+            // Record constructors are not part of the model, as in TypeVisitor.
+            if (kind != TypeKind.RECORD) {
+                members.constructors.add(new Method(typeName, null, modifiers, typeParameters, parameters,
+                        thrownTypes, null));
+            }
+            return;
+        }
+
+        TypeRef type = readType();
+        String name = expectIdentifier("a member name");
+        if (at(pos, '(')) {
+            List<Parameter> parameters = readParameters();
+            type = type.withDimensions(readDimensions());
+            List<TypeRef> thrownTypes = readThrows();
+            String defaultValue = null;
+            if (atWord(pos, "default")) {
+                pos++;
+                int from = pos;
+                skipValue();
+                defaultValue = render(from, pos);
+            }
+            skipBody();
+            members.methods.add(new Method(name, type, modifiers, typeParameters, parameters, thrownTypes,
+                    defaultValue));
+            return;
+        }
+        if (!typeParameters.isEmpty()) {
+            throw unreadable("type parameters on field " + name);
+        }
+        readFieldDeclarators(type, name, modifiers, members.fields);
+    }
+
+    private void readFieldDeclarators(TypeRef type, String firstName, Modifiers modifiers, List<Field> fields) {
+        String name = firstName;
+        while (true) {
+            TypeRef fieldType = type.withDimensions(readDimensions());
+            String initializer = null;
+            if (at(pos, '=')) {
+                pos++;
+                int from = pos;
+                skipValue();
+                initializer = render(from, pos);
+            }
+            fields.add(new Field(name, fieldType, modifiers, initializer));
+            if (!at(pos, ',')) {
+                expect(';');
+                return;
+            }
+            pos++;
+            name = expectIdentifier("a field name");
+        }
+    }
+
+    private Modifiers readModifiers() {
+        int flags = 0;
+        List<Annotation> annotations = List.of();
+        while (pos < count) {
+            if (at(pos, '@') && !atWord(pos + 1, "interface")) {
+                if (annotations.isEmpty()) {
+                    annotations = new ArrayList<>(2);
+                }
+                annotations.add(readAnnotation());
+                continue;
+            }
+            if (atWord(pos, "non") && at(pos + 1, '-') && atWord(pos + 2, "sealed")) {
+                flags |= NON_SEALED;
+                pos += 3;
+                continue;
+            }
+            int flag = modifierFlag(pos);
+            if (flag == 0) {
+                break;
+            }
+            flags |= flag;
+            pos++;
+        }
+        return new Modifiers(flags, annotations);
+    }
+
+    private int modifierFlag(int i) {
+        if (!atIdentifier(i)) {
+            return 0;
+        }
+        int length = ends[i] - starts[i];
+        if (length < 5 || length > 12 || !Character.isLowerCase(source.charAt(starts[i]))) {
+            return 0;
+        }
+        return switch (text(i)) {
+            case "public" -> PUBLIC;
+            case "protected" -> PROTECTED;
+            case "private" -> PRIVATE;
+            case "static" -> STATIC;
+            case "abstract" -> ABSTRACT;
+            case "final" -> FINAL;
+            case "native" -> NATIVE;
+            case "synchronized" -> SYNCHRONIZED;
+            case "transient" -> TRANSIENT;
+            case "volatile" -> VOLATILE;
+            case "strictfp" -> STRICTFP;
+            case "default" -> DEFAULT;
+            case "sealed" -> SEALED;
+            default -> 0;
+        };
+    }
+
+    private Annotation readAnnotation() {
+        pos++;
+        String name = readQualifiedName();
+        if (!at(pos, '(')) {
+            return new Annotation(name, List.of());
+        }
+        int open = pos;
+        skipBalanced('(', ')');
+        return new Annotation(name, annotationValues(open + 1, pos - 1));
+    }
+
+    /**
+     * Renders annotation arguments the way {@link TypeVisitor} lists them:
+     * one {@code name = value} entry per pair, or the single value.
+     */
+    private List<String> annotationValues(int from, int to) {
+        if (from >= to) {
+            return List.of();
+        }
+        if (!(atIdentifier(from) && at(from + 1, '=') && !at(from + 2, '='))) {
+            return List.of(render(from, to));
+        }
+        List<String> values = new ArrayList<>();
+        int depth = 0;
+        int segment = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || (depth == 0 && at(i, ','))) {
+                values.add(text(segment) + " = " + render(segment + 2, i));
+                segment = i + 1;
+            } else if (at(i, '(') || at(i, '{') || at(i, '[')) {
+                depth++;
+            } else if (at(i, ')') || at(i, '}') || at(i, ']')) {
+                depth--;
+            }
+        }
+        return values;
+    }
+
+    private List<TypeParameter> readTypeParameters() {
+        expect('<');
+        List<TypeParameter> parameters = new ArrayList<>();
+        while (true) {
+            skipTypeAnnotations();
+            String name = expectIdentifier("a type parameter");
+            List<TypeRef> bounds = List.of();
+            if (atWord(pos, "extends")) {
+                pos++;
+                bounds = new ArrayList<>();
+                bounds.add(readType());
+                while (at(pos, '&')) {
+                    pos++;
+                    bounds.add(readType());
+                }
+            }
+            parameters.add(new TypeParameter(name, bounds));
+            if (!at(pos, ',')) {
+                expect('>');
+                return parameters;
+            }
+            pos++;
+        }
+    }
+
+    private List<Parameter> readParameters() {
+        expect('(');
+        List<Parameter> parameters = new ArrayList<>();
+        if (at(pos, ')')) {
+            pos++;
+            return parameters;
+        }
+        while (true) {
+            readModifiers();
+            TypeRef type = readType();
+            skipTypeAnnotations();
+            if (at(pos, '.') && at(pos + 1, '.') && at(pos + 2, '.')) {
+                // Varargs: the parameter type is the element type, as in JavaParser.
+                pos += 3;
+            }
+            String name = expectIdentifier("a parameter name");
+            boolean receiver = name.equals("this");
+            if (at(pos, '.') && atWord(pos + 1, "this")) {
+                pos += 2;
+                receiver = true;
+            }
+            type = type.withDimensions(readDimensions());
+            if (!receiver) {
+                parameters.add(new Parameter(name, type));
+            }
+            if (!at(pos, ',')) {
+                expect(')');
+                return parameters;
+            }
+            pos++;
+        }
+    }
+
+    private List<TypeRef> readThrows() {
+        if (!atWord(pos, "throws")) {
+            return List.of();
+        }
+        pos++;
+        return readTypeList();
+    }
+
+    private List<TypeRef> readTypeList() {
+        List<TypeRef> list = new ArrayList<>(2);
+        list.add(readType());
+        while (at(pos, ',')) {
+            pos++;
+            list.add(readType());
+        }
+        return list;
+    }
+
+    private TypeRef readType() {
+        skipTypeAnnotations();
+        if (pos >= count) {
+            throw unreadable("expected a type");
+        }
+        int offset = starts[pos];
+        if (at(pos, '?')) {
+            pos++;
+            if (atWord(pos, "extends") || atWord(pos, "super")) {
+                String bound = "? " + text(pos);
+                pos++;
+                return new TypeRef(bound, List.of(readType()), 0, offset);
+            }
+            return new TypeRef(TypeRef.WILDCARD, List.of(), 0, offset);
+        }
+        StringBuilder name = new StringBuilder(expectIdentifier("a type"));
+        List<TypeRef> arguments = List.of();
+        while (true) {
+            if (at(pos, '<')) {
+                arguments = readTypeArguments();
+            }
+            if (!at(pos, '.') || at(pos + 1, '.')) {
+                break;
+            }
+            pos++;
+            skipTypeAnnotations();
+            name.append('.').append(expectIdentifier("a type"));
+            arguments = List.of();
+        }
+        return new TypeRef(name.toString(), arguments, readDimensions(), offset);
+    }
+
+    private List<TypeRef> readTypeArguments() {
+        expect('<');
+        if (at(pos, '>')) {
+            pos++;
+            return List.of();
+        }
+        List<TypeRef> arguments = new ArrayList<>(2);
+        while (true) {
+            arguments.add(readType());
+            if (!at(pos, ',')) {
+                expect('>');
+                return arguments;
+            }
+            pos++;
+        }
+    }
+
+    private int readDimensions() {
+        int dimensions = 0;
+        while (true) {
+            skipTypeAnnotations();
+            if (!(at(pos, '[') && at(pos + 1, ']'))) {
+                return dimensions;
+            }
+            pos += 2;
+            dimensions++;
+        }
+    }
+
+    private void skipTypeAnnotations() {
+        while (at(pos, '@') && !atWord(pos + 1, "interface")) {
+            readAnnotation();
+        }
+    }
+
+    private String readQualifiedName() {
+        StringBuilder name = new StringBuilder(expectIdentifier("a name"));
+        while (at(pos, '.') && atIdentifier(pos + 1)) {
+            pos++;
+            name.append('.').append(text(pos++));
+        }
+        return name.toString();
+    }
+
+    // ---------------------------------------------------------------------
+    // Skipping and recovery
+    // ---------------------------------------------------------------------
+
+    /** Skips a method or constructor body, or the {@code ;} of one without. */
+    private void skipBody() {
+        if (at(pos, '{')) {
+            skipBalanced('{', '}');
+        } else {
+            expect(';');
+        }
+    }
+
+    /** Skips from an opening bracket past its matching closing bracket. */
+    private void skipBalanced(char open, char close) {
+        int depth = 0;
+        while (pos < count) {
+            int kind = kinds[pos++];
+            if (kind == open) {
+                depth++;
+            } else if (kind == close && --depth == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skips an initializer or default value, up to the {@code ,}, {@code ;}
+     * or closing bracket that ends it.
+     *
+     * <p>
+     * Commas inside type arguments ({@code new HashMap<K, V>()}) do not end
+     * the value. A {@code <} only counts as opening type arguments after a
+     * capitalized name or a {@code .}; a comparison with a constant can
+     * therefore swallow the declarators after it, which only loses those
+     * fields.
+     */
+    private void skipValue() {
+        int depth = 0;
+        int angles = 0;
+        while (pos < count) {
+            int kind = kinds[pos];
+            if (kind == '(' || kind == '[' || kind == '{') {
+                depth++;
+            } else if (kind == ')' || kind == ']' || kind == '}') {
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+            } else if (kind == '<' && pos > 0 && (kinds[pos - 1] == '.' || (kinds[pos - 1] == IDENTIFIER
+                    && Character.isUpperCase(source.charAt(starts[pos - 1]))))) {
+                angles++;
+            } else if (kind == '>' && angles > 0) {
+                angles--;
+            } else if (depth == 0 && (kind == ';' || (kind == ',' && angles == 0))) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void skipPast(char symbol) {
+        while (pos < count && kinds[pos++] != symbol) {
+            // Skip.
+        }
+    }
+
+    /**
+     * Records a problem and skips the declaration it occurred in, up to the
+     * next {@code ;} or balanced block, without consuming the {@code }} that
+     * closes the enclosing body.
+     */
+    private void recover(int start, Unreadable error) {
+        problem(Math.min(pos, count - 1), error.getMessage());
+        while (pos < count) {
+            int kind = kinds[pos];
+            if (kind == ';') {
+                pos++;
+                return;
+            }
+            if (kind == '{') {
+                skipBalanced('{', '}');
+                return;
+            }
+            if (kind == '}') {
+                if (pos == start) {
+                    // A stray closing brace: consume it to make progress.
+                    pos++;
+                }
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void problem(int token, String message) {
+        problems.add(new Problem(token >= 0 ? starts[token] : 0, message));
+    }
+
+    private Unreadable unreadable(String message) {
+        String found = pos < count ? "'" + text(pos) + "'" : "end of file";
+        return new Unreadable(message + ", found " + found);
+    }
+
+    // ---------------------------------------------------------------------
+    // Token access
+    // ---------------------------------------------------------------------
+
+    private boolean at(int i, char symbol) {
+        return i < count && kinds[i] == symbol;
+    }
+
+    private boolean atIdentifier(int i) {
+        return i < count && kinds[i] == IDENTIFIER;
+    }
+
+    private boolean atWord(int i, String word) {
+        return atIdentifier(i) && ends[i] - starts[i] == word.length()
+                && source.startsWith(word, starts[i]);
+    }
+
+    private String text(int i) {
+        return source.substring(starts[i], ends[i]);
+    }
+
+    private void expect(char symbol) {
+        if (!at(pos, symbol)) {
+            throw unreadable("expected '" + symbol + "'");
+        }
+        pos++;
+    }
+
+    private String expectIdentifier(String what) {
+        if (!atIdentifier(pos)) {
+            throw unreadable("expected " + what);
+        }
+        return text(pos++);
+    }
+
+    /**
+     * Renders tokens {@code [from, to)} as written, with single spaces where
+     * the source has whitespace or comments between them.
+     */
+    private String render(int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            if (i > from && starts[i] > ends[i - 1]) {
+                sb.append(' ');
+            }
+            sb.append(source, starts[i], ends[i]);
+        }
+        return sb.toString();
+    }
+
+    /** Thrown to abandon a declaration that cannot be read. */
+    private static final class Unreadable extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unreadable(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private static final class Members {
+        private final List<String> enumConstants = new ArrayList<>();
+        private final List<Field> fields = new ArrayList<>();
+        private final List<Method> methods = new ArrayList<>();
+        private final List<Method> constructors = new ArrayList<>();
+    }
+
+    // ---------------------------------------------------------------------
+    // Results
+    // ---------------------------------------------------------------------
+
+    /**
+     * Declarations of one source file.
+     *
+     * @param packageName declared package, empty for the default package
+     * @param types       declared types, outer types before nested ones
+     * @param problems    declarations that could not be read
+     * @param lineStarts  offset of each line, for {@link #position(int)}
+     */
+    record ScannedFile(String packageName, List<Import> imports, List<ScannedType> types, List<Problem> problems,
+            int[] lineStarts) {
+
+        /**
+         * Describes a source offset the way JavaParser prints positions.
+         *
+         * @param offset character offset in the source
+         * @return e.g. {@code (line 3,col 5)}
+         */
+        String position(int offset) {
+            int line = Arrays.binarySearch(lineStarts, offset);
+            if (line < 0) {
+                line = -line - 2;
+            }
+            return "(line " + (line + 1) + ",col " + (offset - lineStarts[line] + 1) + ")";
+        }
+    }
+
+    record Import(String name, boolean isStatic, boolean onDemand) {
+    }
+
+    record Problem(int offset, String message) {
+    }
+
+    record Annotation(String name, List<String> values) {
+    }
+
+    /**
+     * Modifier keywords, as flags, and annotations of a declaration.
+     */
+    record Modifiers(int flags, List<Annotation> annotations) {
+
+        /** Returns whether any of the given flags is set. */
+        boolean has(int flag) {
+            return (flags & flag) != 0;
+        }
+
+        /**
+         * Returns the visibility written on the declaration; like
+         * {@link TypeVisitor}, implicit visibility counts as package.
+         */
+        Visibility visibility() {
+            if (has(PUBLIC)) {
+                return Visibility.PUBLIC;
+            }
+            if (has(PROTECTED)) {
+                return Visibility.PROTECTED;
+            }
+            return has(PRIVATE) ? Visibility.PRIVATE : Visibility.PACKAGE;
+        }
+    }
+
+    /**
+     * A type as written.
+     *
+     * @param name       dotted name; {@code ?}, {@code ? extends} or
+     *                   {@code ? super} for wildcards
+     * @param arguments  type arguments, or the bound of a wildcard
+     * @param dimensions array dimensions
+     * @param offset     source offset, for warnings
+     */
+    record TypeRef(String name, List<TypeRef> arguments, int dimensions, int offset) {
+
+        static final String WILDCARD = "?";
+
+        boolean isWildcard() {
+            return name.charAt(0) == '?';
+        }
+
+        TypeRef withDimensions(int extra) {
+            return extra == 0 ? this : new TypeRef(name, arguments, dimensions + extra, offset);
+        }
+
+        /**
+         * Renders the type as JavaParser prints it, e.g.
+         * {@code Map<String, ? extends Item>[]}.
+         */
+        String asWritten() {
+            StringBuilder sb = new StringBuilder(name);
+            if (isWildcard()) {
+                if (!arguments.isEmpty()) {
+                    sb.append(' ').append(arguments.getFirst().asWritten());
+                }
+                return sb.toString();
+            }
+            if (!arguments.isEmpty()) {
+                sb.append('<');
+                for (int i = 0; i < arguments.size(); i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(arguments.get(i).asWritten());
+                }
+                sb.append('>');
+            }
+            return sb.append("[]".repeat(dimensions)).toString();
+        }
+    }
+
+    record TypeParameter(String name, List<TypeRef> bounds) {
+    }
+
+    record Parameter(String name, TypeRef type) {
+    }
+
+    record Field(String name, TypeRef type, Modifiers modifiers, String initializer) {
+    }
+
+    /**
+     * A method, constructor or annotation member.
+     *
+     * @param returnType   null for constructors
+     * @param defaultValue default value of an annotation member, as written
+     */
+    record Method(String name, TypeRef returnType, Modifiers modifiers, List<TypeParameter> typeParameters,
+            List<Parameter> parameters, List<TypeRef> thrownTypes, String defaultValue) {
+    }
+
+    /**
+     * A type declaration.
+     *
+     * @param qualifiedName      dotted name, e.g. {@code com.example.Outer.Inner}
+     * @param outerQualifiedName qualified name of the enclosing type, null when
+     *                           top-level
+     * @param recordComponents   components of a record
+     * @param enumConstants      constant names of an enum
+     */
+    record ScannedType(String name, String qualifiedName, String outerQualifiedName, TypeKind kind,
+            Modifiers modifiers, List<TypeParameter> typeParameters, List<TypeRef> extendedTypes,
+            List<TypeRef> implementedTypes, List<Parameter> recordComponents, List<String> enumConstants,
+            List<Field> fields, List<Method> methods, List<Method> constructors) {
+    }
+}
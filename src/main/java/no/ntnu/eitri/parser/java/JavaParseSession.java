@@ -0,0 +1,395 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.config.RunConfig;
+import no.ntnu.eitri.model.UmlField;
+import no.ntnu.eitri.model.UmlGeneric;
+import no.ntnu.eitri.model.UmlMethod;
+import no.ntnu.eitri.model.UmlModel;
+import no.ntnu.eitri.model.UmlParameter;
+import no.ntnu.eitri.model.UmlType;
+import no.ntnu.eitri.parser.ParseContext;
+import no.ntnu.eitri.parser.ParseException;
+import no.ntnu.eitri.parser.ParseFragment;
+import no.ntnu.eitri.parser.ParseSession;
+import no.ntnu.eitri.parser.java.JavaParserFactory.SessionParser;
+import no.ntnu.eitri.parser.java.JavaSourceParser.FileParseResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental parse session for {@link JavaSourceParser}.
+ *
+ * <p>
+ * The session keeps the per-file {@link ParseFragment}s of the last parse and
+ * a symbol solver whose jar and source caches survive between updates and,
+ * for tiered or lexical type resolution, the index of declared types, which
+ * each update rescans for the files it revisits. An update re-walks the source paths,
+ * revisits only files that were added, reported as changed, or whose size or
+ * modification time differs, and then replays all fragments in source order
+ * into a fresh context before relation detection, exactly like a full parse.
+ *
+ * <p>
+ * Fragments store names already resolved against other files, so a few
+ * unchanged files are revisited too: files that mention a type that was
+ * removed elsewhere, and files that mention the simple name of a type that
+ * was added elsewhere without having resolved it.
+ *
+ * <p>
+ * Fragments that an update replaces are remembered by content key. When a
+ * file later changes back to content seen before (a revert, or an older
+ * revision in history mode), the remembered fragment is reused instead of
+ * parsing again, unless the set of declared types has since changed in a way
+ * that fragment mentions.
+ */
+final class JavaParseSession implements ParseSession {
+
+    private static final Logger LOGGER = Logger.getLogger(JavaParseSession.class.getName());
+    private static final int REMEMBERED_CONTENT_LIMIT = 4096;
+
+    private final JavaSourceParser parser;
+    private final List<Path> sourcePaths;
+    private final RunConfig runConfig;
+    private final JavaParserFactory parserFactory;
+    private final Map<Path, FileParseResult> results;
+    private final Map<Path, FileStamp> stamps = new HashMap<>();
+    private final Map<String, Remembered> remembered = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Remembered> eldest) {
+            return size() > REMEMBERED_CONTENT_LIMIT;
+        }
+    };
+    private Set<String> knownTypes;
+    private SessionParser sessionParser;
+    private List<Path> javaFiles;
+    private UmlModel model;
+
+    JavaParseSession(JavaSourceParser parser, List<Path> sourcePaths, RunConfig runConfig,
+            JavaParserFactory parserFactory, List<Path> javaFiles, Map<Path, FileParseResult> results,
+            UmlModel model) {
+        this.parser = parser;
+        this.sourcePaths = List.copyOf(sourcePaths);
+        this.runConfig = runConfig;
+        this.parserFactory = parserFactory;
+        this.javaFiles = List.copyOf(javaFiles);
+        this.results = new HashMap<>(results);
+        this.model = model;
+        for (Path javaFile : javaFiles) {
+            stamps.put(javaFile, FileStamp.of(javaFile));
+        }
+        this.knownTypes = declaredTypes(this.results.keySet());
+    }
+
+    @Override
+    public UmlModel model() {
+        return model;
+    }
+
+    @Override
+    public synchronized UmlModel update(Set<Path> changedPaths) throws ParseException {
+        parser.clearRunReports();
+        List<Path> currentFiles = parser.collectJavaFiles(sourcePaths, runConfig.sourceFilter());
+        Set<Path> hinted = normalize(changedPaths);
+
+        Set<Path> toVisit = new LinkedHashSet<>();
+        Map<Path, FileStamp> currentStamps = new HashMap<>();
+        for (Path javaFile : currentFiles) {
+            FileStamp stamp = FileStamp.of(javaFile);
+            currentStamps.put(javaFile, stamp);
+            if (!results.containsKey(javaFile)
+                    || !stamp.equals(stamps.get(javaFile))
+                    || hinted.contains(javaFile.toAbsolutePath().normalize())) {
+                toVisit.add(javaFile);
+            }
+        }
+        Set<Path> removed = new LinkedHashSet<>(javaFiles);
+        removed.removeAll(currentStamps.keySet());
+
+        if (toVisit.isEmpty() && removed.isEmpty()) {
+            return model;
+        }
+
+        Set<Path> stale = union(toVisit, removed);
+        Set<String> typesBefore = declaredTypes(stale);
+        remember(stale);
+        if (sessionParser == null) {
+            sessionParser = parserFactory.newSessionParser();
+        }
+        // A new parser's source index still describes the files of the full parse.
+        sessionParser.invalidate(stale);
+        for (Path file : removed) {
+            results.remove(file);
+            stamps.remove(file);
+        }
+        DeclaredTypeIndex declaredTypes = parserFactory.declaredTypes();
+        if (declaredTypes != null) {
+            declaredTypes.refresh(toVisit, removed);
+        }
+        Map<Path, Remembered> reused = visit(List.copyOf(toVisit), currentStamps, true);
+        Set<String> typesAfter = declaredTypes(toVisit);
+        Set<String> allTypes = declaredTypes(results.keySet());
+
+        List<Path> outdated = outdatedReuses(reused, allTypes);
+        if (!outdated.isEmpty()) {
+            visit(outdated, currentStamps, false);
+        }
+        Set<Path> dependents = dependentsOf(typesBefore, typesAfter, toVisit);
+        if (!dependents.isEmpty()) {
+            visit(List.copyOf(dependents), currentStamps, false);
+        }
+        knownTypes = allTypes;
+
+        if (runConfig.verbose()) {
+            LOGGER.log(Level.INFO, "Revisited {0} changed and {1} dependent file(s), {2} removed, {3} reused",
+                    new Object[] { toVisit.size(), dependents.size(), removed.size(),
+                            reused.size() - outdated.size() });
+        }
+
+        javaFiles = List.copyOf(currentFiles);
+        ParseContext context = new ParseContext(runConfig.verbose());
+        for (Path javaFile : javaFiles) {
+            parser.mergeFileResult(results.get(javaFile), context);
+        }
+        model = parser.buildModel(context, runConfig, parserFactory);
+        return model;
+    }
+
+    @Override
+    public void close() {
+        results.clear();
+        remembered.clear();
+        sessionParser = null;
+    }
+
+    /**
+     * Visits files, optionally taking fragments of remembered content instead
+     * of parsing.
+     *
+     * @return the remembered entries that were reused, by file
+     */
+    private Map<Path, Remembered> visit(List<Path> files, Map<Path, FileStamp> currentStamps,
+            boolean reuseRemembered) throws ParseException {
+        Map<Path, Remembered> reused = new LinkedHashMap<>();
+        try (SourceReadAhead readAhead = SourceReadAhead.start(files, runConfig.parseOptions().readAheadBytes())) {
+            for (int i = 0; i < files.size(); i++) {
+                SourceReadAhead.SourceText source = readAhead.take(i);
+                String contentKey = source.error() == null ? JavaSourceParser.contentKey(source.text()) : null;
+                Remembered previous = reuseRemembered && contentKey != null ? remembered.get(contentKey) : null;
+                FileParseResult result;
+                if (previous != null) {
+                    result = new FileParseResult(source.file(), previous.fragment(), true, null, contentKey, 0L);
+                    reused.put(source.file(), previous);
+                } else {
+                    result = parser.parseFile(source, sessionParser.parser(), parserFactory.lexicalResolver(), null,
+                            null, contentKey, runConfig);
+                }
+                results.put(result.javaFile(), result);
+                stamps.put(result.javaFile(), currentStamps.get(result.javaFile()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException("Interrupted while reading source files", e);
+        }
+        return reused;
+    }
+
+    /**
+     * Remembers the current fragments of files about to be replaced or
+     * removed, together with the declared types they were resolved against.
+     */
+    private void remember(Set<Path> files) {
+        for (Path file : files) {
+            FileParseResult result = results.get(file);
+            if (result != null && result.isClean() && result.contentKey() != null) {
+                remembered.put(result.contentKey(), new Remembered(result.fragment(), knownTypes));
+            }
+        }
+    }
+
+    /**
+     * Finds reused fragments that may have resolved differently against the
+     * current declared types than against the ones they were visited with.
+     */
+    private List<Path> outdatedReuses(Map<Path, Remembered> reused, Set<String> allTypes) {
+        Map<Set<String>, TypeChanges> changesByTypes = new IdentityHashMap<>();
+        List<Path> outdated = new ArrayList<>();
+        for (Map.Entry<Path, Remembered> entry : reused.entrySet()) {
+            Set<String> typesAtVisit = entry.getValue().typesAtVisit();
+            TypeChanges changes = changesByTypes.computeIfAbsent(typesAtVisit,
+                    types -> TypeChanges.between(types, allTypes));
+            if (changes.affects(entry.getValue().fragment())) {
+                outdated.add(entry.getKey());
+            }
+        }
+        return outdated;
+    }
+
+    private Set<String> declaredTypes(Set<Path> files) {
+        Set<String> fqns = new LinkedHashSet<>();
+        for (Path file : files) {
+            FileParseResult result = results.get(file);
+            if (result != null) {
+                result.fragment().getTypes().forEach(type -> fqns.add(type.getFqn()));
+            }
+        }
+        return fqns;
+    }
+
+    /**
+     * Finds unchanged files whose visit may have resolved differently had the
+     * types added or removed by this update existed (or not) at the time.
+     */
+    private Set<Path> dependentsOf(Set<String> typesBefore, Set<String> typesAfter, Set<Path> visited) {
+        TypeChanges changes = TypeChanges.between(typesBefore, typesAfter);
+        if (changes.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<Path> dependents = new LinkedHashSet<>();
+        for (Map.Entry<Path, FileParseResult> entry : results.entrySet()) {
+            if (!visited.contains(entry.getKey()) && changes.affects(entry.getValue().fragment())) {
+                dependents.add(entry.getKey());
+            }
+        }
+        return dependents;
+    }
+
+    // Substring matching over-approximates (com.example.Foo also matches
+    // com.example.FooBar); that only costs an extra revisit.
+    private static boolean mentionsAny(List<String> references, Set<String> fqns) {
+        for (String reference : references) {
+            for (String fqn : fqns) {
+                if (reference.contains(fqn)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean mentionsUnqualified(List<String> references, List<Pattern> patterns) {
+        for (String reference : references) {
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(reference).find()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches the simple name of {@code fqn} where it is not part of a
+     * qualified name, i.e. where the visitor fell back to the source text.
+     */
+    private static Pattern unqualifiedNamePattern(String fqn) {
+        String simpleName = fqn.substring(Math.max(fqn.lastIndexOf('.'), fqn.lastIndexOf('$')) + 1);
+        return Pattern.compile("(?<![\\w.$])" + Pattern.quote(simpleName) + "(?![\\w$])");
+    }
+
+    private static List<String> typeReferences(ParseFragment fragment) {
+        List<String> references = new ArrayList<>();
+        for (ParseFragment.Operation operation : fragment.operations()) {
+            switch (operation) {
+                case ParseFragment.TypeAdded(UmlType type) -> {
+                    type.getGenerics().stream().map(UmlGeneric::bounds).forEach(references::add);
+                    type.getFields().stream().map(UmlField::getType).forEach(references::add);
+                    for (UmlMethod method : type.getMethods()) {
+                        references.add(method.getReturnType());
+                        method.getParameters().stream().map(UmlParameter::type).forEach(references::add);
+                        references.addAll(method.getThrownExceptions());
+                    }
+                }
+                case ParseFragment.RelationAdded(var relation) -> references.add(relation.getToTypeFqn());
+                case ParseFragment.InheritancePending(var pending) -> references.add(pending.toFqn());
+                case ParseFragment.WarningAdded(String warning) -> references.add(warning);
+                case ParseFragment.SourcePackageAdded _ -> {
+                    // Not a type reference.
+                }
+            }
+        }
+        references.removeIf(Objects::isNull);
+        return references;
+    }
+
+    private static Set<Path> normalize(Set<Path> paths) {
+        Set<Path> normalized = new LinkedHashSet<>();
+        for (Path path : paths) {
+            normalized.add(path.toAbsolutePath().normalize());
+        }
+        return normalized;
+    }
+
+    private static Set<Path> union(Set<Path> first, Set<Path> second) {
+        Set<Path> union = new LinkedHashSet<>(first);
+        union.addAll(second);
+        return union;
+    }
+
+    /**
+     * A replaced fragment and the declared types it was resolved against.
+     */
+    private record Remembered(ParseFragment fragment, Set<String> typesAtVisit) {
+    }
+
+    /**
+     * Types that disappeared or appeared between two states of the source
+     * set.
+     */
+    private record TypeChanges(Set<String> removedTypes, List<Pattern> unqualifiedAdded) {
+
+        static TypeChanges between(Set<String> before, Set<String> after) {
+            Set<String> removedTypes = new LinkedHashSet<>(before);
+            removedTypes.removeAll(after);
+            List<Pattern> unqualifiedAdded = after.stream()
+                    .filter(fqn -> !before.contains(fqn))
+                    .map(JavaParseSession::unqualifiedNamePattern)
+                    .toList();
+            return new TypeChanges(removedTypes, unqualifiedAdded);
+        }
+
+        boolean isEmpty() {
+            return removedTypes.isEmpty() && unqualifiedAdded.isEmpty();
+        }
+
+        boolean affects(ParseFragment fragment) {
+            if (isEmpty()) {
+                return false;
+            }
+            List<String> references = typeReferences(fragment);
+            return mentionsAny(references, removedTypes) || mentionsUnqualified(references, unqualifiedAdded);
+        }
+    }
+
+    /**
+     * Size and modification time of a source file, used to spot edits the
+     * watcher did not report.
+     */
+    private record FileStamp(long size, long modifiedNanos) {
+
+        static FileStamp of(Path file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new FileStamp(attributes.size(),
+                        attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+            } catch (IOException _) {
+                return new FileStamp(-1, -1);
+            }
+        }
+    }
+}
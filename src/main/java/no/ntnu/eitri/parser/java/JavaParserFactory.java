@@ -0,0 +1,516 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import no.ntnu.eitri.config.TypeResolution;
+import no.ntnu.eitri.parser.SolverCacheReport;
+import no.ntnu.eitri.parser.resolution.ResolutionTierCounter;
+import no.ntnu.eitri.parser.resolution.TypeResolutionStats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates configured {@link JavaParser} instances, each with its own symbol
+ * solver.
+ *
+ * <p>
+ * JavaParser's type solvers and the facade caches behind them are not safe to
+ * share between threads, so every parse worker gets a private parser built
+ * from the same discovered source roots and jars. Discovery itself (walking
+ * build files, listing jar packages) happens once, when the factory is
+ * created; a worker opens a jar only when it looks up a name in one of the
+ * jar's packages.
+ *
+ * <p>
+ * All source roots are searched through one {@link SourceTypeIndex}, walked
+ * when the factory is created and shared by every parser. Each parser parses
+ * the files it looks types up in, and reuses the units it has visited, on
+ * its own.
+ *
+ * <p>
+ * Where the parsed modules have been built, their compiled output
+ * directories are searched ahead of the source roots, so a type is read from
+ * its class file and its source is only parsed when no class file exists.
+ * Every parser counts the declarations it takes from each kind of solver in a
+ * {@link DeclarationSourceCounter} shared by the factory.
+ *
+ * <p>
+ * A {@linkplain #lexical(DeclaredTypeIndex) lexical} factory creates parsers
+ * without a symbol solver and hands out a {@link LexicalTypeResolver} over
+ * the declared types of the sources instead. A tiered factory hands out both:
+ * a strict lexical resolver for the cheap tiers, and a symbol solver for the
+ * names they leave open.
+ *
+ * <p>
+ * The caches behind every solver a factory creates, JavaParser's and Eitri's
+ * alike, come from one {@link SolverCaches}, which bounds them and counts how
+ * they are used.
+ */
+final class JavaParserFactory {
+
+    // Jar problems are reported under the parser's logger, where users already look for them.
+    private static final Logger LOGGER = Logger.getLogger(JavaSourceParser.class.getName());
+
+    private final List<Path> sourceRoots;
+    private final List<Path> classOutputs;
+    private final JarPackageIndex jarIndex;
+    private final ClassLoader classLoader;
+    private final TypeResolution resolution;
+    private final DeclaredTypeIndex declaredTypes;
+    private final SourceTypeIndex sourceIndex;
+    private final SolverCaches solverCaches;
+    private final ResolutionTierCounter tiers = new ResolutionTierCounter();
+    private final DeclarationSourceCounter declarationSources = new DeclarationSourceCounter();
+
+    private JavaParserFactory(List<Path> sourceRoots, List<Path> classOutputs, JarPackageIndex jarIndex,
+            ClassLoader classLoader, TypeResolution resolution, DeclaredTypeIndex declaredTypes,
+            SourceTypeIndex sourceIndex, SolverCaches solverCaches) {
+        this.sourceRoots = List.copyOf(sourceRoots);
+        this.classOutputs = List.copyOf(classOutputs);
+        this.jarIndex = jarIndex;
+        this.classLoader = classLoader;
+        this.resolution = resolution;
+        this.declaredTypes = declaredTypes;
+        this.sourceIndex = sourceIndex;
+        this.solverCaches = solverCaches;
+    }
+
+    /**
+     * Creates a factory, dropping jars whose entries cannot be listed and
+     * those holding none of {@code referencedPackages}. Jars are only opened
+     * when a lookup is routed to one of their packages. The factory resolves
+     * types tiered when a declared-type index is given, and with the symbol
+     * solver alone otherwise.
+     *
+     * @param sourceRoots        source roots to index for the symbol solver
+     * @param classOutputs       compiled output directories for
+     *                           {@link ClassOutputTypeSolver}s
+     * @param jarPaths           candidate dependency jars
+     * @param declaredTypes      types declared by the parsed sources, or null
+     *                           to resolve every name with the symbol solver
+     * @param jarCache           jar listings of earlier runs
+     * @param solverCaches       bounds of the solver caches, which count their
+     *                           use
+     * @param referencedPackages packages the sources refer to, or null to
+     *                           keep every jar
+     * @return a factory holding only usable solver inputs
+     */
+    static JavaParserFactory create(Set<Path> sourceRoots, Set<Path> classOutputs, Set<Path> jarPaths,
+            DeclaredTypeIndex declaredTypes, JarIndexCache jarCache, SolverCaches solverCaches,
+            Set<String> referencedPackages) {
+        JarPackageIndex jarIndex = JarPackageIndex.build(jarPaths, jarCache, referencedPackages);
+        for (Path jarPath : jarIndex.skipped()) {
+            LOGGER.log(Level.WARNING, "Failed to add jar type solver for: {0}", jarPath);
+        }
+        return new JavaParserFactory(new ArrayList<>(sourceRoots), new ArrayList<>(classOutputs), jarIndex,
+                Thread.currentThread().getContextClassLoader(),
+                declaredTypes != null ? TypeResolution.TIERED : TypeResolution.SOLVER, declaredTypes,
+                SourceTypeIndex.build(sourceRoots), solverCaches);
+    }
+
+    /**
+     * Creates a factory for lexical type resolution. No source roots or jars
+     * are used, so nothing is discovered or listed.
+     *
+     * @param declaredTypes types declared by the parsed sources
+     * @return a factory whose parsers have no symbol solver
+     */
+    static JavaParserFactory lexical(DeclaredTypeIndex declaredTypes) {
+        return new JavaParserFactory(List.of(), List.of(), JarPackageIndex.build(List.of()), null,
+                TypeResolution.LEXICAL, declaredTypes, null, SolverCaches.unbounded());
+    }
+
+    int jarCount() {
+        return jarIndex.jars().size();
+    }
+
+    /**
+     * Returns the listed jars that were left out because the sources refer
+     * to none of their packages.
+     *
+     * @return pruned jars, in lookup order
+     */
+    List<Path> prunedJars() {
+        return jarIndex.pruned();
+    }
+
+    /**
+     * Returns the jar listings this factory was created with, which record
+     * the jars its parsers failed to open.
+     *
+     * @return the jar index cache
+     */
+    JarIndexCache jarIndexCache() {
+        return jarIndex.cache();
+    }
+
+    /**
+     * Returns how many dependency jars the parsers from this factory have
+     * opened so far, out of {@link #jarCount()}.
+     *
+     * @return distinct jars opened by any worker
+     */
+    int openedJarCount() {
+        return jarIndex.openedCount();
+    }
+
+    int classOutputCount() {
+        return classOutputs.size();
+    }
+
+    /**
+     * Returns the index every parser's symbol solver finds source types in,
+     * each through units of its own.
+     *
+     * @return the index, or null for a lexical factory
+     */
+    SourceTypeIndex sourceIndex() {
+        return sourceIndex;
+    }
+
+    /**
+     * Returns how many declarations the symbol solvers of every parser from
+     * this factory took from each kind of solver so far.
+     *
+     * @return hits by source, or an empty map for a lexical factory
+     */
+    Map<DeclarationSourceCounter.Source, Long> declarationSourceStats() {
+        return resolution != TypeResolution.LEXICAL ? declarationSources.snapshot() : Map.of();
+    }
+
+    /**
+     * Returns how the solver caches of every parser from this factory have
+     * been used so far.
+     *
+     * @return the cache report, or null for a lexical factory
+     */
+    SolverCacheReport solverCacheReport() {
+        return resolution != TypeResolution.LEXICAL ? solverCaches.report() : null;
+    }
+
+    /**
+     * Returns whether workers drop their solver caches every few files. The
+     * parse then keeps no visited unit for the solvers either.
+     *
+     * @return true when a release interval is set
+     */
+    boolean releasesSolverCaches() {
+        return solverCaches.releaseEvery() > 0;
+    }
+
+    /**
+     * Returns the declared-type index of a lexical or tiered factory, which
+     * sessions refresh as files change.
+     *
+     * @return the index, or null when parsers only use the symbol solver
+     */
+    DeclaredTypeIndex declaredTypes() {
+        return declaredTypes;
+    }
+
+    /**
+     * Returns the resolver the visitor tries before, or in place of, the
+     * symbol solver.
+     *
+     * @return a lexical resolver, strict for tiered resolution, or null when
+     *         parsers only use the symbol solver
+     */
+    LexicalTypeResolver lexicalResolver() {
+        return declaredTypes != null
+                ? new LexicalTypeResolver(declaredTypes, resolution == TypeResolution.TIERED, tiers)
+                : null;
+    }
+
+    /**
+     * Returns per-tier resolution statistics of every parser from this
+     * factory so far.
+     *
+     * @return tier statistics, or an empty list when parsers only use the
+     *         symbol solver
+     */
+    List<TypeResolutionStats.TierStats> tierStats() {
+        return declaredTypes != null ? tiers.snapshot() : List.of();
+    }
+
+    /**
+     * Describes the solver inputs for the parse cache: anything here that
+     * changes can change how the visitor resolves type names. Inputs below
+     * {@code root} are named relative to it, and jars there by their content
+     * rather than their modification time, so the fingerprint does not change
+     * when the same files are written to another directory.
+     *
+     * @param root directory whose location is left out, or null
+     * @return fingerprint components in a stable order
+     */
+    List<String> solverFingerprint(Path root) {
+        Path normalizedRoot = root != null ? root.toAbsolutePath().normalize() : null;
+        List<String> components = new ArrayList<>();
+        components.add("language=" + ParserConfiguration.LanguageLevel.JAVA_25);
+        components.add("java.version=" + System.getProperty("java.version"));
+        components.add("java.class.path=" + System.getProperty("java.class.path"));
+        components.add("resolution=" + resolution.id());
+        sourceRoots.stream()
+                .map(sourceRoot -> "root=" + fingerprintPath(sourceRoot, normalizedRoot))
+                .sorted()
+                .forEach(components::add);
+        classOutputs.stream()
+                .map(output -> "classes=" + fingerprintPath(output, normalizedRoot))
+                .sorted()
+                .forEach(components::add);
+        jarIndex.jars().stream()
+                .map(jarPath -> jarFingerprint(jarPath, normalizedRoot))
+                .sorted()
+                .forEach(components::add);
+        return components;
+    }
+
+    private static String fingerprintPath(Path path, Path root) {
+        Path absolute = path.toAbsolutePath().normalize();
+        return root != null && absolute.startsWith(root) ? "@/" + root.relativize(absolute) : absolute.toString();
+    }
+
+    private static String jarFingerprint(Path jarPath, Path root) {
+        Path absolute = jarPath.toAbsolutePath().normalize();
+        String name = "jar=" + fingerprintPath(absolute, root);
+        try {
+            if (root != null && absolute.startsWith(root)) {
+                // Rewritten on every checkout, so the modification time says nothing.
+                return name + "|" + Files.size(absolute) + "|" + contentHash(absolute);
+            }
+            return name + "|" + Files.size(absolute) + "|" + Files.getLastModifiedTime(absolute).toMillis();
+        } catch (IOException _) {
+            return name;
+        }
+    }
+
+    private static String contentHash(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Creates a parser with a fresh symbol solver, or without one for a lexical
+     * factory, for a parse worker, which tells it about every file it visits
+     * so it can drop its solver caches as often as the factory's
+     * {@link SolverCaches} say.
+     *
+     * @return a worker parser that must only be used from one thread at a
+     *         time
+     */
+    WorkerParser newWorkerParser() {
+        if (resolution == TypeResolution.LEXICAL) {
+            return new WorkerParser(newParserWithoutSolver(), List.of(), solverCaches, null);
+        }
+        List<SolverCache<?, ?>> caches = new ArrayList<>();
+        SourceTypeIndex.Units sourceUnits = sourceRoots.isEmpty() ? null : sourceIndex.newUnits();
+        ParserConfiguration parserConfig = new ParserConfiguration()
+                .setSymbolResolver(new JavaSymbolSolver(newTypeSolver(caches, sourceUnits)))
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_25);
+        return new WorkerParser(new JavaParser(parserConfig), caches, solverCaches, sourceUnits);
+    }
+
+    /**
+     * Creates a parser for an incremental parse session. It resolves names
+     * with the same solvers as {@link #newWorkerParser()}, but they are meant
+     * to outlive a single update: the jars and compiled outputs it has opened
+     * keep the class data they have loaded, and the source units it has read
+     * are kept, until {@link SessionParser#invalidate(Collection)} drops what
+     * an update made stale.
+     *
+     * @return a session parser that must only be used from one thread at a
+     *         time, once no worker parser uses this factory any more
+     */
+    SessionParser newSessionParser() {
+        if (resolution == TypeResolution.LEXICAL) {
+            return new SessionParser(newParserWithoutSolver(), List.of(), null);
+        }
+        List<SolverCache<?, ?>> caches = new ArrayList<>();
+        SourceTypeIndex.Units sourceUnits = sourceRoots.isEmpty() ? null : sourceIndex.newUnits();
+        ParserConfiguration parserConfig = new ParserConfiguration()
+                .setSymbolResolver(new JavaSymbolSolver(newTypeSolver(caches, sourceUnits)))
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_25);
+        return new SessionParser(new JavaParser(parserConfig), caches, sourceUnits);
+    }
+
+    private static JavaParser newParserWithoutSolver() {
+        return new JavaParser(new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_25));
+    }
+
+    /**
+     * Creates a worker's solver, adding the caches behind it to
+     * {@code caches}.
+     */
+    private CombinedTypeSolver newTypeSolver(List<SolverCache<?, ?>> caches, SourceTypeIndex.Units sourceUnits) {
+        CombinedTypeSolver typeSolver = newCombinedTypeSolver(caches);
+        // JDK types, read from the jrt:/ image rather than loaded
+        typeSolver.add(count(BytecodeTypeSolver.jdk(newCache(caches)), DeclarationSourceCounter.Source.JDK));
+        // Keep current process classpath visible to the solver. This is important when
+        // Eitri itself is run from a fat jar, because that classpath often already
+        // contains libraries needed to resolve source references.
+        typeSolver.add(count(BytecodeTypeSolver.classLoader(classLoader, newCache(caches)),
+                DeclarationSourceCounter.Source.CLASSPATH));
+
+        if (!classOutputs.isEmpty()) {
+            typeSolver.add(count(new ClassOutputTypeSolver(classOutputs, newCache(caches)),
+                    DeclarationSourceCounter.Source.CLASS_OUTPUT));
+        }
+        if (sourceUnits != null) {
+            typeSolver.add(count(new SourceIndexTypeSolver(sourceUnits, newCache(caches)),
+                    DeclarationSourceCounter.Source.SOURCE));
+        }
+        addJarSolver(typeSolver, caches);
+        return typeSolver;
+    }
+
+    private void addJarSolver(CombinedTypeSolver typeSolver, List<SolverCache<?, ?>> caches) {
+        if (!jarIndex.jars().isEmpty()) {
+            typeSolver.add(count(new RoutingJarTypeSolver(jarIndex, newCache(caches)),
+                    DeclarationSourceCounter.Source.JAR));
+        }
+    }
+
+    private CombinedTypeSolver newCombinedTypeSolver(List<SolverCache<?, ?>> caches) {
+        return new CombinedTypeSolver(CombinedTypeSolver.ExceptionHandlers.IGNORE_NONE, List.of(), newCache(caches));
+    }
+
+    private <K, V> SolverCache<K, V> newCache(List<SolverCache<?, ?>> caches) {
+        SolverCache<K, V> cache = solverCaches.newCache();
+        caches.add(cache);
+        return cache;
+    }
+
+    private TypeSolver count(TypeSolver solver, DeclarationSourceCounter.Source source) {
+        return declarationSources.counting(solver, source);
+    }
+
+    /**
+     * A parse worker's parser, whose solver caches and source units are
+     * dropped every few files when the factory's {@link SolverCaches} set a
+     * release interval. Declarations built from the files visited before then,
+     * and the nodes they point into, can then be collected; jars stay open.
+     */
+    static final class WorkerParser {
+
+        private final JavaParser parser;
+        private final List<SolverCache<?, ?>> caches;
+        private final SolverCaches solverCaches;
+        private final SourceTypeIndex.Units sourceUnits;
+        private int visitedSinceRelease;
+
+        private WorkerParser(JavaParser parser, List<SolverCache<?, ?>> caches, SolverCaches solverCaches,
+                SourceTypeIndex.Units sourceUnits) {
+            this.parser = parser;
+            this.caches = caches;
+            this.solverCaches = solverCaches;
+            this.sourceUnits = sourceUnits;
+        }
+
+        JavaParser parser() {
+            return parser;
+        }
+
+        /**
+         * Returns the units this worker's solver finds source types in, to
+         * share the units it visits with.
+         *
+         * @return the units, or null when the solver has no source roots
+         */
+        SourceTypeIndex.Units sourceUnits() {
+            return sourceUnits;
+        }
+
+        /**
+         * Records that a file was visited, and drops the solver caches once
+         * the release interval is reached.
+         */
+        void visited() {
+            int releaseEvery = solverCaches.releaseEvery();
+            if (releaseEvery == 0 || caches.isEmpty() || ++visitedSinceRelease < releaseEvery) {
+                return;
+            }
+            visitedSinceRelease = 0;
+            for (SolverCache<?, ?> cache : caches) {
+                cache.removeAll();
+            }
+            if (sourceUnits != null) {
+                sourceUnits.clear();
+            }
+            solverCaches.released();
+        }
+    }
+
+    /**
+     * A parser whose symbol solver is kept across session updates.
+     */
+    static final class SessionParser {
+
+        private final JavaParser parser;
+        private final List<SolverCache<?, ?>> caches;
+        private final SourceTypeIndex.Units sourceUnits;
+
+        private SessionParser(JavaParser parser, List<SolverCache<?, ?>> caches, SourceTypeIndex.Units sourceUnits) {
+            this.parser = parser;
+            this.caches = caches;
+            this.sourceUnits = sourceUnits;
+        }
+
+        JavaParser parser() {
+            return parser;
+        }
+
+        /**
+         * Forgets solver state derived from the given files. Their source
+         * units are dropped and the source roots indexed again, since an
+         * added or removed file changes which names resolve at all; type
+         * lookups are dropped entirely.
+         *
+         * @param files source files that were changed, added or removed
+         */
+        void invalidate(Collection<Path> files) {
+            for (SolverCache<?, ?> cache : caches) {
+                cache.removeAll();
+            }
+            if (sourceUnits != null) {
+                // The facade caches resolved types in the nodes it resolved them from, so
+                // the units kept for unchanged files may still point at stale declarations.
+                for (CompilationUnit unit : sourceUnits.refresh(files)) {
+                    forgetResolvedTypes(unit);
+                }
+            }
+        }
+
+        private static void forgetResolvedTypes(CompilationUnit unit) {
+            unit.walk(node -> node.getDataKeys().stream()
+                    .filter(key -> key.getClass().getEnclosingClass() == JavaParserFacade.class)
+                    .toList()
+                    .forEach(node::removeData));
+        }
+    }
+}
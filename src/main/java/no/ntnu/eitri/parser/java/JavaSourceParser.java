@@ -1,37 +1,63 @@
 package no.ntnu.eitri.parser.java;
 
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
 import com.github.javaparser.ParserConfiguration;
-import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.symbolsolver.JavaSymbolSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.ClassLoaderTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import no.ntnu.eitri.config.ParseOptions;
 import no.ntnu.eitri.config.RunConfig;
+import no.ntnu.eitri.config.SourceFilter;
+import no.ntnu.eitri.config.TypeResolution;
 import no.ntnu.eitri.model.UmlModel;
+import no.ntnu.eitri.parser.BuildDiscoveryReport;
+import no.ntnu.eitri.parser.ClasspathPruningReport;
 import no.ntnu.eitri.parser.ParseContext;
 import no.ntnu.eitri.parser.ParseException;
+import no.ntnu.eitri.parser.ParseFragment;
 import no.ntnu.eitri.parser.ParseReport;
+import no.ntnu.eitri.parser.ParseRunReport;
+import no.ntnu.eitri.parser.ParseScheduleReport;
+import no.ntnu.eitri.parser.ParseSession;
+import no.ntnu.eitri.parser.SolverCacheReport;
 import no.ntnu.eitri.parser.SourceParser;
+import no.ntnu.eitri.parser.cache.ParseCache;
 import no.ntnu.eitri.parser.resolution.TypeResolutionStats;
+import no.ntnu.eitri.util.SourceArchives;
 
 import java.io.IOException;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -42,20 +68,32 @@ public class JavaSourceParser implements SourceParser {
 
     private static final String JAVA_EXTENSION = ".java";
     private static final String JAR_EXTENSION = ".jar";
-    private static final String SETTINGS_GRADLE = "settings.gradle";
-    private static final String SETTINGS_GRADLE_KTS = "settings.gradle.kts";
-    private static final String BUILD_GRADLE = "build.gradle";
-    private static final String BUILD_GRADLE_KTS = "build.gradle.kts";
+    private static final String POM_XML = "pom.xml";
+    // Where Maven and Gradle put a module's compiled main classes.
+    private static final List<String> CLASS_OUTPUT_DIRECTORIES = List.of("target/classes", "build/classes/java/main");
     private static final String GLOB_ALL = "*";
     private static final Pattern INCLUDE_QUOTED_MODULE = Pattern.compile("\"([^\"]+)\"");
-    private static final Pattern GRADLE_DEPENDENCY_COORDINATE = Pattern
-            .compile(
-                    "(?:implementation|api|compileOnly|runtimeOnly|testImplementation)\\s*\\(\\s*\"([^\"]+:[^\"]+:[^\"]+)\"\\s*\\)");
-    private static final Pattern GRADLE_PLUGIN_ID = Pattern.compile("id\\(\\s*\"([^\"]+)\"\\s*\\)");
+    private static final Pattern MAVEN_MODULE = Pattern.compile("<module>\\s*([^<]+?)\\s*</module>");
+    private static final Pattern XML_COMMENT = Pattern.compile("<!--.*?-->", Pattern.DOTALL);
+    private static final Pattern MAVEN_DEPENDENCY = Pattern.compile("<dependency>(.*?)</dependency>", Pattern.DOTALL);
+    private static final Pattern MAVEN_DEPENDENCY_MANAGEMENT = Pattern
+            .compile("<dependencyManagement>(.*?)</dependencyManagement>", Pattern.DOTALL);
+    private static final Pattern MAVEN_PROPERTIES = Pattern.compile("<properties>(.*?)</properties>", Pattern.DOTALL);
+    private static final Pattern MAVEN_PROPERTY = Pattern.compile("<([\\w.-]+)>\\s*([^<]*?)\\s*</\\1>");
+    private static final Pattern MAVEN_PROPERTY_REFERENCE = Pattern.compile("\\$\\{([^}]+)}");
+    private static final Pattern MAVEN_GROUP_ID = Pattern.compile("<groupId>\\s*([^<]+?)\\s*</groupId>");
+    private static final Pattern MAVEN_ARTIFACT_ID = Pattern.compile("<artifactId>\\s*([^<]+?)\\s*</artifactId>");
+    private static final Pattern MAVEN_VERSION = Pattern.compile("<version>\\s*([^<]+?)\\s*</version>");
     private static final Logger LOGGER = Logger.getLogger(JavaSourceParser.class.getName());
     private static final String NAME = "JavaParser";
     private static final List<String> EXTENSIONS = List.of(JAVA_EXTENSION);
 
+    private volatile ParseScheduleReport lastScheduleReport;
+    private volatile SolverCacheReport lastSolverCacheReport;
+    private volatile ClasspathPruningReport lastClasspathPruningReport;
+    private volatile BuildDiscoveryReport lastBuildDiscoveryReport;
+    private volatile List<Path> lastSourceFiles;
+
     @Override
     public String getName() {
         return NAME;
@@ -72,33 +110,162 @@ public class JavaSourceParser implements SourceParser {
             throw new ParseException("No source paths provided");
         }
 
-        configureParser(sourcePaths, runConfig.verbose());
+        try (SourceArchives archives = mountArchives(sourcePaths)) {
+            List<Path> resolvedPaths = archives.paths();
+            List<Path> visibleFiles = walkJavaFiles(resolvedPaths, runConfig.sourceFilter());
+            List<Path> javaFiles = selectJavaFiles(visibleFiles, runConfig.sourceFilter());
+            JavaParserFactory parserFactory = configureParser(resolvedPaths, visibleFiles, javaFiles, runConfig,
+                    true);
+
+            ParseContext context = new ParseContext(runConfig.verbose());
+            visitFiles(javaFiles, visibleFiles, parserFactory, context, runConfig, null);
+            return buildModel(context, runConfig, parserFactory);
+        }
+    }
+
+    /**
+     * Parses the sources once and keeps the symbol solver and every per-file
+     * result, so that later updates only revisit files that changed.
+     *
+     * <p>
+     * Archive sources are only mounted for the duration of a parse, so a
+     * session over them parses everything again on each update.
+     */
+    @Override
+    public ParseSession openSession(List<Path> sourcePaths, RunConfig runConfig) throws ParseException {
+        if (sourcePaths == null || sourcePaths.isEmpty()) {
+            throw new ParseException("No source paths provided");
+        }
+        if (SourceArchives.containsArchive(sourcePaths)) {
+            return SourceParser.super.openSession(sourcePaths, runConfig);
+        }
+
+        List<Path> visibleFiles = walkJavaFiles(sourcePaths, runConfig.sourceFilter());
+        List<Path> javaFiles = selectJavaFiles(visibleFiles, runConfig.sourceFilter());
+        // Updates may add imports, so the session's solver keeps every jar.
+        JavaParserFactory parserFactory = configureParser(sourcePaths, visibleFiles, javaFiles, runConfig, false);
 
         ParseContext context = new ParseContext(runConfig.verbose());
-        List<Path> javaFiles = collectJavaFiles(sourcePaths);
+        Map<Path, FileParseResult> results = new HashMap<>();
+        visitFiles(javaFiles, visibleFiles, parserFactory, context, runConfig, results);
+        UmlModel model = buildModel(context, runConfig, parserFactory);
+        return new JavaParseSession(this, sourcePaths, runConfig, parserFactory, javaFiles, results, model);
+    }
+
+    /**
+     * Visits all files into {@code context}, optionally keeping each file's
+     * result in {@code retained}. {@code visibleFiles} are the files whose
+     * types the visited ones can name, package selection aside.
+     *
+     * <p>
+     * With more than one worker, files are handed out most expensive first
+     * according to the {@link ParseCostModel}, whose history of visit times
+     * lives in the parse cache directory.
+     */
+    private void visitFiles(List<Path> javaFiles, List<Path> visibleFiles, JavaParserFactory parserFactory,
+            ParseContext context, RunConfig runConfig, Map<Path, FileParseResult> retained) throws ParseException {
+        int threads = runConfig.parseOptions().effectiveThreads();
 
         if (runConfig.verbose()) {
-            LOGGER.log(Level.INFO, "Found {0} Java files to parse", javaFiles.size());
+            LOGGER.log(Level.INFO, "Found {0} Java files to parse using {1} worker(s)",
+                    new Object[] { javaFiles.size(), threads });
         }
 
-        TypeVisitor typeVisitor = new TypeVisitor(context);
-
-        ParseStats stats = parseFiles(javaFiles, typeVisitor, context);
+        ParseCostModel costModel = ParseCostModel.load(runConfig.parseOptions().cacheDirectory());
+        ParseCostModel.Schedule schedule = threads > 1 && javaFiles.size() > 1
+                ? costModel.schedule(javaFiles)
+                : null;
+        List<Path> readOrder = schedule != null ? schedule.apply(javaFiles) : javaFiles;
+
+        ParseRun run;
+        SourceReadAhead.ReadAheadStats readAheadStats;
+        ParseCache.CacheStats cacheStats = null;
+        try (ScopedParseCache cache = openParseCache(runConfig, parserFactory, visibleFiles);
+                SourceReadAhead readAhead = SourceReadAhead.start(readOrder,
+                        runConfig.parseOptions().readAheadBytes())) {
+            run = parseFiles(javaFiles, schedule, parserFactory, context, threads, readAhead, cache, retained,
+                    costModel, runConfig);
+            readAheadStats = readAhead.stats();
+            if (cache != null) {
+                cacheStats = cache.stats();
+            }
+        }
+        costModel.save();
+        parserFactory.jarIndexCache().save();
+        lastScheduleReport = run.report();
+        lastSolverCacheReport = parserFactory.solverCacheReport();
+        ParseStats stats = run.stats();
 
         if (runConfig.verbose()) {
             LOGGER.log(Level.INFO, "Parsed {0} files successfully{1}",
                     new Object[] { stats.parsed(), (stats.failed() > 0 ? ", " + stats.failed() + " failed" : "") });
+            logReadAheadStats(readAheadStats);
+            if (cacheStats != null) {
+                logParseCacheStats(cacheStats);
+            }
+            logScheduleReport(run.report());
+            if (lastSolverCacheReport != null) {
+                logSolverCacheReport(lastSolverCacheReport);
+            }
             LOGGER.log(Level.INFO, "Found {0} types, {1} relations",
                     new Object[] { context.getTypeCount(), context.getRelationCount() });
         }
+    }
+
+    @Override
+    public ParseRunReport lastRunReport() {
+        return new ParseRunReport(lastScheduleReport, lastSolverCacheReport, lastClasspathPruningReport,
+                lastBuildDiscoveryReport);
+    }
+
+    /**
+     * Returns the files selected by the last source walk. Files inside
+     * archives are reported by their path in the archive, which is no longer
+     * readable once the parse has finished.
+     */
+    @Override
+    public List<Path> lastSourceFiles() {
+        return lastSourceFiles;
+    }
+
+    /**
+     * Forgets the schedule and solver cache reports of the last full parse,
+     * once a session update has produced a model without it.
+     */
+    void clearRunReports() {
+        lastScheduleReport = null;
+        lastSolverCacheReport = null;
+    }
+
+    static SourceArchives mountArchives(List<Path> sourcePaths) throws ParseException {
+        try {
+            return SourceArchives.mount(sourcePaths, EXTENSIONS);
+        } catch (IOException e) {
+            throw new ParseException("Failed to open source archive: " + e.getMessage(), e);
+        }
+    }
 
-        RelationDetector relationDetector = new RelationDetector(context);
+    /**
+     * Runs relation detection on a fully merged context and builds the model.
+     *
+     * @param parserFactory the factory the context was parsed with, for its
+     *                      resolution tier statistics
+     */
+    UmlModel buildModel(ParseContext context, RunConfig runConfig, JavaParserFactory parserFactory) {
+        RelationDetector relationDetector = new RelationDetector(context, runConfig.modelProjection());
         relationDetector.detectRelations();
 
         if (runConfig.verbose()) {
             ParseReport report = context.getReport();
             LOGGER.log(Level.INFO, "Detected {0} total relations (including detected)", context.getRelationCount());
-            logTypeResolutionStats(report.typeResolutionStats());
+            logTypeResolutionStats(report.typeResolutionStats().withTiers(parserFactory.tierStats()),
+                    runConfig.parseOptions().typeResolution());
+            logDeclarationSources(parserFactory.declarationSourceStats());
+            logSourceIndex(parserFactory.sourceIndex());
+            if (parserFactory.jarCount() > 0) {
+                LOGGER.log(Level.INFO, "Opened {0} of {1} dependency jar(s) for the symbol solver",
+                        new Object[] { parserFactory.openedJarCount(), parserFactory.jarCount() });
+            }
             if (report.warningCount() > 0) {
                 LOGGER.log(Level.INFO, "Collected {0} warnings", report.warningCount());
             }
@@ -108,34 +275,234 @@ public class JavaSourceParser implements SourceParser {
     }
 
     /**
-     * Recursively collects all Java files from the given source paths.
+     * Recursively collects the Java files selected by {@code filter} from the
+     * given source paths.
+     *
+     * <p>
+     * Package selection only drops files from the list that is parsed. Every
+     * file stays visible to the symbol solver through its source root, so
+     * names in selected files resolve against excluded ones as before.
      */
-    private List<Path> collectJavaFiles(List<Path> sourcePaths) throws ParseException {
-        List<Path> javaFiles = new ArrayList<>();
+    List<Path> collectJavaFiles(List<Path> sourcePaths, SourceFilter filter) throws ParseException {
+        return selectJavaFiles(walkJavaFiles(sourcePaths, filter), filter);
+    }
 
+    /**
+     * Recursively collects the Java files the include and exclude globs of
+     * {@code filter} keep, before package selection.
+     */
+    List<Path> walkJavaFiles(List<Path> sourcePaths, SourceFilter filter) throws ParseException {
+        List<Path> javaFiles = new ArrayList<>();
         for (Path sourcePath : sourcePaths) {
-            collectFromSourcePath(sourcePath, javaFiles);
+            collectFromSourcePath(sourcePath, filter, javaFiles);
         }
+        return javaFiles;
+    }
 
+    /**
+     * Applies the package selection of {@code filter} to walked files and
+     * records the result as the last selected source files.
+     */
+    List<Path> selectJavaFiles(List<Path> walkedFiles, SourceFilter filter) {
+        List<Path> javaFiles = filter.selectsPackages() ? selectPackages(walkedFiles, filter) : walkedFiles;
+        lastSourceFiles = List.copyOf(javaFiles);
         return javaFiles;
     }
 
-    private void configureParser(List<Path> sourcePaths, boolean verbose) {
-        CombinedTypeSolver typeSolver = new CombinedTypeSolver();
-        typeSolver.add(new ReflectionTypeSolver(false)); // JDK types only, no jrt module
-        // Keep current process classpath visible to the solver. This is important when
-        // Eitri itself is run from a fat jar, because that classpath often already
-        // contains libraries needed to resolve source references.
-        typeSolver.add(new ClassLoaderTypeSolver(Thread.currentThread().getContextClassLoader()));
+    /**
+     * Keeps the files whose {@code package} declaration the filter selects,
+     * reading only the leading bytes of each file. Files whose declaration
+     * cannot be read that way are kept and parsed in full.
+     */
+    private static List<Path> selectPackages(List<Path> javaFiles, SourceFilter filter) {
+        List<Path> selected = new ArrayList<>(javaFiles.size());
+        for (Path javaFile : javaFiles) {
+            String packageName;
+            try {
+                packageName = PackageSniffer.sniff(javaFile);
+            } catch (IOException _) {
+                // Reported by the parse, like any other unreadable file.
+                packageName = null;
+            }
+            if (packageName == null || filter.includesPackage(packageName)) {
+                selected.add(javaFile);
+            }
+        }
+        LOGGER.log(Level.FINE, "Package selection kept {0} of {1} Java files",
+                new Object[] { selected.size(), javaFiles.size() });
+        return selected;
+    }
+
+    /**
+     * Sets up type resolution: the symbol solver's compiled output
+     * directories, source roots and jars and, for tiered or lexical
+     * resolution, the index of types declared by {@code visibleFiles}, which
+     * keeps files that package selection leaves out of {@code javaFiles}.
+     *
+     * <p>
+     * When {@code pruneJars} is set and the parse options allow it, the
+     * import declarations of {@code javaFiles} are read first, and jars
+     * holding none of the packages they import from or declare are left out.
+     */
+    private JavaParserFactory configureParser(List<Path> sourcePaths, List<Path> visibleFiles,
+            List<Path> javaFiles, RunConfig runConfig, boolean pruneJars) {
+        boolean verbose = runConfig.verbose();
+        TypeResolution typeResolution = runConfig.parseOptions().typeResolution();
+        DeclaredTypeIndex declaredTypes = null;
+        if (typeResolution != TypeResolution.SOLVER) {
+            declaredTypes = DeclaredTypeIndex.build(visibleFiles);
+            if (verbose) {
+                LOGGER.log(Level.INFO, "Indexed {0} declared type(s) for {1} type resolution",
+                        new Object[] { declaredTypes.size(), typeResolution.id() });
+            }
+        }
+        if (typeResolution == TypeResolution.LEXICAL) {
+            lastClasspathPruningReport = null;
+            lastBuildDiscoveryReport = null;
+            return JavaParserFactory.lexical(declaredTypes);
+        }
+
+        ParseOptions options = runConfig.parseOptions();
+        long discoveryStarted = System.nanoTime();
+        BuildModelCache build = BuildModelCache.load(options.cacheDirectory());
+        Set<Path> sourceRoots = detectSolverSourceRoots(sourcePaths, build);
+        Set<Path> classOutputs = detectClassOutputDirectories(sourcePaths, build);
+        DependencyCacheIndex dependencies = DependencyCacheIndex.load(options.cacheDirectory());
+        Set<Path> jarPaths = detectSolverJarFiles(sourcePaths, dependencies, build);
+        dependencies.save();
+        build.save();
+        lastBuildDiscoveryReport = new BuildDiscoveryReport(System.nanoTime() - discoveryStarted,
+                build.modulesWalked(), build.scriptsRead(), build.scriptsReused());
+        if (verbose) {
+            LOGGER.log(Level.INFO, "Found the build around the sources in {0} ms: walked {1} module(s), read {2} "
+                    + "build script(s), reused {3}", new Object[] {
+                            TimeUnit.NANOSECONDS.toMillis(lastBuildDiscoveryReport.nanos()),
+                            build.modulesWalked(), build.scriptsRead(), build.scriptsReused() });
+        }
+        if (verbose && dependencies.listed() + dependencies.hits() > 0) {
+            LOGGER.log(Level.INFO, "Looked up dependency jars in {0} cache director(ies), {1} taken from the "
+                    + "dependency index", new Object[] { dependencies.listed() + dependencies.hits(),
+                            dependencies.hits() });
+        }
+
+        Set<String> referencedPackages = pruneJars && options.pruneClasspath() && !jarPaths.isEmpty()
+                ? ImportSniffer.referencedPackages(javaFiles)
+                : null;
+        JarIndexCache jarCache = JarIndexCache.load(options.cacheDirectory());
+        JavaParserFactory parserFactory = JavaParserFactory.create(sourceRoots, classOutputs, jarPaths,
+                declaredTypes, jarCache,
+                new SolverCaches(options.solverCacheEntries(), options.releaseSolverCachesEvery()),
+                referencedPackages);
+        // Saved now so the listings survive a run that fails later; failures are added after the parse.
+        jarCache.save();
+        List<Path> prunedJars = parserFactory.prunedJars();
+        lastClasspathPruningReport = new ClasspathPruningReport(referencedPackages != null,
+                referencedPackages != null ? referencedPackages.size() : 0,
+                parserFactory.jarCount() + prunedJars.size(), prunedJars);
+        logClasspathPruning(lastClasspathPruningReport, verbose);
+
+        if (verbose) {
+            SourceTypeIndex sourceIndex = parserFactory.sourceIndex();
+            LOGGER.log(Level.INFO, "Indexed {0} source type(s) under {1} solver root(s) in {2} ms",
+                    new Object[] { sourceIndex.size(), sourceIndex.rootCount(),
+                            TimeUnit.NANOSECONDS.toMillis(sourceIndex.buildNanos()) });
+        }
+        if (verbose && parserFactory.classOutputCount() > 0) {
+            LOGGER.log(Level.INFO, "Reading types from {0} compiled output director(ies) before source",
+                    parserFactory.classOutputCount());
+        }
+        if (verbose && parserFactory.jarCount() > 0) {
+            LOGGER.log(Level.INFO, "Added {0} jar(s) to symbol solver classpath", parserFactory.jarCount());
+            LOGGER.log(Level.INFO, "Listed {0} jar(s), {1} taken from the jar index",
+                    new Object[] { jarCache.listed() + jarCache.hits(), jarCache.hits() });
+        }
 
+        return parserFactory;
+    }
+
+    /**
+     * Compiled output directories the symbol solver reads types from before
+     * it parses source: the {@code target/classes} or
+     * {@code build/classes/java/main} of every parsed module and of the
+     * modules its Gradle settings or Maven parent declare. Archive sources
+     * have none.
+     */
+    static Set<Path> detectClassOutputDirectories(List<Path> sourcePaths, BuildModelCache build) {
+        Set<Path> moduleRoots = new LinkedHashSet<>();
         for (Path sourcePath : sourcePaths) {
-            if (Files.isDirectory(sourcePath)) {
-                for (Path root : detectTypeSolverRoots(sourcePath)) {
-                    typeSolver.add(new JavaParserTypeSolver(root));
+            if (sourcePath.getFileSystem() != FileSystems.getDefault() || !Files.isDirectory(sourcePath)) {
+                continue;
+            }
+            Path moduleRoot = build.moduleRoot(sourcePath);
+            moduleRoots.add(moduleRoot);
+
+            Path repoRoot = build.repoRoot(moduleRoot);
+            Path settingsFile = build.settingsFile(repoRoot);
+            if (settingsFile != null) {
+                moduleRoots.add(repoRoot);
+                for (String moduleId : build.includedModules(settingsFile)) {
+                    moduleRoots.add(repoRoot.resolve(moduleId.replace(':', '/')));
+                }
+            }
+            moduleRoots.addAll(build.mavenModules(moduleRoot));
+            moduleRoots.addAll(build.mavenModules(moduleRoot.getParent()));
+        }
+
+        Set<Path> outputs = new LinkedHashSet<>();
+        for (Path moduleRoot : moduleRoots) {
+            for (String outputDirectory : CLASS_OUTPUT_DIRECTORIES) {
+                Path output = moduleRoot.resolve(outputDirectory);
+                if (Files.isDirectory(output)) {
+                    outputs.add(output.toAbsolutePath().normalize());
                 }
             }
         }
+        return outputs;
+    }
+
+    /**
+     * Module directories listed by the {@code <module>} elements of a
+     * directory's {@code pom.xml}.
+     */
+    static Set<Path> detectMavenModules(Path directory) {
+        Set<Path> modules = new LinkedHashSet<>();
+        Path pom = directory != null ? directory.resolve(POM_XML) : null;
+        if (pom == null || !Files.isRegularFile(pom)) {
+            return modules;
+        }
+        try {
+            Matcher matcher = MAVEN_MODULE.matcher(Files.readString(pom));
+            while (matcher.find()) {
+                modules.add(directory.resolve(matcher.group(1)).normalize());
+            }
+        } catch (IOException _) {
+            LOGGER.log(Level.WARNING, "Failed to read Maven POM: {0}", pom);
+        }
+        return modules;
+    }
+
+    /**
+     * Source roots the symbol solver looks up types in: every source
+     * directory and the module roots detected around it.
+     */
+    static Set<Path> detectSolverSourceRoots(List<Path> sourcePaths, BuildModelCache build) {
+        Set<Path> sourceRoots = new LinkedHashSet<>();
+        for (Path sourcePath : sourcePaths) {
+            if (Files.isDirectory(sourcePath)) {
+                sourceRoots.addAll(detectTypeSolverRoots(sourcePath, build));
+            }
+        }
+        return sourceRoots;
+    }
 
+    /**
+     * Jars the symbol solver looks up types in: those on the tool's own
+     * classpath, next to the sources and among the Gradle and Maven
+     * dependencies, resolving dependency coordinates through
+     * {@code dependencies} and reading build scripts through {@code build}.
+     */
+    static Set<Path> detectSolverJarFiles(List<Path> sourcePaths, DependencyCacheIndex dependencies,
+            BuildModelCache build) {
         Set<Path> jarPaths = new LinkedHashSet<>();
         Path currentAppJar = currentApplicationJar();
         for (Path classpathEntry : detectClasspathEntries()) {
@@ -149,32 +516,72 @@ public class JavaSourceParser implements SourceParser {
                 jarPaths.add(classpathEntry);
             }
         }
-        jarPaths.addAll(detectLocalJarFiles(sourcePaths));
-        jarPaths.addAll(detectGradleDependencyJarFiles(sourcePaths));
+        jarPaths.addAll(detectLocalJarFiles(sourcePaths, build));
+        jarPaths.addAll(detectGradleDependencyJarFiles(sourcePaths, dependencies, build));
+        jarPaths.addAll(detectMavenDependencyJarFiles(sourcePaths, dependencies, build));
+        return jarPaths;
+    }
 
-        int addedJarSolvers = 0;
-        for (Path jarPath : jarPaths) {
-            try {
-                typeSolver.add(new JarTypeSolver(jarPath.toString()));
-                addedJarSolvers++;
-            } catch (Exception | LinkageError _) {
-                // Some jars in local caches are valid artifacts but still fail to load in
-                // JavaParser/Javassist (module-info edge-cases, bytecode quirks, etc.).
-                // We intentionally skip those jars to keep parsing best effort instead of
-                // aborting the whole run.
-                LOGGER.log(Level.WARNING, "Failed to add jar type solver for: {0}", jarPath);
-            }
+    /**
+     * Opens the persistent parse cache when one is configured.
+     *
+     * <p>
+     * Cached fragments hold names already resolved by the symbol solver, so the
+     * fingerprint covers the solver classpath, the source roots and the tool
+     * build. The solver fingerprint also tells lexical resolution apart. A
+     * projected run caches smaller fragments, so its projection is part of the
+     * fingerprint, and so are the declaration-only settings. What a simple
+     * name resolves to also depends on the other source files; each entry is
+     * keyed on the types they declare in the packages its file can see (see
+     * {@link ScopedParseCache}), so adding or changing an unrelated file keeps
+     * the entry. Runs that do not index declared types for resolution scan the
+     * sources for them here.
+     *
+     * @return the cache, or null when caching is disabled or the directory is
+     *         unusable
+     */
+    private static ScopedParseCache openParseCache(RunConfig runConfig, JavaParserFactory parserFactory,
+            List<Path> visibleFiles) {
+        ParseOptions options = runConfig.parseOptions();
+        if (options.cacheDirectory() == null) {
+            return null;
         }
-
-        if (verbose && addedJarSolvers > 0) {
-            LOGGER.log(Level.INFO, "Added {0} jar(s) to symbol solver classpath", addedJarSolvers);
+        List<String> fingerprint = new ArrayList<>(parserFactory.solverFingerprint(options.fingerprintRoot()));
+        fingerprint.add("tool=" + toolFingerprint());
+        if (!runConfig.modelProjection().isFull()) {
+            fingerprint.add("projection=" + runConfig.modelProjection());
         }
+        // Declaration-only parses also read files with errors inside bodies.
+        fingerprint.add("declarations=" + options.declarationsOnly() + "|" + options.declarationsOnlyAboveBytes());
+        ParseCache cache;
+        try {
+            cache = ParseCache.open(options.cacheDirectory(), options.cacheMaxBytes(), fingerprint);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Parse cache disabled, cannot open {0} - {1}",
+                    new Object[] { options.cacheDirectory(), e.getMessage() });
+            return null;
+        }
+        DeclaredTypeIndex declaredTypes = parserFactory.declaredTypes() != null
+                ? parserFactory.declaredTypes()
+                : DeclaredTypeIndex.build(visibleFiles);
+        return new ScopedParseCache(cache, declaredTypes);
+    }
 
-        ParserConfiguration parserConfig = new ParserConfiguration()
-                .setSymbolResolver(new JavaSymbolSolver(typeSolver))
-                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_25);
-
-        StaticJavaParser.setConfiguration(parserConfig);
+    private static String toolFingerprint() {
+        try {
+            var codeSource = JavaSourceParser.class.getProtectionDomain().getCodeSource();
+            if (codeSource != null && codeSource.getLocation() != null) {
+                Path location = Path.of(codeSource.getLocation().toURI());
+                Path marker = Files.isDirectory(location)
+                        ? location.resolve(JavaSourceParser.class.getName().replace('.', '/') + ".class")
+                        : location;
+                return location + "|" + Files.getLastModifiedTime(marker).toMillis();
+            }
+        } catch (Exception _) {
+            // Best effort: without it, only a cache format bump invalidates entries
+            // written by an older build at the same location.
+        }
+        return "unknown";
     }
 
     private static Path currentApplicationJar() {
@@ -234,19 +641,19 @@ public class JavaSourceParser implements SourceParser {
         }
     }
 
-    static Set<Path> detectLocalJarFiles(List<Path> sourcePaths) {
+    static Set<Path> detectLocalJarFiles(List<Path> sourcePaths, BuildModelCache build) {
         Set<Path> jarFiles = new LinkedHashSet<>();
         Set<Path> candidateDirs = new LinkedHashSet<>();
 
         for (Path sourcePath : sourcePaths) {
-            Path moduleRoot = detectModuleRoot(sourcePath);
+            Path moduleRoot = build.moduleRoot(sourcePath);
             if (moduleRoot != null) {
                 candidateDirs.add(moduleRoot.resolve("libs"));
                 candidateDirs.add(moduleRoot.resolve("build/libs"));
                 candidateDirs.add(moduleRoot.resolve("target/dependency"));
             }
 
-            Path repoRoot = findGradleRepoRoot(moduleRoot != null ? moduleRoot : sourcePath);
+            Path repoRoot = build.repoRoot(moduleRoot != null ? moduleRoot : sourcePath);
             if (repoRoot != null) {
                 candidateDirs.add(repoRoot.resolve("libs"));
                 candidateDirs.add(repoRoot.resolve("build/libs"));
@@ -260,111 +667,143 @@ public class JavaSourceParser implements SourceParser {
         return jarFiles;
     }
 
-    static Set<Path> detectGradleDependencyJarFiles(List<Path> sourcePaths) {
-        Set<Path> dependencyJars = new LinkedHashSet<>();
-        Path gradleCacheRoot = Path.of(System.getProperty("user.home"), ".gradle", "caches", "modules-2",
-                "files-2.1");
-
+    static Set<Path> detectGradleDependencyJarFiles(List<Path> sourcePaths, DependencyCacheIndex dependencies,
+            BuildModelCache build) {
         Set<String> dependencyCoordinates = new LinkedHashSet<>();
+        Set<Path> moduleRoots = new LinkedHashSet<>();
         for (Path sourcePath : sourcePaths) {
-            for (Path buildFile : detectGradleBuildFiles(sourcePath)) {
-                Path repoRoot = findGradleRepoRoot(buildFile.getParent());
-                dependencyCoordinates.addAll(collectDependencyCoordinatesFromBuildFile(buildFile, repoRoot));
+            Path moduleRoot = build.moduleRoot(sourcePath);
+            if (moduleRoot == null || !moduleRoots.add(moduleRoot)) {
+                continue;
+            }
+            for (Path buildFile : build.buildFiles(moduleRoot)) {
+                Path repoRoot = build.repoRoot(buildFile.getParent());
+                dependencyCoordinates.addAll(collectDependencyCoordinatesFromBuildFile(buildFile, repoRoot, build));
             }
         }
 
-        dependencyJars.addAll(resolveGradleDependencyJars(dependencyCoordinates, gradleCacheRoot));
-        return dependencyJars;
+        return dependencies.gradleJars(dependencyCoordinates);
     }
 
-    private static Set<Path> detectGradleBuildFiles(Path sourcePath) {
-        Set<Path> buildFiles = new LinkedHashSet<>();
-        Path moduleRoot = detectModuleRoot(sourcePath);
-        if (moduleRoot == null) {
-            return buildFiles;
-        }
-
-        Path rootBuildFile = resolveBuildFile(moduleRoot);
-        if (rootBuildFile != null) {
-            buildFiles.add(rootBuildFile);
-        }
-
-        if (!Files.isDirectory(moduleRoot)) {
-            return buildFiles;
+    /**
+     * Jars of the dependencies declared by the Maven POMs of the source
+     * modules and of the modules they aggregate, from the local Maven
+     * repository.
+     */
+    static Set<Path> detectMavenDependencyJarFiles(List<Path> sourcePaths, DependencyCacheIndex dependencies,
+            BuildModelCache build) {
+        Set<String> dependencyCoordinates = new LinkedHashSet<>();
+        for (Path sourcePath : sourcePaths) {
+            Path moduleRoot = build.moduleRoot(sourcePath);
+            if (moduleRoot == null || moduleRoot.getFileSystem() != FileSystems.getDefault()) {
+                continue;
+            }
+            Set<Path> modules = new LinkedHashSet<>();
+            modules.add(moduleRoot);
+            modules.addAll(build.mavenModules(moduleRoot));
+            for (Path module : modules) {
+                Path pom = module.resolve(POM_XML);
+                if (Files.isRegularFile(pom)) {
+                    dependencyCoordinates.addAll(build.mavenDependencies(pom));
+                }
+            }
         }
+        return dependencies.mavenJars(dependencyCoordinates);
+    }
 
+    /**
+     * Reads the coordinates of the dependencies a POM declares. Property
+     * references are filled in from the properties of the POM and of the POM
+     * in its parent directory, and missing versions from their
+     * {@code <dependencyManagement>} sections. A version still unknown is
+     * left out, as in {@code group:artifact}.
+     */
+    static Set<String> parseMavenDependencyCoordinates(Path pom) {
+        Set<String> coordinates = new LinkedHashSet<>();
+        String content;
         try {
-            Files.walkFileTree(moduleRoot, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                    if (isExcludedBuildScanDirectory(moduleRoot, dir)) {
-                        // Build outputs and Gradle internals can contain copied/generated
-                        // build scripts that should not be interpreted as source module
-                        // definitions.
-                        return FileVisitResult.SKIP_SUBTREE;
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    String fileName = file.getFileName() == null ? "" : file.getFileName().toString();
-                    if (BUILD_GRADLE.equals(fileName) || BUILD_GRADLE_KTS.equals(fileName)) {
-                        buildFiles.add(file.toAbsolutePath().normalize());
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-            });
+            content = XML_COMMENT.matcher(Files.readString(pom)).replaceAll("");
         } catch (IOException _) {
-            LOGGER.log(Level.WARNING, "Failed to scan Gradle build files under: {0}", moduleRoot);
+            LOGGER.log(Level.WARNING, "Failed to read Maven POM: {0}", pom);
+            return coordinates;
         }
-
-        return buildFiles;
-    }
-
-    private static boolean isExcludedBuildScanDirectory(Path moduleRoot, Path dir) {
-        Path relative = moduleRoot.relativize(dir);
-        if (relative.getNameCount() == 0) {
-            return false;
+        Map<String, String> properties = new HashMap<>();
+        Map<String, String> managedVersions = new HashMap<>();
+        Path parentPom = pom.toAbsolutePath().normalize().getParent().resolveSibling(POM_XML);
+        if (Files.isRegularFile(parentPom)) {
+            try {
+                String parent = XML_COMMENT.matcher(Files.readString(parentPom)).replaceAll("");
+                readMavenProperties(parent, properties);
+                readManagedVersions(parent, properties, managedVersions);
+            } catch (IOException _) {
+                LOGGER.log(Level.WARNING, "Failed to read Maven POM: {0}", parentPom);
+            }
         }
-        String name = relative.getFileName() == null ? "" : relative.getFileName().toString();
-        return ".git".equals(name)
-                || ".gradle".equals(name)
-                || "build".equals(name)
-                || "target".equals(name);
+        readMavenProperties(content, properties);
+        readManagedVersions(content, properties, managedVersions);
+
+        Matcher dependency = MAVEN_DEPENDENCY.matcher(MAVEN_DEPENDENCY_MANAGEMENT.matcher(content).replaceAll(""));
+        while (dependency.find()) {
+            String group = mavenElement(dependency.group(1), MAVEN_GROUP_ID, properties);
+            String artifact = mavenElement(dependency.group(1), MAVEN_ARTIFACT_ID, properties);
+            if (group == null || artifact == null) {
+                continue;
+            }
+            String version = mavenElement(dependency.group(1), MAVEN_VERSION, properties);
+            if (version == null) {
+                version = managedVersions.get(group + ":" + artifact);
+            }
+            coordinates.add(version != null ? group + ":" + artifact + ":" + version : group + ":" + artifact);
+        }
+        return coordinates;
     }
 
-    private static Path resolveBuildFile(Path moduleRoot) {
-        if (moduleRoot == null) {
-            return null;
-        }
-        Path kts = moduleRoot.resolve(BUILD_GRADLE_KTS);
-        if (Files.isRegularFile(kts)) {
-            return kts;
-        }
-        Path groovy = moduleRoot.resolve(BUILD_GRADLE);
-        if (Files.isRegularFile(groovy)) {
-            return groovy;
+    private static void readMavenProperties(String pom, Map<String, String> properties) {
+        Matcher block = MAVEN_PROPERTIES.matcher(pom);
+        while (block.find()) {
+            Matcher property = MAVEN_PROPERTY.matcher(block.group(1));
+            while (property.find()) {
+                properties.put(property.group(1), property.group(2));
+            }
         }
-        return null;
     }
 
-    static Set<String> parseGradleDependencyCoordinates(Path buildFile) {
-        Set<String> coordinates = new LinkedHashSet<>();
-        try {
-            for (String line : Files.readAllLines(buildFile)) {
-                Matcher matcher = GRADLE_DEPENDENCY_COORDINATE.matcher(line.trim());
-                while (matcher.find()) {
-                    coordinates.add(matcher.group(1));
+    private static void readManagedVersions(String pom, Map<String, String> properties,
+            Map<String, String> managedVersions) {
+        Matcher management = MAVEN_DEPENDENCY_MANAGEMENT.matcher(pom);
+        while (management.find()) {
+            Matcher dependency = MAVEN_DEPENDENCY.matcher(management.group(1));
+            while (dependency.find()) {
+                String group = mavenElement(dependency.group(1), MAVEN_GROUP_ID, properties);
+                String artifact = mavenElement(dependency.group(1), MAVEN_ARTIFACT_ID, properties);
+                String version = mavenElement(dependency.group(1), MAVEN_VERSION, properties);
+                if (group != null && artifact != null && version != null) {
+                    managedVersions.put(group + ":" + artifact, version);
                 }
             }
-        } catch (IOException _) {
-            LOGGER.log(Level.WARNING, "Failed to read build file: {0}", buildFile);
         }
-        return coordinates;
     }
 
-    private static Set<String> collectDependencyCoordinatesFromBuildFile(Path buildFile, Path repoRoot) {
+    /**
+     * Reads an element of a dependency, with its property references filled
+     * in.
+     *
+     * @return the value, or null when it is absent or refers to an unknown
+     *         property
+     */
+    private static String mavenElement(String dependency, Pattern element, Map<String, String> properties) {
+        Matcher matcher = element.matcher(dependency);
+        if (!matcher.find()) {
+            return null;
+        }
+        String value = MAVEN_PROPERTY_REFERENCE.matcher(matcher.group(1))
+                .replaceAll(reference -> Matcher.quoteReplacement(
+                        properties.getOrDefault(reference.group(1), reference.group())));
+        return value.contains("${") ? null : value;
+    }
+
+    private static Set<String> collectDependencyCoordinatesFromBuildFile(Path buildFile, Path repoRoot,
+            BuildModelCache build) {
         Set<String> coordinates = new LinkedHashSet<>();
         if (buildFile == null) {
             return coordinates;
@@ -380,12 +819,13 @@ public class JavaSourceParser implements SourceParser {
                 continue;
             }
 
-            coordinates.addAll(parseGradleDependencyCoordinates(currentBuildFile));
+            BuildModelCache.Script script = build.script(currentBuildFile);
+            coordinates.addAll(script.dependencyCoordinates());
 
             // Follow precompiled convention plugins from buildSrc because projects like
             // jadx centralize key dependencies (e.g. slf4j) there instead of declaring
             // them directly in every module build file.
-            for (String pluginId : parseAppliedGradlePluginIds(currentBuildFile)) {
+            for (String pluginId : script.pluginIds()) {
                 Path pluginBuildFile = resolveBuildSrcPluginFile(repoRoot, pluginId);
                 if (pluginBuildFile != null) {
                     queue.addLast(pluginBuildFile);
@@ -396,21 +836,6 @@ public class JavaSourceParser implements SourceParser {
         return coordinates;
     }
 
-    private static Set<String> parseAppliedGradlePluginIds(Path buildFile) {
-        Set<String> pluginIds = new LinkedHashSet<>();
-        try {
-            for (String line : Files.readAllLines(buildFile)) {
-                Matcher matcher = GRADLE_PLUGIN_ID.matcher(line.trim());
-                while (matcher.find()) {
-                    pluginIds.add(matcher.group(1));
-                }
-            }
-        } catch (IOException _) {
-            LOGGER.log(Level.WARNING, "Failed to parse plugin IDs from build file: {0}", buildFile);
-        }
-        return pluginIds;
-    }
-
     private static Path resolveBuildSrcPluginFile(Path repoRoot, String pluginId) {
         if (repoRoot == null || pluginId == null || pluginId.isBlank()) {
             return null;
@@ -430,50 +855,6 @@ public class JavaSourceParser implements SourceParser {
         return null;
     }
 
-    static Set<Path> resolveGradleDependencyJars(Set<String> dependencyCoordinates, Path gradleCacheRoot) {
-        Set<Path> jars = new LinkedHashSet<>();
-        if (dependencyCoordinates == null || dependencyCoordinates.isEmpty() || gradleCacheRoot == null
-                || !Files.isDirectory(gradleCacheRoot)) {
-            return jars;
-        }
-
-        for (String coordinate : dependencyCoordinates) {
-            String[] parts = coordinate.split(":");
-            if (parts.length < 3) {
-                continue;
-            }
-            String group = parts[0];
-            String artifact = parts[1];
-            String version = parts[2];
-
-            Path artifactDir = gradleCacheRoot.resolve(group).resolve(artifact).resolve(version);
-            collectJarFilesFromDirectory(artifactDir, jars, 3);
-            // Include sibling artifacts in the same group/version because some ecosystems
-            // split APIs and implementations (for example directories-jni + directories).
-            // Resolving only the direct artifact can leave otherwise importable types
-            // missing.
-            collectGroupVersionJarFiles(gradleCacheRoot, group, version, jars);
-        }
-        return jars;
-    }
-
-    private static void collectGroupVersionJarFiles(Path gradleCacheRoot, String group, String version,
-            Set<Path> jars) {
-        Path groupDir = gradleCacheRoot.resolve(group);
-        if (!Files.isDirectory(groupDir)) {
-            return;
-        }
-
-        try (var artifacts = Files.list(groupDir)) {
-            artifacts.filter(Files::isDirectory)
-                    .map(artifactDir -> artifactDir.resolve(version))
-                    .filter(Files::isDirectory)
-                    .forEach(versionDir -> collectJarFilesFromDirectory(versionDir, jars, 3));
-        } catch (IOException _) {
-            LOGGER.log(Level.WARNING, "Failed to scan Gradle group directory: {0}", groupDir);
-        }
-    }
-
     private static void collectJarFilesFromDirectory(Path dir, Set<Path> target, int maxDepth) {
         if (dir == null || !Files.isDirectory(dir)) {
             return;
@@ -482,6 +863,8 @@ public class JavaSourceParser implements SourceParser {
             stream.filter(Files::isRegularFile)
                     .filter(path -> path.toString().endsWith(JAR_EXTENSION))
                     .filter(JavaSourceParser::isBinaryJar)
+                    // Jar type solvers need a real file; jars nested in a source archive are skipped.
+                    .filter(path -> path.getFileSystem() == FileSystems.getDefault())
                     .forEach(path -> target.add(path.toAbsolutePath().normalize()));
         } catch (IOException _) {
             LOGGER.log(Level.WARNING, "Failed to scan jar directory: {0}", dir);
@@ -504,7 +887,7 @@ public class JavaSourceParser implements SourceParser {
      * If the provided path is a module root (e.g. contains {@code src/main/java}),
      * include that source root so package-relative resolution works.
      */
-    static Set<Path> detectTypeSolverRoots(Path sourcePath) {
+    static Set<Path> detectTypeSolverRoots(Path sourcePath, BuildModelCache build) {
         Set<Path> roots = new LinkedHashSet<>();
         roots.add(sourcePath);
 
@@ -513,26 +896,26 @@ public class JavaSourceParser implements SourceParser {
             roots.add(mainJava);
         }
 
-        roots.addAll(detectGradleSiblingSourceRoots(sourcePath));
+        roots.addAll(detectGradleSiblingSourceRoots(sourcePath, build));
 
         return roots;
     }
 
-    static Set<Path> detectGradleSiblingSourceRoots(Path sourcePath) {
+    static Set<Path> detectGradleSiblingSourceRoots(Path sourcePath, BuildModelCache build) {
         Set<Path> roots = new LinkedHashSet<>();
 
-        Path moduleRoot = detectModuleRoot(sourcePath);
-        Path repoRoot = findGradleRepoRoot(moduleRoot);
+        Path moduleRoot = build.moduleRoot(sourcePath);
+        Path repoRoot = build.repoRoot(moduleRoot);
         if (repoRoot == null) {
             return roots;
         }
 
-        Path settingsFile = resolveSettingsFile(repoRoot);
+        Path settingsFile = build.settingsFile(repoRoot);
         if (settingsFile == null) {
             return roots;
         }
 
-        for (String moduleId : parseIncludedModuleIds(settingsFile)) {
+        for (String moduleId : build.includedModules(settingsFile)) {
             Path moduleDir = repoRoot.resolve(moduleId.replace(':', '/'));
             Path moduleMainJava = moduleDir.resolve("src/main/java");
             if (Files.isDirectory(moduleMainJava)) {
@@ -543,47 +926,6 @@ public class JavaSourceParser implements SourceParser {
         return roots;
     }
 
-    private static Path detectModuleRoot(Path sourcePath) {
-        if (sourcePath == null) {
-            return null;
-        }
-        Path normalized = sourcePath.normalize();
-        int count = normalized.getNameCount();
-        if (count >= 3
-                && "src".equals(normalized.getName(count - 3).toString())
-                && "main".equals(normalized.getName(count - 2).toString())
-                && "java".equals(normalized.getName(count - 1).toString())) {
-            return normalized.getParent().getParent().getParent();
-        }
-        return normalized;
-    }
-
-    private static Path findGradleRepoRoot(Path start) {
-        Path current = start;
-        while (current != null) {
-            if (resolveSettingsFile(current) != null) {
-                return current;
-            }
-            current = current.getParent();
-        }
-        return null;
-    }
-
-    private static Path resolveSettingsFile(Path dir) {
-        if (dir == null) {
-            return null;
-        }
-        Path kts = dir.resolve(SETTINGS_GRADLE_KTS);
-        if (Files.isRegularFile(kts)) {
-            return kts;
-        }
-        Path groovy = dir.resolve(SETTINGS_GRADLE);
-        if (Files.isRegularFile(groovy)) {
-            return groovy;
-        }
-        return null;
-    }
-
     static Set<String> parseIncludedModuleIds(Path settingsFile) {
         Set<String> moduleIds = new LinkedHashSet<>();
         try {
@@ -603,33 +945,260 @@ public class JavaSourceParser implements SourceParser {
         return moduleIds;
     }
 
-    private ParseStats parseFiles(List<Path> javaFiles, TypeVisitor typeVisitor, ParseContext context) {
-        int parsed = 0;
-        int failed = 0;
-
-        for (Path javaFile : javaFiles) {
+    /**
+     * Parses and visits all files, merging per-file results in input order.
+     *
+     * <p>
+     * Each file is visited into its own {@link ParseFragment}, on a worker that
+     * owns a private {@link JavaParser} and symbol solver. Fragments are replayed
+     * into the shared context strictly in {@code javaFiles} order, so types,
+     * relations, warnings and resolution stats are identical for any thread
+     * count. With a single thread ({@code schedule} is null), files are parsed
+     * on the caller thread in input order. Otherwise they are submitted in
+     * {@code schedule} order, most expensive first, and {@code readAhead} must
+     * have been started with the files in that order. Sources are taken from
+     * {@code readAhead} by position, so reading and decoding overlap with
+     * parsing regardless of the thread count. When {@code cache} is set, files
+     * whose content was visited before are replayed from the cache instead of
+     * being parsed. Visit times are recorded in {@code costModel}.
+     *
+     * <p>
+     * When the factory {@linkplain JavaParserFactory#releasesSolverCaches()
+     * releases solver caches}, each worker drops them every few files, and
+     * visited units are not shared with the worker's source units, which
+     * would keep every one of them for the rest of the run.
+     */
+    private ParseRun parseFiles(List<Path> javaFiles, ParseCostModel.Schedule schedule,
+            JavaParserFactory parserFactory, ParseContext context, int threads, SourceReadAhead readAhead,
+            ScopedParseCache cache, Map<Path, FileParseResult> retained, ParseCostModel costModel,
+            RunConfig runConfig) throws ParseException {
+        ParseRun run = new ParseRun(javaFiles.size(), threads);
+        boolean identify = retained != null;
+
+        LexicalTypeResolver lexicalResolver = parserFactory.lexicalResolver();
+        boolean shareUnits = !parserFactory.releasesSolverCaches();
+
+        if (schedule == null) {
+            JavaParserFactory.WorkerParser worker = parserFactory.newWorkerParser();
             try {
-                CompilationUnit cu = StaticJavaParser.parse(javaFile);
-                cu.accept(typeVisitor, null);
-                parsed++;
-            } catch (IOException e) {
-                context.addWarning("Failed to read file: " + javaFile + " - " + e.getMessage());
-                failed++;
-            } catch (com.github.javaparser.ParseProblemException e) {
-                context.addWarning("Failed to parse file: " + javaFile + " - " + e.getMessage());
-                failed++;
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "Unexpected error parsing {0} - {1}",
-                        new Object[] { javaFile, e.getMessage() });
-                context.addWarning("Unexpected error parsing: " + javaFile + " - " + e.getMessage());
-                failed++;
+                for (int i = 0; i < javaFiles.size(); i++) {
+                    SourceReadAhead.SourceText source = readAhead.take(i);
+                    long started = System.nanoTime();
+                    FileParseResult result = parseFile(source, worker.parser(), lexicalResolver,
+                            shareUnits ? worker.sourceUnits() : null, cache, identify, runConfig);
+                    worker.visited();
+                    run.finished(started, System.nanoTime());
+                    merge(result, context, retained, costModel, run);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ParseException("Interrupted while reading source files", e);
+            }
+            run.complete(ParseScheduleReport.FILE_ORDER, 0);
+            return run;
+        }
+
+        ThreadLocal<JavaParserFactory.WorkerParser> workerParser =
+                ThreadLocal.withInitial(parserFactory::newWorkerParser);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, parseWorkerThreadFactory());
+        try {
+            // Submitted in cost order, so the pool's queue hands the largest remaining file
+            // to whichever worker frees up first; the read-ahead reads in the same order.
+            List<Future<FileParseResult>> results = new ArrayList<>(javaFiles.size());
+            for (int i = 0; i < javaFiles.size(); i++) {
+                results.add(null);
+            }
+            int[] order = schedule.order();
+            for (int position = 0; position < order.length; position++) {
+                int readIndex = position;
+                results.set(order[position], executor.submit(() -> {
+                    SourceReadAhead.SourceText source = readAhead.take(readIndex);
+                    long started = System.nanoTime();
+                    JavaParserFactory.WorkerParser worker = workerParser.get();
+                    FileParseResult result = parseFile(source, worker.parser(), lexicalResolver,
+                            shareUnits ? worker.sourceUnits() : null, cache, identify, runConfig);
+                    worker.visited();
+                    run.finished(started, System.nanoTime());
+                    return result;
+                }));
+            }
+            for (Future<FileParseResult> future : results) {
+                merge(awaitFileResult(future), context, retained, costModel, run);
+            }
+            run.complete(schedule.costModel(), schedule.withHistory());
+            return run;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges one result in file order and records its visit time.
+     */
+    private void merge(FileParseResult result, ParseContext context, Map<Path, FileParseResult> retained,
+            ParseCostModel costModel, ParseRun run) {
+        retain(result, retained);
+        costModel.record(result.javaFile(), result.visitNanos());
+        run.add(mergeFileResult(result, context), result);
+    }
+
+    private static void retain(FileParseResult result, Map<Path, FileParseResult> retained) {
+        if (retained != null) {
+            retained.put(result.javaFile(), result);
+        }
+    }
+
+    /**
+     * Parses one file taken from the read-ahead queue.
+     *
+     * @param identify whether to compute the result's content key; sessions
+     *                 use it to recognize content they have visited before
+     */
+    private FileParseResult parseFile(SourceReadAhead.SourceText source, JavaParser parser,
+            LexicalTypeResolver lexicalResolver, SourceTypeIndex.Units sourceUnits, ScopedParseCache cache,
+            boolean identify, RunConfig runConfig) {
+        String contentKey = identify && source.error() == null ? contentKey(source.text()) : null;
+        return parseFile(source, parser, lexicalResolver, sourceUnits, cache, contentKey, runConfig);
+    }
+
+    /**
+     * Parses and visits one file, extracting only the members in the run's
+     * model projection.
+     *
+     * @param lexicalResolver resolver for parsers without a symbol solver, or
+     *                        null
+     * @param sourceUnits     the parser's source units, to share the visited
+     *                        unit with, or null
+     */
+    FileParseResult parseFile(SourceReadAhead.SourceText source, JavaParser parser,
+            LexicalTypeResolver lexicalResolver, SourceTypeIndex.Units sourceUnits, ScopedParseCache cache,
+            String contentKey, RunConfig runConfig) {
+        Path javaFile = source.file();
+        ParseFragment fragment = new ParseFragment();
+        long started = System.nanoTime();
+        try {
+            if (source.error() != null) {
+                throw source.error();
+            }
+            String cacheKey = null;
+            if (cache != null) {
+                cacheKey = cache.keyFor(source.text());
+                ParseFragment cached = cache.get(cacheKey);
+                if (cached != null) {
+                    return new FileParseResult(javaFile, cached, true, null, contentKey, 0L);
+                }
+            }
+            boolean declarationsOnly = runConfig.parseOptions().declarationsOnly(source.text().length());
+            CompilationUnit cu = parseCompilationUnit(source.text(), parser, declarationsOnly);
+            cu.accept(new TypeVisitor(fragment, runConfig.modelProjection(), lexicalResolver), null);
+            if (sourceUnits != null) {
+                sourceUnits.share(javaFile, cu);
+            }
+            if (cacheKey != null) {
+                // Only clean visits are cached; parse failures carry the file path in
+                // their warning and are cheap to reproduce.
+                cache.put(cacheKey, fragment);
+            }
+            return new FileParseResult(javaFile, fragment, true, null, contentKey, System.nanoTime() - started);
+        } catch (IOException e) {
+            fragment.addWarning("Failed to read file: " + javaFile + " - " + e.getMessage());
+            return new FileParseResult(javaFile, fragment, false, null, contentKey, 0L);
+        } catch (ParseProblemException e) {
+            fragment.addWarning("Failed to parse file: " + javaFile + " - " + e.getMessage());
+            return new FileParseResult(javaFile, fragment, false, null, contentKey, System.nanoTime() - started);
+        } catch (Exception e) {
+            return new FileParseResult(javaFile, fragment, false, e, contentKey, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Identifies decoded source content independently of its path, the same
+     * way a git blob id identifies file content.
+     *
+     * @param source decoded file content
+     * @return hex SHA-256 of the content
+     */
+    static String contentKey(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Parses a compilation unit. Declaration-only parses run on the source's
+     * {@link DeclarationSkeleton} without comment attribution; when the
+     * skeleton does not parse, the full source is parsed instead.
+     */
+    private static CompilationUnit parseCompilationUnit(String source, JavaParser parser,
+            boolean declarationsOnly) {
+        ParserConfiguration configuration = parser.getParserConfiguration();
+        if (declarationsOnly) {
+            String skeleton = DeclarationSkeleton.strip(source);
+            configuration.setAttributeComments(false);
+            ParseResult<CompilationUnit> result = parser.parse(skeleton);
+            if (result.isSuccessful() && result.getResult().isPresent()) {
+                return result.getResult().get();
+            }
+            LOGGER.log(Level.FINE, "Declaration-only parse failed, parsing the full source");
+        }
+        configuration.setAttributeComments(true);
+        ParseResult<CompilationUnit> result = parser.parse(source);
+        if (result.isSuccessful() && result.getResult().isPresent()) {
+            return result.getResult().get();
+        }
+        throw new ParseProblemException(result.getProblems());
+    }
+
+    ParseStats mergeFileResult(FileParseResult result, ParseContext context) {
+        Exception unexpectedError = result.unexpectedError();
+        try {
+            result.fragment().replayInto(context);
+        } catch (Exception e) {
+            // A type registered by an earlier file is only detected at merge time; report it
+            // exactly like a sequential visit that failed at the same point.
+            unexpectedError = e;
+        }
+
+        if (unexpectedError != null) {
+            LOGGER.log(Level.WARNING, "Unexpected error parsing {0} - {1}",
+                    new Object[] { result.javaFile(), unexpectedError.getMessage() });
+            context.addWarning("Unexpected error parsing: " + result.javaFile() + " - "
+                    + unexpectedError.getMessage());
+            return new ParseStats(0, 1);
+        }
+        return result.parsed() ? new ParseStats(1, 0) : new ParseStats(0, 1);
+    }
+
+    private static FileParseResult awaitFileResult(Future<FileParseResult> result) throws ParseException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException("Interrupted while waiting for parse workers", e);
+        } catch (ExecutionException e) {
+            // parseFile handles every Exception itself; anything reaching here is an Error
+            // that would also have aborted a sequential run.
+            if (e.getCause() instanceof Error error) {
+                throw error;
             }
+            throw new ParseException("Parse worker failed", e.getCause());
         }
+    }
 
-        return new ParseStats(parsed, failed);
+    static ThreadFactory parseWorkerThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "eitri-parse-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
-    private void collectFromSourcePath(Path sourcePath, List<Path> javaFiles) throws ParseException {
+    private void collectFromSourcePath(Path sourcePath, SourceFilter filter, List<Path> javaFiles)
+            throws ParseException {
         if (!Files.exists(sourcePath)) {
             throw new ParseException("Source path does not exist: " + sourcePath);
         }
@@ -640,7 +1209,7 @@ public class JavaSourceParser implements SourceParser {
         }
 
         if (Files.isDirectory(sourcePath)) {
-            walkDirectory(sourcePath, javaFiles);
+            walkDirectory(sourcePath, filter, javaFiles);
         }
     }
 
@@ -650,12 +1219,12 @@ public class JavaSourceParser implements SourceParser {
         }
     }
 
-    private void walkDirectory(Path sourcePath, List<Path> javaFiles) throws ParseException {
+    private void walkDirectory(Path sourcePath, SourceFilter filter, List<Path> javaFiles) throws ParseException {
         try {
             Files.walkFileTree(sourcePath, new SimpleFileVisitor<>() {
                 @Override
                 public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                    if (isTestDirectory(dir)) {
+                    if (isTestDirectory(dir) || filter.excludesDirectory(sourcePath, dir)) {
                         return FileVisitResult.SKIP_SUBTREE;
                     }
                     return FileVisitResult.CONTINUE;
@@ -663,7 +1232,9 @@ public class JavaSourceParser implements SourceParser {
 
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    addJavaFileIfMatches(file, javaFiles);
+                    if (filter.includesFile(sourcePath, file)) {
+                        addJavaFileIfMatches(file, javaFiles);
+                    }
                     return FileVisitResult.CONTINUE;
                 }
 
@@ -693,7 +1264,55 @@ public class JavaSourceParser implements SourceParser {
         return "test".equals(dirName) || "tests".equals(dirName);
     }
 
-    private void logTypeResolutionStats(TypeResolutionStats stats) {
+    private void logScheduleReport(ParseScheduleReport report) {
+        LOGGER.info(() -> String.format(Locale.ROOT,
+                "Parse schedule: %s cost model, %d worker(s), %.1f%% core utilization over %d ms%s",
+                report.costModel(), report.workers(), report.coreUtilization() * 100.0d,
+                TimeUnit.NANOSECONDS.toMillis(report.wallNanos()),
+                report.slowestFile() != null
+                        ? ", slowest file " + report.slowestFile() + " ("
+                                + TimeUnit.NANOSECONDS.toMillis(report.slowestFileNanos()) + " ms)"
+                        : ""));
+    }
+
+    private void logReadAheadStats(SourceReadAhead.ReadAheadStats stats) {
+        if (stats.budgetBytes() == 0) {
+            LOGGER.info(() -> "Source read-ahead: disabled, " + stats.bytesRead() + " bytes read on parse threads");
+            return;
+        }
+        LOGGER.info(() -> "Source read-ahead: budget " + stats.budgetBytes()
+                + " bytes, peak buffered " + stats.peakBufferedBytes()
+                + " bytes, " + stats.bytesRead() + " bytes read ("
+                + stats.mappedFiles() + " memory-mapped file(s))");
+    }
+
+    private void logParseCacheStats(ParseCache.CacheStats stats) {
+        LOGGER.info(() -> "Parse cache: " + stats.hits() + " hit(s), " + stats.misses() + " miss(es), "
+                + stats.writes() + " write(s), " + stats.evictions() + " eviction(s)");
+    }
+
+    private void logSolverCacheReport(SolverCacheReport report) {
+        LOGGER.info(() -> String.format(Locale.ROOT,
+                "Solver caches: %d hit(s), %d miss(es) (%.1f%% hit rate), %d eviction(s) at %s entries, "
+                        + "%d release(s)",
+                report.hits(), report.misses(), report.hitRate() * 100.0d, report.evictions(),
+                report.maxEntries() > 0 ? report.maxEntries() : "unbounded", report.releases()));
+    }
+
+    private void logClasspathPruning(ClasspathPruningReport report, boolean verbose) {
+        if (!report.applied()) {
+            return;
+        }
+        for (Path jar : report.prunedJars()) {
+            LOGGER.log(Level.FINE, "Pruned jar no source imports from: {0}", jar);
+        }
+        if (verbose) {
+            LOGGER.log(Level.INFO, "Kept {0} of {1} jar(s) holding one of {2} imported or declared package(s)",
+                    new Object[] { report.keptJars(), report.candidateJars(), report.referencedPackages() });
+        }
+    }
+
+    private void logTypeResolutionStats(TypeResolutionStats stats, TypeResolution mode) {
         LOGGER.info(() -> "Type reference resolution: "
                 + stats.totalRequests()
                 + " requests, "
@@ -702,7 +1321,9 @@ public class JavaSourceParser implements SourceParser {
                 + stats.reusedKnownTypes()
                 + " known type(s)), "
                 + stats.skippedTotal()
-                + " skipped");
+                + " skipped, "
+                + mode.id()
+                + " mode");
 
         if (stats.skippedTotal() > 0) {
             LOGGER.info(() -> "Type reference skips by reason: non-FQN=" + stats.skippedNonFqn()
@@ -711,8 +1332,101 @@ public class JavaSourceParser implements SourceParser {
                     + ", wildcard=" + stats.skippedWildcard()
                     + ", empty=" + stats.skippedNullOrEmpty());
         }
+        if (!stats.tiers().isEmpty()) {
+            LOGGER.info(() -> "Type name resolution by tier: " + stats.tiers().stream()
+                    .map(tier -> tier.tier().id() + "=" + tier.hits() + " hit(s) in "
+                            + TimeUnit.NANOSECONDS.toMillis(tier.nanos()) + " ms")
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private void logDeclarationSources(Map<DeclarationSourceCounter.Source, Long> hits) {
+        if (!hits.isEmpty()) {
+            LOGGER.info(() -> "Symbol solver declarations by source: " + hits.entrySet().stream()
+                    .map(entry -> entry.getKey().id() + "=" + entry.getValue())
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private void logSourceIndex(SourceTypeIndex sourceIndex) {
+        if (sourceIndex != null) {
+            LOGGER.log(Level.INFO, "Symbol solver source files: {0} parsed, {1} shared by the parse",
+                    new Object[] { sourceIndex.parsedFiles(), sourceIndex.sharedFiles() });
+        }
+    }
+
+    record ParseStats(int parsed, int failed) {
+        ParseStats plus(ParseStats other) {
+            return new ParseStats(parsed + other.parsed, failed + other.failed);
+        }
     }
 
-    private record ParseStats(int parsed, int failed) {
+    /**
+     * Outcome of visiting one file.
+     *
+     * @param contentKey {@link #contentKey(String)} of the visited content, or
+     *                   null when it was not requested or the file was
+     *                   unreadable
+     * @param visitNanos time spent parsing and visiting the file; {@code 0}
+     *                   when its fragment was replayed or reused, or the file
+     *                   could not be read
+     */
+    record FileParseResult(Path javaFile, ParseFragment fragment, boolean parsed, Exception unexpectedError,
+            String contentKey, long visitNanos) {
+
+        boolean isClean() {
+            return parsed && unexpectedError == null;
+        }
+    }
+
+    /**
+     * Collects parse outcomes and worker timings of one {@link #parseFiles}
+     * call. {@link #finished} is called from workers; everything else runs on
+     * the merging thread.
+     */
+    static final class ParseRun {
+        private final int fileCount;
+        private final int workers;
+        private final AtomicLong firstStarted = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong lastFinished = new AtomicLong(Long.MIN_VALUE);
+        private final LongAdder busyNanos = new LongAdder();
+        private ParseStats stats = new ParseStats(0, 0);
+        private Path slowestFile;
+        private long slowestFileNanos;
+        private ParseScheduleReport report;
+
+        ParseRun(int fileCount, int workers) {
+            this.fileCount = fileCount;
+            this.workers = workers;
+        }
+
+        void finished(long startedNanos, long finishedNanos) {
+            firstStarted.accumulateAndGet(startedNanos, Math::min);
+            lastFinished.accumulateAndGet(finishedNanos, Math::max);
+            busyNanos.add(finishedNanos - startedNanos);
+        }
+
+        void add(ParseStats fileStats, FileParseResult result) {
+            stats = stats.plus(fileStats);
+            if (result.visitNanos() > slowestFileNanos) {
+                slowestFile = result.javaFile();
+                slowestFileNanos = result.visitNanos();
+            }
+        }
+
+        void complete(String costModel, int filesWithHistory) {
+            long wallNanos = lastFinished.get() >= firstStarted.get() ? lastFinished.get() - firstStarted.get() : 0L;
+            int effectiveWorkers = Math.max(1, Math.min(workers, fileCount));
+            report = new ParseScheduleReport(costModel, effectiveWorkers, fileCount, filesWithHistory, wallNanos,
+                    busyNanos.sum(), slowestFile != null ? slowestFile.toString() : null, slowestFileNanos);
+        }
+
+        ParseStats stats() {
+            return stats;
+        }
+
+        ParseScheduleReport report() {
+            return report;
+        }
     }
 }
@@ -0,0 +1,281 @@
+package no.ntnu.eitri.parser.java;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import no.ntnu.eitri.config.ModelProjection;
+import no.ntnu.eitri.config.RunConfig;
+import no.ntnu.eitri.model.UmlModel;
+import no.ntnu.eitri.parser.BuildDiscoveryReport;
+import no.ntnu.eitri.parser.ParseContext;
+import no.ntnu.eitri.parser.ParseException;
+import no.ntnu.eitri.parser.ParseFragment;
+import no.ntnu.eitri.parser.ParseRunReport;
+import no.ntnu.eitri.parser.SourceParser;
+import no.ntnu.eitri.util.SourceArchives;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Java source parser that reads declarations with javac, through the
+ * {@code javax.tools} and Compiler Tree APIs, instead of JavaParser.
+ *
+ * <p>
+ * Files are parsed and entered, which resolves every type's header; member
+ * signatures are completed when {@link JavacTypeEmitter} reads them, and
+ * method bodies are never attributed. Names are resolved by javac against the
+ * same source roots and jars the symbol solver of {@link JavaSourceParser}
+ * uses, with the running JDK as the platform.
+ *
+ * <p>
+ * Large source sets are split into contiguous batches, one per parse worker,
+ * and each batch is entered by its own compiler task on its own worker:
+ * javac tasks share nothing, so they run in parallel. A type a batch refers
+ * to but does not hold is read from the source roots by that batch's task.
+ * Every file's types go into their own {@link ParseFragment}, replayed in file
+ * order, so the model is the same for any number of workers.
+ *
+ * <p>
+ * The parser needs a JDK, as a JRE has no system compiler. It handles
+ * {@code .java} files but is registered under its own id, {@code .java-javac},
+ * so that {@code .java} keeps selecting JavaParser.
+ */
+public class JavacSourceParser implements SourceParser {
+
+    private static final Logger LOGGER = Logger.getLogger(JavacSourceParser.class.getName());
+    private static final String NAME = "Javac";
+    private static final List<String> EXTENSIONS = List.of(".java");
+    private static final List<String> PARSER_IDS = List.of(".java-javac");
+    // Nothing is generated and no processor runs; errors are read from the
+    // diagnostics, so none may be dropped for being too many. Like JavaParser,
+    // javac reads every language feature it knows, preview ones included.
+    private static final List<String> COMPILER_OPTIONS = List.of("-proc:none", "-implicit:none", "-nowarn",
+            "-Xlint:none", "-Xmaxerrs", String.valueOf(Integer.MAX_VALUE), "-encoding", "UTF-8",
+            "--enable-preview", "--source", String.valueOf(Runtime.version().feature()));
+
+    // Walks the source paths exactly as the JavaParser-based parser does.
+    private final JavaSourceParser sourceWalker = new JavaSourceParser();
+    private volatile BuildDiscoveryReport lastBuildDiscoveryReport;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<String> getSupportedExtensions() {
+        return EXTENSIONS;
+    }
+
+    @Override
+    public List<String> getParserIds() {
+        return PARSER_IDS;
+    }
+
+    @Override
+    public ParseRunReport lastRunReport() {
+        return new ParseRunReport(null, null, null, lastBuildDiscoveryReport);
+    }
+
+    @Override
+    public List<Path> lastSourceFiles() {
+        return sourceWalker.lastSourceFiles();
+    }
+
+    @Override
+    public UmlModel parse(List<Path> sourcePaths, RunConfig runConfig) throws ParseException {
+        if (sourcePaths == null || sourcePaths.isEmpty()) {
+            throw new ParseException("No source paths provided");
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new ParseException("No Java compiler in this runtime; the javac parser needs a JDK");
+        }
+
+        try (SourceArchives archives = JavaSourceParser.mountArchives(sourcePaths)) {
+            List<Path> javaFiles = sourceWalker.collectJavaFiles(archives.paths(), runConfig.sourceFilter());
+            long discoveryStarted = System.nanoTime();
+            Path cacheDirectory = runConfig.parseOptions().cacheDirectory();
+            BuildModelCache build = BuildModelCache.load(cacheDirectory);
+            DependencyCacheIndex dependencies = DependencyCacheIndex.load(cacheDirectory);
+            ClassPath classPath = new ClassPath(JavaSourceParser.detectSolverSourceRoots(archives.paths(), build),
+                    JavaSourceParser.detectSolverJarFiles(archives.paths(), dependencies, build));
+            dependencies.save();
+            build.save();
+            lastBuildDiscoveryReport = new BuildDiscoveryReport(System.nanoTime() - discoveryStarted,
+                    build.modulesWalked(), build.scriptsRead(), build.scriptsReused());
+            List<List<Path>> batches = batches(javaFiles, runConfig.parseOptions().effectiveThreads());
+            if (runConfig.verbose()) {
+                LOGGER.log(Level.INFO, "Found {0} Java files to compile in {1} batch(es), with {2} jar(s) on the "
+                        + "classpath", new Object[] { javaFiles.size(), batches.size(), classPath.jars().size() });
+            }
+
+            ExecutorService workers = batches.size() > 1
+                    ? Executors.newFixedThreadPool(batches.size(), JavaSourceParser.parseWorkerThreadFactory())
+                    : null;
+            try {
+                return parseBatches(compiler, batches, classPath, workers, runConfig);
+            } finally {
+                if (workers != null) {
+                    workers.shutdownNow();
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the files into at most {@code count} contiguous batches of
+     * nearly equal size; neighbouring files tend to share a package, and so
+     * the types they refer to.
+     */
+    static List<List<Path>> batches(List<Path> javaFiles, int count) {
+        int batchCount = Math.max(1, Math.min(count, javaFiles.size()));
+        List<List<Path>> batches = new ArrayList<>(batchCount);
+        for (int i = 0; i < batchCount; i++) {
+            int from = (int) ((long) javaFiles.size() * i / batchCount);
+            int to = (int) ((long) javaFiles.size() * (i + 1) / batchCount);
+            batches.add(javaFiles.subList(from, to));
+        }
+        return batches;
+    }
+
+    private UmlModel parseBatches(JavaCompiler compiler, List<List<Path>> batches, ClassPath classPath,
+            ExecutorService workers, RunConfig runConfig) throws ParseException {
+        long started = System.nanoTime();
+        ModelProjection projection = runConfig.modelProjection();
+        List<List<CompiledFile>> compiled = ScanningJavaSourceParser.runAll(batches.size(), workers,
+                i -> compileBatch(compiler, batches.get(i), classPath, projection));
+        if (runConfig.verbose()) {
+            long compileMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            LOGGER.log(Level.INFO, "Entered {0} batch(es) in {1} ms", new Object[] { batches.size(), compileMillis });
+        }
+
+        ParseContext context = new ParseContext(runConfig.verbose());
+        for (List<CompiledFile> batch : compiled) {
+            for (CompiledFile file : batch) {
+                merge(file, context);
+            }
+        }
+
+        RelationDetector relationDetector = new RelationDetector(context, projection);
+        relationDetector.detectRelations();
+        if (runConfig.verbose()) {
+            LOGGER.log(Level.INFO, "Found {0} types, {1} relations (including detected)",
+                    new Object[] { context.getTypeCount(), context.getRelationCount() });
+            int warnings = context.getReport().warningCount();
+            if (warnings > 0) {
+                LOGGER.log(Level.INFO, "Collected {0} warnings", warnings);
+            }
+        }
+        return context.build();
+    }
+
+    /**
+     * Parses and enters one batch with its own compiler task and emits every
+     * file of it that parsed, in batch order.
+     */
+    private static List<CompiledFile> compileBatch(JavaCompiler compiler, List<Path> javaFiles, ClassPath classPath,
+            ModelProjection projection) {
+        List<CompiledFile> results = new ArrayList<>(javaFiles.size());
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT,
+                StandardCharsets.UTF_8)) {
+            fileManager.setLocationFromPaths(StandardLocation.SOURCE_PATH, classPath.sourceRoots());
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, classPath.jars());
+            JavacTask task = (JavacTask) compiler.getTask(null, fileManager, diagnostics, COMPILER_OPTIONS, null,
+                    fileManager.getJavaFileObjectsFromPaths(javaFiles));
+
+            Map<URI, CompilationUnitTree> units = new HashMap<>();
+            for (CompilationUnitTree unit : task.parse()) {
+                units.put(unit.getSourceFile().toUri(), unit);
+            }
+            // Only syntax errors are known before entering; later errors are unresolved names.
+            Map<URI, String> syntaxErrors = new HashMap<>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR && diagnostic.getSource() != null) {
+                    syntaxErrors.putIfAbsent(diagnostic.getSource().toUri(), "(line " + diagnostic.getLineNumber()
+                            + ",col " + diagnostic.getColumnNumber() + ") " + diagnostic.getMessage(Locale.ROOT));
+                }
+            }
+            // JavacTask has no public enter step, but an element lookup enters
+            // every parsed unit first. Entering attributes no method body.
+            task.getElements().getTypeElement(Object.class.getName());
+
+            JavacTypeEmitter emitter = new JavacTypeEmitter(task, projection);
+            for (Path javaFile : javaFiles) {
+                results.add(emitFile(javaFile, units, syntaxErrors, emitter));
+            }
+        } catch (IOException | RuntimeException e) {
+            // The task itself failed; report every file of the batch not yet emitted.
+            for (Path javaFile : javaFiles.subList(results.size(), javaFiles.size())) {
+                results.add(new CompiledFile(javaFile, new ParseFragment(), e));
+            }
+        }
+        return results;
+    }
+
+    private static CompiledFile emitFile(Path javaFile, Map<URI, CompilationUnitTree> units,
+            Map<URI, String> syntaxErrors, JavacTypeEmitter emitter) {
+        ParseFragment fragment = new ParseFragment();
+        URI uri = javaFile.toUri();
+        CompilationUnitTree unit = units.get(uri);
+        if (unit == null || syntaxErrors.containsKey(uri)) {
+            fragment.addWarning("Failed to parse file: " + javaFile + " - "
+                    + syntaxErrors.getOrDefault(uri, "not read by the compiler"));
+            return new CompiledFile(javaFile, fragment, null);
+        }
+        try {
+            emitter.emit(unit, fragment);
+            return new CompiledFile(javaFile, fragment, null);
+        } catch (Exception e) {
+            return new CompiledFile(javaFile, fragment, e);
+        }
+    }
+
+    private static void merge(CompiledFile file, ParseContext context) {
+        Exception unexpectedError = file.unexpectedError();
+        if (unexpectedError == null) {
+            try {
+                file.fragment().replayInto(context);
+            } catch (Exception e) {
+                // For example a type that an earlier file already declared.
+                unexpectedError = e;
+            }
+        }
+        if (unexpectedError != null) {
+            LOGGER.log(Level.WARNING, "Unexpected error parsing {0} - {1}",
+                    new Object[] { file.javaFile(), unexpectedError.getMessage() });
+            context.addWarning("Unexpected error parsing: " + file.javaFile() + " - "
+                    + unexpectedError.getMessage());
+        }
+    }
+
+    /**
+     * Where javac looks up the types the parsed files refer to.
+     */
+    private record ClassPath(Set<Path> sourceRoots, Set<Path> jars) {
+    }
+
+    private record CompiledFile(Path javaFile, ParseFragment fragment, Exception unexpectedError) {
+    }
+}
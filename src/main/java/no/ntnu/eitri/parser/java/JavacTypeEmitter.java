@@ -0,0 +1,569 @@
+package no.ntnu.eitri.parser.java;
+
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.ArrayTypeTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.ImportTree;
+import com.sun.source.tree.LineMap;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.ModifiersTree;
+import com.sun.source.tree.ParameterizedTypeTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TypeParameterTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import no.ntnu.eitri.config.ModelProjection;
+import no.ntnu.eitri.model.RelationKind;
+import no.ntnu.eitri.model.TypeKind;
+import no.ntnu.eitri.model.UmlField;
+import no.ntnu.eitri.model.UmlGeneric;
+import no.ntnu.eitri.model.UmlMethod;
+import no.ntnu.eitri.model.UmlParameter;
+import no.ntnu.eitri.model.UmlRelation;
+import no.ntnu.eitri.model.UmlStereotype;
+import no.ntnu.eitri.model.UmlType;
+import no.ntnu.eitri.model.Visibility;
+import no.ntnu.eitri.parser.ParseContext;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Adds the declarations of compilation units entered by javac to a
+ * {@link ParseContext}, in the same shape {@link TypeVisitor} gives them.
+ *
+ * <p>
+ * Declarations are read from the syntax tree, so modifiers, annotations and
+ * values are those written in the source. Member types are read from the
+ * {@link TypeMirror}s javac gives the members' elements: asking for them
+ * completes a type's member signatures, but no method body is attributed.
+ * A type javac cannot resolve is kept as written, with a warning.
+ *
+ * <p>
+ * An emitter belongs to one compiler task, and javac is not thread-safe, so
+ * it must only be used by the thread running that task.
+ */
+final class JavacTypeEmitter {
+
+    private static final String STATIC_STEREOTYPE = "static";
+    private static final String ABSTRACT_STEREOTYPE = "abstract";
+    private static final String FINAL_STEREOTYPE = "final";
+    private static final String RECORD_STEREOTYPE = "record";
+
+    private final Trees trees;
+    private final Elements elements;
+    private final ModelProjection projection;
+
+    /**
+     * @param task       the task whose compilation units are emitted, once
+     *                   they are entered
+     * @param projection the members to keep
+     */
+    JavacTypeEmitter(JavacTask task, ModelProjection projection) {
+        this.trees = Trees.instance(task);
+        this.elements = task.getElements();
+        this.projection = projection;
+    }
+
+    /**
+     * Adds the types of one compilation unit, with their nested and
+     * inheritance relations, and a warning for every type javac could not
+     * resolve.
+     *
+     * @param unit    the entered compilation unit
+     * @param context receives the types
+     * @throws IOException if the unit's source cannot be read again
+     */
+    void emit(CompilationUnitTree unit, ParseContext context) throws IOException {
+        new UnitEmission(unit, context).run();
+    }
+
+    private final class UnitEmission {
+        private final CompilationUnitTree unit;
+        private final ParseContext context;
+        private final CharSequence source;
+        private final SourcePositions positions;
+        private final LineMap lineMap;
+
+        UnitEmission(CompilationUnitTree unit, ParseContext context) throws IOException {
+            this.unit = unit;
+            this.context = context;
+            this.source = unit.getSourceFile().getCharContent(true);
+            this.positions = trees.getSourcePositions();
+            this.lineMap = unit.getLineMap();
+        }
+
+        void run() {
+            TreePath unitPath = new TreePath(unit);
+            for (Tree declaration : unit.getTypeDecls()) {
+                if (declaration instanceof ClassTree) {
+                    emitType(new TreePath(unitPath, declaration), null);
+                }
+            }
+        }
+
+        private void emitType(TreePath path, String outerFqn) {
+            ClassTree tree = (ClassTree) path.getLeaf();
+            if (!(trees.getElement(path) instanceof TypeElement element)) {
+                return;
+            }
+            String fqn = element.getQualifiedName().toString();
+            TypeKind kind = kindOf(tree);
+            Set<Modifier> flags = tree.getModifiers().getFlags();
+
+            UmlType.Builder builder = UmlType.builder()
+                    .fqn(fqn)
+                    .simpleName(tree.getSimpleName().toString())
+                    .kind(kind)
+                    .visibility(visibilityOf(tree.getModifiers()));
+            if (outerFqn != null) {
+                builder.outerTypeFqn(outerFqn);
+                // Nested interfaces, enums, records and annotations are implicitly static.
+                if (kind != TypeKind.CLASS || flags.contains(Modifier.STATIC)) {
+                    builder.addStereotype(STATIC_STEREOTYPE);
+                }
+            }
+            for (AnnotationTree annotation : tree.getModifiers().getAnnotations()) {
+                builder.addStereotype(toStereotype(annotation));
+            }
+            if (kind == TypeKind.CLASS && flags.contains(Modifier.ABSTRACT)) {
+                builder.addStereotype(ABSTRACT_STEREOTYPE);
+            }
+            if (kind == TypeKind.CLASS && flags.contains(Modifier.FINAL)) {
+                builder.addStereotype(FINAL_STEREOTYPE);
+            }
+            if (kind == TypeKind.RECORD) {
+                builder.addStereotype(RECORD_STEREOTYPE);
+            }
+            if (kind != TypeKind.ENUM && kind != TypeKind.ANNOTATION) {
+                for (TypeParameterTree typeParameter : tree.getTypeParameters()) {
+                    builder.addGeneric(toGeneric(typeParameter));
+                }
+            }
+
+            // TypeVisitor adds members grouped by kind, each group in declaration order.
+            List<UmlField> constants = new ArrayList<>();
+            List<UmlField> fields = new ArrayList<>();
+            List<UmlMethod> methods = new ArrayList<>();
+            List<UmlMethod> constructors = new ArrayList<>();
+            List<TreePath> nestedTypes = new ArrayList<>();
+            for (Tree member : tree.getMembers()) {
+                TreePath memberPath = new TreePath(path, member);
+                if (member instanceof ClassTree) {
+                    nestedTypes.add(memberPath);
+                    continue;
+                }
+                Element memberElement = trees.getElement(memberPath);
+                if (memberElement == null || elements.getOrigin(memberElement) != Elements.Origin.EXPLICIT) {
+                    // Default constructors, record accessors and other members javac declares itself.
+                    continue;
+                }
+                if (member instanceof VariableTree variable) {
+                    addVariable(variable, memberElement, kind, fqn, constants, fields);
+                } else if (member instanceof MethodTree method
+                        && memberElement instanceof ExecutableElement executable) {
+                    addExecutable(method, executable, kind, tree, methods, constructors);
+                }
+            }
+            constants.forEach(builder::addField);
+            fields.forEach(builder::addField);
+            methods.forEach(builder::addMethod);
+            constructors.forEach(builder::addMethod);
+
+            context.addType(builder.build());
+            if (outerFqn != null) {
+                context.addRelation(UmlRelation.nestedRelation(outerFqn, fqn));
+            }
+
+            // Interfaces extend interfaces; for them, "extends" is the only clause.
+            RelationKind implementsKind = kind == TypeKind.INTERFACE ? RelationKind.EXTENDS : RelationKind.IMPLEMENTS;
+            if (tree.getExtendsClause() != null) {
+                addInheritance(fqn, new TreePath(path, tree.getExtendsClause()), RelationKind.EXTENDS);
+            }
+            for (Tree implemented : tree.getImplementsClause()) {
+                addInheritance(fqn, new TreePath(path, implemented), implementsKind);
+            }
+
+            for (TreePath nested : nestedTypes) {
+                emitType(nested, fqn);
+            }
+        }
+
+        private void addVariable(VariableTree variable, Element element, TypeKind ownerKind, String ownerFqn,
+                List<UmlField> constants, List<UmlField> fields) {
+            if (element.getKind() == ElementKind.ENUM_CONSTANT) {
+                if (projection.includesField(Visibility.PUBLIC)) {
+                    constants.add(UmlField.builder()
+                            .name(variable.getName().toString())
+                            .type(ownerFqn)
+                            .visibility(Visibility.PUBLIC)
+                            .isStatic(true)
+                            .isFinal(true)
+                            .build());
+                }
+                return;
+            }
+            boolean isStatic = variable.getModifiers().getFlags().contains(Modifier.STATIC);
+            if (ownerKind == TypeKind.RECORD) {
+                // A record's instance fields are its components; its other fields are left out.
+                if (!isStatic && projection.includesField(Visibility.PRIVATE)) {
+                    fields.add(UmlField.builder()
+                            .name(variable.getName().toString())
+                            .type(typeName(element.asType(), variable.getType()))
+                            .visibility(Visibility.PRIVATE)
+                            .isFinal(true)
+                            .build());
+                }
+                return;
+            }
+            if (ownerKind == TypeKind.ANNOTATION) {
+                return;
+            }
+            Visibility visibility = visibilityOf(variable.getModifiers());
+            if (!projection.includesField(visibility)) {
+                return;
+            }
+            boolean isFinal = variable.getModifiers().getFlags().contains(Modifier.FINAL);
+            UmlField.Builder fieldBuilder = UmlField.builder()
+                    .name(variable.getName().toString())
+                    .type(typeName(element.asType(), variable.getType()))
+                    .visibility(visibility)
+                    .isStatic(isStatic)
+                    .isFinal(isFinal)
+                    .readOnly(isFinal);
+            for (AnnotationTree annotation : variable.getModifiers().getAnnotations()) {
+                fieldBuilder.addAnnotation(written(annotation.getAnnotationType()));
+            }
+            if (variable.getInitializer() != null) {
+                String initializer = written(variable.getInitializer());
+                if (initializer.length() <= 50) {
+                    fieldBuilder.addAnnotation("init:" + initializer);
+                }
+            }
+            fields.add(fieldBuilder.build());
+        }
+
+        private void addExecutable(MethodTree method, ExecutableElement element, TypeKind ownerKind,
+                ClassTree owner, List<UmlMethod> methods, List<UmlMethod> constructors) {
+            if (ownerKind == TypeKind.ANNOTATION) {
+                if (projection.includesMethod(Visibility.PUBLIC)) {
+                    String defaultValue = method.getDefaultValue() != null
+                            ? " = " + written(method.getDefaultValue())
+                            : "";
+                    methods.add(UmlMethod.builder()
+                            .name(method.getName() + "()" + defaultValue)
+                            .returnType(typeName(element.getReturnType(), method.getReturnType()))
+                            .visibility(Visibility.PUBLIC)
+                            .isAbstract(true)
+                            .build());
+                }
+                return;
+            }
+            Visibility visibility = visibilityOf(method.getModifiers());
+            boolean isConstructor = element.getKind() == ElementKind.CONSTRUCTOR;
+            if ((isConstructor && ownerKind == TypeKind.RECORD) || !projection.includesMethod(visibility)) {
+                return;
+            }
+
+            UmlMethod.Builder methodBuilder = UmlMethod.builder().visibility(visibility);
+            Set<Modifier> flags = method.getModifiers().getFlags();
+            if (isConstructor) {
+                methodBuilder.name(owner.getSimpleName().toString())
+                        .returnType("")
+                        .constructor(true)
+                        .addAnnotation("constructor");
+            } else {
+                // Like JavaParser, interface methods are abstract unless static, default or private.
+                boolean isAbstract = flags.contains(Modifier.ABSTRACT)
+                        || (ownerKind == TypeKind.INTERFACE
+                                && !flags.contains(Modifier.STATIC)
+                                && !flags.contains(Modifier.DEFAULT)
+                                && !flags.contains(Modifier.PRIVATE));
+                methodBuilder.name(method.getName().toString())
+                        .returnType(typeName(element.getReturnType(), method.getReturnType()))
+                        .isStatic(flags.contains(Modifier.STATIC))
+                        .isAbstract(isAbstract)
+                        .modifiers(toModifiers(flags, isAbstract));
+            }
+            for (TypeParameterTree typeParameter : method.getTypeParameters()) {
+                methodBuilder.addGeneric(toGeneric(typeParameter));
+            }
+            List<? extends VariableTree> parameters = method.getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                VariableTree parameter = parameters.get(i);
+                TypeMirror type = element.getParameters().get(i).asType();
+                Tree typeTree = parameter.getType();
+                // JavaParser gives a varargs parameter its element type.
+                if (element.isVarArgs() && i == parameters.size() - 1 && type instanceof ArrayType array
+                        && typeTree instanceof ArrayTypeTree arrayTree) {
+                    type = array.getComponentType();
+                    typeTree = arrayTree.getType();
+                }
+                methodBuilder.addParameter(new UmlParameter(parameter.getName().toString(), typeName(type, typeTree)));
+            }
+            List<? extends ExpressionTree> thrown = method.getThrows();
+            for (int i = 0; i < thrown.size(); i++) {
+                TypeMirror type = i < element.getThrownTypes().size() ? element.getThrownTypes().get(i) : null;
+                methodBuilder.addThrownException(typeName(type, thrown.get(i)));
+            }
+            if (isConstructor) {
+                constructors.add(methodBuilder.build());
+                return;
+            }
+            for (AnnotationTree annotation : method.getModifiers().getAnnotations()) {
+                String name = written(annotation.getAnnotationType());
+                if (!name.equals("Override")) {
+                    methodBuilder.addAnnotation(name);
+                }
+            }
+            methods.add(methodBuilder.build());
+        }
+
+        private void addInheritance(String fromFqn, TreePath clause, RelationKind kind) {
+            TypeMirror type = trees.getTypeMirror(clause);
+            String resolved;
+            if (type instanceof DeclaredType declared && !hasError(type)) {
+                resolved = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+            } else {
+                resolved = simpleName(clause.getLeaf());
+            }
+            context.addPendingInheritance(new ParseContext.PendingInheritance(fromFqn, resolved, kind));
+        }
+
+        /**
+         * Names a resolved type the way {@link TypeVisitor} names what the
+         * symbol solver resolves, or falls back like it does when javac could
+         * not resolve the type.
+         */
+        private String typeName(TypeMirror type, Tree typeTree) {
+            if (type != null && !hasError(type)) {
+                return describe(type);
+            }
+            String imported = importedName(typeTree);
+            if (imported != null) {
+                return imported;
+            }
+            String written = written(typeTree);
+            context.addWarning("Failed to resolve type '" + written + "' at " + position(typeTree)
+                    + ": cannot find symbol");
+            return written;
+        }
+
+        /**
+         * Resolves a simple name through the single-type imports, as
+         * {@link TypeVisitor} does for names the symbol solver cannot find.
+         *
+         * @return the imported name with its type arguments as written, or
+         *         null
+         */
+        private String importedName(Tree typeTree) {
+            if (typeTree instanceof ArrayTypeTree array) {
+                String component = importedName(array.getType());
+                return component != null ? component + "[]" : null;
+            }
+            List<? extends Tree> arguments = List.of();
+            Tree base = typeTree;
+            if (typeTree instanceof ParameterizedTypeTree parameterized) {
+                base = parameterized.getType();
+                arguments = parameterized.getTypeArguments();
+            }
+            if (!(base instanceof IdentifierTree identifier)) {
+                return null;
+            }
+            String suffix = "." + identifier.getName();
+            for (ImportTree imported : unit.getImports()) {
+                String name = written(imported.getQualifiedIdentifier());
+                if (imported.isStatic() || name.endsWith(".*") || !name.endsWith(suffix)) {
+                    continue;
+                }
+                if (arguments.isEmpty()) {
+                    return name;
+                }
+                List<String> written = new ArrayList<>(arguments.size());
+                for (Tree argument : arguments) {
+                    String nested = importedName(argument);
+                    written.add(nested != null ? nested : written(argument));
+                }
+                return name + "<" + String.join(", ", written) + ">";
+            }
+            return null;
+        }
+
+        private UmlGeneric toGeneric(TypeParameterTree typeParameter) {
+            String name = typeParameter.getName().toString();
+            if (typeParameter.getBounds().isEmpty()) {
+                return new UmlGeneric(name);
+            }
+            List<String> bounds = typeParameter.getBounds().stream().map(this::written).toList();
+            return new UmlGeneric(name, "extends " + String.join(" & ", bounds));
+        }
+
+        private UmlStereotype toStereotype(AnnotationTree annotation) {
+            String name = written(annotation.getAnnotationType());
+            if (annotation.getArguments().isEmpty()) {
+                return new UmlStereotype(name);
+            }
+            return new UmlStereotype(name, annotation.getArguments().stream().map(this::written).toList());
+        }
+
+        /**
+         * The source text of a tree, with runs of whitespace collapsed.
+         */
+        private String written(Tree tree) {
+            long start = positions.getStartPosition(unit, tree);
+            long end = positions.getEndPosition(unit, tree);
+            if (start < 0 || end < start) {
+                return tree.toString();
+            }
+            return source.subSequence((int) start, (int) end).toString().strip().replaceAll("\\s+", " ");
+        }
+
+        private String position(Tree tree) {
+            long start = positions.getStartPosition(unit, tree);
+            if (start < 0) {
+                return "unknown position";
+            }
+            return "(line " + lineMap.getLineNumber(start) + ",col " + lineMap.getColumnNumber(start) + ")";
+        }
+    }
+
+    private static TypeKind kindOf(ClassTree tree) {
+        return switch (tree.getKind()) {
+            case INTERFACE -> TypeKind.INTERFACE;
+            case ENUM -> TypeKind.ENUM;
+            case ANNOTATION_TYPE -> TypeKind.ANNOTATION;
+            case RECORD -> TypeKind.RECORD;
+            default -> TypeKind.CLASS;
+        };
+    }
+
+    private static Visibility visibilityOf(ModifiersTree modifiers) {
+        Set<Modifier> flags = modifiers.getFlags();
+        if (flags.contains(Modifier.PUBLIC)) {
+            return Visibility.PUBLIC;
+        } else if (flags.contains(Modifier.PROTECTED)) {
+            return Visibility.PROTECTED;
+        } else if (flags.contains(Modifier.PRIVATE)) {
+            return Visibility.PRIVATE;
+        }
+        return Visibility.PACKAGE;
+    }
+
+    /**
+     * Describes a type as {@link TypeVisitor} describes a type resolved by the
+     * symbol solver: qualified names, with type arguments separated by
+     * {@code ", "}.
+     */
+    private static String describe(TypeMirror type) {
+        switch (type.getKind()) {
+            case ARRAY:
+                return describe(((ArrayType) type).getComponentType()) + "[]";
+            case DECLARED:
+                DeclaredType declared = (DeclaredType) type;
+                String name = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+                if (declared.getTypeArguments().isEmpty()) {
+                    return name;
+                }
+                List<String> arguments = declared.getTypeArguments().stream().map(JavacTypeEmitter::describe)
+                        .toList();
+                return name + "<" + String.join(", ", arguments) + ">";
+            case TYPEVAR:
+                return ((TypeVariable) type).asElement().getSimpleName().toString();
+            case WILDCARD:
+                WildcardType wildcard = (WildcardType) type;
+                if (wildcard.getExtendsBound() != null) {
+                    return "? extends " + describe(wildcard.getExtendsBound());
+                }
+                if (wildcard.getSuperBound() != null) {
+                    return "? super " + describe(wildcard.getSuperBound());
+                }
+                return "?";
+            default:
+                // Primitives and void; annotations on them are not part of the name.
+                if (type.getKind().isPrimitive() || type.getKind() == javax.lang.model.type.TypeKind.VOID) {
+                    return type.getKind().name().toLowerCase(Locale.ROOT);
+                }
+                return type.toString();
+        }
+    }
+
+    /**
+     * Whether javac could not resolve the type or one of its type arguments,
+     * components or bounds.
+     */
+    private static boolean hasError(TypeMirror type) {
+        switch (type.getKind()) {
+            case ERROR:
+                return true;
+            case ARRAY:
+                return hasError(((ArrayType) type).getComponentType());
+            case DECLARED:
+                return ((DeclaredType) type).getTypeArguments().stream().anyMatch(JavacTypeEmitter::hasError);
+            case WILDCARD:
+                WildcardType wildcard = (WildcardType) type;
+                TypeMirror bound = wildcard.getExtendsBound() != null
+                        ? wildcard.getExtendsBound()
+                        : wildcard.getSuperBound();
+                return bound != null && hasError(bound);
+            default:
+                return false;
+        }
+    }
+
+    private static String simpleName(Tree typeTree) {
+        Tree base = typeTree instanceof ParameterizedTypeTree parameterized ? parameterized.getType() : typeTree;
+        if (base instanceof MemberSelectTree select) {
+            return select.getIdentifier().toString();
+        }
+        if (base instanceof IdentifierTree identifier) {
+            return identifier.getName().toString();
+        }
+        return base.toString();
+    }
+
+    @SuppressWarnings("null")
+    private static EnumSet<no.ntnu.eitri.model.Modifier> toModifiers(Set<Modifier> flags, boolean isAbstract) {
+        EnumSet<no.ntnu.eitri.model.Modifier> result = EnumSet.noneOf(no.ntnu.eitri.model.Modifier.class);
+        if (flags.contains(Modifier.STATIC)) {
+            result.add(no.ntnu.eitri.model.Modifier.STATIC);
+        }
+        if (isAbstract) {
+            result.add(no.ntnu.eitri.model.Modifier.ABSTRACT);
+        }
+        if (flags.contains(Modifier.FINAL)) {
+            result.add(no.ntnu.eitri.model.Modifier.FINAL);
+        }
+        if (flags.contains(Modifier.SYNCHRONIZED)) {
+            result.add(no.ntnu.eitri.model.Modifier.SYNCHRONIZED);
+        }
+        if (flags.contains(Modifier.NATIVE)) {
+            result.add(no.ntnu.eitri.model.Modifier.NATIVE);
+        }
+        if (flags.contains(Modifier.DEFAULT)) {
+            result.add(no.ntnu.eitri.model.Modifier.DEFAULT);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,201 @@
+package no.ntnu.eitri.parser.java;
+
+import javassist.ClassPath;
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.ClassFile;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Class files of the running JDK, read from the {@code jrt:/} file system
+ * without loading or linking any class.
+ *
+ * <p>
+ * A package is mapped to the modules holding it through the image's
+ * {@code /packages} directory, once per package, so finding a class file is
+ * one file check. Lookups, and the few flags read from class files, are
+ * cached. One instance serves the whole process and may be used from any
+ * thread.
+ */
+final class JdkClassFiles {
+
+    private static final String CLASS_EXTENSION = ".class";
+    private static final JdkClassFiles SYSTEM = new JdkClassFiles(openImage());
+
+    private final FileSystem image;
+    private final Map<String, List<String>> modulesByPackage = new ConcurrentHashMap<>();
+    private final Map<String, Optional<Path>> classFiles = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> enums = new ConcurrentHashMap<>();
+
+    private JdkClassFiles(FileSystem image) {
+        this.image = image;
+    }
+
+    /**
+     * Returns the class files of the JDK this process runs on.
+     *
+     * @return the shared instance; it finds nothing on a runtime without a
+     *         {@code jrt:/} image
+     */
+    static JdkClassFiles system() {
+        return SYSTEM;
+    }
+
+    private static FileSystem openImage() {
+        try {
+            return FileSystems.getFileSystem(URI.create("jrt:/"));
+        } catch (RuntimeException _) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the class file of a class.
+     *
+     * @param binaryName dotted binary name, as in {@code java.util.Map$Entry}
+     * @return the class file, or null when the JDK has no such class
+     */
+    Path find(String binaryName) {
+        if (image == null) {
+            return null;
+        }
+        return classFiles.computeIfAbsent(binaryName, this::locate).orElse(null);
+    }
+
+    /**
+     * Returns whether the JDK declares a type.
+     *
+     * @param canonicalName dotted name, nested types included
+     *                      ({@code java.util.Map.Entry})
+     * @return true when the JDK has a class file for it
+     */
+    boolean contains(String canonicalName) {
+        return binaryName(canonicalName) != null;
+    }
+
+    /**
+     * Returns whether a JDK type is an enum, from the flags of its class file.
+     *
+     * @param canonicalName dotted name, nested types included
+     * @return true for a JDK enum; false for any other or unknown type
+     */
+    boolean isEnum(String canonicalName) {
+        return enums.computeIfAbsent(canonicalName, name -> {
+            String binaryName = binaryName(name);
+            if (binaryName == null) {
+                return false;
+            }
+            try (InputStream in = Files.newInputStream(find(binaryName))) {
+                return declaresEnum(in);
+            } catch (IOException | RuntimeException _) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Returns whether a class file declares an enum, from its access flags.
+     *
+     * @param classFile the class file's content
+     * @return true for an enum class
+     * @throws IOException if the content is not a class file
+     */
+    static boolean declaresEnum(InputStream classFile) throws IOException {
+        return (new ClassFile(new DataInputStream(classFile)).getAccessFlags() & AccessFlag.ENUM) != 0;
+    }
+
+    /**
+     * Returns a Javassist class path over the JDK's class files, for solvers
+     * that build declarations from class files.
+     *
+     * @return a class path that finds JDK classes by binary name
+     */
+    ClassPath classPath() {
+        return new ClassPath() {
+            @Override
+            public InputStream openClassfile(String classname) {
+                Path classFile = JdkClassFiles.this.find(classname);
+                if (classFile == null) {
+                    return null;
+                }
+                try {
+                    return Files.newInputStream(classFile);
+                } catch (IOException _) {
+                    return null;
+                }
+            }
+
+            @Override
+            public URL find(String classname) {
+                Path classFile = JdkClassFiles.this.find(classname);
+                if (classFile == null) {
+                    return null;
+                }
+                try {
+                    return classFile.toUri().toURL();
+                } catch (MalformedURLException _) {
+                    return null;
+                }
+            }
+        };
+    }
+
+    /**
+     * Finds the binary name a canonical name compiles to, trying top-level
+     * classes first and then ever more deeply nested member classes.
+     */
+    private String binaryName(String canonicalName) {
+        String[] segments = canonicalName.split("\\.");
+        for (int packageEnd = segments.length - 1; packageEnd > 0; packageEnd--) {
+            String binaryName = String.join(".", List.of(segments).subList(0, packageEnd)) + "."
+                    + String.join("$", List.of(segments).subList(packageEnd, segments.length));
+            if (find(binaryName) != null) {
+                return binaryName;
+            }
+        }
+        return null;
+    }
+
+    private Optional<Path> locate(String binaryName) {
+        int lastDot = binaryName.lastIndexOf('.');
+        if (lastDot < 0) {
+            return Optional.empty();
+        }
+        String file = binaryName.replace('.', '/') + CLASS_EXTENSION;
+        for (String module : modulesOf(binaryName.substring(0, lastDot))) {
+            Path classFile = image.getPath("/modules", module, file);
+            if (Files.isRegularFile(classFile)) {
+                return Optional.of(classFile);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private List<String> modulesOf(String packageName) {
+        return modulesByPackage.computeIfAbsent(packageName, name -> {
+            Path links = image.getPath("/packages", name);
+            if (!Files.isDirectory(links)) {
+                return List.of();
+            }
+            try (Stream<Path> modules = Files.list(links)) {
+                return modules.map(module -> module.getFileName().toString()).sorted().toList();
+            } catch (IOException _) {
+                return List.of();
+            }
+        });
+    }
+}
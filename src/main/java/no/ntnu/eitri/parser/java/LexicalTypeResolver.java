@@ -0,0 +1,321 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.nodeTypes.NodeWithTypeParameters;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.WildcardType;
+import no.ntnu.eitri.parser.resolution.ResolutionTier;
+import no.ntnu.eitri.parser.resolution.ResolutionTierCounter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Predicate;
+
+/**
+ * Resolves type names from the source text alone, without JavaParser's symbol
+ * solver.
+ *
+ * <p>
+ * A simple name is looked up the way the compiler scopes it, as far as that
+ * is possible without class files:
+ * <ol>
+ * <li>type variables of the enclosing declarations;</li>
+ * <li>member types of the enclosing types, and the enclosing types
+ * themselves;</li>
+ * <li>single-type imports;</li>
+ * <li>types of the same package in the {@link DeclaredTypeIndex};</li>
+ * <li>on-demand imports whose candidate is in the index;</li>
+ * <li>{@code java.lang}, then on-demand imports of JDK packages.</li>
+ * </ol>
+ * A qualified name is resolved through its first segment, or taken as written
+ * when it starts with a package name. Member types inherited from a supertype
+ * cannot be seen this way and stay unresolved.
+ *
+ * <p>
+ * Results use the same form as names from the symbol solver, including type
+ * arguments ({@code java.util.List<com.example.Item>}), so relation detection
+ * treats both modes alike.
+ *
+ * <p>
+ * For tiered resolution the resolver is <em>strict</em>: a type is only
+ * resolved when every part of it is, so that the caller can hand anything
+ * else to the symbol solver whole. Each lookup is charged to its
+ * {@link ResolutionTier}.
+ */
+final class LexicalTypeResolver {
+
+    private static final String JAVA_LANG = "java.lang.";
+
+    private final DeclaredTypeIndex index;
+    private final boolean strict;
+    private final ResolutionTierCounter tiers;
+
+    /**
+     * @param index  declared types of the parsed sources
+     * @param strict whether a type with an unresolved type argument or
+     *               wildcard bound is unresolved as a whole
+     * @param tiers  receives per-tier hits and time
+     */
+    LexicalTypeResolver(DeclaredTypeIndex index, boolean strict, ResolutionTierCounter tiers) {
+        this.index = index;
+        this.strict = strict;
+        this.tiers = tiers;
+    }
+
+    /**
+     * Returns whether unresolved types go to the symbol solver.
+     *
+     * @return true for tiered resolution
+     */
+    boolean isStrict() {
+        return strict;
+    }
+
+    /**
+     * Returns the counter lookups are charged to, which the symbol solver
+     * tier shares.
+     *
+     * @return the tier counter
+     */
+    ResolutionTierCounter tiers() {
+        return tiers;
+    }
+
+    /**
+     * Resolves a type as used in a declaration.
+     *
+     * @param type the type node
+     * @return the fully qualified form, or null when the type itself (not
+     *         just one of its type arguments, unless strict) could not be
+     *         resolved
+     */
+    String resolve(Type type) {
+        if (type.isPrimitiveType() || type.isVoidType()) {
+            tiers.record(ResolutionTier.LANGUAGE, true, 0L);
+            return type.asString();
+        }
+        if (type.isArrayType()) {
+            String component = resolve(type.asArrayType().getComponentType());
+            return component != null ? component + "[]" : null;
+        }
+        if (type.isWildcardType()) {
+            return resolveWildcard(type.asWildcardType());
+        }
+        if (!type.isClassOrInterfaceType()) {
+            return null;
+        }
+
+        ClassOrInterfaceType classType = type.asClassOrInterfaceType();
+        String name = resolveName(classType);
+        if (name == null) {
+            return null;
+        }
+        NodeList<Type> typeArguments = classType.getTypeArguments().orElse(null);
+        if (typeArguments == null || typeArguments.isEmpty()) {
+            return name;
+        }
+        StringBuilder sb = new StringBuilder(name).append('<');
+        for (int i = 0; i < typeArguments.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Type argument = typeArguments.get(i);
+            String resolved = resolve(argument);
+            if (resolved == null && strict) {
+                return null;
+            }
+            sb.append(resolved != null ? resolved : argument.asString());
+        }
+        return sb.append('>').toString();
+    }
+
+    /**
+     * Resolves the erased name of a class or interface type, as used for
+     * {@code extends} and {@code implements} clauses.
+     *
+     * @param type the type node
+     * @return the fully qualified name without type arguments, the name of a
+     *         type variable, or null when the name could not be resolved
+     */
+    String resolveName(ClassOrInterfaceType type) {
+        Deque<String> segments = new ArrayDeque<>();
+        ClassOrInterfaceType current = type;
+        while (current != null) {
+            segments.push(current.getNameAsString());
+            current = current.getScope().orElse(null);
+        }
+        String first = segments.pop();
+        String rest = segments.isEmpty() ? "" : "." + String.join(".", segments);
+
+        long started = System.nanoTime();
+        if (rest.isEmpty()) {
+            String typeVariable = isTypeVariable(type, first) ? first : null;
+            started = charge(ResolutionTier.COMPILATION_UNIT, typeVariable, started);
+            if (typeVariable != null) {
+                return typeVariable;
+            }
+        }
+        String head = resolveSimpleName(first, type, started);
+        if (head != null) {
+            return head + rest;
+        }
+        started = System.nanoTime();
+        String written = first + rest;
+        if (rest.isEmpty() || !(index.contains(written) || Character.isLowerCase(first.charAt(0)))) {
+            written = null;
+        }
+        // Qualified by package, e.g. java.util.List or com.example.Outer.Inner.
+        charge(ResolutionTier.IMPORT, written, started);
+        return written;
+    }
+
+    private String resolveWildcard(WildcardType wildcard) {
+        Type bound = wildcard.getExtendedType().or(wildcard::getSuperType).orElse(null);
+        if (bound == null) {
+            return "?";
+        }
+        String resolved = resolve(bound);
+        if (resolved == null) {
+            if (strict) {
+                return null;
+            }
+            resolved = bound.asString();
+        }
+        return (wildcard.getExtendedType().isPresent() ? "? extends " : "? super ") + resolved;
+    }
+
+    private String resolveSimpleName(String name, Node usage, long started) {
+        String member = resolveInEnclosingTypes(name, usage);
+        started = charge(ResolutionTier.COMPILATION_UNIT, member, started);
+        if (member != null) {
+            return member;
+        }
+
+        CompilationUnit compilationUnit = usage.findCompilationUnit().orElse(null);
+        if (compilationUnit == null) {
+            return null;
+        }
+        String imported = resolveSingleTypeImport(name, compilationUnit);
+        started = charge(ResolutionTier.IMPORT, imported, started);
+        if (imported != null) {
+            return imported;
+        }
+
+        String packagePrefix = compilationUnit.getPackageDeclaration()
+                .map(declaration -> declaration.getNameAsString() + ".")
+                .orElse("");
+        String samePackage = index.contains(packagePrefix + name) ? packagePrefix + name : null;
+        started = charge(ResolutionTier.SAME_PACKAGE, samePackage, started);
+        if (samePackage != null) {
+            return samePackage;
+        }
+
+        String onDemand = resolveOnDemandImport(name, compilationUnit, index::contains);
+        started = charge(ResolutionTier.IMPORT, onDemand, started);
+        if (onDemand != null) {
+            return onDemand;
+        }
+        String javaLang = index.isPlatformType(JAVA_LANG + name) ? JAVA_LANG + name : null;
+        started = charge(ResolutionTier.LANGUAGE, javaLang, started);
+        if (javaLang != null) {
+            return javaLang;
+        }
+        onDemand = resolveOnDemandImport(name, compilationUnit, index::isPlatformType);
+        charge(ResolutionTier.IMPORT, onDemand, started);
+        return onDemand;
+    }
+
+    private static String resolveOnDemandImport(String name, CompilationUnit compilationUnit,
+            Predicate<String> exists) {
+        for (ImportDeclaration importDeclaration : compilationUnit.getImports()) {
+            if (importDeclaration.isAsterisk()) {
+                String candidate = importDeclaration.getNameAsString() + "." + name;
+                if (exists.test(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Charges the time since {@code started} to a tier.
+     *
+     * @return the current time, where the next tier starts
+     */
+    private long charge(ResolutionTier tier, String result, long started) {
+        long now = System.nanoTime();
+        tiers.record(tier, result != null, now - started);
+        return now;
+    }
+
+    /**
+     * Looks for {@code name} among the enclosing type declarations and their
+     * member types, innermost first.
+     */
+    private String resolveInEnclosingTypes(String name, Node usage) {
+        Node node = usage.getParentNode().orElse(null);
+        while (node != null) {
+            if (node instanceof TypeDeclaration<?> declaration) {
+                String fqn = declaration.getFullyQualifiedName().orElse(null);
+                if (fqn != null) {
+                    if (declaration.getNameAsString().equals(name)) {
+                        return fqn;
+                    }
+                    for (BodyDeclaration<?> member : declaration.getMembers()) {
+                        if (member instanceof TypeDeclaration<?> memberType
+                                && memberType.getNameAsString().equals(name)) {
+                            return fqn + "." + name;
+                        }
+                    }
+                    if (index.contains(fqn + "." + name)) {
+                        return fqn + "." + name;
+                    }
+                }
+            }
+            node = node.getParentNode().orElse(null);
+        }
+        return null;
+    }
+
+    private String resolveSingleTypeImport(String name, CompilationUnit compilationUnit) {
+        for (ImportDeclaration importDeclaration : compilationUnit.getImports()) {
+            if (importDeclaration.isAsterisk()) {
+                continue;
+            }
+            String importedFqn = importDeclaration.getNameAsString();
+            if (!importedFqn.endsWith("." + name)) {
+                continue;
+            }
+            // A static import names a member; it is only a type when one is declared there.
+            if (!importDeclaration.isStatic() || index.contains(importedFqn) || index.isPlatformType(importedFqn)) {
+                return importedFqn;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isTypeVariable(Node usage, String name) {
+        Node node = usage.getParentNode().orElse(null);
+        while (node != null) {
+            if (node instanceof NodeWithTypeParameters<?> generic
+                    && generic.getTypeParameters().stream().anyMatch(p -> p.getNameAsString().equals(name))) {
+                return true;
+            }
+            if (node instanceof TypeDeclaration<?> declaration
+                    && declaration.hasModifier(Modifier.Keyword.STATIC)) {
+                // Type variables of outer classes are not in scope in a static nested type.
+                return false;
+            }
+            node = node.getParentNode().orElse(null);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,255 @@
+package no.ntnu.eitri.parser.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads the {@code package} declaration of a Java file from its leading bytes,
+ * without parsing the file.
+ *
+ * <p>
+ * Only whitespace, comments and annotations may precede a package
+ * declaration, so the scan stops at the first other token. The first
+ * {@link #INITIAL_BYTES} are read; a longer prefix (up to
+ * {@link #MAX_BYTES}) is only read when a license header or annotation runs
+ * past it.
+ */
+final class PackageSniffer {
+
+    static final int INITIAL_BYTES = 4 * 1024;
+    static final int MAX_BYTES = 64 * 1024;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private PackageSniffer() {
+    }
+
+    /**
+     * Returns the package a file declares.
+     *
+     * @param file Java source file
+     * @return the package name, an empty string for the default package, or
+     *         null when the prefix could not be understood and the file has to
+     *         be parsed to tell
+     * @throws IOException if the file cannot be read
+     */
+    static String sniff(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[INITIAL_BYTES];
+            int length = 0;
+            while (true) {
+                int read = in.readNBytes(buffer, length, buffer.length - length);
+                length += read;
+                boolean complete = length < buffer.length;
+                Result result = scan(decode(buffer, length, complete), complete);
+                if (result != Result.NEED_MORE) {
+                    return result.packageName;
+                }
+                if (buffer.length >= MAX_BYTES) {
+                    return null;
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(MAX_BYTES, buffer.length * 2));
+            }
+        }
+    }
+
+    /**
+     * Scans source text for a package declaration.
+     *
+     * @param text     leading source text
+     * @param complete whether {@code text} is the whole file
+     * @return the outcome
+     */
+    static Result scan(String text, boolean complete) {
+        Scanner scanner = new Scanner(text);
+        scanner.skipBlank();
+        while (scanner.peek() == '@') {
+            if (!scanner.skipAnnotation()) {
+                return scanner.atEnd() && !complete ? Result.NEED_MORE : Result.UNKNOWN;
+            }
+            scanner.skipBlank();
+        }
+        if (scanner.atEnd()) {
+            return complete ? Result.DEFAULT_PACKAGE : Result.NEED_MORE;
+        }
+        String keyword = scanner.identifier();
+        if (keyword == null) {
+            return Result.UNKNOWN;
+        }
+        if (!"package".equals(keyword)) {
+            // The keyword may be cut off at the end of the prefix ("pack").
+            return scanner.atEnd() && !complete ? Result.NEED_MORE : Result.DEFAULT_PACKAGE;
+        }
+        StringBuilder name = new StringBuilder();
+        while (true) {
+            scanner.skipBlank();
+            String part = scanner.identifier();
+            if (part == null) {
+                return scanner.atEnd() && !complete ? Result.NEED_MORE : Result.UNKNOWN;
+            }
+            name.append(part);
+            scanner.skipBlank();
+            char next = scanner.peek();
+            if (next == ';') {
+                return Result.named(name.toString());
+            }
+            if (next != '.') {
+                return scanner.atEnd() && !complete ? Result.NEED_MORE : Result.UNKNOWN;
+            }
+            scanner.advance();
+            name.append('.');
+        }
+    }
+
+    static String decode(byte[] buffer, int length, boolean complete) {
+        int end = length;
+        if (!complete) {
+            // Drop a UTF-8 sequence cut off at the end of the prefix.
+            while (end > 0 && buffer[end - 1] < 0) {
+                end--;
+            }
+        }
+        return new String(buffer, 0, end, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Outcome of a scan; {@link #packageName} is null unless a package
+     * declaration or its absence was established.
+     */
+    static final class Result {
+
+        static final Result DEFAULT_PACKAGE = new Result("");
+        static final Result NEED_MORE = new Result(null);
+        static final Result UNKNOWN = new Result(null);
+
+        final String packageName;
+
+        private Result(String packageName) {
+            this.packageName = packageName;
+        }
+
+        static Result named(String packageName) {
+            return new Result(packageName);
+        }
+    }
+
+    /**
+     * Minimal cursor over the prefix that understands comments, string
+     * literals inside annotation arguments, and identifiers. The
+     * {@link ImportSniffer} reads import declarations with it too.
+     */
+    static final class Scanner {
+
+        private final String text;
+        private int position;
+
+        Scanner(String text) {
+            this.text = text;
+            if (!text.isEmpty() && text.charAt(0) == BYTE_ORDER_MARK) {
+                position = 1;
+            }
+        }
+
+        boolean atEnd() {
+            return position >= text.length();
+        }
+
+        char peek() {
+            return atEnd() ? '\0' : text.charAt(position);
+        }
+
+        void advance() {
+            position++;
+        }
+
+        void skipBlank() {
+            while (!atEnd()) {
+                char current = text.charAt(position);
+                if (Character.isWhitespace(current)) {
+                    position++;
+                } else if (text.startsWith("//", position)) {
+                    int end = text.indexOf('\n', position);
+                    position = end < 0 ? text.length() : end + 1;
+                } else if (text.startsWith("/*", position)) {
+                    int end = text.indexOf("*/", position + 2);
+                    position = end < 0 ? text.length() : end + 2;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        String identifier() {
+            if (atEnd() || !Character.isJavaIdentifierStart(text.charAt(position))) {
+                return null;
+            }
+            int start = position;
+            while (!atEnd() && Character.isJavaIdentifierPart(text.charAt(position))) {
+                position++;
+            }
+            return text.substring(start, position);
+        }
+
+        /**
+         * Skips {@code @Name}, {@code @a.b.Name} or {@code @Name(...)}.
+         *
+         * @return false if the annotation is malformed or cut off
+         */
+        boolean skipAnnotation() {
+            advance();
+            skipBlank();
+            if (identifier() == null) {
+                return false;
+            }
+            skipBlank();
+            while (peek() == '.') {
+                advance();
+                skipBlank();
+                if (identifier() == null) {
+                    return false;
+                }
+                skipBlank();
+            }
+            if (peek() != '(') {
+                return !atEnd();
+            }
+            int depth = 0;
+            while (!atEnd()) {
+                char current = text.charAt(position);
+                if (current == '"' || current == '\'') {
+                    if (!skipLiteral(current)) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (text.startsWith("//", position) || text.startsWith("/*", position)) {
+                    skipBlank();
+                    continue;
+                }
+                position++;
+                if (current == '(') {
+                    depth++;
+                } else if (current == ')' && --depth == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean skipLiteral(char quote) {
+            position++;
+            while (!atEnd()) {
+                char current = text.charAt(position++);
+                if (current == '\\') {
+                    position++;
+                } else if (current == quote) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
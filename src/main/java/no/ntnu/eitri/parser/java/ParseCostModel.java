@@ -0,0 +1,237 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.parser.ParseScheduleReport;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Estimates the cost of parsing each file, so that the most expensive files
+ * are handed to workers first and no worker is left with a giant file at the
+ * end of a run.
+ *
+ * <p>
+ * Without history the cost of a file is its size. When a history file is
+ * available, a file parsed before is estimated from its recorded visit time,
+ * scaled by how much its size changed since; other files are estimated from
+ * the average time per byte over the whole history. The history is kept in
+ * the parse cache directory and updated after every run with the visit times
+ * of files that were actually parsed (cache hits say nothing about cost).
+ */
+final class ParseCostModel {
+
+    private static final Logger LOGGER = Logger.getLogger(ParseCostModel.class.getName());
+    static final String HISTORY_FILE = "parse-costs.idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+    static final int MAX_HISTORY_ENTRIES = 1 << 16;
+
+    private final Path historyFile;
+    private final Map<String, Timing> history;
+    private final double nanosPerByte;
+
+    private ParseCostModel(Path historyFile, Map<String, Timing> history) {
+        this.historyFile = historyFile;
+        this.history = history;
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (Timing timing : history.values()) {
+            totalNanos += timing.nanos();
+            totalBytes += timing.size();
+        }
+        this.nanosPerByte = totalBytes > 0 ? (double) totalNanos / totalBytes : 0.0d;
+    }
+
+    /**
+     * Loads the cost history kept in a parse cache directory.
+     *
+     * @param cacheDirectory parse cache directory, or null for a size-only
+     *                       model that records nothing
+     * @return the cost model
+     */
+    static ParseCostModel load(Path cacheDirectory) {
+        if (cacheDirectory == null) {
+            return new ParseCostModel(null, new LinkedHashMap<>());
+        }
+        Path historyFile = cacheDirectory.resolve(HISTORY_FILE);
+        return new ParseCostModel(historyFile, readHistory(historyFile));
+    }
+
+    /**
+     * Orders files by estimated cost, most expensive first.
+     *
+     * @param files files in discovery order
+     * @return the schedule
+     */
+    Schedule schedule(List<Path> files) {
+        double[] costs = new double[files.size()];
+        int withHistory = 0;
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            long size = sizeOf(file);
+            Timing timing = history.get(key(file));
+            if (timing != null) {
+                costs[i] = timing.nanos() * ((double) Math.max(1L, size) / Math.max(1L, timing.size()));
+                withHistory++;
+            } else if (nanosPerByte > 0) {
+                costs[i] = size * nanosPerByte;
+            } else {
+                costs[i] = size;
+            }
+        }
+
+        List<Integer> order = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            order.add(i);
+        }
+        // Stable sort: equal estimates keep discovery order, so schedules are reproducible.
+        order.sort(Comparator.comparingDouble((Integer index) -> costs[index]).reversed());
+        String costModel = history.isEmpty() ? ParseScheduleReport.FILE_SIZE : ParseScheduleReport.HISTORY;
+        return new Schedule(order.stream().mapToInt(Integer::intValue).toArray(), costModel, withHistory);
+    }
+
+    /**
+     * Records the visit time of a parsed file for later runs.
+     *
+     * @param file  parsed file
+     * @param nanos time spent visiting it
+     */
+    void record(Path file, long nanos) {
+        if (historyFile == null || nanos <= 0) {
+            return;
+        }
+        String key = key(file);
+        // Re-inserting moves the entry to the end, so the oldest timings are trimmed first.
+        history.remove(key);
+        history.put(key, new Timing(Math.max(1L, sizeOf(file)), nanos));
+    }
+
+    /**
+     * Writes the history back to the cache directory. Failures are logged and
+     * only cost the next run its estimates.
+     */
+    void save() {
+        if (historyFile == null) {
+            return;
+        }
+        while (history.size() > MAX_HISTORY_ENTRIES) {
+            history.remove(history.keySet().iterator().next());
+        }
+        Path temp = null;
+        try {
+            Files.createDirectories(historyFile.getParent());
+            temp = Files.createTempFile(historyFile.getParent(), HISTORY_FILE, TEMP_SUFFIX);
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Timing> entry : history.entrySet()) {
+                    writer.write(entry.getValue().nanos() + "\t" + entry.getValue().size() + "\t" + entry.getKey());
+                    writer.write('\0');
+                }
+            }
+            moveIntoPlace(temp, historyFile);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write parse cost history {0} - {1}",
+                    new Object[] { historyFile, e.getMessage() });
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    private static Map<String, Timing> readHistory(Path historyFile) {
+        Map<String, Timing> history = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(historyFile, StandardCharsets.UTF_8)) {
+            StringBuilder entry = new StringBuilder();
+            int next;
+            while ((next = reader.read()) != -1) {
+                if (next != '\0') {
+                    entry.append((char) next);
+                    continue;
+                }
+                // <nanos> TAB <size> TAB <file>
+                String[] parts = entry.toString().split("\t", 3);
+                if (parts.length == 3) {
+                    history.put(parts[2], new Timing(Long.parseLong(parts[1]), Long.parseLong(parts[0])));
+                }
+                entry.setLength(0);
+            }
+        } catch (NoSuchFileException _) {
+            return history;
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.log(Level.FINE, "Ignoring unreadable parse cost history {0} - {1}",
+                    new Object[] { historyFile, e.getMessage() });
+            return new LinkedHashMap<>();
+        }
+        return history;
+    }
+
+    private static String key(Path file) {
+        // URIs keep files inside different archives apart.
+        return file.toAbsolutePath().normalize().toUri().toString();
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException _) {
+            return 0L;
+        }
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException _) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException _) {
+            // Left behind as a stray temp file; never read.
+        }
+    }
+
+    private record Timing(long size, long nanos) {
+    }
+
+    /**
+     * Files ordered by estimated cost.
+     *
+     * @param order       indexes into the scheduled file list, most expensive
+     *                    first
+     * @param costModel   {@link ParseScheduleReport#FILE_SIZE} or
+     *                    {@link ParseScheduleReport#HISTORY}
+     * @param withHistory files estimated from their own recorded timing
+     */
+    record Schedule(int[] order, String costModel, int withHistory) {
+
+        /**
+         * Returns the files in scheduled order.
+         *
+         * @param files the list passed to {@link ParseCostModel#schedule}
+         * @return reordered files
+         */
+        List<Path> apply(List<Path> files) {
+            List<Path> ordered = new ArrayList<>(order.length);
+            for (int index : order) {
+                ordered.add(files.get(index));
+            }
+            return ordered;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package no.ntnu.eitri.parser.java;
 
+import no.ntnu.eitri.config.ModelProjection;
 import no.ntnu.eitri.model.RelationKind;
 import no.ntnu.eitri.model.TypeKind;
 import no.ntnu.eitri.model.UmlField;
@@ -9,6 +10,8 @@ import no.ntnu.eitri.model.UmlRelation;
 import no.ntnu.eitri.model.UmlType;
 import no.ntnu.eitri.parser.ParseContext;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashSet;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,11 +34,13 @@ import java.util.Set;
  * <p>
  * Note: EXTENDS and IMPLEMENTS relations are added by the TypeVisitor when
  * parsing the extends/implements clauses. This detector handles field and
- * method-based relationships.
+ * method-based relationships. Field relations and method dependencies are
+ * only detected when the {@link ModelProjection} asks for them.
  */
 public class RelationDetector {
 
     private final ParseContext context;
+    private final ModelProjection projection;
 
     /** Collection type names that indicate aggregation */
     private static final Set<String> COLLECTION_TYPES = Set.of(
@@ -47,7 +52,12 @@ public class RelationDetector {
             "Stack", "Vector");
 
     public RelationDetector(ParseContext context) {
+        this(context, ModelProjection.full());
+    }
+
+    public RelationDetector(ParseContext context, ModelProjection projection) {
         this.context = context;
+        this.projection = projection;
     }
 
     /**
@@ -57,8 +67,12 @@ public class RelationDetector {
         // Snapshot types since relation detection can add placeholder types.
         for (UmlType type : new java.util.ArrayList<>(context.getTypes())) {
             String fqn = type.getFqn();
-            detectFieldRelations(fqn, type);
-            detectMethodDependencies(fqn, type);
+            if (projection.fieldRelations()) {
+                detectFieldRelations(fqn, type);
+            }
+            if (projection.methodDependencies()) {
+                detectMethodDependencies(fqn, type);
+            }
         }
     }
 
@@ -184,10 +198,17 @@ public class RelationDetector {
             return targetType.getKind() == TypeKind.ENUM;
         }
 
-        try {
-            Class<?> type = Class.forName(resolvedType, false, Thread.currentThread().getContextClassLoader());
-            return type.isEnum();
-        } catch (ClassNotFoundException | LinkageError _) {
+        // Read from class files like the symbol solver's declarations, so nothing is loaded.
+        if (JdkClassFiles.system().isEnum(resolvedType)) {
+            return true;
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            return false;
+        }
+        try (InputStream classFile = classLoader.getResourceAsStream(resolvedType.replace('.', '/') + ".class")) {
+            return classFile != null && JdkClassFiles.declaresEnum(classFile);
+        } catch (IOException | RuntimeException _) {
             return false;
         }
     }
@@ -0,0 +1,128 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.cache.InMemoryCache;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Solves types from dependency jars, opening a jar only when it holds the
+ * class a name refers to.
+ *
+ * <p>
+ * A name is routed through a {@link JarPackageIndex}: the jars holding the
+ * class it names are asked in lookup order, and other jars are never touched.
+ * Each jar is opened into a {@link JarTypeSolver} the first time it is
+ * routed to, and kept for later lookups. A jar that fails to open is skipped
+ * from then on. Like every type solver it is confined to one parse worker;
+ * workers share the index but open their own jars.
+ */
+final class RoutingJarTypeSolver implements TypeSolver {
+
+    // Jar problems are reported under the parser's logger, where users already look for them.
+    private static final Logger LOGGER = Logger.getLogger(JavaSourceParser.class.getName());
+
+    private final JarPackageIndex index;
+    private final Map<Path, JarTypeSolver> openedJars = new HashMap<>();
+    private final Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes;
+    private TypeSolver parent;
+
+    RoutingJarTypeSolver(JarPackageIndex index) {
+        this(index, InMemoryCache.create());
+    }
+
+    /**
+     * @param index      the jars to route names to
+     * @param foundTypes cache of the names looked up so far
+     */
+    RoutingJarTypeSolver(JarPackageIndex index,
+            Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes) {
+        this.index = index;
+        this.foundTypes = foundTypes;
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        if (this.parent != null) {
+            throw new IllegalStateException("This TypeSolver already has a parent.");
+        }
+        if (parent == this) {
+            throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+        }
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        Optional<SymbolReference<ResolvedReferenceTypeDeclaration>> cached = foundTypes.get(name);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        SymbolReference<ResolvedReferenceTypeDeclaration> found = solve(name);
+        foundTypes.put(name, found);
+        return found;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveTypeInModule(String qualifiedModuleName,
+            String simpleTypeName) {
+        return SymbolReference.unsolved();
+    }
+
+    private SymbolReference<ResolvedReferenceTypeDeclaration> solve(String name) {
+        String[] segments = name.split("\\.");
+        // com.example.Outer.Inner may be com.example.Outer.Inner, com.example.Outer$Inner, ...
+        for (int packageEnd = segments.length - 1; packageEnd >= 0; packageEnd--) {
+            String packageName = String.join(".", List.of(segments).subList(0, packageEnd));
+            String className = String.join("$", List.of(segments).subList(packageEnd, segments.length));
+            String binaryName = packageName.isEmpty() ? className : packageName + "." + className;
+            for (Path jar : index.jarsForClass(binaryName)) {
+                JarTypeSolver jarSolver = open(jar);
+                if (jarSolver == null) {
+                    continue;
+                }
+                SymbolReference<ResolvedReferenceTypeDeclaration> found = jarSolver.tryToSolveType(name);
+                if (found.isSolved()) {
+                    return found;
+                }
+            }
+        }
+        return SymbolReference.unsolved();
+    }
+
+    private JarTypeSolver open(Path jar) {
+        if (openedJars.containsKey(jar)) {
+            return openedJars.get(jar);
+        }
+        JarTypeSolver jarSolver = null;
+        try {
+            jarSolver = new JarTypeSolver(jar.toString());
+            jarSolver.setParent(this);
+            index.opened(jar);
+        } catch (Exception | LinkageError _) {
+            // Some jars in local caches are valid archives but still fail to load in
+            // JavaParser/Javassist (module-info edge-cases, bytecode quirks, etc.).
+            // They are skipped to keep parsing best effort instead of aborting the run.
+            if (index.failed(jar)) {
+                LOGGER.log(Level.WARNING, "Failed to add jar type solver for: {0}", jar);
+            }
+        }
+        openedJars.put(jar, jarSolver);
+        return jarSolver;
+    }
+}
@@ -0,0 +1,488 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.config.ModelProjection;
+import no.ntnu.eitri.model.Modifier;
+import no.ntnu.eitri.model.RelationKind;
+import no.ntnu.eitri.model.TypeKind;
+import no.ntnu.eitri.model.UmlField;
+import no.ntnu.eitri.model.UmlGeneric;
+import no.ntnu.eitri.model.UmlMethod;
+import no.ntnu.eitri.model.UmlParameter;
+import no.ntnu.eitri.model.UmlRelation;
+import no.ntnu.eitri.model.UmlStereotype;
+import no.ntnu.eitri.model.UmlType;
+import no.ntnu.eitri.model.Visibility;
+import no.ntnu.eitri.parser.ParseContext;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.Annotation;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.Field;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.Import;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.Method;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.Parameter;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.ScannedFile;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.ScannedType;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.TypeParameter;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.TypeRef;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Adds the declarations read by {@link JavaDeclarationScanner} to a
+ * {@link ParseContext}, in the same shape {@link TypeVisitor} gives them.
+ *
+ * <p>
+ * Type names are resolved the way {@link LexicalTypeResolver} resolves them,
+ * against the {@link DeclaredTypeIndex} of every scanned file: type variables,
+ * enclosing types and their members, single-type imports, the same package,
+ * on-demand imports, {@code java.lang}, and names written fully qualified.
+ * A name none of these settle is kept as written, with a warning.
+ *
+ * <p>
+ * An emitter holds no per-file state, so parse workers can share one.
+ */
+final class ScannedTypeEmitter {
+
+    private static final String JAVA_LANG = "java.lang.";
+    private static final String STATIC_STEREOTYPE = "static";
+    private static final String ABSTRACT_STEREOTYPE = "abstract";
+    private static final String FINAL_STEREOTYPE = "final";
+    private static final String RECORD_STEREOTYPE = "record";
+    private static final Set<String> PRIMITIVES = Set.of("boolean", "byte", "char", "short", "int", "long",
+            "float", "double", "void");
+
+    private final DeclaredTypeIndex index;
+    private final ModelProjection projection;
+
+    /**
+     * @param index      declared types of all scanned files
+     * @param projection the members to keep
+     */
+    ScannedTypeEmitter(DeclaredTypeIndex index, ModelProjection projection) {
+        this.index = index;
+        this.projection = projection;
+    }
+
+    /**
+     * Adds the types of one file, with their nested and inheritance
+     * relations, and a warning for every name that could not be resolved.
+     *
+     * @param file    the scanned declarations
+     * @param context receives the types
+     */
+    void emit(ScannedFile file, ParseContext context) {
+        new FileEmission(file, context).run();
+    }
+
+    private final class FileEmission {
+        private final ScannedFile file;
+        private final ParseContext context;
+        private final Map<String, ScannedType> typesByFqn = new HashMap<>();
+        private final String packagePrefix;
+
+        FileEmission(ScannedFile file, ParseContext context) {
+            this.file = file;
+            this.context = context;
+            this.packagePrefix = file.packageName().isEmpty() ? "" : file.packageName() + ".";
+            for (ScannedType type : file.types()) {
+                typesByFqn.put(type.qualifiedName(), type);
+            }
+        }
+
+        void run() {
+            for (ScannedType type : file.types()) {
+                emitType(type);
+            }
+        }
+
+        private void emitType(ScannedType type) {
+            Scope scope = new Scope(type, typeVariables(type));
+            String fqn = type.qualifiedName();
+            String outerFqn = type.outerQualifiedName();
+            TypeKind kind = type.kind();
+
+            UmlType.Builder builder = UmlType.builder()
+                    .fqn(fqn)
+                    .simpleName(type.name())
+                    .kind(kind)
+                    .visibility(type.modifiers().visibility());
+            if (outerFqn != null) {
+                builder.outerTypeFqn(outerFqn);
+                // Nested interfaces, enums, records and annotations are implicitly static.
+                if (kind != TypeKind.CLASS || type.modifiers().has(JavaDeclarationScanner.STATIC)) {
+                    builder.addStereotype(STATIC_STEREOTYPE);
+                }
+            }
+            for (Annotation annotation : type.modifiers().annotations()) {
+                builder.addStereotype(new UmlStereotype(annotation.name(), annotation.values()));
+            }
+
+            switch (kind) {
+                case CLASS, INTERFACE -> {
+                    if (kind == TypeKind.CLASS && type.modifiers().has(JavaDeclarationScanner.ABSTRACT)) {
+                        builder.addStereotype(ABSTRACT_STEREOTYPE);
+                    }
+                    if (kind == TypeKind.CLASS && type.modifiers().has(JavaDeclarationScanner.FINAL)) {
+                        builder.addStereotype(FINAL_STEREOTYPE);
+                    }
+                    addGenerics(type.typeParameters(), builder);
+                    addFields(type.fields(), scope, builder);
+                    addMethods(type.methods(), scope, builder);
+                    addConstructors(type.constructors(), type.name(), scope, builder);
+                }
+                case ENUM -> {
+                    if (projection.includesField(Visibility.PUBLIC)) {
+                        for (String constant : type.enumConstants()) {
+                            builder.addField(UmlField.builder()
+                                    .name(constant)
+                                    .type(fqn)
+                                    .visibility(Visibility.PUBLIC)
+                                    .isStatic(true)
+                                    .isFinal(true)
+                                    .build());
+                        }
+                    }
+                    addFields(type.fields(), scope, builder);
+                    addMethods(type.methods(), scope, builder);
+                    addConstructors(type.constructors(), type.name(), scope, builder);
+                }
+                case ANNOTATION -> {
+                    if (projection.includesMethod(Visibility.PUBLIC)) {
+                        for (Method member : type.methods()) {
+                            String defaultValue = member.defaultValue() != null ? " = " + member.defaultValue() : "";
+                            builder.addMethod(UmlMethod.builder()
+                                    .name(member.name() + "()" + defaultValue)
+                                    .returnType(resolve(member.returnType(), scope))
+                                    .visibility(Visibility.PUBLIC)
+                                    .isAbstract(true)
+                                    .build());
+                        }
+                    }
+                }
+                case RECORD -> {
+                    builder.addStereotype(RECORD_STEREOTYPE);
+                    addGenerics(type.typeParameters(), builder);
+                    if (projection.includesField(Visibility.PRIVATE)) {
+                        for (Parameter component : type.recordComponents()) {
+                            builder.addField(UmlField.builder()
+                                    .name(component.name())
+                                    .type(resolve(component.type(), scope))
+                                    .visibility(Visibility.PRIVATE)
+                                    .isFinal(true)
+                                    .build());
+                        }
+                    }
+                    addMethods(type.methods(), scope, builder);
+                }
+                default -> throw new IllegalStateException("Unexpected type kind " + kind);
+            }
+
+            context.addType(builder.build());
+            if (outerFqn != null) {
+                context.addRelation(UmlRelation.nestedRelation(outerFqn, fqn));
+            }
+
+            // Interfaces extend interfaces; for them, "extends" is the only clause.
+            for (TypeRef extended : type.extendedTypes()) {
+                addInheritance(fqn, extended, RelationKind.EXTENDS, scope);
+            }
+            for (TypeRef implemented : type.implementedTypes()) {
+                addInheritance(fqn, implemented, RelationKind.IMPLEMENTS, scope);
+            }
+        }
+
+        private void addInheritance(String fromFqn, TypeRef toType, RelationKind kind, Scope scope) {
+            String resolved = resolveName(toType.name(), scope);
+            if (resolved == null) {
+                String name = toType.name();
+                resolved = name.substring(name.lastIndexOf('.') + 1);
+            }
+            context.addPendingInheritance(new ParseContext.PendingInheritance(fromFqn, resolved, kind));
+        }
+
+        private void addGenerics(List<TypeParameter> typeParameters, UmlType.Builder builder) {
+            for (TypeParameter typeParameter : typeParameters) {
+                builder.addGeneric(toGeneric(typeParameter));
+            }
+        }
+
+        private void addFields(List<Field> fields, Scope scope, UmlType.Builder builder) {
+            for (Field field : fields) {
+                Visibility visibility = field.modifiers().visibility();
+                if (!projection.includesField(visibility)) {
+                    continue;
+                }
+                boolean isFinal = field.modifiers().has(JavaDeclarationScanner.FINAL);
+                UmlField.Builder fieldBuilder = UmlField.builder()
+                        .name(field.name())
+                        .type(resolve(field.type(), scope))
+                        .visibility(visibility)
+                        .isStatic(field.modifiers().has(JavaDeclarationScanner.STATIC))
+                        .isFinal(isFinal)
+                        .readOnly(isFinal);
+                for (Annotation annotation : field.modifiers().annotations()) {
+                    fieldBuilder.addAnnotation(annotation.name());
+                }
+                if (field.initializer() != null && field.initializer().length() <= 50) {
+                    fieldBuilder.addAnnotation("init:" + field.initializer());
+                }
+                builder.addField(fieldBuilder.build());
+            }
+        }
+
+        private void addMethods(List<Method> methods, Scope typeScope, UmlType.Builder builder) {
+            for (Method method : methods) {
+                Visibility visibility = method.modifiers().visibility();
+                if (!projection.includesMethod(visibility)) {
+                    continue;
+                }
+                Scope scope = typeScope.with(method.typeParameters());
+                JavaDeclarationScanner.Modifiers modifiers = method.modifiers();
+                // Like JavaParser, interface methods are abstract unless static, default or private.
+                boolean isAbstract = modifiers.has(JavaDeclarationScanner.ABSTRACT)
+                        || (typeScope.type().kind() == TypeKind.INTERFACE && !modifiers.has(
+                                JavaDeclarationScanner.STATIC | JavaDeclarationScanner.DEFAULT
+                                        | JavaDeclarationScanner.PRIVATE));
+                UmlMethod.Builder methodBuilder = UmlMethod.builder()
+                        .name(method.name())
+                        .returnType(resolve(method.returnType(), scope))
+                        .visibility(visibility)
+                        .isStatic(modifiers.has(JavaDeclarationScanner.STATIC))
+                        .isAbstract(isAbstract);
+                for (TypeParameter typeParameter : method.typeParameters()) {
+                    methodBuilder.addGeneric(toGeneric(typeParameter));
+                }
+                methodBuilder.modifiers(toModifiers(modifiers, isAbstract));
+                for (Parameter parameter : method.parameters()) {
+                    methodBuilder.addParameter(new UmlParameter(parameter.name(), resolve(parameter.type(), scope)));
+                }
+                for (TypeRef thrown : method.thrownTypes()) {
+                    methodBuilder.addThrownException(resolve(thrown, scope));
+                }
+                for (Annotation annotation : modifiers.annotations()) {
+                    if (!annotation.name().equals("Override")) {
+                        methodBuilder.addAnnotation(annotation.name());
+                    }
+                }
+                builder.addMethod(methodBuilder.build());
+            }
+        }
+
+        private void addConstructors(List<Method> constructors, String ownerSimpleName, Scope typeScope,
+                UmlType.Builder builder) {
+            for (Method constructor : constructors) {
+                Visibility visibility = constructor.modifiers().visibility();
+                if (!projection.includesMethod(visibility)) {
+                    continue;
+                }
+                Scope scope = typeScope.with(constructor.typeParameters());
+                UmlMethod.Builder methodBuilder = UmlMethod.builder()
+                        .name(ownerSimpleName)
+                        .returnType("")
+                        .visibility(visibility)
+                        .constructor(true)
+                        .addAnnotation("constructor");
+                for (TypeParameter typeParameter : constructor.typeParameters()) {
+                    methodBuilder.addGeneric(toGeneric(typeParameter));
+                }
+                for (Parameter parameter : constructor.parameters()) {
+                    methodBuilder.addParameter(new UmlParameter(parameter.name(), resolve(parameter.type(), scope)));
+                }
+                for (TypeRef thrown : constructor.thrownTypes()) {
+                    methodBuilder.addThrownException(resolve(thrown, scope));
+                }
+                builder.addMethod(methodBuilder.build());
+            }
+        }
+
+        /**
+         * Resolves a type, keeping it as written with a warning when its name
+         * cannot be resolved.
+         */
+        private String resolve(TypeRef type, Scope scope) {
+            String resolved = resolveOrNull(type, scope);
+            if (resolved != null) {
+                return resolved;
+            }
+            String written = type.asWritten();
+            context.addWarning("Failed to resolve type '" + written + "' at " + file.position(type.offset())
+                    + ": not declared in the sources, imported explicitly or in java.lang");
+            return written;
+        }
+
+        /**
+         * Resolves a type; unresolved type arguments and wildcard bounds are
+         * kept as written.
+         *
+         * @return the resolved form, or null when the type's own name could not
+         *         be resolved
+         */
+        private String resolveOrNull(TypeRef type, Scope scope) {
+            if (type.isWildcard()) {
+                if (type.arguments().isEmpty()) {
+                    return type.name();
+                }
+                TypeRef bound = type.arguments().getFirst();
+                String resolvedBound = resolveOrNull(bound, scope);
+                return type.name() + " " + (resolvedBound != null ? resolvedBound : bound.asWritten());
+            }
+            String name = PRIMITIVES.contains(type.name()) ? type.name() : resolveName(type.name(), scope);
+            if (name == null) {
+                return null;
+            }
+            StringBuilder sb = new StringBuilder(name);
+            if (!type.arguments().isEmpty()) {
+                sb.append('<');
+                for (int i = 0; i < type.arguments().size(); i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    TypeRef argument = type.arguments().get(i);
+                    String resolved = resolveOrNull(argument, scope);
+                    sb.append(resolved != null ? resolved : argument.asWritten());
+                }
+                sb.append('>');
+            }
+            return sb.append("[]".repeat(type.dimensions())).toString();
+        }
+
+        /**
+         * Resolves a dotted name through its first segment, in the order of
+         * {@link LexicalTypeResolver#resolveName}.
+         *
+         * @return the fully qualified name, the name of a type variable, or
+         *         null
+         */
+        private String resolveName(String written, Scope scope) {
+            int dot = written.indexOf('.');
+            String first = dot < 0 ? written : written.substring(0, dot);
+            String rest = dot < 0 ? "" : written.substring(dot);
+            if (rest.isEmpty() && scope.typeVariables().contains(first)) {
+                return first;
+            }
+            String head = resolveSimpleName(first, scope.type());
+            if (head != null) {
+                return head + rest;
+            }
+            // Qualified by package, e.g. java.util.List or com.example.Outer.Inner.
+            if (!rest.isEmpty() && (index.contains(written) || Character.isLowerCase(first.charAt(0)))) {
+                return written;
+            }
+            return null;
+        }
+
+        private String resolveSimpleName(String name, ScannedType usage) {
+            for (ScannedType type = usage; type != null; type = typesByFqn.get(type.outerQualifiedName())) {
+                if (type.name().equals(name)) {
+                    return type.qualifiedName();
+                }
+                String member = type.qualifiedName() + "." + name;
+                if (index.contains(member)) {
+                    return member;
+                }
+            }
+            for (Import imported : file.imports()) {
+                if (imported.onDemand() || !imported.name().endsWith("." + name)) {
+                    continue;
+                }
+                // A static import names a member; it is only a type when one is declared there.
+                if (!imported.isStatic() || index.contains(imported.name()) || index.isPlatformType(imported.name())) {
+                    return imported.name();
+                }
+            }
+            if (index.contains(packagePrefix + name)) {
+                return packagePrefix + name;
+            }
+            String onDemand = resolveOnDemandImport(name, index::contains);
+            if (onDemand != null) {
+                return onDemand;
+            }
+            if (index.isPlatformType(JAVA_LANG + name)) {
+                return JAVA_LANG + name;
+            }
+            return resolveOnDemandImport(name, index::isPlatformType);
+        }
+
+        private String resolveOnDemandImport(String name, Predicate<String> exists) {
+            for (Import imported : file.imports()) {
+                if (imported.onDemand()) {
+                    String candidate = imported.name() + "." + name;
+                    if (exists.test(candidate)) {
+                        return candidate;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Type variables in scope in a type: its own and those of enclosing
+         * types, up to the first type declared {@code static}.
+         */
+        private List<String> typeVariables(ScannedType type) {
+            List<String> names = new ArrayList<>();
+            for (ScannedType current = type; current != null;
+                    current = typesByFqn.get(current.outerQualifiedName())) {
+                for (TypeParameter typeParameter : current.typeParameters()) {
+                    names.add(typeParameter.name());
+                }
+                if (current.modifiers().has(JavaDeclarationScanner.STATIC)) {
+                    break;
+                }
+            }
+            return names;
+        }
+    }
+
+    private static UmlGeneric toGeneric(TypeParameter typeParameter) {
+        if (typeParameter.bounds().isEmpty()) {
+            return new UmlGeneric(typeParameter.name());
+        }
+        List<String> bounds = typeParameter.bounds().stream().map(TypeRef::asWritten).toList();
+        return new UmlGeneric(typeParameter.name(), "extends " + String.join(" & ", bounds));
+    }
+
+    @SuppressWarnings("null")
+    private static EnumSet<Modifier> toModifiers(JavaDeclarationScanner.Modifiers modifiers, boolean isAbstract) {
+        EnumSet<Modifier> result = EnumSet.noneOf(Modifier.class);
+        if (modifiers.has(JavaDeclarationScanner.STATIC)) {
+            result.add(Modifier.STATIC);
+        }
+        if (isAbstract) {
+            result.add(Modifier.ABSTRACT);
+        }
+        if (modifiers.has(JavaDeclarationScanner.FINAL)) {
+            result.add(Modifier.FINAL);
+        }
+        if (modifiers.has(JavaDeclarationScanner.SYNCHRONIZED)) {
+            result.add(Modifier.SYNCHRONIZED);
+        }
+        if (modifiers.has(JavaDeclarationScanner.NATIVE)) {
+            result.add(Modifier.NATIVE);
+        }
+        if (modifiers.has(JavaDeclarationScanner.DEFAULT)) {
+            result.add(Modifier.DEFAULT);
+        }
+        return result;
+    }
+
+    /**
+     * The declaration a name is used in, and the type variables in scope there.
+     */
+    private record Scope(ScannedType type, List<String> typeVariables) {
+
+        Scope with(List<TypeParameter> typeParameters) {
+            if (typeParameters.isEmpty()) {
+                return this;
+            }
+            List<String> names = new ArrayList<>(typeParameters.size() + typeVariables.size());
+            typeParameters.forEach(typeParameter -> names.add(typeParameter.name()));
+            names.addAll(typeVariables);
+            return new Scope(type, names);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.config.RunConfig;
+import no.ntnu.eitri.model.UmlModel;
+import no.ntnu.eitri.parser.ParseContext;
+import no.ntnu.eitri.parser.ParseException;
+import no.ntnu.eitri.parser.ParseFragment;
+import no.ntnu.eitri.parser.SourceParser;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.Problem;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.ScannedFile;
+import no.ntnu.eitri.util.SourceArchives;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Java source parser that reads declarations with the hand-written
+ * {@link JavaDeclarationScanner} instead of JavaParser.
+ *
+ * <p>
+ * Only declarations are read: no syntax tree is built and bodies are skipped,
+ * so a file costs one tokenizing pass. Type names are resolved lexically
+ * against the types of all scanned files ({@link ScannedTypeEmitter}), as in
+ * lexical type resolution; there is no symbol solver.
+ *
+ * <p>
+ * A parse runs in two phases over the parse workers, neither of which shares
+ * state between files: every file is scanned, then, once the declared types
+ * are known, every file's types are emitted into its own
+ * {@link ParseFragment}. Fragments are replayed in file order, so the model is
+ * the same for any number of workers, and relations are detected on it by the
+ * same {@link RelationDetector} as for {@link JavaSourceParser}.
+ *
+ * <p>
+ * The parser handles {@code .java} files but is registered under its own id,
+ * {@code .java-scan}, so that {@code .java} keeps selecting JavaParser.
+ */
+public class ScanningJavaSourceParser implements SourceParser {
+
+    private static final Logger LOGGER = Logger.getLogger(ScanningJavaSourceParser.class.getName());
+    private static final String NAME = "JavaScanner";
+    private static final List<String> EXTENSIONS = List.of(".java");
+    private static final List<String> PARSER_IDS = List.of(".java-scan");
+
+    // Walks the source paths exactly as the JavaParser-based parser does.
+    private final JavaSourceParser sourceWalker = new JavaSourceParser();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<String> getSupportedExtensions() {
+        return EXTENSIONS;
+    }
+
+    @Override
+    public List<String> getParserIds() {
+        return PARSER_IDS;
+    }
+
+    @Override
+    public List<Path> lastSourceFiles() {
+        return sourceWalker.lastSourceFiles();
+    }
+
+    @Override
+    public UmlModel parse(List<Path> sourcePaths, RunConfig runConfig) throws ParseException {
+        if (sourcePaths == null || sourcePaths.isEmpty()) {
+            throw new ParseException("No source paths provided");
+        }
+
+        try (SourceArchives archives = JavaSourceParser.mountArchives(sourcePaths)) {
+            List<Path> javaFiles = sourceWalker.collectJavaFiles(archives.paths(), runConfig.sourceFilter());
+            int threads = Math.max(1, Math.min(runConfig.parseOptions().effectiveThreads(), javaFiles.size()));
+            if (runConfig.verbose()) {
+                LOGGER.log(Level.INFO, "Found {0} Java files to scan using {1} worker(s)",
+                        new Object[] { javaFiles.size(), threads });
+            }
+
+            ExecutorService workers = threads > 1
+                    ? Executors.newFixedThreadPool(threads, JavaSourceParser.parseWorkerThreadFactory())
+                    : null;
+            try {
+                return parseFiles(javaFiles, workers, runConfig);
+            } finally {
+                if (workers != null) {
+                    workers.shutdownNow();
+                }
+            }
+        }
+    }
+
+    private UmlModel parseFiles(List<Path> javaFiles, ExecutorService workers, RunConfig runConfig)
+            throws ParseException {
+        long started = System.nanoTime();
+        List<ScannedSource> scanned = runAll(javaFiles.size(), workers, i -> scanFile(javaFiles.get(i)));
+
+        Set<String> declaredTypes = new HashSet<>();
+        int problems = 0;
+        for (ScannedSource source : scanned) {
+            if (source.declarations() != null) {
+                source.declarations().types().forEach(type -> declaredTypes.add(type.qualifiedName()));
+                problems += source.declarations().problems().size();
+            }
+        }
+        if (runConfig.verbose()) {
+            long scanMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            LOGGER.log(Level.INFO, "Scanned {0} files in {1} ms: {2} declared type(s), {3} unreadable declaration(s)",
+                    new Object[] { scanned.size(), scanMillis, declaredTypes.size(), problems });
+        }
+
+        ScannedTypeEmitter emitter = new ScannedTypeEmitter(DeclaredTypeIndex.of(declaredTypes),
+                runConfig.modelProjection());
+        List<EmittedFile> emitted = runAll(scanned.size(), workers, i -> emitFile(scanned.get(i), emitter));
+
+        ParseContext context = new ParseContext(runConfig.verbose());
+        for (EmittedFile file : emitted) {
+            merge(file, context);
+        }
+
+        RelationDetector relationDetector = new RelationDetector(context, runConfig.modelProjection());
+        relationDetector.detectRelations();
+        if (runConfig.verbose()) {
+            LOGGER.log(Level.INFO, "Found {0} types, {1} relations (including detected)",
+                    new Object[] { context.getTypeCount(), context.getRelationCount() });
+            int warnings = context.getReport().warningCount();
+            if (warnings > 0) {
+                LOGGER.log(Level.INFO, "Collected {0} warnings", warnings);
+            }
+        }
+        return context.build();
+    }
+
+    private static ScannedSource scanFile(Path javaFile) {
+        try {
+            String source = SourceReadAhead.decode(ByteBuffer.wrap(Files.readAllBytes(javaFile))).text();
+            return new ScannedSource(javaFile, JavaDeclarationScanner.scan(source), null);
+        } catch (IOException e) {
+            return new ScannedSource(javaFile, null, e.getMessage());
+        }
+    }
+
+    private static EmittedFile emitFile(ScannedSource source, ScannedTypeEmitter emitter) {
+        ParseFragment fragment = new ParseFragment();
+        ScannedFile declarations = source.declarations();
+        if (declarations == null) {
+            fragment.addWarning("Failed to read file: " + source.javaFile() + " - " + source.readError());
+            return new EmittedFile(source.javaFile(), fragment, null);
+        }
+        try {
+            for (Problem problem : declarations.problems()) {
+                fragment.addWarning("Skipped unreadable declaration in " + source.javaFile() + " at "
+                        + declarations.position(problem.offset()) + ": " + problem.message());
+            }
+            emitter.emit(declarations, fragment);
+            return new EmittedFile(source.javaFile(), fragment, null);
+        } catch (Exception e) {
+            return new EmittedFile(source.javaFile(), fragment, e);
+        }
+    }
+
+    private static void merge(EmittedFile file, ParseContext context) {
+        Exception unexpectedError = file.unexpectedError();
+        if (unexpectedError == null) {
+            try {
+                file.fragment().replayInto(context);
+            } catch (Exception e) {
+                // For example a type that an earlier file already declared.
+                unexpectedError = e;
+            }
+        }
+        if (unexpectedError != null) {
+            LOGGER.log(Level.WARNING, "Unexpected error parsing {0} - {1}",
+                    new Object[] { file.javaFile(), unexpectedError.getMessage() });
+            context.addWarning("Unexpected error parsing: " + file.javaFile() + " - "
+                    + unexpectedError.getMessage());
+        }
+    }
+
+    /**
+     * Runs {@code task} for indexes {@code 0..size-1} on the workers, or on
+     * the calling thread when there are none, and returns the results in index
+     * order.
+     */
+    static <T> List<T> runAll(int size, ExecutorService workers, IntFunction<T> task)
+            throws ParseException {
+        List<T> results = new ArrayList<>(size);
+        if (workers == null) {
+            for (int i = 0; i < size; i++) {
+                results.add(task.apply(i));
+            }
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int index = i;
+            futures.add(workers.submit(() -> task.apply(index)));
+        }
+        for (Future<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    private static <T> T await(Future<T> result) throws ParseException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException("Interrupted while waiting for parse workers", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new ParseException("Parse worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Declarations of one file, or why it could not be read.
+     */
+    private record ScannedSource(Path javaFile, ScannedFile declarations, String readError) {
+    }
+
+    private record EmittedFile(Path javaFile, ParseFragment fragment, Exception unexpectedError) {
+    }
+}
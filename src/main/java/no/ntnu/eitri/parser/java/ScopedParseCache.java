@@ -0,0 +1,70 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.parser.ParseFragment;
+import no.ntnu.eitri.parser.cache.ParseCache;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The parse cache as the Java parser uses it: each entry is keyed on the file
+ * content and on the source types the file can name without qualifying them.
+ *
+ * <p>
+ * A visit resolves simple names against the types declared in the file's own
+ * package and in the packages it imports from, so the types the parsed
+ * sources declare there, nested types included, are part of the key. Adding a
+ * file to another package leaves the entry valid; removing a type the file
+ * could see, or adding one that shadows an import, invalidates it. A file
+ * whose header cannot be read is keyed on every declared type.
+ */
+final class ScopedParseCache implements AutoCloseable {
+
+    private final ParseCache cache;
+    private final DeclaredTypeIndex declaredTypes;
+
+    /**
+     * @param cache         the underlying cache
+     * @param declaredTypes types declared by every file of the run
+     */
+    ScopedParseCache(ParseCache cache, DeclaredTypeIndex declaredTypes) {
+        this.cache = cache;
+        this.declaredTypes = declaredTypes;
+    }
+
+    /**
+     * Computes the cache key for a source file.
+     *
+     * @param source decoded file content
+     * @return the key
+     */
+    String keyFor(String source) {
+        ImportSniffer.Header header = ImportSniffer.scan(source, true);
+        if (header == null) {
+            return cache.keyFor(source, "*=" + declaredTypes.allTypes());
+        }
+        StringBuilder dependencies = new StringBuilder();
+        Set<String> packages = new TreeSet<>(ImportSniffer.referencedPackages(header));
+        for (String packageName : packages) {
+            dependencies.append(packageName).append('=').append(declaredTypes.packageTypes(packageName)).append('\n');
+        }
+        return cache.keyFor(source, dependencies.toString());
+    }
+
+    ParseFragment get(String key) {
+        return cache.get(key);
+    }
+
+    void put(String key, ParseFragment fragment) {
+        cache.put(key, fragment);
+    }
+
+    ParseCache.CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void close() {
+        cache.close();
+    }
+}
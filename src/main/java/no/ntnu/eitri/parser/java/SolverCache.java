@@ -0,0 +1,106 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.cache.CacheStats;
+import com.github.javaparser.symbolsolver.cache.DefaultCacheStats;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A symbol solver cache that keeps at most a fixed number of entries,
+ * evicting the least recently used one beyond it.
+ *
+ * <p>
+ * It stands in for JavaParser's unbounded {@code InMemoryCache} in the
+ * combined solver, the source root solvers and Eitri's own solvers. Hits,
+ * misses and evictions are added to the {@link SolverCaches} that created
+ * it, so a run can report them over all workers. Like the solvers it serves,
+ * a cache is confined to one parse worker.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+final class SolverCache<K, V> implements Cache<K, V> {
+
+    private final SolverCaches owner;
+    private final Map<K, V> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    SolverCache(SolverCaches owner, int maxEntries) {
+        this.owner = owner;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (maxEntries <= 0 || size() <= maxEntries) {
+                    return false;
+                }
+                evictions++;
+                owner.evicted();
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    @Override
+    public Optional<V> get(K key) {
+        V value = entries.get(key);
+        if (value != null) {
+            hits++;
+            owner.hit();
+        } else {
+            misses++;
+            owner.missed();
+        }
+        return Optional.ofNullable(value);
+    }
+
+    @Override
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public void removeAll() {
+        entries.clear();
+    }
+
+    @Override
+    public boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public long size() {
+        return entries.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Returns the cached values, least recently used first, without counting
+     * a hit or touching their recency.
+     *
+     * @return a copy of the values
+     */
+    List<V> values() {
+        return List.copyOf(entries.values());
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new DefaultCacheStats(hits, misses, 0L, 0L, 0L, evictions);
+    }
+}
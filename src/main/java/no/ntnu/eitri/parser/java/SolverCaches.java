@@ -0,0 +1,92 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.parser.SolverCacheReport;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The bounds of the symbol solver caches of a parse, and their usage summed
+ * over all parse workers.
+ *
+ * <p>
+ * Every {@link SolverCache} is created here, with the same entry cap, and
+ * adds its hits, misses and evictions to lock-free adders shared by all
+ * workers. The release interval tells workers how many files they may visit
+ * before dropping their caches altogether; see
+ * {@link JavaParserFactory.WorkerParser}.
+ */
+final class SolverCaches {
+
+    private final int maxEntries;
+    private final int releaseEvery;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+
+    /**
+     * @param maxEntries   entry cap of each cache ({@code 0} = unbounded)
+     * @param releaseEvery files after which a worker drops its caches
+     *                     ({@code 0} = never)
+     */
+    SolverCaches(int maxEntries, int releaseEvery) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.releaseEvery = Math.max(0, releaseEvery);
+    }
+
+    /**
+     * Returns caches that are never bounded nor released, as JavaParser's
+     * own caches are.
+     *
+     * @return unbounded caches
+     */
+    static SolverCaches unbounded() {
+        return new SolverCaches(0, 0);
+    }
+
+    /**
+     * Creates a cache for one worker.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     * @return an empty cache with this run's entry cap
+     */
+    <K, V> SolverCache<K, V> newCache() {
+        return new SolverCache<>(this, maxEntries);
+    }
+
+    /**
+     * Returns how many files a worker visits before it drops its caches.
+     *
+     * @return files per release, or {@code 0} when caches are kept
+     */
+    int releaseEvery() {
+        return releaseEvery;
+    }
+
+    void hit() {
+        hits.increment();
+    }
+
+    void missed() {
+        misses.increment();
+    }
+
+    void evicted() {
+        evictions.increment();
+    }
+
+    void released() {
+        releases.increment();
+    }
+
+    /**
+     * Returns the bounds and usage so far.
+     *
+     * @return the cache report
+     */
+    SolverCacheReport report() {
+        return new SolverCacheReport(maxEntries, releaseEvery, hits.sum(), misses.sum(), evictions.sum(),
+                releases.sum());
+    }
+}
@@ -0,0 +1,70 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+
+import java.util.Optional;
+
+
+/**
+ * Solves types from every source root at once, through a
+ * {@link SourceTypeIndex}.
+ *
+ * <p>
+ * It stands in for one {@code JavaParserTypeSolver} per root: a name is one
+ * index lookup however many roots there are, and files in mounted archives
+ * are found as well as files on disk. The index is shared by all workers;
+ * the units it parses and the declarations built from them, like every type
+ * solver, are confined to one parse worker.
+ */
+final class SourceIndexTypeSolver implements TypeSolver {
+
+    private final SourceTypeIndex.Units units;
+    private final Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes;
+    private TypeSolver parent;
+
+    SourceIndexTypeSolver(SourceTypeIndex.Units units,
+            Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes) {
+        this.units = units;
+        this.foundTypes = foundTypes;
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        if (this.parent != null) {
+            throw new IllegalStateException("This TypeSolver already has a parent.");
+        }
+        if (parent == this) {
+            throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+        }
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        Optional<SymbolReference<ResolvedReferenceTypeDeclaration>> cached = foundTypes.get(name);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        SymbolReference<ResolvedReferenceTypeDeclaration> found = units.find(name)
+                .<SymbolReference<ResolvedReferenceTypeDeclaration>>map(declaration -> SymbolReference.solved(
+                        JavaParserFacade.get(this).getTypeDeclaration(declaration)))
+                .orElseGet(SymbolReference::unsolved);
+        foundTypes.put(name, found);
+        return found;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveTypeInModule(String qualifiedModuleName,
+            String simpleTypeName) {
+        return SymbolReference.unsolved();
+    }
+}
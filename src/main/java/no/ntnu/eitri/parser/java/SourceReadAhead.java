@@ -0,0 +1,255 @@
+package no.ntnu.eitri.parser.java;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded read-ahead stage that loads and decodes source files ahead of the
+ * parser.
+ *
+ * <p>
+ * A producer on a virtual thread walks the files in parse order and starts one
+ * virtual-thread read per file, as long as the decoded bytes waiting to be
+ * consumed stay within the configured budget. Consumers call {@link #take(int)}
+ * with the file index and get the decoded text (or the read error). Reads use
+ * {@link FileChannel}; files of at least {@link #MAPPED_READ_THRESHOLD} bytes
+ * are memory-mapped and decoded straight from the mapping.
+ *
+ * <p>
+ * A budget of {@code 0} disables read-ahead: {@link #take(int)} then reads the
+ * file synchronously on the calling thread, with the same decoding rules.
+ */
+final class SourceReadAhead implements AutoCloseable {
+
+    static final long MAPPED_READ_THRESHOLD = 1L << 20;
+    private static final int MAX_CONCURRENT_READS = 64;
+
+    private final List<Path> files;
+    private final List<CompletableFuture<SourceText>> slots;
+    private final int budgetBytes;
+    private final Semaphore budget;
+    private final Semaphore openFiles = new Semaphore(MAX_CONCURRENT_READS);
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final AtomicLong peakBufferedBytes = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong mappedFiles = new AtomicLong();
+    private final ExecutorService readers;
+
+    private SourceReadAhead(List<Path> files, long budgetBytes) {
+        this.files = List.copyOf(files);
+        this.budgetBytes = (int) Math.min(Integer.MAX_VALUE, Math.max(0L, budgetBytes));
+        this.budget = new Semaphore(this.budgetBytes);
+        this.slots = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            slots.add(new CompletableFuture<>());
+        }
+        this.readers = this.budgetBytes > 0 ? Executors.newVirtualThreadPerTaskExecutor() : null;
+    }
+
+    /**
+     * Starts reading ahead of the parser.
+     *
+     * @param files       files in the order they will be taken
+     * @param budgetBytes maximum decoded bytes held before being taken;
+     *                    {@code 0} disables read-ahead
+     * @return a running read-ahead stage; close it when parsing is done
+     */
+    static SourceReadAhead start(List<Path> files, long budgetBytes) {
+        SourceReadAhead readAhead = new SourceReadAhead(files, budgetBytes);
+        if (readAhead.readers != null) {
+            readAhead.readers.execute(readAhead::produce);
+        }
+        return readAhead;
+    }
+
+    /**
+     * Returns the decoded source for the file at {@code index}, waiting for the
+     * read to finish if needed. Each index must be taken exactly once.
+     *
+     * @param index position of the file in the list passed to {@link #start}
+     * @return decoded text or the read error
+     * @throws InterruptedException if interrupted while waiting
+     */
+    SourceText take(int index) throws InterruptedException {
+        if (readers == null) {
+            return read(files.get(index), 0);
+        }
+        try {
+            SourceText text = slots.get(index).get();
+            release(text.reservedBytes());
+            return text;
+        } catch (ExecutionException e) {
+            // Slots are only ever completed normally; keep the contract explicit anyway.
+            throw new IllegalStateException("Read-ahead failed for " + files.get(index), e.getCause());
+        }
+    }
+
+    ReadAheadStats stats() {
+        return new ReadAheadStats(budgetBytes, peakBufferedBytes.get(), bytesRead.get(), mappedFiles.get());
+    }
+
+    @Override
+    public void close() {
+        if (readers != null) {
+            readers.shutdownNow();
+        }
+    }
+
+    private void produce() {
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                Path file = files.get(i);
+                int reserved = reserve(file);
+                openFiles.acquire();
+                CompletableFuture<SourceText> slot = slots.get(i);
+                readers.execute(() -> {
+                    try {
+                        slot.complete(read(file, reserved));
+                    } catch (RuntimeException e) {
+                        // Surface unexpected read failures as read errors so the consumer
+                        // waiting on this slot is never left hanging.
+                        slot.complete(new SourceText(file, null, null, new IOException(e), reserved));
+                    } finally {
+                        openFiles.release();
+                    }
+                });
+            }
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int reserve(Path file) throws InterruptedException {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException _) {
+            size = 0;
+        }
+        // A file larger than the whole budget still gets read; it just waits until
+        // everything buffered before it has been taken.
+        int reserved = (int) Math.min(budgetBytes, Math.max(1L, size));
+        budget.acquire(reserved);
+        long buffered = bufferedBytes.addAndGet(reserved);
+        peakBufferedBytes.accumulateAndGet(buffered, Math::max);
+        return reserved;
+    }
+
+    private void release(int reserved) {
+        if (reserved > 0) {
+            bufferedBytes.addAndGet(-reserved);
+            budget.release(reserved);
+        }
+    }
+
+    private SourceText read(Path file, int reserved) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer bytes;
+            // Channels of archive file systems cannot be mapped.
+            if (size >= MAPPED_READ_THRESHOLD && file.getFileSystem() == FileSystems.getDefault()) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                mappedFiles.incrementAndGet();
+            } else {
+                bytes = readFully(channel, size);
+            }
+            bytesRead.addAndGet(bytes.remaining());
+            DecodedSource decoded = decode(bytes);
+            return new SourceText(file, decoded.text(), decoded.charset(), null, reserved);
+        } catch (IOException e) {
+            return new SourceText(file, null, null, e, reserved);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // FileChannel may return short reads on network and overlay filesystems.
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes source bytes, honouring a byte-order mark when present.
+     *
+     * <p>
+     * Without a BOM the bytes are decoded as UTF-8, and bytes that are not
+     * valid UTF-8 are replaced, as JavaParser does when it reads a file
+     * itself.
+     *
+     * @param bytes raw file content; its position is consumed
+     * @return decoded text (without BOM) and the charset used
+     */
+    static DecodedSource decode(ByteBuffer bytes) {
+        Charset bomCharset = detectBom(bytes);
+        if (bomCharset != null) {
+            return new DecodedSource(bomCharset.decode(bytes).toString(), bomCharset);
+        }
+        return new DecodedSource(StandardCharsets.UTF_8.decode(bytes).toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the charset announced by a leading byte-order mark and advances
+     * past it, or returns {@code null} and leaves the buffer untouched.
+     */
+    private static Charset detectBom(ByteBuffer bytes) {
+        int start = bytes.position();
+        int available = bytes.remaining();
+        if (available >= 3
+                && (bytes.get(start) & 0xFF) == 0xEF
+                && (bytes.get(start + 1) & 0xFF) == 0xBB
+                && (bytes.get(start + 2) & 0xFF) == 0xBF) {
+            bytes.position(start + 3);
+            return StandardCharsets.UTF_8;
+        }
+        if (available >= 2) {
+            int first = bytes.get(start) & 0xFF;
+            int second = bytes.get(start + 1) & 0xFF;
+            if (first == 0xFE && second == 0xFF) {
+                bytes.position(start + 2);
+                return StandardCharsets.UTF_16BE;
+            }
+            if (first == 0xFF && second == 0xFE) {
+                bytes.position(start + 2);
+                return StandardCharsets.UTF_16LE;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decoded source file, or the error that prevented reading it.
+     */
+    record SourceText(Path file, String text, Charset charset, IOException error, int reservedBytes) {
+    }
+
+    record DecodedSource(String text, Charset charset) {
+    }
+
+    /**
+     * Read-ahead buffer usage for a parse run.
+     *
+     * @param budgetBytes       configured budget ({@code 0} when disabled)
+     * @param peakBufferedBytes highest number of bytes reserved at once
+     * @param bytesRead         total bytes read from disk
+     * @param mappedFiles       files read through a memory mapping
+     */
+    record ReadAheadStats(long budgetBytes, long peakBufferedBytes, long bytesRead, long mappedFiles) {
+    }
+}
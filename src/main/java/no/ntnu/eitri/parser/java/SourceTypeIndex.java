@@ -0,0 +1,383 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.resolution.Navigator;
+
+import javax.lang.model.SourceVersion;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Index of the Java sources under the symbol solver's source roots, shared by
+ * the {@link SourceIndexTypeSolver}s of all parse workers.
+ *
+ * <p>
+ * The roots are walked once, in parallel, when the index is built. A file is
+ * indexed under the name its path gives it, the name JavaParser's
+ * {@code JavaParserTypeSolver} would look it up by: {@code com/example/Shop.java}
+ * declares {@code com.example.Shop}. Directories that cannot be packages and
+ * roots nested in other roots are not descended into, and a name found under
+ * several roots is taken from the first. Non-public top-level types live in a
+ * file named after another type; they are found by scanning the files of
+ * their package for declarations, once per package and without parsing.
+ *
+ * <p>
+ * The path index is shared by all workers; compilation units are not.
+ * JavaParser's facade caches resolved types in the nodes of the units it
+ * reads, so a unit read by two workers' solvers would be written from two
+ * threads. Each worker keeps its own {@link Units}: a file is parsed at most
+ * once per worker, as a declaration {@linkplain DeclarationSkeleton skeleton},
+ * and a file the worker has already visited is {@linkplain Units#share shared}
+ * rather than parsed again.
+ *
+ * <p>
+ * A parse session keeps one worker's units across updates and
+ * {@linkplain Units#refresh refreshes} the index when its files change.
+ */
+final class SourceTypeIndex {
+
+    private static final String JAVA_EXTENSION = ".java";
+
+    private final List<Path> roots;
+    private final Map<String, Map<String, Path>> declaredByPackage = new ConcurrentHashMap<>();
+    private final LongAdder parsedFiles = new LongAdder();
+    private final LongAdder sharedFiles = new LongAdder();
+    private Map<String, Path> filesByType;
+    private Map<String, List<Path>> filesByPackage;
+    private Set<Path> files;
+    private long buildNanos;
+
+    private SourceTypeIndex(List<Path> roots) {
+        this.roots = roots;
+    }
+
+    /**
+     * Walks the given source roots, one worker per root up to the number of
+     * processors. Unreadable directories are skipped.
+     *
+     * @param sourceRoots source roots, in lookup order
+     * @return the index
+     */
+    static SourceTypeIndex build(Collection<Path> sourceRoots) {
+        long started = System.nanoTime();
+        SourceTypeIndex index = new SourceTypeIndex(sourceRoots.stream()
+                .map(root -> root.toAbsolutePath().normalize())
+                .distinct()
+                .toList());
+        index.walkRoots();
+        index.buildNanos = System.nanoTime() - started;
+        return index;
+    }
+
+    private void walkRoots() {
+        List<List<Path>> walked = walkAll(roots, Set.copyOf(roots));
+        Map<String, Path> byType = new HashMap<>();
+        Map<String, List<Path>> byPackage = new HashMap<>();
+        Set<Path> walkedFiles = new HashSet<>();
+        for (int i = 0; i < roots.size(); i++) {
+            Path root = roots.get(i);
+            for (Path file : walked.get(i)) {
+                Path relative = root.relativize(file);
+                String packageName = relative.getParent() == null ? ""
+                        : relative.getParent().toString().replace(relative.getFileSystem().getSeparator(), ".");
+                String prefix = packageName.isEmpty() ? "" : packageName + ".";
+                byType.putIfAbsent(prefix + stem(file), file);
+                byPackage.computeIfAbsent(packageName, _ -> new ArrayList<>()).add(file);
+                walkedFiles.add(file);
+            }
+        }
+        filesByType = byType;
+        filesByPackage = byPackage;
+        files = walkedFiles;
+        declaredByPackage.clear();
+    }
+
+    /**
+     * Returns how many names the walk indexed by path.
+     *
+     * @return the number of indexed names
+     */
+    int size() {
+        return filesByType.size();
+    }
+
+    int rootCount() {
+        return roots.size();
+    }
+
+    long buildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * Returns how many files were parsed for lookups so far, by all workers.
+     *
+     * @return files parsed for the solvers themselves
+     */
+    long parsedFiles() {
+        return parsedFiles.sum();
+    }
+
+    /**
+     * Returns how many units the workers shared before a lookup needed them.
+     *
+     * @return files that were not parsed again
+     */
+    long sharedFiles() {
+        return sharedFiles.sum();
+    }
+
+    /**
+     * Creates the unit store of one parse worker.
+     *
+     * @return an empty store, to be used from one thread at a time
+     */
+    Units newUnits() {
+        return new Units();
+    }
+
+    /**
+     * The compilation units one worker's solver reads declarations from,
+     * looked up through the shared path index.
+     */
+    final class Units {
+
+        private final Map<Path, Optional<CompilationUnit>> units = new HashMap<>();
+        private final JavaParser parser = new JavaParser(new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_25)
+                .setAttributeComments(false));
+
+        private Units() {
+        }
+
+        /**
+         * Finds the declaration of a type.
+         *
+         * @param name canonical name, with nested types dotted
+         * @return the declaration, or empty when no indexed source declares it
+         */
+        Optional<TypeDeclaration<?>> find(String name) {
+            String[] segments = name.split("\\.");
+            // Try com.example.Outer for com.example.Outer.Inner, then com.example as a type, ...
+            for (int end = segments.length; end > 0; end--) {
+                String packageName = String.join(".", List.of(segments).subList(0, end - 1));
+                String typeName = String.join(".", List.of(segments).subList(end - 1, segments.length));
+                String topLevelName = packageName.isEmpty() ? segments[0] : packageName + "." + segments[end - 1];
+
+                Optional<TypeDeclaration<?>> declaration = find(filesByType.get(topLevelName), typeName);
+                if (declaration.isEmpty()) {
+                    declaration = find(declaredInPackage(packageName).get(typeName), typeName);
+                }
+                if (declaration.isPresent()) {
+                    return declaration;
+                }
+            }
+            return Optional.empty();
+        }
+
+        /**
+         * Offers a unit this worker has finished visiting, so lookups of its
+         * types use it instead of parsing the file again. Units of files
+         * outside the roots, or of files a lookup already parsed, are ignored.
+         *
+         * @param file the parsed file
+         * @param unit its compilation unit, parsed by this worker's parser
+         */
+        void share(Path file, CompilationUnit unit) {
+            Path key = file.toAbsolutePath().normalize();
+            if (!files.contains(key) || units.containsKey(key)) {
+                return;
+            }
+            units.put(key, Optional.of(unit));
+            sharedFiles.increment();
+        }
+
+        /**
+         * Returns how many units this worker holds.
+         *
+         * @return parsed and shared units
+         */
+        int size() {
+            return units.size();
+        }
+
+        /**
+         * Drops every unit, with the types the solver resolved into their
+         * nodes. Later lookups parse the files again.
+         */
+        void clear() {
+            units.clear();
+        }
+
+        /**
+         * Brings a parse session's units up to date after files changed: the
+         * roots are walked again, since files may have been added or removed,
+         * and the units of the given files are dropped. Only for the units of
+         * a session, once no other worker uses the index.
+         *
+         * @param changed files that were changed, added or removed
+         * @return the units kept, which may still hold types the solver
+         *         resolved against the dropped ones
+         */
+        List<CompilationUnit> refresh(Collection<Path> changed) {
+            walkRoots();
+            for (Path file : changed) {
+                units.remove(file.toAbsolutePath().normalize());
+            }
+            units.keySet().retainAll(files);
+            return units.values().stream().flatMap(Optional::stream).toList();
+        }
+
+        private Optional<TypeDeclaration<?>> find(Path file, String typeName) {
+            if (file == null) {
+                return Optional.empty();
+            }
+            return units.computeIfAbsent(file, this::parse).flatMap(unit -> Navigator.findType(unit, typeName));
+        }
+
+        private Optional<CompilationUnit> parse(Path file) {
+            try {
+                String source = SourceReadAhead.decode(ByteBuffer.wrap(Files.readAllBytes(file))).text();
+                String skeleton = DeclarationSkeleton.strip(source);
+                ParseResult<CompilationUnit> result = parser.parse(skeleton);
+                if (!result.isSuccessful() && skeleton != source) {
+                    result = parser.parse(source);
+                }
+                parsedFiles.increment();
+                return result.getResult();
+            } catch (IOException | RuntimeException _) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    private Map<String, Path> declaredInPackage(String packageName) {
+        List<Path> packageFiles = filesByPackage.get(packageName);
+        if (packageFiles == null) {
+            return Map.of();
+        }
+        return declaredByPackage.computeIfAbsent(packageName, _ -> scanPackage(packageFiles));
+    }
+
+    private static Map<String, Path> scanPackage(List<Path> packageFiles) {
+        Map<String, Path> declared = new HashMap<>();
+        for (Path file : packageFiles) {
+            try {
+                String source = SourceReadAhead.decode(ByteBuffer.wrap(Files.readAllBytes(file))).text();
+                for (String typeName : DeclarationSkeleton.declaredTypes(source)) {
+                    declared.putIfAbsent(typeName, file);
+                }
+            } catch (IOException _) {
+                // An unreadable file declares nothing the solver can use.
+            }
+        }
+        return declared;
+    }
+
+    private static List<List<Path>> walkAll(List<Path> roots, Set<Path> rootSet) {
+        int workers = Math.min(roots.size(), Runtime.getRuntime().availableProcessors());
+        if (workers <= 1) {
+            return roots.stream().map(root -> walk(root, rootSet)).toList();
+        }
+        List<Callable<List<Path>>> walks = roots.stream()
+                .<Callable<List<Path>>>map(root -> () -> walk(root, rootSet))
+                .toList();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, JavaSourceParser.parseWorkerThreadFactory());
+        try {
+            List<List<Path>> walked = new ArrayList<>(roots.size());
+            for (Future<List<Path>> result : executor.invokeAll(walks)) {
+                walked.add(awaitWalk(result));
+            }
+            return walked;
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+            return roots.stream().map(_ -> List.<Path>of()).toList();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Path> awaitWalk(Future<List<Path>> result) throws InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            // A root that fails to walk contributes nothing, like a missing one.
+            return List.of();
+        }
+    }
+
+    private static List<Path> walk(Path root, Set<Path> roots) {
+        List<Path> found = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return found;
+        }
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (dir.equals(root)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    // Nested roots are walked on their own, under their own package names.
+                    return roots.contains(dir) || !SourceVersion.isName(name(dir))
+                            ? FileVisitResult.SKIP_SUBTREE
+                            : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && name(file).endsWith(JAVA_EXTENSION)
+                            && SourceVersion.isName(stem(file))) {
+                        found.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException _) {
+            // Keep what was found before the walk failed.
+        }
+        return found;
+    }
+
+    private static String name(Path path) {
+        Path fileName = path.getFileName();
+        return fileName == null ? "" : fileName.toString();
+    }
+
+    private static String stem(Path file) {
+        String name = name(file);
+        return name.substring(0, name.length() - JAVA_EXTENSION.length());
+    }
+}
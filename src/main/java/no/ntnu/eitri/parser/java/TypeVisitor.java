@@ -25,6 +25,7 @@ import com.github.javaparser.ast.type.TypeParameter;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import com.github.javaparser.resolution.types.ResolvedReferenceType;
 import com.github.javaparser.resolution.types.ResolvedType;
+import no.ntnu.eitri.config.ModelProjection;
 import no.ntnu.eitri.model.TypeKind;
 import no.ntnu.eitri.model.RelationKind;
 import no.ntnu.eitri.model.UmlField;
@@ -36,6 +37,7 @@ import no.ntnu.eitri.model.UmlStereotype;
 import no.ntnu.eitri.model.UmlType;
 import no.ntnu.eitri.model.Visibility;
 import no.ntnu.eitri.parser.ParseContext;
+import no.ntnu.eitri.parser.resolution.ResolutionTier;
 
 import java.util.EnumSet;
 import java.util.List;
@@ -58,6 +60,16 @@ import java.util.List;
  * are included with Outer$Inner naming convention and explicit "nested"
  * relations.
  * The naming is computed using JavaParser's parent chain.
+ *
+ * <p>
+ * Members outside the {@link ModelProjection} are skipped before their types
+ * are resolved.
+ *
+ * <p>
+ * Type names are resolved with the symbol solver of the parser that produced
+ * the tree, or, when a {@link LexicalTypeResolver} is given, from the source
+ * text alone. A strict resolver settles what it can first and leaves the
+ * remaining names to the symbol solver.
  */
 public class TypeVisitor extends VoidVisitorAdapter<Void> {
 
@@ -67,9 +79,28 @@ public class TypeVisitor extends VoidVisitorAdapter<Void> {
     private static final String RECORD_STEREOTYPE = "record";
 
     private final ParseContext context;
+    private final ModelProjection projection;
+    private final LexicalTypeResolver lexicalResolver;
 
     public TypeVisitor(ParseContext context) {
+        this(context, ModelProjection.full());
+    }
+
+    public TypeVisitor(ParseContext context, ModelProjection projection) {
+        this(context, projection, null);
+    }
+
+    /**
+     * Creates a visitor that may resolve type names without a symbol solver.
+     *
+     * @param lexicalResolver resolves type names instead of the symbol solver,
+     *                        or before it when strict; null to use only the
+     *                        symbol solver
+     */
+    TypeVisitor(ParseContext context, ModelProjection projection, LexicalTypeResolver lexicalResolver) {
         this.context = context;
+        this.projection = projection;
+        this.lexicalResolver = lexicalResolver;
     }
 
     @Override
@@ -197,8 +228,18 @@ public class TypeVisitor extends VoidVisitorAdapter<Void> {
      * types are registered.
      */
     private void addInheritanceRelation(String fromFqn, ClassOrInterfaceType toType, RelationKind kind) {
+        if (lexicalResolver != null) {
+            String resolvedFqn = lexicalResolver.resolveName(toType);
+            if (resolvedFqn != null || !lexicalResolver.isStrict()) {
+                context.addPendingInheritance(new ParseContext.PendingInheritance(fromFqn,
+                        resolvedFqn != null ? resolvedFqn : toType.getNameAsString(), kind));
+                return;
+            }
+        }
+
         // Try to resolve the fully qualified name using symbol resolution
         String resolvedFqn = null;
+        long started = System.nanoTime();
         try {
             var resolvedType = toType.resolve();
             if (resolvedType.isReferenceType()) {
@@ -206,9 +247,11 @@ public class TypeVisitor extends VoidVisitorAdapter<Void> {
             } else {
                 resolvedFqn = toType.getNameAsString();
             }
+            recordSolverTier(true, started);
         } catch (Exception _) {
             // Symbol resolution failed, use simple name as fallback
             resolvedFqn = toType.getNameAsString();
+            recordSolverTier(false, started);
         }
 
         // Defer inheritance resolution to build() when all types are registered
@@ -222,7 +265,10 @@ public class TypeVisitor extends VoidVisitorAdapter<Void> {
         String simpleName = n.getNameAsString();
 
         // Enum constants as fields
-        for (EnumConstantDeclaration constant : n.getEntries()) {
+        List<EnumConstantDeclaration> constants = projection.includesField(Visibility.PUBLIC)
+                ? n.getEntries()
+                : List.of();
+        for (EnumConstantDeclaration constant : constants) {
             UmlField constantField = UmlField.builder()
                     .name(constant.getNameAsString())
                     .type(typeFqn)
@@ -255,6 +301,7 @@ public class TypeVisitor extends VoidVisitorAdapter<Void> {
         // Annotation members as methods (they are abstract methods returning values)
         n.getMembers().stream()
                 .filter(m -> m instanceof com.github.javaparser.ast.body.AnnotationMemberDeclaration)
+                .filter(_ -> projection.includesMethod(Visibility.PUBLIC))
                 .map(m -> (com.github.javaparser.ast.body.AnnotationMemberDeclaration) m)
                 .forEach(member -> {
                     String defaultValue = member.getDefaultValue()
@@ -284,15 +331,17 @@ public class TypeVisitor extends VoidVisitorAdapter<Void> {
         addGenerics(n.getTypeParameters(), builder);
 
         // Record components as fields
-        n.getParameters().forEach(param -> {
-            UmlField field = UmlField.builder()
-                    .name(param.getNameAsString())
-                    .type(resolveTypeFqn(param.getType()))
-                    .visibility(Visibility.PRIVATE)
-                    .isFinal(true)
-                    .build();
-            builder.addField(field);
-        });
+        if (projection.includesField(Visibility.PRIVATE)) {
+            n.getParameters().forEach(param -> {
+                UmlField field = UmlField.builder()
+                        .name(param.getNameAsString())
+                        .type(resolveTypeFqn(param.getType()))
+                        .visibility(Visibility.PRIVATE)
+                        .isFinal(true)
+                        .build();
+                builder.addField(field);
+            });
+        }
 
         addMethods(n.getMethods(), builder);
         registerType(typeBuild);
@@ -348,6 +397,9 @@ public class TypeVisitor extends VoidVisitorAdapter<Void> {
 
     private void addFields(List<FieldDeclaration> fields, UmlType.Builder builder) {
         for (FieldDeclaration field : fields) {
+            if (!projection.includesField(extractVisibility(field))) {
+                continue;
+            }
             for (VariableDeclarator variableDeclarator : field.getVariables()) {
                 builder.addField(extractField(field, variableDeclarator));
             }
@@ -356,6 +408,9 @@ public class TypeVisitor extends VoidVisitorAdapter<Void> {
 
     private void addMethods(List<MethodDeclaration> methods, UmlType.Builder builder) {
         for (MethodDeclaration method : methods) {
+            if (!projection.includesMethod(extractVisibility(method))) {
+                continue;
+            }
             builder.addMethod(extractMethod(method));
         }
     }
@@ -363,6 +418,9 @@ public class TypeVisitor extends VoidVisitorAdapter<Void> {
     private void addConstructors(List<ConstructorDeclaration> constructors, String ownerSimpleName,
             UmlType.Builder builder) {
         for (ConstructorDeclaration constructor : constructors) {
+            if (!projection.includesMethod(extractVisibility(constructor))) {
+                continue;
+            }
             builder.addMethod(extractConstructor(constructor, ownerSimpleName));
         }
     }
@@ -427,10 +485,27 @@ public class TypeVisitor extends VoidVisitorAdapter<Void> {
      * @return the fully-qualified type name, or simple name if resolution fails
      */
     private String resolveTypeFqn(Type type) {
+        if (lexicalResolver != null) {
+            String resolved = lexicalResolver.resolve(type);
+            if (resolved != null) {
+                return resolved;
+            }
+            if (!lexicalResolver.isStrict()) {
+                String simpleName = type.asString();
+                context.addWarning("Failed to resolve type '" + simpleName + "' at " +
+                        type.getBegin().map(Object::toString).orElse("unknown position") +
+                        ": not declared in the sources, imported explicitly or in java.lang");
+                return simpleName;
+            }
+        }
+        long started = System.nanoTime();
         try {
             ResolvedType resolved = type.resolve();
-            return resolveTypeToFqnString(resolved, type.asString());
+            String fqn = resolveTypeToFqnString(resolved, type.asString());
+            recordSolverTier(true, started);
+            return fqn;
         } catch (Exception e) {
+            recordSolverTier(false, started);
             String importedFallback = resolveTypeFromImports(type);
             if (importedFallback != null) {
                 return importedFallback;
@@ -444,6 +519,16 @@ public class TypeVisitor extends VoidVisitorAdapter<Void> {
         }
     }
 
+    /**
+     * Charges a symbol solver lookup to the solver tier, when tiers are
+     * counted.
+     */
+    private void recordSolverTier(boolean resolved, long started) {
+        if (lexicalResolver != null) {
+            lexicalResolver.tiers().record(ResolutionTier.SOLVER, resolved, System.nanoTime() - started);
+        }
+    }
+
     private String resolveTypeFromImports(Type type) {
         if (type.isArrayType()) {
             String component = resolveTypeFromImports(type.asArrayType().getComponentType());
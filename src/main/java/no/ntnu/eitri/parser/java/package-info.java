@@ -10,6 +10,12 @@
  *   <li>{@link no.ntnu.eitri.parser.java.TypeVisitor} - AST visitor for type declarations</li>
  *   <li>{@link no.ntnu.eitri.parser.java.MemberExtractor} - Field and method extraction</li>
  *   <li>{@link no.ntnu.eitri.parser.java.RelationDetector} - Relationship detection</li>
+ *   <li>{@link no.ntnu.eitri.parser.java.ScanningJavaSourceParser} - Alternate parser built on a
+ *       hand-written declaration scanner, without JavaParser</li>
+ *   <li>{@link no.ntnu.eitri.parser.java.JavacSourceParser} - Alternate parser built on javac and the
+ *       Compiler Tree API, without JavaParser</li>
+ *   <li>{@link no.ntnu.eitri.parser.java.ClassFileSourceParser} - Parser for compiled classes and jars,
+ *       built on the {@code java.lang.classfile} API</li>
  * </ul>
  */
 package no.ntnu.eitri.parser.java;
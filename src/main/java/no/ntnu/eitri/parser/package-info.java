@@ -10,6 +10,10 @@
  *   <li>{@link no.ntnu.eitri.parser.SourceParser} - Main interface for parsing source files</li>
  *   <li>{@link no.ntnu.eitri.parser.ParseContext} - Mutable accumulator for parsed data</li>
  *   <li>{@link no.ntnu.eitri.parser.ParseReport} - Consolidated warnings and parse metrics</li>
+ *   <li>{@link no.ntnu.eitri.parser.ParseScheduleReport} - File ordering and worker utilization of a parse run</li>
+ *   <li>{@link no.ntnu.eitri.parser.SolverCacheReport} - Symbol solver cache bounds and usage of a parse run</li>
+ *   <li>{@link no.ntnu.eitri.parser.ClasspathPruningReport} - Dependency jars left out of the symbol solver</li>
+ *   <li>{@link no.ntnu.eitri.parser.BuildDiscoveryReport} - Time spent finding build scripts, roots and jars</li>
  *   <li>{@link no.ntnu.eitri.parser.ParseException} - Exception for parsing errors</li>
  * </ul>
  */
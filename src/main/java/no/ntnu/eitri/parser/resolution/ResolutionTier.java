@@ -0,0 +1,33 @@
+package no.ntnu.eitri.parser.resolution;
+
+import java.util.Locale;
+
+/**
+ * Stages of tiered type-name resolution, in the order they are tried.
+ *
+ * <p>
+ * The first four tiers look names up in the source text and the declared
+ * types of the parsed sources. Only names none of them can settle reach the
+ * {@link #SOLVER}.
+ */
+public enum ResolutionTier {
+    /** Type variables, enclosing types and member types of the compilation unit. */
+    COMPILATION_UNIT,
+    /** Single-type and on-demand imports, and names written fully qualified. */
+    IMPORT,
+    /** Types declared in the same package. */
+    SAME_PACKAGE,
+    /** Primitives, {@code void} and {@code java.lang}. */
+    LANGUAGE,
+    /** JavaParser's symbol solver. */
+    SOLVER;
+
+    /**
+     * Returns the name used in logs.
+     *
+     * @return the lower-case tier name, with dashes
+     */
+    public String id() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
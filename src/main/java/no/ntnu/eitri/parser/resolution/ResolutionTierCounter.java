@@ -0,0 +1,58 @@
+package no.ntnu.eitri.parser.resolution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts hits and time per {@link ResolutionTier}.
+ *
+ * <p>
+ * One counter is shared by all parse workers of a run, so updates are
+ * lock-free adders. Time is charged to a tier for every lookup it makes,
+ * including lookups that miss, which is what shows where resolution time
+ * goes.
+ */
+public final class ResolutionTierCounter {
+
+    private static final ResolutionTier[] TIERS = ResolutionTier.values();
+
+    private final LongAdder[] hits = newAdders();
+    private final LongAdder[] nanos = newAdders();
+
+    /**
+     * Records one lookup.
+     *
+     * @param tier        the tier that made the lookup
+     * @param hit         whether the tier resolved the name
+     * @param elapsedNanos time the lookup took
+     */
+    public void record(ResolutionTier tier, boolean hit, long elapsedNanos) {
+        if (hit) {
+            hits[tier.ordinal()].increment();
+        }
+        nanos[tier.ordinal()].add(elapsedNanos);
+    }
+
+    /**
+     * Returns the counts so far, one entry per tier in tier order.
+     *
+     * @return tier statistics
+     */
+    public List<TypeResolutionStats.TierStats> snapshot() {
+        List<TypeResolutionStats.TierStats> tiers = new ArrayList<>(TIERS.length);
+        for (ResolutionTier tier : TIERS) {
+            tiers.add(new TypeResolutionStats.TierStats(tier,
+                    hits[tier.ordinal()].sum(), nanos[tier.ordinal()].sum()));
+        }
+        return tiers;
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[TIERS.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -1,7 +1,13 @@
 package no.ntnu.eitri.parser.resolution;
 
+import java.util.List;
+
 /**
  * Aggregated statistics for type-reference resolution during parsing.
+ *
+ * <p>
+ * {@code tiers} holds per-tier hits and time of tiered or lexical type-name
+ * resolution in the visitor; it is empty when only the symbol solver ran.
  */
 public record TypeResolutionStats(
         int totalRequests,
@@ -11,9 +17,42 @@ public record TypeResolutionStats(
         int skippedWildcard,
         int skippedPrimitive,
         int skippedNonFqn,
-        int skippedUnknownFqn
+        int skippedUnknownFqn,
+        List<TierStats> tiers
 ) {
+    public TypeResolutionStats {
+        tiers = tiers != null ? List.copyOf(tiers) : List.of();
+    }
+
+    public TypeResolutionStats(int totalRequests, int resolvedReferences, int reusedKnownTypes,
+            int skippedNullOrEmpty, int skippedWildcard, int skippedPrimitive, int skippedNonFqn,
+            int skippedUnknownFqn) {
+        this(totalRequests, resolvedReferences, reusedKnownTypes, skippedNullOrEmpty, skippedWildcard,
+                skippedPrimitive, skippedNonFqn, skippedUnknownFqn, List.of());
+    }
+
     public int skippedTotal() {
         return skippedNullOrEmpty + skippedWildcard + skippedPrimitive + skippedNonFqn + skippedUnknownFqn;
     }
+
+    /**
+     * Returns a copy with the given tier statistics.
+     *
+     * @param tiers per-tier statistics
+     * @return the combined statistics
+     */
+    public TypeResolutionStats withTiers(List<TierStats> tiers) {
+        return new TypeResolutionStats(totalRequests, resolvedReferences, reusedKnownTypes, skippedNullOrEmpty,
+                skippedWildcard, skippedPrimitive, skippedNonFqn, skippedUnknownFqn, tiers);
+    }
+
+    /**
+     * Hits and time of one resolution tier.
+     *
+     * @param tier  the tier
+     * @param hits  names the tier resolved
+     * @param nanos time spent in the tier, including lookups that missed
+     */
+    public record TierStats(ResolutionTier tier, long hits, long nanos) {
+    }
 }
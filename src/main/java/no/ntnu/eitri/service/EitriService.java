@@ -9,6 +9,11 @@ import no.ntnu.eitri.config.ConfigService;
 import no.ntnu.eitri.config.PlantUmlConfig;
 import no.ntnu.eitri.degradation.ModelDegrader;
 import no.ntnu.eitri.model.UmlModel;
+import no.ntnu.eitri.parser.BuildDiscoveryReport;
+import no.ntnu.eitri.parser.ClasspathPruningReport;
+import no.ntnu.eitri.parser.ParseRunReport;
+import no.ntnu.eitri.parser.ParseScheduleReport;
+import no.ntnu.eitri.parser.SolverCacheReport;
 import no.ntnu.eitri.writer.WriteException;
 import no.ntnu.eitri.writer.plantuml.PlantUmlWriter;
 import org.yaml.snakeyaml.Yaml;
@@ -26,6 +31,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -101,6 +107,7 @@ public final class EitriService {
                     0,
                     0,
                     null,
+                    ParseRunReport.NONE,
                     null,
                     startedAt,
                     clock.instant());
@@ -116,6 +123,7 @@ public final class EitriService {
                     0,
                     0,
                     null,
+                    ParseRunReport.NONE,
                     null,
                     startedAt,
                     clock.instant());
@@ -139,7 +147,10 @@ public final class EitriService {
                 manifest.parserExtension(),
                 manifest.writerExtension(),
                 manifest.verbose(),
-                false);
+                false,
+                manifest.parseOptions(),
+                manifest.sourceFilter(),
+                manifest.projectModel());
 
         LOGGER.log(Level.INFO, "Starting Eitri service run {0}", runId);
         RunResult result = new EitriRunner().run(cliOptions);
@@ -158,6 +169,7 @@ public final class EitriService {
                         result.typeCount(),
                         result.relationCount(),
                         result.repositoryStats(),
+                        result.parseRun(),
                         degradationArtifacts,
                         startedAt,
                         clock.instant());
@@ -173,6 +185,7 @@ public final class EitriService {
                 result.typeCount(),
                 result.relationCount(),
                 result.repositoryStats(),
+                result.parseRun(),
                 degradationArtifacts,
                 startedAt,
                 clock.instant());
@@ -264,6 +277,7 @@ public final class EitriService {
             int typeCount,
             int relationCount,
             RepositoryStats repositoryStats,
+            ParseRunReport parseRun,
             DegradationArtifacts degradationArtifacts,
             Instant startedAt,
             Instant finishedAt) throws IOException {
@@ -283,6 +297,18 @@ public final class EitriService {
             report.put("repository_stats", statsDocument);
             JsonWriter.write(repositoryStatsPath(), statsDocument);
         }
+        if (parseRun.schedule() != null) {
+            report.put("parse_schedule", parseScheduleDocument(parseRun.schedule()));
+        }
+        if (parseRun.solverCaches() != null) {
+            report.put("solver_caches", solverCachesDocument(parseRun.solverCaches()));
+        }
+        if (parseRun.classpathPruning() != null) {
+            report.put("classpath_pruning", classpathPruningDocument(parseRun.classpathPruning()));
+        }
+        if (parseRun.buildDiscovery() != null) {
+            report.put("build_discovery", buildDiscoveryDocument(parseRun.buildDiscovery()));
+        }
 
         Map<String, Object> inputs = new LinkedHashMap<>();
         inputs.put("source_root", inputDir.toString());
@@ -290,6 +316,23 @@ public final class EitriService {
         inputs.put("parser_extension", manifest.parserExtension());
         inputs.put("writer_extension", manifest.writerExtension());
         inputs.put("verbose", manifest.verbose());
+        inputs.put("parse_threads", manifest.parseOptions().threads());
+        inputs.put("read_ahead_bytes", manifest.parseOptions().readAheadBytes());
+        Path parseCacheDirectory = manifest.parseOptions().cacheDirectory();
+        inputs.put("parse_cache_dir", parseCacheDirectory != null ? parseCacheDirectory.toString() : null);
+        inputs.put("parse_cache_max_bytes", manifest.parseOptions().cacheMaxBytes());
+        inputs.put("declarations_only", manifest.parseOptions().declarationsOnly());
+        inputs.put("declarations_only_above_bytes", manifest.parseOptions().declarationsOnlyAboveBytes());
+        inputs.put("type_resolution", manifest.parseOptions().typeResolution().id());
+        inputs.put("solver_cache_entries", manifest.parseOptions().solverCacheEntries());
+        inputs.put("release_solver_caches_every", manifest.parseOptions().releaseSolverCachesEvery());
+        inputs.put("prune_classpath", manifest.parseOptions().pruneClasspath());
+        inputs.put("include_globs", manifest.sourceFilter().includes());
+        inputs.put("exclude_globs", manifest.sourceFilter().excludes());
+        inputs.put("default_excludes", manifest.sourceFilter().defaultExcludes());
+        inputs.put("include_packages", manifest.sourceFilter().includePackages());
+        inputs.put("exclude_packages", manifest.sourceFilter().excludePackages());
+        inputs.put("project_model", manifest.projectModel());
         report.put("inputs", inputs);
 
         Map<String, Object> artifacts = new LinkedHashMap<>();
@@ -370,6 +413,51 @@ public final class EitriService {
                 report.get("finished_at"));
     }
 
+    private Map<String, Object> parseScheduleDocument(ParseScheduleReport parseSchedule) {
+        Map<String, Object> schedule = new LinkedHashMap<>();
+        schedule.put("cost_model", parseSchedule.costModel());
+        schedule.put("workers", parseSchedule.workers());
+        schedule.put("file_count", parseSchedule.fileCount());
+        schedule.put("files_with_history", parseSchedule.filesWithHistory());
+        schedule.put("wall_ms", TimeUnit.NANOSECONDS.toMillis(parseSchedule.wallNanos()));
+        schedule.put("busy_ms", TimeUnit.NANOSECONDS.toMillis(parseSchedule.busyNanos()));
+        schedule.put("core_utilization", parseSchedule.coreUtilization());
+        schedule.put("slowest_file", parseSchedule.slowestFile());
+        schedule.put("slowest_file_ms", TimeUnit.NANOSECONDS.toMillis(parseSchedule.slowestFileNanos()));
+        return schedule;
+    }
+
+    private Map<String, Object> solverCachesDocument(SolverCacheReport solverCaches) {
+        Map<String, Object> caches = new LinkedHashMap<>();
+        caches.put("max_entries", solverCaches.maxEntries());
+        caches.put("release_every", solverCaches.releaseEvery());
+        caches.put("hits", solverCaches.hits());
+        caches.put("misses", solverCaches.misses());
+        caches.put("hit_rate", solverCaches.hitRate());
+        caches.put("evictions", solverCaches.evictions());
+        caches.put("releases", solverCaches.releases());
+        return caches;
+    }
+
+    private Map<String, Object> buildDiscoveryDocument(BuildDiscoveryReport buildDiscovery) {
+        Map<String, Object> discovery = new LinkedHashMap<>();
+        discovery.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(buildDiscovery.nanos()));
+        discovery.put("modules_walked", buildDiscovery.modulesWalked());
+        discovery.put("scripts_read", buildDiscovery.scriptsRead());
+        discovery.put("scripts_reused", buildDiscovery.scriptsReused());
+        return discovery;
+    }
+
+    private Map<String, Object> classpathPruningDocument(ClasspathPruningReport classpathPruning) {
+        Map<String, Object> pruning = new LinkedHashMap<>();
+        pruning.put("applied", classpathPruning.applied());
+        pruning.put("referenced_packages", classpathPruning.referencedPackages());
+        pruning.put("candidate_jars", classpathPruning.candidateJars());
+        pruning.put("kept_jars", classpathPruning.keptJars());
+        pruning.put("pruned_jars", classpathPruning.prunedJars().stream().map(Path::toString).toList());
+        return pruning;
+    }
+
     private Map<String, Object> repositoryStatsDocument(RepositoryStats repositoryStats) {
         Map<String, Object> stats = new LinkedHashMap<>();
         stats.put("source_path_count", repositoryStats.sourcePathCount());
@@ -1,5 +1,8 @@
 package no.ntnu.eitri.service;
 
+import no.ntnu.eitri.config.ParseOptions;
+import no.ntnu.eitri.config.SourceFilter;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -15,13 +18,18 @@ record EitriServiceManifest(
         String parserExtension,
         String writerExtension,
         boolean verbose,
-        Map<String, Object> writers) {
+        Map<String, Object> writers,
+        ParseOptions parseOptions,
+        SourceFilter sourceFilter,
+        boolean projectModel) {
 
     EitriServiceManifest {
         sourceRelpaths = sourceRelpaths != null ? List.copyOf(sourceRelpaths) : List.of();
         writers = writers != null
                 ? Collections.unmodifiableMap(new LinkedHashMap<>(writers))
                 : Map.of();
+        parseOptions = parseOptions != null ? parseOptions : ParseOptions.defaults();
+        sourceFilter = sourceFilter != null ? sourceFilter : SourceFilter.defaults();
     }
 
     boolean hasWriterConfig() {
@@ -29,6 +37,7 @@ record EitriServiceManifest(
     }
 
     static EitriServiceManifest empty(String runId) {
-        return new EitriServiceManifest(runId, new ArrayList<>(), null, null, false, new LinkedHashMap<>());
+        return new EitriServiceManifest(runId, new ArrayList<>(), null, null, false, new LinkedHashMap<>(),
+                ParseOptions.defaults(), SourceFilter.defaults(), false);
     }
 }
@@ -1,5 +1,9 @@
 package no.ntnu.eitri.service;
 
+import no.ntnu.eitri.config.ParseOptions;
+import no.ntnu.eitri.config.SourceFilter;
+import no.ntnu.eitri.config.TypeResolution;
+
 import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.SafeConstructor;
@@ -29,7 +33,23 @@ final class EitriServiceManifestLoader {
             "parser_extension",
             "writer_extension",
             "verbose",
-            "writers");
+            "writers",
+            "parse_threads",
+            "read_ahead_mb",
+            "parse_cache_dir",
+            "parse_cache_max_mb",
+            "declarations_only",
+            "declarations_only_above_mb",
+            "type_resolution",
+            "solver_cache_entries",
+            "release_solver_caches_every",
+            "prune_classpath",
+            "include_globs",
+            "exclude_globs",
+            "default_excludes",
+            "include_packages",
+            "exclude_packages",
+            "project_model");
 
     private EitriServiceManifestLoader() {
     }
@@ -46,8 +66,29 @@ final class EitriServiceManifestLoader {
         String writerExtension = readOptionalString(root, "writer_extension");
         boolean verbose = readOptionalBoolean(root, "verbose", false);
         Map<String, Object> writers = readOptionalMap(root, "writers");
+        ParseOptions parseOptions = ParseOptions.builder()
+                .threads(readOptionalNonNegativeInt(root, "parse_threads", ParseOptions.DEFAULT_THREADS))
+                .readAheadBytes(ParseOptions.megabytes(
+                        readOptionalNonNegativeInt(root, "read_ahead_mb", ParseOptions.DEFAULT_READ_AHEAD_MB)))
+                .cacheDirectory(readOptionalPath(root, "parse_cache_dir"))
+                .cacheMaxBytes(ParseOptions.megabytes(
+                        readOptionalNonNegativeInt(root, "parse_cache_max_mb", ParseOptions.DEFAULT_CACHE_MAX_MB)))
+                .declarationsOnly(readOptionalBoolean(root, "declarations_only", false))
+                .declarationsOnlyAboveBytes(ParseOptions.megabytes(readOptionalNonNegativeInt(
+                        root, "declarations_only_above_mb", ParseOptions.DEFAULT_DECLARATIONS_ONLY_ABOVE_MB)))
+                .typeResolution(readTypeResolution(root))
+                .solverCacheEntries(readOptionalNonNegativeInt(
+                        root, "solver_cache_entries", ParseOptions.DEFAULT_SOLVER_CACHE_ENTRIES))
+                .releaseSolverCachesEvery(readOptionalNonNegativeInt(root, "release_solver_caches_every", 0))
+                .pruneClasspath(readOptionalBoolean(root, "prune_classpath", false))
+                .build();
+
+        SourceFilter sourceFilter = readSourceFilter(root);
+        boolean projectModel = readOptionalBoolean(root, "project_model", false);
 
-        return new EitriServiceManifest(runId, sourceRelpaths, parserExtension, writerExtension, verbose, writers);
+        return new EitriServiceManifest(
+                runId, sourceRelpaths, parserExtension, writerExtension, verbose, writers, parseOptions,
+                sourceFilter, projectModel);
     }
 
     private static Map<String, Object> parseYaml(Path manifestPath) throws EitriServiceManifestException {
@@ -98,6 +139,48 @@ final class EitriServiceManifestLoader {
                 "Unsupported manifest version: " + rawVersion);
     }
 
+    private static SourceFilter readSourceFilter(Map<String, Object> root) throws EitriServiceManifestException {
+        List<String> includes = readOptionalStringList(root, "include_globs");
+        List<String> excludes = readOptionalStringList(root, "exclude_globs");
+        boolean defaultExcludes = readOptionalBoolean(root, "default_excludes", true);
+        List<String> includePackages = readOptionalStringList(root, "include_packages");
+        List<String> excludePackages = readOptionalStringList(root, "exclude_packages");
+        try {
+            return SourceFilter.of(includes, excludes, defaultExcludes)
+                    .withPackages(includePackages, excludePackages);
+        } catch (IllegalArgumentException e) {
+            throw new EitriServiceManifestException("invalid-manifest", e.getMessage(), e);
+        }
+    }
+
+    private static TypeResolution readTypeResolution(Map<String, Object> root) throws EitriServiceManifestException {
+        String value = readOptionalString(root, "type_resolution");
+        if (value == null) {
+            return TypeResolution.SOLVER;
+        }
+        TypeResolution mode = TypeResolution.fromString(value);
+        if (mode == null) {
+            throw new EitriServiceManifestException(
+                    "invalid-manifest",
+                    "Manifest field 'type_resolution' must be 'solver', 'tiered' or 'lexical'.");
+        }
+        return mode;
+    }
+
+    private static Path readOptionalPath(Map<String, Object> root, String key) throws EitriServiceManifestException {
+        String value = readOptionalString(root, key);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Path path = Path.of(value);
+        if (!path.isAbsolute()) {
+            throw new EitriServiceManifestException(
+                    "invalid-manifest",
+                    "Manifest field '" + key + "' must be an absolute path.");
+        }
+        return path;
+    }
+
     private static String readOptionalString(Map<String, Object> root, String key) throws EitriServiceManifestException {
         Object rawValue = root.get(key);
         if (rawValue == null) {
@@ -131,6 +214,32 @@ final class EitriServiceManifestLoader {
         return boolValue;
     }
 
+    private static int readOptionalNonNegativeInt(
+            Map<String, Object> root, String key, int defaultValue) throws EitriServiceManifestException {
+        Object rawValue = root.get(key);
+        if (rawValue == null) {
+            return defaultValue;
+        }
+        if (!(rawValue instanceof Integer intValue) || intValue < 0) {
+            throw new EitriServiceManifestException(
+                    "invalid-manifest",
+                    "Manifest field '" + key + "' must be a non-negative integer.");
+        }
+        return intValue;
+    }
+
+    private static List<String> readOptionalStringList(Map<String, Object> root, String key)
+            throws EitriServiceManifestException {
+        Object rawValue = root.get(key);
+        if (rawValue == null) {
+            return List.of();
+        }
+        if (rawValue instanceof List<?> items && items.isEmpty()) {
+            return List.of();
+        }
+        return readRequiredStringList(root, key);
+    }
+
     private static List<String> readRequiredStringList(Map<String, Object> root, String key)
             throws EitriServiceManifestException {
         Object rawValue = root.get(key);
@@ -0,0 +1,31 @@
+package no.ntnu.eitri.util;
+
+import java.util.List;
+
+/**
+ * Decides which files a parse reads, for code that copies sources somewhere
+ * before parsing them: sources with one of the parser's extensions, Gradle
+ * build and settings scripts, Maven POMs and jars, which build discovery and
+ * the symbol solver read next to the sources.
+ */
+public final class ParseInputs {
+
+    private static final List<String> BUILD_FILE_SUFFIXES = List.of(".gradle", ".gradle.kts", "pom.xml", ".jar");
+
+    private ParseInputs() {
+        // Utility class
+    }
+
+    /**
+     * Returns whether a parse reads a file.
+     *
+     * @param path             the file's path, with {@code /} separators
+     * @param sourceExtensions extensions of the parser's source files
+     * @return true if the file must be copied for a parse
+     */
+    public static boolean isRead(String path, List<String> sourceExtensions) {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        return sourceExtensions.stream().anyMatch(name::endsWith)
+                || BUILD_FILE_SUFFIXES.stream().anyMatch(name::endsWith);
+    }
+}
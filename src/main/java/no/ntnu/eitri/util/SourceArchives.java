@@ -0,0 +1,243 @@
+package no.ntnu.eitri.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Mounts zip, jar and tar archives named in source paths as read-only file
+ * systems, so sources can be parsed without extracting them.
+ *
+ * <p>
+ * A source path may name an archive file ({@code repo.zip}) or a directory
+ * inside one, separated by {@code !/} as in jar URLs
+ * ({@code repo.tar.gz!/src/main/java}). Zip and jar archives are opened
+ * through the JDK zip file system. Tar archives (optionally gzip-compressed)
+ * are read once as a stream and the regular entries a parse reads (see
+ * {@link ParseInputs}) copied into a new zip file system, since tar has no
+ * index for random access. The zip file system
+ * keeps new entries in memory until it is closed, so staging a tar costs one
+ * sequential read plus one spool file written and deleted on close, instead
+ * of one file per entry.
+ *
+ * <p>
+ * Paths that do not involve an archive are returned unchanged. Each archive
+ * is mounted once, however many source paths point into it; closing the
+ * instance closes every mounted file system.
+ */
+public final class SourceArchives implements AutoCloseable {
+
+    /** Separates an archive file from a path inside it. */
+    public static final String ENTRY_SEPARATOR = "!/";
+
+    private static final List<String> ZIP_SUFFIXES = List.of(".zip", ".jar");
+    private static final List<String> TAR_SUFFIXES = List.of(".tar", ".tar.gz", ".tgz");
+    private static final List<String> GZIP_SUFFIXES = List.of(".tar.gz", ".tgz");
+
+    private final List<Path> paths;
+    private final List<MountedArchive> mounted;
+
+    private SourceArchives(List<Path> paths, List<MountedArchive> mounted) {
+        this.paths = List.copyOf(paths);
+        this.mounted = List.copyOf(mounted);
+    }
+
+    /**
+     * Resolves source paths, mounting the archives they point into.
+     *
+     * @param sourcePaths      source paths as given on the command line or in
+     *                         the manifest
+     * @param sourceExtensions extensions of the parser's source files; other
+     *                         tar entries are only staged if build discovery
+     *                         reads them
+     * @return mounted archives; {@link #paths()} holds the resolved paths in
+     *         the same order
+     * @throws IOException if an archive cannot be opened or read
+     */
+    public static SourceArchives mount(List<Path> sourcePaths, List<String> sourceExtensions) throws IOException {
+        Map<Path, MountedArchive> byArchive = new HashMap<>();
+        List<MountedArchive> mounted = new ArrayList<>();
+        List<Path> paths = new ArrayList<>(sourcePaths.size());
+        try {
+            for (Path sourcePath : sourcePaths) {
+                Path archive = archiveFile(sourcePath);
+                if (archive == null) {
+                    paths.add(sourcePath);
+                    continue;
+                }
+                Path key = archive.toAbsolutePath().normalize();
+                MountedArchive mountedArchive = byArchive.get(key);
+                if (mountedArchive == null) {
+                    mountedArchive = MountedArchive.open(key, sourceExtensions);
+                    byArchive.put(key, mountedArchive);
+                    mounted.add(mountedArchive);
+                }
+                paths.add(mountedArchive.fileSystem().getPath("/", entryPath(sourcePath)));
+            }
+        } catch (IOException | RuntimeException e) {
+            new SourceArchives(paths, mounted).close();
+            throw e;
+        }
+        return new SourceArchives(paths, mounted);
+    }
+
+    /**
+     * Returns whether any source path points into an archive.
+     *
+     * @param sourcePaths source paths
+     * @return true if at least one path names an archive
+     */
+    public static boolean containsArchive(List<Path> sourcePaths) {
+        return sourcePaths.stream().anyMatch(path -> archiveFile(path) != null);
+    }
+
+    /**
+     * Returns the archive file a source path points into.
+     *
+     * @param sourcePath a source path
+     * @return the archive file, or null if the path does not involve an
+     *         archive
+     */
+    public static Path archiveFile(Path sourcePath) {
+        if (sourcePath == null) {
+            return null;
+        }
+        String raw = sourcePath.toString().replace('\\', '/');
+        int separator = raw.indexOf(ENTRY_SEPARATOR);
+        if (separator >= 0) {
+            return Path.of(raw.substring(0, separator));
+        }
+        if (raw.endsWith("!")) {
+            return Path.of(raw.substring(0, raw.length() - 1));
+        }
+        return isArchiveName(raw) && Files.isRegularFile(sourcePath) ? sourcePath : null;
+    }
+
+    /**
+     * Returns whether a source path names a jar of compiled classes: one
+     * that holds class files but no Java sources.
+     *
+     * @param sourcePath a source path
+     * @return true for a jar of classes; false for a source jar, any other
+     *         path, or a jar that cannot be read
+     */
+    public static boolean isClassJar(Path sourcePath) {
+        if (sourcePath == null || !Files.isRegularFile(sourcePath)
+                || !sourcePath.toString().toLowerCase(Locale.ROOT).endsWith(".jar")) {
+            return false;
+        }
+        try (ZipFile jar = new ZipFile(sourcePath.toFile())) {
+            boolean hasClasses = false;
+            for (ZipEntry entry : Collections.list(jar.entries())) {
+                if (entry.getName().endsWith(".java")) {
+                    return false;
+                }
+                hasClasses |= entry.getName().endsWith(".class");
+            }
+            return hasClasses;
+        } catch (IOException _) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the source paths with archive paths replaced by paths inside
+     * the mounted archives.
+     *
+     * @return resolved source paths
+     */
+    public List<Path> paths() {
+        return paths;
+    }
+
+    @Override
+    public void close() {
+        for (MountedArchive archive : mounted) {
+            archive.close();
+        }
+    }
+
+    private static String entryPath(Path sourcePath) {
+        String raw = sourcePath.toString().replace('\\', '/');
+        int separator = raw.indexOf(ENTRY_SEPARATOR);
+        return separator >= 0 ? raw.substring(separator + ENTRY_SEPARATOR.length()) : "";
+    }
+
+    private static boolean isArchiveName(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return endsWithAny(lower, ZIP_SUFFIXES) || endsWithAny(lower, TAR_SUFFIXES);
+    }
+
+    private static boolean endsWithAny(String name, List<String> suffixes) {
+        return suffixes.stream().anyMatch(name::endsWith);
+    }
+
+    private record MountedArchive(FileSystem fileSystem, Path spoolDirectory) {
+
+        static MountedArchive open(Path archive, List<String> sourceExtensions) throws IOException {
+            String name = archive.getFileName() == null ? "" : archive.getFileName().toString()
+                    .toLowerCase(Locale.ROOT);
+            if (endsWithAny(name, TAR_SUFFIXES)) {
+                return copyTar(archive, endsWithAny(name, GZIP_SUFFIXES), sourceExtensions);
+            }
+            return new MountedArchive(FileSystems.newFileSystem(archive), null);
+        }
+
+        private static MountedArchive copyTar(Path archive, boolean gzipped, List<String> sourceExtensions)
+                throws IOException {
+            Path spoolDirectory = Files.createTempDirectory("eitri-tar-");
+            MountedArchive mounted = new MountedArchive(
+                    FileSystems.newFileSystem(spoolDirectory.resolve("sources.zip"), Map.of("create", "true")),
+                    spoolDirectory);
+            try (InputStream raw = new BufferedInputStream(Files.newInputStream(archive));
+                    InputStream in = gzipped ? new GZIPInputStream(raw) : raw) {
+                TarArchiveReader.read(in, entryName -> ParseInputs.isRead(entryName, sourceExtensions),
+                        (entryName, content) -> {
+                            Path target = mounted.fileSystem().getPath("/", entryName);
+                            if (target.getParent() != null) {
+                                Files.createDirectories(target.getParent());
+                            }
+                            Files.write(target, content);
+                        });
+            } catch (IOException | RuntimeException e) {
+                mounted.close();
+                throw e;
+            }
+            return mounted;
+        }
+
+        void close() {
+            try {
+                fileSystem.close();
+            } catch (IOException _) {
+                // Read-only mounts hold nothing that needs flushing; a spool file that
+                // fails to write is deleted below anyway.
+            }
+            if (spoolDirectory == null) {
+                return;
+            }
+            try (Stream<Path> files = Files.walk(spoolDirectory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException _) {
+                // Left in the temp directory; nothing else depends on it.
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package no.ntnu.eitri.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+
+/**
+ * Minimal streaming reader for tar archives (POSIX ustar, with GNU long names
+ * and pax path records).
+ *
+ * <p>
+ * Only regular files are reported; directories, links and devices are
+ * skipped. Entry names are returned relative, without a leading {@code ./} or
+ * {@code /}.
+ */
+final class TarArchiveReader {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int NAME_OFFSET = 0;
+    private static final int NAME_LENGTH = 100;
+    private static final int SIZE_OFFSET = 124;
+    private static final int SIZE_LENGTH = 12;
+    private static final int TYPE_OFFSET = 156;
+    private static final int MAGIC_OFFSET = 257;
+    private static final int PREFIX_OFFSET = 345;
+    private static final int PREFIX_LENGTH = 155;
+    private static final String PAX_PATH_KEY = "path=";
+
+    private TarArchiveReader() {
+    }
+
+    /**
+     * Reads the regular file entries of a tar stream that pass a filter. The
+     * content of other entries is skipped without being buffered.
+     *
+     * @param in       uncompressed tar stream
+     * @param wanted   decides by relative name which entries are read
+     * @param consumer receives each wanted regular file, in archive order
+     * @throws IOException if the stream is truncated or unreadable
+     */
+    static void read(InputStream in, Predicate<String> wanted, EntryConsumer consumer) throws IOException {
+        byte[] header = new byte[BLOCK_SIZE];
+        String pendingName = null;
+        while (readBlock(in, header)) {
+            if (isZeroBlock(header)) {
+                // End-of-archive marker.
+                return;
+            }
+            long size = parseOctal(header, SIZE_OFFSET, SIZE_LENGTH);
+            char type = (char) header[TYPE_OFFSET];
+            String name = pendingName != null ? pendingName : headerName(header);
+            pendingName = null;
+
+            switch (type) {
+                case 'L' -> pendingName = trimNul(new String(readContent(in, size), StandardCharsets.UTF_8));
+                case 'x' -> pendingName = paxPath(readContent(in, size));
+                case '0', '\0' -> {
+                    String relative = relativeName(name);
+                    // Old archivers mark directories as regular files with a trailing slash.
+                    if (!relative.isEmpty() && !relative.endsWith("/") && wanted.test(relative)) {
+                        consumer.accept(relative, readContent(in, size));
+                    } else {
+                        skipContent(in, size);
+                    }
+                }
+                default -> skipContent(in, size);
+            }
+        }
+    }
+
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        int read = in.readNBytes(block, 0, BLOCK_SIZE);
+        if (read == 0) {
+            return false;
+        }
+        if (read < BLOCK_SIZE) {
+            throw new EOFException("Truncated tar header");
+        }
+        return true;
+    }
+
+    private static byte[] readContent(InputStream in, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - BLOCK_SIZE) {
+            throw new IOException("Tar entry too large: " + size + " bytes");
+        }
+        byte[] content = in.readNBytes((int) size);
+        if (content.length < size) {
+            throw new EOFException("Truncated tar entry");
+        }
+        in.skipNBytes(padding(size));
+        return content;
+    }
+
+    private static void skipContent(InputStream in, long size) throws IOException {
+        in.skipNBytes(size + padding(size));
+    }
+
+    private static long padding(long size) {
+        long remainder = size % BLOCK_SIZE;
+        return remainder == 0 ? 0 : BLOCK_SIZE - remainder;
+    }
+
+    private static String headerName(byte[] header) {
+        String name = field(header, NAME_OFFSET, NAME_LENGTH);
+        boolean ustar = "ustar".equals(field(header, MAGIC_OFFSET, 5));
+        String prefix = ustar ? field(header, PREFIX_OFFSET, PREFIX_LENGTH) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static String paxPath(byte[] records) {
+        // Each record is "<length> <key>=<value>\n".
+        String text = new String(records, StandardCharsets.UTF_8);
+        for (String record : text.split("\n")) {
+            int space = record.indexOf(' ');
+            if (space > 0 && record.startsWith(PAX_PATH_KEY, space + 1)) {
+                return record.substring(space + 1 + PAX_PATH_KEY.length());
+            }
+        }
+        return null;
+    }
+
+    private static String relativeName(String name) {
+        String relative = name;
+        while (relative.startsWith("./") || relative.startsWith("/")) {
+            relative = relative.substring(relative.indexOf('/') + 1);
+        }
+        return relative;
+    }
+
+    private static String field(byte[] header, int offset, int length) {
+        return trimNul(new String(header, offset, length, StandardCharsets.UTF_8));
+    }
+
+    private static String trimNul(String value) {
+        int end = value.indexOf('\0');
+        return end >= 0 ? value.substring(0, end) : value;
+    }
+
+    private static long parseOctal(byte[] header, int offset, int length) throws IOException {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b == 0 || b == ' ') {
+                if (value > 0) {
+                    break;
+                }
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Invalid tar header size field");
+            }
+            value = value * 8 + (b - '0');
+        }
+        return value;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Receives regular file entries from {@link #read}.
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(String name, byte[] content) throws IOException;
+    }
+}
@@ -8,7 +8,12 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -77,9 +82,38 @@ class EitriRunnerTest {
         assertEquals(1, result.repositoryStats().sourceFileCount());
         assertTrue(Files.exists(out));
         assertTrue(Files.exists(tempDir.resolve("model_snapshot.json")));
+        assertFalse(Files.readString(tempDir.resolve("model_snapshot.json")).contains("\"projection\""));
         assertFalse(result.dryRun());
     }
 
+    @Test
+    void projectedRunMarksTheModelSnapshot() throws Exception {
+        Path src = tempDir.resolve("src");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Sample.java"), "public class Sample { private int hidden; }\n");
+        Path config = tempDir.resolve("config.yaml");
+        Files.writeString(config, """
+                writers:
+                  plantuml:
+                    hidePrivate: true
+                    showComposition: false
+                    showAggregation: false
+                    showAssociation: false
+                    showDependency: false
+                """);
+        Path out = tempDir.resolve("diagram.puml");
+
+        CliOptions options = new CliOptions(List.of(src), out, config, ".java", ".puml", false, false,
+                null, null, true);
+        RunResult result = new EitriRunner().run(options);
+
+        assertEquals(0, result.exitCode());
+        assertTrue(result.model().getType("Sample").orElseThrow().getFields().isEmpty());
+        String snapshot = Files.readString(tempDir.resolve("model_snapshot.json"));
+        assertTrue(snapshot.contains("\"projection\""));
+        assertTrue(snapshot.contains("\"method_dependencies\":false"));
+    }
+
     @Test
     void customRegistriesAreUsed() {
         ParserRegistry parserRegistry = ParserRegistry.defaultRegistry();
@@ -91,4 +125,94 @@ class EitriRunnerTest {
         RunResult result = runner.run(options);
         assertNotNull(result);
     }
+
+    @Test
+    void watchRegeneratesOutputAfterSourceChange() throws Exception {
+        Path src = tempDir.resolve("src");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Sample.java"), "public class Sample {}\n");
+        Path out = tempDir.resolve("diagram.puml");
+        CliOptions options = new CliOptions(List.of(src), out, null, ".java", ".puml", false, false);
+
+        BlockingQueue<RunResult> results = new LinkedBlockingQueue<>();
+        Thread watchThread = new Thread(
+                () -> new EitriRunner().watch(options, results::add, Duration.ofMillis(50)));
+        watchThread.start();
+        try {
+            RunResult initial = results.poll(30, TimeUnit.SECONDS);
+            assertNotNull(initial);
+            assertEquals(0, initial.exitCode());
+            assertEquals(1, initial.typeCount());
+
+            Files.writeString(src.resolve("Added.java"), "public class Added { private Sample sample; }\n");
+
+            RunResult rebuilt = results.poll(30, TimeUnit.SECONDS);
+            assertNotNull(rebuilt);
+            assertEquals(0, rebuilt.exitCode());
+            assertEquals(2, rebuilt.typeCount());
+            assertTrue(Files.readString(out).contains("Added"));
+        } finally {
+            watchThread.interrupt();
+            watchThread.join(10_000);
+        }
+        assertFalse(watchThread.isAlive());
+    }
+
+    @Test
+    void historyWritesOneOutputPerRevision() throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Path src = repo.resolve("src");
+        Files.createDirectories(src);
+        git(repo, "init", "-q");
+        Files.writeString(src.resolve("Sample.java"), "public class Sample {}\n");
+        git(repo, "add", "-A");
+        git(repo, "commit", "-q", "-m", "first");
+        Files.writeString(src.resolve("Added.java"), "public class Added { private Sample sample; }\n");
+        git(repo, "add", "-A");
+        git(repo, "commit", "-q", "-m", "second");
+        Path out = tempDir.resolve("out/diagram.puml");
+        CliOptions options = new CliOptions(List.of(src), out, null, ".java", ".puml", false, false);
+
+        List<RunResult> results = new EitriRunner().history(options, repo, List.of("HEAD~1", "HEAD"), _ -> {
+        });
+
+        assertEquals(2, results.size());
+        assertEquals(1, results.get(0).typeCount());
+        assertEquals(2, results.get(1).typeCount());
+        assertNotEquals(results.get(0).outputPath(), results.get(1).outputPath());
+        assertTrue(Files.exists(results.get(0).outputPath()));
+        assertTrue(Files.exists(results.get(1).outputPath().resolveSibling("model_snapshot.json")));
+        assertFalse(Files.readString(results.get(0).outputPath()).contains("Added"));
+    }
+
+    @Test
+    void historyReadsSourcePathsThatOnlyExistInTheRevisions() throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Path legacy = repo.resolve("legacy/src");
+        Files.createDirectories(legacy);
+        git(repo, "init", "-q");
+        Files.writeString(legacy.resolve("Sample.java"), "public class Sample {}\n");
+        git(repo, "add", "-A");
+        git(repo, "commit", "-q", "-m", "first");
+        git(repo, "rm", "-q", "-r", "legacy");
+        git(repo, "commit", "-q", "-m", "second");
+        Path out = tempDir.resolve("out/diagram.puml");
+        CliOptions options = new CliOptions(List.of(legacy), out, null, ".java", ".puml", false, false);
+
+        List<RunResult> results = new EitriRunner().history(options, repo, List.of("HEAD~1"), _ -> {
+        });
+
+        assertFalse(Files.exists(legacy));
+        assertEquals(1, results.size());
+        assertEquals(0, results.get(0).exitCode(), results.get(0).errorMessage());
+        assertEquals(1, results.get(0).typeCount());
+    }
+
+    private static void git(Path directory, String... arguments) throws Exception {
+        List<String> command = new ArrayList<>(List.of("git", "-C", directory.toString(),
+                "-c", "user.name=test", "-c", "user.email=test@example.com"));
+        command.addAll(List.of(arguments));
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        assertEquals(0, process.waitFor());
+    }
 }
@@ -0,0 +1,100 @@
+package no.ntnu.eitri.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevisionWorktreeTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void checkoutWritesOnlyFilesAParseReads() throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Files.createDirectories(repo.resolve("src"));
+        Files.createDirectories(repo.resolve("docs"));
+        Files.writeString(repo.resolve("src/Sample.java"), "public class Sample {}\n");
+        Files.writeString(repo.resolve("build.gradle"), "plugins { id 'java' }\n");
+        Files.writeString(repo.resolve("settings.gradle.kts"), "rootProject.name = \"demo\"\n");
+        Files.writeString(repo.resolve("pom.xml"), "<project/>\n");
+        Files.writeString(repo.resolve("docs/guide.md"), "# Guide\n");
+        Files.write(repo.resolve("docs/logo.png"), new byte[] { 1, 2, 3 });
+        git(repo, "init", "-q");
+        git(repo, "add", "-A");
+        git(repo, "commit", "-q", "-m", "first");
+        GitRepository repository = GitRepository.open(repo);
+
+        try (RevisionWorktree worktree = RevisionWorktree.open(repository, null, List.of(".java"))) {
+            Set<Path> changed = worktree.checkout(repository.listFiles(repository.resolveCommit("HEAD")));
+
+            assertEquals(Set.of(worktree.resolve(Path.of("src/Sample.java")), worktree.resolve(Path.of("build.gradle")),
+                    worktree.resolve(Path.of("settings.gradle.kts")), worktree.resolve(Path.of("pom.xml"))), changed);
+            assertFalse(Files.exists(worktree.resolve(Path.of("docs"))));
+        }
+    }
+
+    @Test
+    void closeDeletesTheWorktree() throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Files.createDirectories(repo);
+        Files.writeString(repo.resolve("Sample.java"), "public class Sample {}\n");
+        git(repo, "init", "-q");
+        git(repo, "add", "-A");
+        git(repo, "commit", "-q", "-m", "first");
+        GitRepository repository = GitRepository.open(repo);
+        Path cache = tempDir.resolve("cache");
+
+        Path directory;
+        try (RevisionWorktree worktree = RevisionWorktree.open(repository, cache, List.of(".java"))) {
+            worktree.checkout(repository.listFiles(repository.resolveCommit("HEAD")));
+            directory = worktree.directory();
+            assertTrue(directory.startsWith(cache));
+            assertTrue(Files.exists(directory.resolve("Sample.java")));
+        }
+
+        assertFalse(Files.exists(directory));
+        assertFalse(Files.exists(repository.gitDirectory().resolve("eitri")));
+    }
+
+    @Test
+    void worktreesSharingACacheDirectoryStayApart() throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Files.createDirectories(repo);
+        Files.writeString(repo.resolve("Sample.java"), "public class Sample {}\n");
+        git(repo, "init", "-q");
+        git(repo, "add", "-A");
+        git(repo, "commit", "-q", "-m", "first");
+        GitRepository repository = GitRepository.open(repo);
+        Path cache = tempDir.resolve("cache");
+        Path abandoned = Files.createDirectories(cache.resolve("worktrees/0123456789abcdef-1"));
+        Files.writeString(abandoned.resolve("Old.java"), "public class Old {}\n");
+        Files.createFile(cache.resolve("worktrees/0123456789abcdef-1.lock"));
+
+        try (RevisionWorktree first = RevisionWorktree.open(repository, cache, List.of(".java"))) {
+            first.checkout(repository.listFiles(repository.resolveCommit("HEAD")));
+            assertFalse(Files.exists(abandoned));
+
+            try (RevisionWorktree second = RevisionWorktree.open(repository, cache, List.of(".java"))) {
+                assertNotEquals(first.directory(), second.directory());
+                assertTrue(Files.exists(first.resolve(Path.of("Sample.java"))));
+            }
+            assertTrue(Files.exists(first.resolve(Path.of("Sample.java"))));
+        }
+    }
+
+    private static void git(Path directory, String... arguments) throws Exception {
+        List<String> command = new ArrayList<>(List.of("git", "-C", directory.toString(),
+                "-c", "user.name=test", "-c", "user.email=test@example.com"));
+        command.addAll(List.of(arguments));
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        assertEquals(0, process.waitFor());
+    }
+}
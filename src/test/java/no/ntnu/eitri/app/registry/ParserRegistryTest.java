@@ -37,4 +37,28 @@ class ParserRegistryTest {
         assertTrue(registry.getByExtension(".JAVA").isPresent());
         assertTrue(registry.getByExtension(".kt").isEmpty());
     }
+
+    @Test
+    void declarationScannerIsRegisteredUnderItsOwnId() {
+        ParserRegistry registry = ParserRegistry.defaultRegistry();
+
+        assertEquals(".java", registry.getDefaultExtension());
+        assertEquals("JavaParser", registry.getByExtension(".java").orElseThrow().getName());
+        assertEquals("JavaScanner", registry.getByExtension("java-scan").orElseThrow().getName());
+    }
+
+    @Test
+    void javacParserIsRegisteredUnderItsOwnId() {
+        ParserRegistry registry = ParserRegistry.defaultRegistry();
+
+        assertEquals("Javac", registry.getByExtension(".java-javac").orElseThrow().getName());
+    }
+
+    @Test
+    void classFileParserIsRegisteredForClassesAndJars() {
+        ParserRegistry registry = ParserRegistry.defaultRegistry();
+
+        assertEquals("ClassFile", registry.getByExtension(".class").orElseThrow().getName());
+        assertEquals("ClassFile", registry.getByExtension("jar").orElseThrow().getName());
+    }
 }
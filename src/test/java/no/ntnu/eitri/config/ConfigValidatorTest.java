@@ -16,7 +16,7 @@ class ConfigValidatorTest {
 
     @Test
     void reportsMissingRequiredFields() {
-        RunConfig config = new RunConfig(List.of(), null, null, null, false, false);
+        RunConfig config = RunConfig.builder().sourcePaths(List.of()).build();
 
         ValidationResult result = ConfigValidator.validate(config);
 
@@ -26,13 +26,24 @@ class ConfigValidatorTest {
         assertTrue(errors.stream().anyMatch(e -> "OUTPUT_PATH_REQUIRED".equals(e.code())));
     }
 
+    @Test
+    void missingSourcePathsAreOnlyReportedWhenTheyMustBeOnDisk() {
+        RunConfig config = RunConfig.builder().sourcePaths(List.of(tempDir.resolve("missing")))
+                .outputPath(tempDir.resolve("diagram.puml")).parserExtension(".java").writerExtension(".puml").build();
+
+        assertTrue(ConfigValidator.validate(config).getErrors().stream()
+                .anyMatch(e -> "SOURCE_PATH_NOT_FOUND".equals(e.code())));
+        assertTrue(ConfigValidator.validate(config, false).isValid());
+    }
+
     @Test
     void reportsUnsupportedExtensions() throws Exception {
         Path src = tempDir.resolve("src");
         Path out = tempDir.resolve("diagram.puml");
         java.nio.file.Files.createDirectories(src);
 
-        RunConfig config = new RunConfig(List.of(src), out, ".foo", ".bar", false, false);
+        RunConfig config = RunConfig.builder().sourcePaths(List.of(src)).outputPath(out).parserExtension(".foo")
+                .writerExtension(".bar").build();
 
         ValidationResult result = ConfigValidator.validate(config);
 
@@ -40,4 +51,68 @@ class ConfigValidatorTest {
         assertTrue(result.getErrors().stream().anyMatch(e -> "PARSER_EXTENSION_UNSUPPORTED".equals(e.code())));
         assertTrue(result.getErrors().stream().anyMatch(e -> "WRITER_EXTENSION_UNSUPPORTED".equals(e.code())));
     }
+
+    @Test
+    void reportsNegativeParseThreads() throws Exception {
+        Path src = tempDir.resolve("src");
+        Path out = tempDir.resolve("diagram.puml");
+        java.nio.file.Files.createDirectories(src);
+
+        RunConfig config = RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                .parseOptions(ParseOptions.builder().threads(-1).build()).build();
+
+        ValidationResult result = ConfigValidator.validate(config);
+
+        assertFalse(result.isValid());
+        assertTrue(result.getErrors().stream().anyMatch(e -> "PARSE_THREADS_INVALID".equals(e.code())));
+    }
+
+    @Test
+    void reportsNegativeReadAheadBudget() throws Exception {
+        Path src = tempDir.resolve("src");
+        Path out = tempDir.resolve("diagram.puml");
+        java.nio.file.Files.createDirectories(src);
+
+        RunConfig config = RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                .parseOptions(ParseOptions.builder().readAheadBytes(-1).build()).build();
+
+        ValidationResult result = ConfigValidator.validate(config);
+
+        assertFalse(result.isValid());
+        assertTrue(result.getErrors().stream().anyMatch(e -> "PARSE_READ_AHEAD_INVALID".equals(e.code())));
+    }
+
+    @Test
+    void reportsParseCachePathThatIsAFile() throws Exception {
+        Path src = tempDir.resolve("src");
+        Path out = tempDir.resolve("diagram.puml");
+        Path cacheFile = tempDir.resolve("cache");
+        java.nio.file.Files.createDirectories(src);
+        java.nio.file.Files.writeString(cacheFile, "not a directory");
+
+        RunConfig config = RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                .parseOptions(ParseOptions.builder().cacheDirectory(cacheFile).cacheMaxBytes(-1).build()).build();
+
+        ValidationResult result = ConfigValidator.validate(config);
+
+        assertFalse(result.isValid());
+        assertTrue(result.getErrors().stream().anyMatch(e -> "PARSE_CACHE_NOT_DIRECTORY".equals(e.code())));
+        assertTrue(result.getErrors().stream().anyMatch(e -> "PARSE_CACHE_MAX_INVALID".equals(e.code())));
+    }
+
+    @Test
+    void negativeDeclarationsOnlyThresholdIsInvalid() throws Exception {
+        Path src = tempDir.resolve("src");
+        Path out = tempDir.resolve("diagram.puml");
+        java.nio.file.Files.createDirectories(src);
+
+        RunConfig config = RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                .parseOptions(ParseOptions.builder().declarationsOnlyAboveBytes(-1).build()).build();
+
+        ValidationResult result = ConfigValidator.validate(config);
+
+        assertFalse(result.isValid());
+        assertTrue(result.getErrors().stream()
+                .anyMatch(e -> "PARSE_DECLARATIONS_ONLY_ABOVE_INVALID".equals(e.code())));
+    }
 }
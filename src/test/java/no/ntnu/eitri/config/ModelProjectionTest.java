@@ -0,0 +1,95 @@
+package no.ntnu.eitri.config;
+
+import no.ntnu.eitri.model.Visibility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for deriving a ModelProjection from the PlantUML configuration.
+ */
+class ModelProjectionTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("default writer settings need the full model")
+    void defaultsNeedFullModel() {
+        assertTrue(ModelProjection.of(PlantUmlConfig.defaults()).isFull());
+    }
+
+    @Test
+    @DisplayName("hidden members are dropped once no shown relation depends on them")
+    void dropsHiddenMembersWithoutShownRelations() throws Exception {
+        ModelProjection projection = ModelProjection.of(config("""
+                hidePrivate: true
+                hidePackage: true
+                showComposition: false
+                showAggregation: false
+                showAssociation: false
+                showDependency: false
+                """));
+
+        assertFalse(projection.isFull());
+        assertFalse(projection.fieldRelations());
+        assertFalse(projection.methodDependencies());
+        assertEquals(Set.of(Visibility.PUBLIC, Visibility.PROTECTED), projection.fieldVisibilities());
+        assertFalse(projection.includesMethod(Visibility.PRIVATE));
+        assertTrue(projection.includesMethod(Visibility.PROTECTED));
+    }
+
+    @Test
+    @DisplayName("shown field relations keep every field")
+    void shownFieldRelationsKeepEveryField() throws Exception {
+        ModelProjection projection = ModelProjection.of(config("""
+                hidePrivate: true
+                showDependency: false
+                hideMethods: true
+                """));
+
+        assertTrue(projection.fieldRelations());
+        assertFalse(projection.methodDependencies());
+        assertEquals(EnumSet.allOf(Visibility.class), projection.fieldVisibilities());
+        assertTrue(projection.methodVisibilities().isEmpty());
+    }
+
+    @Test
+    @DisplayName("hiding unlinked types needs every relation")
+    void hidingUnlinkedTypesNeedsFullModel() throws Exception {
+        ModelProjection projection = ModelProjection.of(config("""
+                hidePrivate: true
+                showUnlinked: false
+                showDependency: false
+                """));
+
+        assertTrue(projection.isFull());
+    }
+
+    @Test
+    @DisplayName("string form is stable for parse cache fingerprints")
+    void stringFormIsStable() {
+        ModelProjection first = new ModelProjection(
+                Set.of(Visibility.PUBLIC, Visibility.PRIVATE, Visibility.PACKAGE), Set.of(), false, false);
+        ModelProjection second = new ModelProjection(
+                EnumSet.of(Visibility.PACKAGE, Visibility.PUBLIC, Visibility.PRIVATE), EnumSet.noneOf(Visibility.class),
+                false, false);
+
+        assertEquals(first, second);
+        assertEquals(first.toString(), second.toString());
+    }
+
+    private PlantUmlConfig config(String plantUmlSettings) throws Exception {
+        Path configFile = tempDir.resolve("config.yaml");
+        Files.writeString(configFile, "writers:\n  plantuml:\n"
+                + plantUmlSettings.indent(4));
+        return ConfigLoader.loadPlantUmlConfig(configFile);
+    }
+}
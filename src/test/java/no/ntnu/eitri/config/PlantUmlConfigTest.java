@@ -71,13 +71,8 @@ class PlantUmlConfigTest {
 
     @Test
     void runConfigNormalizesExtensionsAndList() {
-        RunConfig config = new RunConfig(
-                null,
-                Path.of("out.puml"),
-                "java",
-                "puml",
-                true,
-                false);
+        RunConfig config = RunConfig.builder().sourcePaths(null).outputPath(Path.of("out.puml")).parserExtension("java")
+                .writerExtension("puml").verbose(true).build();
 
         assertNotNull(config.sourcePaths());
         assertTrue(config.sourcePaths().isEmpty());
@@ -90,7 +85,7 @@ class PlantUmlConfigTest {
     @Test
     void runConfigCopiesSourcePaths() {
         List<Path> src = List.of(Path.of("src/main/java"));
-        RunConfig config = new RunConfig(src, Path.of("out.puml"), null, null, false, true);
+        RunConfig config = RunConfig.builder().sourcePaths(src).outputPath(Path.of("out.puml")).dryRun(true).build();
 
         assertEquals(1, config.sourcePaths().size());
         assertEquals(Path.of("src/main/java"), config.sourcePaths().getFirst());
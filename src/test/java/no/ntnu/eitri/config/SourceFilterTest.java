@@ -0,0 +1,171 @@
+package no.ntnu.eitri.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SourceFilter glob matching.
+ */
+class SourceFilterTest {
+
+    private static final Path ROOT = Path.of("/repo");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("defaults exclude tool directories at any depth and build output next to a build file")
+    void defaultsExcludeBuildOutput() throws IOException {
+        Files.createDirectories(tempDir.resolve("module"));
+        Files.writeString(tempDir.resolve("build.gradle"), "");
+        Files.writeString(tempDir.resolve("module/pom.xml"), "<project/>");
+        SourceFilter filter = SourceFilter.defaults();
+
+        assertTrue(filter.excludesDirectory(tempDir, tempDir.resolve("build")));
+        assertTrue(filter.excludesDirectory(tempDir, tempDir.resolve("module/target")));
+        assertTrue(filter.excludesDirectory(ROOT, ROOT.resolve("web/node_modules")));
+        assertTrue(filter.excludesDirectory(ROOT, ROOT.resolve(".gradle")));
+        assertFalse(filter.excludesDirectory(ROOT, ROOT.resolve("src/main/java")));
+        assertTrue(filter.includesFile(ROOT, ROOT.resolve("src/main/java/Main.java")));
+    }
+
+    @Test
+    @DisplayName("packages named build or target are not build output")
+    void keepsPackagesNamedLikeBuildOutput() throws IOException {
+        Files.writeString(tempDir.resolve("pom.xml"), "<project/>");
+        Path sources = tempDir.resolve("src/main/java");
+        SourceFilter filter = SourceFilter.defaults();
+
+        assertFalse(filter.excludesDirectory(sources, sources.resolve("com/acme/build")));
+        assertFalse(filter.excludesDirectory(sources, sources.resolve("com/acme/target")));
+        assertFalse(filter.excludesDirectory(ROOT, ROOT.resolve("build")));
+    }
+
+    @Test
+    @DisplayName("the source path itself is never excluded")
+    void rootIsNeverExcluded() {
+        Path buildRoot = Path.of("/work/build");
+
+        assertFalse(SourceFilter.defaults().excludesDirectory(buildRoot, buildRoot));
+    }
+
+    @Test
+    @DisplayName("default excludes can be turned off")
+    void defaultExcludesCanBeDisabled() {
+        SourceFilter filter = SourceFilter.of(List.of(), List.of(), false);
+
+        assertFalse(filter.excludesDirectory(ROOT, ROOT.resolve("com/example/build")));
+    }
+
+    @Test
+    @DisplayName("dropping default excludes keeps the configured globs")
+    void withoutDefaultExcludesKeepsConfiguredGlobs() throws IOException {
+        Files.writeString(tempDir.resolve("pom.xml"), "<project/>");
+        SourceFilter filter = SourceFilter.of(List.of(), List.of("legacy"), true).withoutDefaultExcludes();
+
+        assertFalse(filter.excludesDirectory(tempDir, tempDir.resolve("target")));
+        assertFalse(filter.excludesDirectory(tempDir, tempDir.resolve("node_modules")));
+        assertTrue(filter.excludesDirectory(tempDir, tempDir.resolve("target/classes/legacy")));
+    }
+
+    @Test
+    @DisplayName("name patterns match files at any depth")
+    void namePatternsMatchAtAnyDepth() {
+        SourceFilter filter = SourceFilter.of(List.of(), List.of("*_pb2.java"), true);
+
+        assertFalse(filter.includesFile(ROOT, ROOT.resolve("Message_pb2.java")));
+        assertFalse(filter.includesFile(ROOT, ROOT.resolve("com/example/Message_pb2.java")));
+        assertTrue(filter.includesFile(ROOT, ROOT.resolve("com/example/Message.java")));
+    }
+
+    @Test
+    @DisplayName("path patterns match relative paths and their shorthands")
+    void pathPatternsMatchRelativePaths() {
+        SourceFilter filter = SourceFilter.of(List.of(), List.of("src/gen/**", "**/legacy"), true);
+
+        assertTrue(filter.excludesDirectory(ROOT, ROOT.resolve("src/gen")));
+        assertTrue(filter.excludesDirectory(ROOT, ROOT.resolve("src/gen/proto")));
+        assertFalse(filter.excludesDirectory(ROOT, ROOT.resolve("other/src/gen")));
+        assertTrue(filter.excludesDirectory(ROOT, ROOT.resolve("legacy")));
+        assertTrue(filter.excludesDirectory(ROOT, ROOT.resolve("module/legacy")));
+    }
+
+    @Test
+    @DisplayName("includes select only matching files")
+    void includesSelectMatchingFiles() {
+        SourceFilter filter = SourceFilter.of(List.of("com/example/**"), List.of(), true);
+
+        assertTrue(filter.includesFile(ROOT, ROOT.resolve("com/example/Main.java")));
+        assertTrue(filter.includesFile(ROOT, ROOT.resolve("com/example/deep/Util.java")));
+        assertFalse(filter.includesFile(ROOT, ROOT.resolve("org/other/Main.java")));
+    }
+
+    @Test
+    @DisplayName("excludes win over includes")
+    void excludesWinOverIncludes() {
+        SourceFilter filter = SourceFilter.of(List.of("**/*.java"), List.of("*Test.java"), true);
+
+        assertTrue(filter.includesFile(ROOT, ROOT.resolve("Main.java")));
+        assertFalse(filter.includesFile(ROOT, ROOT.resolve("com/MainTest.java")));
+    }
+
+    @Test
+    @DisplayName("invalid globs are rejected")
+    void rejectsInvalidGlob() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> SourceFilter.of(List.of("gen/[a-"), List.of(), true));
+
+        assertTrue(error.getMessage().contains("gen/[a-"));
+        assertThrows(IllegalArgumentException.class, () -> SourceFilter.of(List.of(" "), List.of(), true));
+    }
+
+    @Test
+    @DisplayName("package patterns select the package and its subpackages")
+    void packagePatternsSelectSubpackages() {
+        SourceFilter filter = SourceFilter.defaults()
+                .withPackages(List.of("com.acme.billing.*"), List.of("com.acme.billing.legacy"));
+
+        assertTrue(filter.selectsPackages());
+        assertEquals(List.of("com.acme.billing"), filter.includePackages());
+        assertTrue(filter.includesPackage("com.acme.billing"));
+        assertTrue(filter.includesPackage("com.acme.billing.invoice"));
+        assertFalse(filter.includesPackage("com.acme.billingx"));
+        assertFalse(filter.includesPackage("com.acme.billing.legacy.v1"));
+        assertFalse(filter.includesPackage(""));
+    }
+
+    @Test
+    @DisplayName("package excludes alone keep the default package")
+    void packageExcludesKeepDefaultPackage() {
+        SourceFilter filter = SourceFilter.defaults().withPackages(List.of(), List.of("com.acme.generated.**"));
+
+        assertTrue(filter.includesPackage(""));
+        assertTrue(filter.includesPackage("com.acme"));
+        assertFalse(filter.includesPackage("com.acme.generated"));
+        assertFalse(SourceFilter.defaults().selectsPackages());
+    }
+
+    @Test
+    @DisplayName("invalid package patterns are rejected")
+    void rejectsInvalidPackagePattern() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SourceFilter.defaults().withPackages(List.of("com..acme"), List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> SourceFilter.defaults().withPackages(List.of(), List.of("com/acme")));
+    }
+
+    @Test
+    @DisplayName("filters with the same patterns are equal")
+    void equalityFollowsPatterns() {
+        assertEquals(SourceFilter.defaults(), SourceFilter.of(null, null, true));
+        assertNotEquals(SourceFilter.defaults(), SourceFilter.of(null, null, false));
+    }
+}
@@ -0,0 +1,55 @@
+package no.ntnu.eitri.parser;
+
+import no.ntnu.eitri.model.RelationKind;
+import no.ntnu.eitri.model.TypeKind;
+import no.ntnu.eitri.model.UmlRelation;
+import no.ntnu.eitri.model.UmlType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParseFragmentTest {
+
+    @Test
+    void replayCopiesRecordedMutationsInOrder() {
+        ParseFragment fragment = new ParseFragment();
+        fragment.addType(type("com.example.A"));
+        fragment.addWarning("first");
+        fragment.addRelation(UmlRelation.nestedRelation("com.example.A", "com.example.A$Inner"));
+        fragment.addPendingInheritance(
+                new ParseContext.PendingInheritance("com.example.A", "com.example.Base", RelationKind.EXTENDS));
+        fragment.addWarning("second");
+
+        ParseContext target = new ParseContext(false);
+        fragment.replayInto(target);
+
+        assertTrue(target.hasType("com.example.A"));
+        assertEquals(List.of("first", "second"), target.getWarnings());
+        assertEquals(1, target.getRelationCount());
+    }
+
+    @Test
+    void replayStopsAtFirstRejectedType() {
+        ParseContext target = new ParseContext(false);
+        target.addType(type("com.example.A"));
+
+        ParseFragment fragment = new ParseFragment();
+        fragment.addType(type("com.example.A"));
+        fragment.addWarning("after duplicate");
+
+        assertThrows(IllegalArgumentException.class, () -> fragment.replayInto(target));
+        assertTrue(target.getWarnings().isEmpty());
+    }
+
+    private static UmlType type(String fqn) {
+        return UmlType.builder()
+                .fqn(fqn)
+                .simpleName(fqn.substring(fqn.lastIndexOf('.') + 1))
+                .kind(TypeKind.CLASS)
+                .build();
+    }
+}
@@ -0,0 +1,158 @@
+package no.ntnu.eitri.parser.cache;
+
+import no.ntnu.eitri.model.Modifier;
+import no.ntnu.eitri.model.RelationKind;
+import no.ntnu.eitri.model.TypeKind;
+import no.ntnu.eitri.model.UmlField;
+import no.ntnu.eitri.model.UmlGeneric;
+import no.ntnu.eitri.model.UmlMethod;
+import no.ntnu.eitri.model.UmlParameter;
+import no.ntnu.eitri.model.UmlRelation;
+import no.ntnu.eitri.model.UmlStereotype;
+import no.ntnu.eitri.model.UmlType;
+import no.ntnu.eitri.model.Visibility;
+import no.ntnu.eitri.parser.ParseContext;
+import no.ntnu.eitri.parser.ParseFragment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParseCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripsEveryRecordedOperation() throws Exception {
+        ParseFragment fragment = new ParseFragment();
+        fragment.addSourcePackage("com.example");
+        fragment.addType(UmlType.builder()
+                .fqn("com.example.Repo")
+                .simpleName("Repo")
+                .kind(TypeKind.ABSTRACT_CLASS)
+                .visibility(Visibility.PUBLIC)
+                .addStereotype(new UmlStereotype("Entity", 'E', "#FF0000", List.of("table=repo")))
+                .addTag("core")
+                .style("#back:palegreen")
+                .addGeneric(new UmlGeneric("T", "extends Comparable<T>"))
+                .addField(UmlField.builder()
+                        .name("items")
+                        .type("java.util.List<T>")
+                        .visibility(Visibility.PRIVATE)
+                        .addModifier(Modifier.FINAL)
+                        .readOnly(true)
+                        .addAnnotation("NonNull")
+                        .build())
+                .addMethod(UmlMethod.builder()
+                        .name("find")
+                        .returnType("R")
+                        .addParameter(new UmlParameter("key", "java.lang.String"))
+                        .visibility(Visibility.PUBLIC)
+                        .addModifier(Modifier.ABSTRACT)
+                        .addThrownException("java.io.IOException")
+                        .addGeneric("R")
+                        .build())
+                .build());
+        fragment.addRelation(UmlRelation.nestedRelation("com.example.Repo", "com.example.Repo$Entry"));
+        fragment.addPendingInheritance(
+                new ParseContext.PendingInheritance("com.example.Repo", "java.lang.Iterable", RelationKind.IMPLEMENTS));
+        fragment.addWarning("Failed to resolve type 'Missing'");
+
+        try (ParseCache cache = ParseCache.open(tempDir, 0, List.of("env"))) {
+            String key = cache.keyFor("class Repo {}", "");
+            cache.put(key, fragment);
+            ParseFragment loaded = cache.get(key);
+
+            assertNotNull(loaded);
+            assertEquals(fragment.operations().size(), loaded.operations().size());
+            UmlType original = fragment.getType("com.example.Repo");
+            UmlType restored = loaded.getType("com.example.Repo");
+            assertEquals(original.getKind(), restored.getKind());
+            assertEquals(original.getStereotypes(), restored.getStereotypes());
+            assertEquals(original.getTags(), restored.getTags());
+            assertEquals(original.getStyle(), restored.getStyle());
+            assertEquals(original.getGenerics(), restored.getGenerics());
+            assertEquals(original.getFields().getFirst().getModifiers(), restored.getFields().getFirst().getModifiers());
+            assertEquals(original.getFields().getFirst().getAnnotations(),
+                    restored.getFields().getFirst().getAnnotations());
+            assertEquals(original.getMethods().getFirst().getParameters(),
+                    restored.getMethods().getFirst().getParameters());
+            assertEquals(original.getMethods().getFirst().getThrownExceptions(),
+                    restored.getMethods().getFirst().getThrownExceptions());
+            assertEquals(fragment.getWarnings(), loaded.getWarnings());
+            assertEquals(fragment.getSourcePackages(), loaded.getSourcePackages());
+            assertEquals(new ParseCache.CacheStats(1, 0, 1, 0), cache.stats());
+        }
+    }
+
+    @Test
+    void keyDependsOnContentDependenciesAndFingerprint() throws Exception {
+        try (ParseCache first = ParseCache.open(tempDir, 0, List.of("classpath-a"));
+                ParseCache second = ParseCache.open(tempDir, 0, List.of("classpath-b"))) {
+            assertEquals(first.keyFor("class A {}", ""), first.keyFor("class A {}", ""));
+            assertNotEquals(first.keyFor("class A {}", ""), first.keyFor("class B {}", ""));
+            assertNotEquals(first.keyFor("class A {}", ""), first.keyFor("class A {}", "p=p.Other"));
+            assertNotEquals(first.keyFor("class A {}", ""), second.keyFor("class A {}", ""));
+        }
+    }
+
+    @Test
+    void corruptEntryIsTreatedAsMissAndRemoved() throws Exception {
+        try (ParseCache cache = ParseCache.open(tempDir, 0, List.of("env"))) {
+            String key = cache.keyFor("class A {}", "");
+            cache.put(key, new ParseFragment());
+            Path entry = entries().getFirst();
+            Files.write(entry, new byte[] { 1, 2, 3 });
+
+            assertNull(cache.get(key));
+            assertTrue(Files.notExists(entry));
+            assertEquals(1, cache.stats().misses());
+        }
+    }
+
+    @Test
+    void closeEvictsLeastRecentlyUsedEntriesBeyondCap() throws Exception {
+        ParseFragment fragment = new ParseFragment();
+        fragment.addWarning("x".repeat(1000));
+        String oldKey;
+        String recentKey;
+        try (ParseCache cache = ParseCache.open(tempDir, 0, List.of("env"))) {
+            oldKey = cache.keyFor("old", "");
+            recentKey = cache.keyFor("recent", "");
+            cache.put(oldKey, fragment);
+            cache.put(recentKey, fragment);
+        }
+        long entrySize = Files.size(entries().getFirst());
+        for (Path entry : entries()) {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(1_000));
+        }
+
+        ParseCache cache = ParseCache.open(tempDir, entrySize, List.of("env"));
+        assertNotNull(cache.get(recentKey));
+        cache.close();
+
+        assertEquals(1, entries().size());
+        assertEquals(1, cache.stats().evictions());
+        try (ParseCache reopened = ParseCache.open(tempDir, entrySize, List.of("env"))) {
+            assertNotNull(reopened.get(recentKey));
+            assertNull(reopened.get(oldKey));
+        }
+    }
+
+    private List<Path> entries() throws Exception {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            return files.filter(path -> path.toString().endsWith(".frag")).toList();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package no.ntnu.eitri.parser.java;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildModelCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsEachBuildScriptOnceAndReusesItUntilItChanges() throws Exception {
+        Path cacheDirectory = tempDir.resolve("cache");
+        Path buildFile = tempDir.resolve("app/build.gradle.kts");
+        Files.createDirectories(buildFile.getParent());
+        Files.writeString(buildFile, """
+                plugins {
+                  id("java-conventions")
+                }
+                dependencies {
+                  implementation("org.example:lib:1.0")
+                }
+                """);
+
+        BuildModelCache first = BuildModelCache.load(cacheDirectory);
+        BuildModelCache.Script script = first.script(buildFile);
+        first.script(buildFile);
+        first.save();
+        assertEquals(List.of("org.example:lib:1.0"), script.dependencyCoordinates());
+        assertEquals(List.of("java-conventions"), script.pluginIds());
+        assertEquals(1, first.scriptsRead());
+        assertTrue(Files.isRegularFile(cacheDirectory.resolve(BuildModelCache.INDEX_FILE)));
+
+        BuildModelCache second = BuildModelCache.load(cacheDirectory);
+        assertEquals(script, second.script(buildFile));
+        assertEquals(0, second.scriptsRead());
+        assertEquals(1, second.scriptsReused());
+
+        Files.writeString(buildFile, "dependencies { api(\"org.example:other:2.0\") }");
+        BuildModelCache third = BuildModelCache.load(cacheDirectory);
+        assertEquals(List.of("org.example:other:2.0"), third.script(buildFile).dependencyCoordinates());
+        assertEquals(1, third.scriptsRead());
+    }
+
+    @Test
+    void answersNestedModulesAndRepositoryRootsFromEarlierLookups() throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Path app = repo.resolve("app");
+        Path core = repo.resolve("core");
+        Files.createDirectories(app);
+        Files.createDirectories(core);
+        Files.createDirectories(repo.resolve("build/generated"));
+        Files.writeString(repo.resolve("settings.gradle"), "include(\"app\", \"core\")");
+        Files.writeString(repo.resolve("build.gradle"), "");
+        Files.writeString(app.resolve("build.gradle.kts"), "");
+        Files.writeString(core.resolve("build.gradle.kts"), "");
+        Files.writeString(repo.resolve("build/generated/build.gradle"), "");
+
+        BuildModelCache build = BuildModelCache.load(null);
+
+        assertEquals(3, build.buildFiles(repo).size());
+        assertEquals(Set.of(app.resolve("build.gradle.kts").toAbsolutePath().normalize()), build.buildFiles(app));
+        assertEquals(1, build.modulesWalked());
+        // The walk of the repository skipped build/, so a module there is walked on its own.
+        assertEquals(1, build.buildFiles(repo.resolve("build/generated")).size());
+        assertEquals(2, build.modulesWalked());
+        assertEquals(repo, build.repoRoot(app.resolve("src/main")));
+        assertEquals(repo, build.repoRoot(core));
+        assertNull(build.repoRoot(tempDir));
+        assertEquals(app, build.moduleRoot(app.resolve("src/main/java")));
+    }
+}
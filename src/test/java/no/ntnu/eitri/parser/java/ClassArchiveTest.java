@@ -0,0 +1,90 @@
+package no.ntnu.eitri.parser.java;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsStoredAndDeflatedEntriesFromTheMapping() throws Exception {
+        Path jar = tempDir.resolve("lib.jar");
+        byte[] large = "0123456789".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            out.write("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("demo/"));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("demo/Big.class"));
+            out.write(large);
+            out.closeEntry();
+            writeStored(out, "demo/Small.class", new byte[] { 1, 2, 3 });
+            writeStored(out, "demo/package-info.class", new byte[] { 4 });
+            writeStored(out, "META-INF/versions/21/demo/Small.class", new byte[] { 5 });
+        }
+
+        try (ClassArchive archive = ClassArchive.open(jar)) {
+            assertTrue(archive.isMapped());
+            assertEquals(List.of("demo/Big.class", "demo/Small.class"), names(archive));
+            assertArrayEquals(large, archive.read(0));
+            assertArrayEquals(new byte[] { 1, 2, 3 }, archive.read(1));
+        }
+    }
+
+    @Test
+    void listsClassesAheadOfTheirMemberClasses() throws Exception {
+        Path jar = tempDir.resolve("lib.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (String name : List.of("demo/Outer$Inner.class", "demo/Outer$Inner$Deep.class", "demo/Outer.class",
+                    "demo/OuterTwo.class", "demo/A.class")) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(name.getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+
+        try (ClassArchive archive = ClassArchive.open(jar)) {
+            assertEquals(List.of("demo/A.class", "demo/Outer.class", "demo/Outer$Inner.class",
+                    "demo/Outer$Inner$Deep.class", "demo/OuterTwo.class"), names(archive));
+            for (int i = 0; i < archive.size(); i++) {
+                assertEquals(archive.entryName(i), new String(archive.read(i), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static List<String> names(ClassArchive archive) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < archive.size(); i++) {
+            names.add(archive.entryName(i));
+        }
+        return names;
+    }
+
+    private static void writeStored(ZipOutputStream out, String name, byte[] content) throws Exception {
+        ZipEntry entry = new ZipEntry(name);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(content);
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,217 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.config.ParseOptions;
+import no.ntnu.eitri.config.PlantUmlConfig;
+import no.ntnu.eitri.config.RunConfig;
+import no.ntnu.eitri.model.RelationKind;
+import no.ntnu.eitri.model.TypeKind;
+import no.ntnu.eitri.model.UmlField;
+import no.ntnu.eitri.model.UmlMethod;
+import no.ntnu.eitri.model.UmlModel;
+import no.ntnu.eitri.model.UmlType;
+import no.ntnu.eitri.model.Visibility;
+import no.ntnu.eitri.writer.plantuml.PlantUmlWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassFileSourceParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsTypesAndMembersFromClassFiles() throws Exception {
+        Path classes = compile("-parameters");
+
+        UmlModel model = parse(classes, 1);
+
+        UmlType shop = model.getType("com.example.app.Shop").orElseThrow();
+        assertEquals(TypeKind.CLASS, shop.getKind());
+        assertTrue(shop.getStereotypes().stream().anyMatch(stereotype -> stereotype.name().equals("final")));
+        assertEquals("java.util.List<com.example.model.Item>", field(shop, "items").getType());
+        assertEquals("java.util.Map<java.lang.String, ? extends com.example.model.Item>",
+                field(shop, "byName").getType());
+        assertEquals("init:\"shop\"", field(shop, "NAME").getAnnotations().getLast());
+
+        UmlMethod constructor = method(shop, "Shop");
+        assertTrue(constructor.isConstructor());
+        assertEquals(List.of("clerk", "initial"), constructor.getParameters().stream().map(p -> p.name()).toList());
+        assertEquals("com.example.model.Item", constructor.getParameters().get(1).type());
+        UmlMethod find = method(shop, "find");
+        assertEquals("java.util.Optional<R>", find.getReturnType());
+        assertEquals("java.util.function.Function<? super com.example.model.Item, R>",
+                find.getParameters().get(1).type());
+
+        UmlType cursor = model.getType("com.example.app.Shop.Cursor").orElseThrow();
+        assertEquals("com.example.app.Shop", cursor.getOuterTypeFqn());
+        assertEquals(Visibility.PRIVATE, cursor.getVisibility());
+        assertEquals(List.of("Cursor"), cursor.getMethods().stream().map(UmlMethod::getName).toList());
+        assertTrue(cursor.getMethods().getFirst().getParameters().isEmpty());
+
+        UmlType item = model.getType("com.example.model.Item").orElseThrow();
+        assertEquals(TypeKind.RECORD, item.getKind());
+        assertEquals(List.of("name", "kind"), item.getFields().stream().map(UmlField::getName).toList());
+        assertEquals(List.of("of"), item.getMethods().stream().map(UmlMethod::getName).toList());
+        UmlType kind = model.getType("com.example.model.Item.Kind").orElseThrow();
+        assertEquals(List.of("BOOK", "FOOD"), kind.getFields().stream().map(UmlField::getName).toList());
+        assertTrue(model.getType("com.example.model.Item.Kind.FOOD").isEmpty());
+
+        assertTrue(model.getRelations().stream().anyMatch(relation -> relation.getKind() == RelationKind.EXTENDS
+                && relation.getFromTypeFqn().equals("com.example.app.Shop")
+                && relation.getToTypeFqn().equals("com.example.model.Entity")));
+        assertTrue(model.getRelations().stream().anyMatch(relation -> relation.getKind() == RelationKind.NESTED
+                && relation.getToTypeFqn().equals("com.example.app.Shop.Cursor")));
+    }
+
+    @Test
+    void namesParametersByPositionWithoutDebugInformation() throws Exception {
+        Path classes = compile("-g:none");
+
+        UmlModel model = parse(classes, 1);
+
+        UmlMethod constructor = method(model.getType("com.example.app.Shop").orElseThrow(), "Shop");
+        assertEquals(List.of("arg0", "arg1"), constructor.getParameters().stream().map(p -> p.name()).toList());
+        UmlType cursor = model.getType("com.example.app.Shop.Cursor").orElseThrow();
+        assertTrue(cursor.getMethods().getFirst().getParameters().isEmpty());
+    }
+
+    @Test
+    void jarOnParallelWorkersProducesSameModelAsDirectory() throws Exception {
+        Path classes = compile("-parameters");
+        Path jar = tempDir.resolve("shop.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar));
+                Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                out.putNextEntry(new ZipEntry(classes.relativize(file).toString().replace('\\', '/')));
+                out.write(Files.readAllBytes(file));
+                out.closeEntry();
+            }
+        }
+
+        UmlModel directory = parse(classes, 1);
+        UmlModel archive = parse(jar, 4);
+
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(directory, PlantUmlConfig.defaults()),
+                writer.render(archive, PlantUmlConfig.defaults()));
+        assertEquals(directory.getTypesSorted(), archive.getTypesSorted());
+        assertEquals(directory.getRelations(), archive.getRelations());
+    }
+
+    @Test
+    void reportsClassFilesThatCannotBeParsed() throws Exception {
+        Path classes = compile("-parameters");
+        Files.write(classes.resolve("com/example/Broken.class"), new byte[] { 1, 2, 3 });
+
+        UmlModel model = parse(classes, 1);
+
+        assertTrue(model.getType("com.example.app.Shop").isPresent());
+        assertFalse(model.getType("com.example.Broken").isPresent());
+    }
+
+    @Test
+    void readsClassFilesFromModuleBuildOutput() throws Exception {
+        Path classes = compile("-parameters");
+        Path module = tempDir.resolve("module");
+        Files.createDirectories(module.resolve("target"));
+        Files.writeString(module.resolve("pom.xml"), "<project/>");
+        Files.move(classes, module.resolve("target/classes"));
+
+        UmlModel model = parse(module, 1);
+
+        assertTrue(model.getType("com.example.app.Shop").isPresent());
+        assertTrue(model.getType("com.example.model.Item").isPresent());
+    }
+
+    private UmlModel parse(Path input, int threads) throws Exception {
+        return new ClassFileSourceParser().parse(List.of(input), RunConfig.builder().sourcePaths(List.of(input))
+                .outputPath(tempDir.resolve("out.puml")).parseOptions(ParseOptions.builder().threads(threads).build())
+                .build());
+    }
+
+    private static UmlField field(UmlType type, String name) {
+        return type.getFields().stream().filter(field -> field.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static UmlMethod method(UmlType type, String name) {
+        return type.getMethods().stream().filter(method -> method.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private Path compile(String debugOption) throws Exception {
+        Path src = tempDir.resolve("src");
+        Path classes = tempDir.resolve("classes" + debugOption);
+        Files.createDirectories(src.resolve("com/example/model"));
+        Files.createDirectories(src.resolve("com/example/app"));
+        Files.createDirectories(classes);
+        Files.writeString(src.resolve("com/example/model/Item.java"), """
+                package com.example.model;
+
+                public record Item(String name, Kind kind) {
+                    public static Item of(String name) {
+                        return new Item(name, Kind.BOOK);
+                    }
+
+                    public enum Kind { BOOK, FOOD { @Override public String toString() { return "food"; } } }
+                }
+                """);
+        Files.writeString(src.resolve("com/example/model/Entity.java"), """
+                package com.example.model;
+
+                public abstract class Entity<T extends Comparable<T>> {
+                    protected T id;
+
+                    protected abstract T nextId();
+                }
+                """);
+        Files.writeString(src.resolve("com/example/app/Shop.java"), """
+                package com.example.app;
+
+                import com.example.model.*;
+                import java.util.*;
+                import java.util.function.Function;
+
+                public final class Shop extends Entity<Long> {
+                    public static final String NAME = "shop";
+                    private final List<Item> items = new ArrayList<>();
+                    private Map<String, ? extends Item> byName;
+                    private Cursor<Item> cursor;
+
+                    public Shop(Runnable clerk, Item... initial) {
+                        Runnable r = () -> { };
+                    }
+
+                    public <R> Optional<R> find(String name, Function<? super Item, R> mapper) {
+                        return Optional.empty();
+                    }
+
+                    @Override
+                    protected Long nextId() {
+                        return 1L;
+                    }
+
+                    private class Cursor<E> {
+                        E current;
+                    }
+                }
+                """);
+        List<String> arguments = new ArrayList<>(List.of(debugOption, "-d", classes.toString()));
+        try (Stream<Path> files = Files.walk(src)) {
+            files.filter(file -> file.toString().endsWith(".java")).forEach(file -> arguments.add(file.toString()));
+        }
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, arguments.toArray(String[]::new)));
+        return classes;
+    }
+}
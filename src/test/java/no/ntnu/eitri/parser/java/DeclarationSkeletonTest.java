@@ -0,0 +1,106 @@
+package no.ntnu.eitri.parser.java;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeclarationSkeletonTest {
+
+    @Test
+    void blanksBodiesAndInitializerBlocksButKeepsLineBreaks() {
+        String source = """
+                class A {
+                    static { init(); }
+                    A(int a) { super(); String s = "}"; char c = '}'; }
+                    int get() {
+                        return 1; /* } */
+                    }
+                }
+                """;
+
+        String skeleton = DeclarationSkeleton.strip(source);
+
+        assertEquals(source.length(), skeleton.length());
+        assertEquals(source.lines().count(), skeleton.lines().count());
+        assertTrue(skeleton.contains("static {         }"));
+        assertTrue(skeleton.contains("int get() {"));
+        assertFalse(skeleton.contains("return"));
+        assertFalse(skeleton.contains("super()"));
+    }
+
+    @Test
+    void keepsFieldInitializersAnnotationValuesAndEnumArguments() {
+        String source = """
+                @interface Ann { String[] v() default {"a"}; }
+                enum E {
+                    X(() -> { run(); }), Y { void f() { g(); } };
+                    int[] xs = {1, 2};
+                    Runnable r = new Runnable() { public void run() { x(); } };
+                    void g() { h(); }
+                }
+                """;
+
+        String skeleton = DeclarationSkeleton.strip(source);
+
+        assertTrue(skeleton.contains("default {\"a\"};"));
+        assertTrue(skeleton.contains("X(() -> { run(); })"));
+        assertTrue(skeleton.contains("int[] xs = {1, 2};"));
+        assertTrue(skeleton.contains("public void run() { x(); }"));
+        assertFalse(skeleton.contains("g();"));
+        assertFalse(skeleton.contains("h();"));
+    }
+
+    @Test
+    void keepsBodiesThatDeclareLocalTypes() {
+        String source = """
+                class A {
+                    void local() { class L {} }
+                    void localRecord() { record P(int x) {} }
+                    Object literal() { return String.class; }
+                    void variable() { Object record = null; }
+                }
+                """;
+
+        String skeleton = DeclarationSkeleton.strip(source);
+
+        assertTrue(skeleton.contains("class L {}"));
+        assertTrue(skeleton.contains("record P(int x) {}"));
+        assertFalse(skeleton.contains("String.class"));
+        assertFalse(skeleton.contains("Object record"));
+    }
+
+    @Test
+    void returnsUnbalancedOrBodylessSourceUnchanged() {
+        String unbalanced = "class A { void f() { ";
+        String bodyless = "interface I { void m(); }";
+
+        assertSame(unbalanced, DeclarationSkeleton.strip(unbalanced));
+        assertSame(bodyless, DeclarationSkeleton.strip(bodyless));
+        assertEquals("module m { requires java.base; }",
+                DeclarationSkeleton.strip("module m { requires java.base; }"));
+    }
+
+    @Test
+    void listsNamedTypesButNotLocalOrAnonymousOnes() {
+        String source = """
+                package p;
+                public class Outer<T> {
+                    Class<?> literal = Outer.class;
+                    Runnable r = new Runnable() { class Hidden {} public void run() {} };
+                    void local() { class Local {} }
+                    enum Mode { ON { class InConstant {} }, OFF }
+                    @interface Marker {}
+                    record Point(int x) { interface Shape {} }
+                }
+                interface Other {}
+                """;
+
+        assertEquals(List.of("Outer", "Outer.Mode", "Outer.Marker", "Outer.Point", "Outer.Point.Shape", "Other"),
+                DeclarationSkeleton.declaredTypes(source));
+    }
+}
@@ -0,0 +1,77 @@
+package no.ntnu.eitri.parser.java;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyCacheIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resolvesGradleCoordinatesWithTheirGroupCompanions() throws Exception {
+        Path gradle = tempDir.resolve("gradle");
+        Path direct = file(gradle.resolve("org.example/lib/1.0/a1/lib-1.0.jar"));
+        Path companion = file(gradle.resolve("org.example/lib-jni/1.0/b2/lib-jni-1.0.jar"));
+        file(gradle.resolve("org.example/lib/1.0/c3/lib-1.0-sources.jar"));
+        file(gradle.resolve("org.example/lib-jni/2.0/d4/lib-jni-2.0.jar"));
+
+        DependencyCacheIndex index = DependencyCacheIndex.load(null, gradle, null);
+
+        assertEquals(Set.of(direct, companion), index.gradleJars(List.of("org.example:lib:1.0", "org.example:lib")));
+    }
+
+    @Test
+    void resolvesMavenCoordinatesWithoutVersionToTheHighestVersion() throws Exception {
+        Path maven = tempDir.resolve("m2");
+        file(maven.resolve("org/example/lib/1.9/lib-1.9.jar"));
+        Path highest = file(maven.resolve("org/example/lib/1.10/lib-1.10.jar"));
+        file(maven.resolve("org/example/lib/1.11-SNAPSHOT/lib-1.11-SNAPSHOT.pom"));
+        Path pinned = file(maven.resolve("org/other/tool/3.0/tool-3.0.jar"));
+
+        DependencyCacheIndex index = DependencyCacheIndex.load(null, null, maven);
+
+        assertEquals(Set.of(highest, pinned), index.mavenJars(List.of("org.example:lib", "org.other:tool:3.0")));
+        assertTrue(DependencyCacheIndex.compareVersions("1.11-SNAPSHOT", "1.11") < 0);
+    }
+
+    @Test
+    void reusesListingsUntilADirectoryChanges() throws Exception {
+        Path cacheDirectory = tempDir.resolve("cache");
+        Path maven = tempDir.resolve("m2");
+        Path first = file(maven.resolve("org/example/lib/1.0/lib-1.0.jar"));
+        Path artifactDir = maven.resolve("org/example/lib");
+        Files.setLastModifiedTime(artifactDir, FileTime.fromMillis(1_000_000L));
+
+        DependencyCacheIndex cold = DependencyCacheIndex.load(cacheDirectory, null, maven);
+        assertEquals(Set.of(first), cold.mavenJars(List.of("org.example:lib")));
+        cold.save();
+        assertTrue(cold.listed() > 0);
+        assertTrue(Files.isRegularFile(cacheDirectory.resolve(DependencyCacheIndex.INDEX_FILE)));
+
+        DependencyCacheIndex warm = DependencyCacheIndex.load(cacheDirectory, null, maven);
+        assertEquals(Set.of(first), warm.mavenJars(List.of("org.example:lib")));
+        assertEquals(0, warm.listed());
+        assertTrue(warm.hits() > 0);
+
+        Path second = file(maven.resolve("org/example/lib/2.0/lib-2.0.jar"));
+        Files.setLastModifiedTime(artifactDir, FileTime.fromMillis(2_000_000L));
+        DependencyCacheIndex updated = DependencyCacheIndex.load(cacheDirectory, null, maven);
+        assertEquals(Set.of(second), updated.mavenJars(List.of("org.example:lib")));
+    }
+
+    private static Path file(Path path) throws Exception {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "");
+        return path.toAbsolutePath().normalize();
+    }
+}
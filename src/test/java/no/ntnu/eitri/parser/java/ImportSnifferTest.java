@@ -0,0 +1,70 @@
+package no.ntnu.eitri.parser.java;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ImportSnifferTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsPackageAndImportsUpToTheFirstTypeDeclaration() {
+        ImportSniffer.Header header = ImportSniffer.scan("""
+                /* License */
+                @Generated package com.acme.billing;
+
+                import java.util.List;
+                import static org.junit.Assert . assertTrue ;;
+                import com.acme.crm.*; // everything
+                @Deprecated
+                public class Invoice {
+                    import.not.Read;
+                }
+                """, true);
+
+        assertEquals("com.acme.billing", header.packageName());
+        assertEquals(List.of("java.util.List", "org.junit.Assert.assertTrue", "com.acme.crm.*"), header.imports());
+        assertEquals(new ImportSniffer.Header("", List.of()), ImportSniffer.scan("class A {}", true));
+    }
+
+    @Test
+    void asksForMoreWhenPrefixEndsInsideTheHeader() {
+        assertSame(ImportSniffer.NEED_MORE, ImportSniffer.scan("package a; imp", false));
+        assertSame(ImportSniffer.NEED_MORE, ImportSniffer.scan("package a; import java.ut", false));
+        assertSame(ImportSniffer.NEED_MORE, ImportSniffer.scan("import a.B;\n", false));
+        assertNull(ImportSniffer.scan("import java.util", true));
+        assertNull(ImportSniffer.scan("import java.*.List;", true));
+    }
+
+    @Test
+    void collectsImportedAndDeclaredPackagesOrNullWhenAHeaderIsUnreadable() throws Exception {
+        Path invoice = tempDir.resolve("Invoice.java");
+        Files.writeString(invoice, """
+                package com.acme.billing;
+
+                import org.example.money.Money.Currency;
+                import static org.example.time.Clocks.*;
+
+                class Invoice {}
+                """);
+        Path missing = tempDir.resolve("Missing.java");
+
+        assertEquals(Set.of("com.acme.billing", "org.example.money.Money", "org.example.money", "org.example",
+                "org", "org.example.time.Clocks", "org.example.time"),
+                ImportSniffer.referencedPackages(List.of(invoice, missing)));
+
+        Path odd = tempDir.resolve("Odd.java");
+        Files.writeString(odd, "package com.acme; import ;");
+        assertNull(ImportSniffer.referencedPackages(List.of(invoice, odd)));
+    }
+}
@@ -0,0 +1,81 @@
+package no.ntnu.eitri.parser.java;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JarIndexCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reusesListingsUntilTheJarChanges() throws Exception {
+        Path cacheDirectory = tempDir.resolve("cache");
+        Path jar = jar("lib.jar", "demo/Outer.class", "demo/Outer$Inner.class", "demo/util/Helper.class");
+
+        JarIndexCache first = JarIndexCache.load(cacheDirectory);
+        JarIndexCache.Entry listed = first.lookup(jar);
+        first.save();
+        assertEquals(JarIndexCache.Status.OK, listed.status());
+        assertEquals(List.of("demo.Outer", "demo.Outer$Inner", "demo.util.Helper"), listed.classNames());
+        assertEquals(1, first.listed());
+        assertTrue(Files.isRegularFile(cacheDirectory.resolve(JarIndexCache.INDEX_FILE)));
+
+        JarIndexCache second = JarIndexCache.load(cacheDirectory);
+        assertEquals(listed, second.lookup(jar));
+        assertEquals(1, second.hits());
+        assertEquals(0, second.listed());
+
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 60_000));
+        JarIndexCache third = JarIndexCache.load(cacheDirectory);
+        assertEquals(listed.classNames(), third.lookup(jar).classNames());
+        assertEquals(1, third.listed());
+    }
+
+    @Test
+    void remembersJarsThatCouldNotBeUsed() throws Exception {
+        Path cacheDirectory = tempDir.resolve("cache");
+        Path good = jar("good.jar", "demo/Good.class");
+        Path bad = jar("bad.jar", "demo/Bad.class");
+        Path broken = tempDir.resolve("broken.jar");
+        Files.writeString(broken, "not a jar");
+
+        JarIndexCache cache = JarIndexCache.load(cacheDirectory);
+        JarPackageIndex index = JarPackageIndex.build(List.of(good, bad, broken), cache);
+        assertEquals(List.of(good, bad), index.jars());
+        assertTrue(index.failed(bad));
+        assertFalse(index.failed(bad));
+        cache.save();
+
+        JarIndexCache reloaded = JarIndexCache.load(cacheDirectory);
+        JarPackageIndex next = JarPackageIndex.build(List.of(good, bad, broken), reloaded);
+        assertEquals(List.of(good), next.jars());
+        assertEquals(List.of(bad, broken), next.skipped());
+        assertEquals(List.of(good), next.jarsForClass("demo.Good"));
+        assertEquals(3, reloaded.hits());
+    }
+
+    private Path jar(String name, String... entries) throws Exception {
+        Path jar = tempDir.resolve(name);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.write(entry.getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
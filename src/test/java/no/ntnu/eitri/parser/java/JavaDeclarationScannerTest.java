@@ -0,0 +1,143 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.model.TypeKind;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.ScannedFile;
+import no.ntnu.eitri.parser.java.JavaDeclarationScanner.ScannedType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaDeclarationScannerTest {
+
+    @Test
+    void tokensSkipCommentsAndKeepLiteralsWhole() {
+        List<String> tokens = JavaDeclarationScanner.tokens("""
+                int a = 1e-5; // { ignored
+                /* } */ String s = "a { \\" b";
+                char c = '}';
+                String t = \"""
+                    { "quoted" }
+                    \""";
+                """);
+
+        assertEquals(List.of("int", "a", "=", "1e-5", ";", "String", "s", "=", "\"a { \\\" b\"", ";",
+                "char", "c", "=", "'}'", ";", "String", "t", "=", "\"\"\"\n    { \"quoted\" }\n    \"\"\"", ";"),
+                tokens);
+    }
+
+    @Test
+    void readsPackageImportsAndNestedTypesInDeclarationOrder() {
+        ScannedFile file = JavaDeclarationScanner.scan("""
+                package com.example;
+
+                import java.util.List;
+                import static java.util.Map.entry;
+                import java.util.concurrent.*;
+
+                public sealed class Outer permits Outer.Leaf {
+                    static final class Leaf extends Outer {
+                        interface Visitor {}
+                    }
+                    record Pair<A, B>(A first, B second) implements Comparable<Pair<A, B>> {}
+                    enum Mode { ON, OFF { void flip() {} }; void toggle() {} }
+                    @interface Tag { String value() default "x"; }
+                }
+                """);
+
+        assertEquals("com.example", file.packageName());
+        assertEquals(3, file.imports().size());
+        assertTrue(file.imports().get(1).isStatic());
+        assertTrue(file.imports().get(2).onDemand());
+        assertEquals(List.of("com.example.Outer", "com.example.Outer.Leaf", "com.example.Outer.Leaf.Visitor",
+                "com.example.Outer.Pair", "com.example.Outer.Mode", "com.example.Outer.Tag"),
+                file.types().stream().map(ScannedType::qualifiedName).toList());
+        assertEquals(List.of(TypeKind.CLASS, TypeKind.CLASS, TypeKind.INTERFACE, TypeKind.RECORD, TypeKind.ENUM,
+                TypeKind.ANNOTATION), file.types().stream().map(ScannedType::kind).toList());
+        assertEquals("com.example.Outer.Leaf", file.types().get(2).outerQualifiedName());
+        assertTrue(file.problems().isEmpty());
+
+        ScannedType pair = file.types().get(3);
+        assertEquals(List.of("first", "second"), pair.recordComponents().stream()
+                .map(JavaDeclarationScanner.Parameter::name).toList());
+        assertEquals("Comparable<Pair<A, B>>", pair.implementedTypes().getFirst().asWritten());
+
+        ScannedType mode = file.types().get(4);
+        assertEquals(List.of("ON", "OFF"), mode.enumConstants());
+        assertEquals("toggle", mode.methods().getFirst().name());
+        assertEquals("\"x\"", file.types().get(5).methods().getFirst().defaultValue());
+    }
+
+    @Test
+    void readsMemberSignaturesAndSkipsBodiesAndInitializers() {
+        ScannedFile file = JavaDeclarationScanner.scan("""
+                class Shop<T extends Comparable<T> & java.io.Serializable> {
+                    private final java.util.Map<String, ? extends T> byName = new java.util.HashMap<String, T>(), other;
+                    int counts[] = { 1, 2 };
+                    static { System.out.println("}"); }
+
+                    @Deprecated(since = "1", forRemoval = true)
+                    protected Shop(String... names) throws Exception {
+                        Runnable r = () -> { };
+                    }
+
+                    public <R> java.util.List<R>[] map(final @Deprecated T value, int[] ids) {
+                        class Local {}
+                        return null;
+                    }
+                }
+                """);
+
+        ScannedType shop = file.types().getFirst();
+        assertEquals(1, file.types().size());
+        assertEquals("Comparable<T>", shop.typeParameters().getFirst().bounds().getFirst().asWritten());
+        assertEquals("java.io.Serializable", shop.typeParameters().getFirst().bounds().get(1).asWritten());
+
+        assertEquals(List.of("byName", "other", "counts"), shop.fields().stream()
+                .map(JavaDeclarationScanner.Field::name).toList());
+        assertEquals("java.util.Map<String, ? extends T>", shop.fields().getFirst().type().asWritten());
+        assertEquals("new java.util.HashMap<String, T>()", shop.fields().getFirst().initializer());
+        assertNull(shop.fields().get(1).initializer());
+        assertEquals("int[]", shop.fields().get(2).type().asWritten());
+        assertEquals("{ 1, 2 }", shop.fields().get(2).initializer());
+
+        JavaDeclarationScanner.Method constructor = shop.constructors().getFirst();
+        assertEquals("String", constructor.parameters().getFirst().type().asWritten());
+        assertEquals("Exception", constructor.thrownTypes().getFirst().asWritten());
+        assertEquals(List.of("since = \"1\"", "forRemoval = true"),
+                constructor.modifiers().annotations().getFirst().values());
+
+        JavaDeclarationScanner.Method map = shop.methods().getFirst();
+        assertEquals("java.util.List<R>[]", map.returnType().asWritten());
+        assertEquals("R", map.typeParameters().getFirst().name());
+        assertTrue(map.modifiers().has(JavaDeclarationScanner.PUBLIC));
+        assertEquals(List.of("T", "int[]"), map.parameters().stream()
+                .map(parameter -> parameter.type().asWritten()).toList());
+        assertTrue(file.problems().isEmpty());
+    }
+
+    @Test
+    void skipsUnreadableDeclarationsAndReadsTheRest() {
+        ScannedFile file = JavaDeclarationScanner.scan("""
+                package com.example;
+
+                class Broken {
+                    int = 3;
+                    void ok() {}
+                }
+
+                class After {}
+                """);
+
+        assertEquals(List.of("com.example.Broken", "com.example.After"),
+                file.types().stream().map(ScannedType::qualifiedName).toList());
+        assertEquals("ok", file.types().getFirst().methods().getFirst().name());
+        assertEquals(1, file.problems().size());
+        assertEquals("(line 4,col 9)", file.position(file.problems().getFirst().offset()));
+        assertFalse(file.problems().getFirst().message().isBlank());
+    }
+}
@@ -0,0 +1,174 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.config.PlantUmlConfig;
+import no.ntnu.eitri.config.RunConfig;
+import no.ntnu.eitri.model.RelationKind;
+import no.ntnu.eitri.model.UmlModel;
+import no.ntnu.eitri.parser.ParseSession;
+import no.ntnu.eitri.writer.plantuml.PlantUmlWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaParseSessionTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void updateWithoutChangesKeepsModel() throws Exception {
+        Path src = writeSources();
+
+        try (ParseSession session = new JavaSourceParser().openSession(List.of(src), runConfig(src))) {
+            UmlModel initial = session.model();
+
+            assertSame(initial, session.update(Set.of()));
+        }
+    }
+
+    @Test
+    void updateMatchesFullParseAfterEditAddAndDelete() throws Exception {
+        Path src = writeSources();
+        Path pkg = src.resolve("com/example");
+
+        try (ParseSession session = new JavaSourceParser().openSession(List.of(src), runConfig(src))) {
+            Files.writeString(pkg.resolve("Order.java"), """
+                    package com.example;
+
+                    public class Order extends Entity {
+                        private Customer customer;
+                        private Invoice invoice;
+                    }
+                    """);
+            Files.writeString(pkg.resolve("Invoice.java"), "package com.example; public class Invoice {}");
+            Files.delete(pkg.resolve("Legacy.java"));
+
+            UmlModel updated = session.update(Set.of(pkg.resolve("Order.java")));
+            UmlModel full = new JavaSourceParser().parse(List.of(src), runConfig(src));
+
+            PlantUmlWriter writer = new PlantUmlWriter();
+            assertEquals(writer.render(full, PlantUmlConfig.defaults()),
+                    writer.render(updated, PlantUmlConfig.defaults()));
+            assertTrue(updated.hasType("com.example.Invoice"));
+            assertFalse(updated.hasType("com.example.Legacy"));
+        }
+    }
+
+    @Test
+    void addedTypeIsResolvedInUnchangedDependentFile() throws Exception {
+        Path src = writeSources();
+        Path pkg = src.resolve("com/example");
+
+        try (ParseSession session = new JavaSourceParser().openSession(List.of(src), runConfig(src))) {
+            Files.writeString(pkg.resolve("Address.java"), "package com.example; public class Address {}");
+
+            UmlModel updated = session.update(Set.of(pkg.resolve("Address.java")));
+
+            assertTrue(updated.getRelations().stream().anyMatch(relation ->
+                    relation.getFromTypeFqn().equals("com.example.Customer")
+                            && relation.getToTypeFqn().equals("com.example.Address")
+                            && relation.getKind() != RelationKind.NESTED));
+        }
+    }
+
+    @Test
+    void revertedContentMatchesFullParseAfterTypeSetChanged() throws Exception {
+        Path src = writeSources();
+        Path pkg = src.resolve("com/example");
+        String originalOrder = Files.readString(pkg.resolve("Order.java"));
+
+        try (ParseSession session = new JavaSourceParser().openSession(List.of(src), runConfig(src))) {
+            Files.writeString(pkg.resolve("Order.java"), "package com.example; public class Order {}");
+            session.update(Set.of(pkg.resolve("Order.java")));
+
+            // Customer is gone when the original Order content comes back, so the
+            // remembered fragment must not be replayed as-is.
+            Files.delete(pkg.resolve("Customer.java"));
+            Files.writeString(pkg.resolve("Order.java"), originalOrder);
+            UmlModel updated = session.update(Set.of(pkg.resolve("Order.java"), pkg.resolve("Customer.java")));
+            UmlModel full = new JavaSourceParser().parse(List.of(src), runConfig(src));
+
+            PlantUmlWriter writer = new PlantUmlWriter();
+            assertEquals(writer.render(full, PlantUmlConfig.defaults()),
+                    writer.render(updated, PlantUmlConfig.defaults()));
+        }
+    }
+
+    @Test
+    void updateResolvesThroughCompiledOutputLikeFullParse() throws Exception {
+        Path repoRoot = tempDir.resolve("repo");
+        Files.createDirectories(repoRoot);
+        Files.writeString(repoRoot.resolve("pom.xml"),
+                "<project><modules><module>app</module><module>lib</module></modules></project>");
+        Path libSource = tempDir.resolve("lib-src/com/example/lib/Money.java");
+        Files.createDirectories(libSource.getParent());
+        Files.writeString(libSource, "package com.example.lib; public class Money { public static class Currency {} }");
+        Path libClasses = Files.createDirectories(repoRoot.resolve("lib/target/classes"));
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                "-d", libClasses.toString(), libSource.toString()));
+        Path src = repoRoot.resolve("app/src/main/java");
+        Path account = src.resolve("com/example/app/Account.java");
+        Files.createDirectories(account.getParent());
+        String accountSource = """
+                package com.example.app;
+
+                import com.example.lib.Money;
+
+                public class Account {
+                    private Money.Currency currency;
+                }
+                """;
+        Files.writeString(account, accountSource);
+
+        try (ParseSession session = new JavaSourceParser().openSession(List.of(src), runConfig(src))) {
+            // Same declarations, different content, so the session parses it again.
+            Files.writeString(account, "// Balance in one currency.\n" + accountSource);
+
+            UmlModel updated = session.update(Set.of(account));
+            UmlModel full = new JavaSourceParser().parse(List.of(src), runConfig(src));
+
+            PlantUmlWriter writer = new PlantUmlWriter();
+            assertEquals(writer.render(full, PlantUmlConfig.defaults()),
+                    writer.render(updated, PlantUmlConfig.defaults()));
+            assertEquals("com.example.lib.Money.Currency",
+                    updated.getType("com.example.app.Account").orElseThrow().getFields().get(0).getType());
+        }
+    }
+
+    private Path writeSources() throws Exception {
+        Path src = tempDir.resolve("src");
+        Path pkg = src.resolve("com/example");
+        Files.createDirectories(pkg);
+        Files.writeString(pkg.resolve("Entity.java"), "package com.example; public abstract class Entity {}");
+        Files.writeString(pkg.resolve("Customer.java"), """
+                package com.example;
+
+                public class Customer extends Entity {
+                    private Address address;
+                }
+                """);
+        Files.writeString(pkg.resolve("Order.java"), """
+                package com.example;
+
+                public class Order extends Entity {
+                    private Customer customer;
+                }
+                """);
+        Files.writeString(pkg.resolve("Legacy.java"), "package com.example; public class Legacy {}");
+        return src;
+    }
+
+    private RunConfig runConfig(Path src) {
+        return RunConfig.builder().sourcePaths(List.of(src)).outputPath(tempDir.resolve("out.puml")).build();
+    }
+}
@@ -1,16 +1,35 @@
 package no.ntnu.eitri.parser.java;
 
+import no.ntnu.eitri.config.ConfigLoader;
+import no.ntnu.eitri.config.ModelProjection;
+import no.ntnu.eitri.config.ParseOptions;
+import no.ntnu.eitri.config.PlantUmlConfig;
 import no.ntnu.eitri.config.RunConfig;
+import no.ntnu.eitri.config.SourceFilter;
+import no.ntnu.eitri.config.TypeResolution;
+import no.ntnu.eitri.model.RelationKind;
+import no.ntnu.eitri.model.UmlField;
 import no.ntnu.eitri.model.UmlModel;
+import no.ntnu.eitri.model.UmlType;
+import no.ntnu.eitri.parser.BuildDiscoveryReport;
+import no.ntnu.eitri.parser.ClasspathPruningReport;
 import no.ntnu.eitri.parser.ParseException;
+import no.ntnu.eitri.parser.ParseScheduleReport;
+import no.ntnu.eitri.parser.SolverCacheReport;
+import no.ntnu.eitri.writer.plantuml.PlantUmlWriter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import javax.tools.ToolProvider;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -26,7 +45,8 @@ class JavaSourceParserBehaviorTest {
     void throwsWhenSourcePathDoesNotExist() {
         JavaSourceParser parser = new JavaSourceParser();
         Path missing = tempDir.resolve("missing");
-        RunConfig runConfig = new RunConfig(List.of(missing), tempDir.resolve("out.puml"), null, null, false, false);
+        RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(missing)).outputPath(tempDir.resolve("out.puml"))
+                .build();
 
         ParseException exception = assertThrows(ParseException.class,
                 () -> parser.parse(List.of(missing), runConfig));
@@ -36,7 +56,8 @@ class JavaSourceParserBehaviorTest {
     @Test
     void throwsWhenSourcePathsListIsNull() {
         JavaSourceParser parser = new JavaSourceParser();
-        RunConfig runConfig = new RunConfig(List.of(tempDir), tempDir.resolve("out.puml"), null, null, false, false);
+        RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(tempDir)).outputPath(tempDir.resolve("out.puml"))
+                .build();
 
         ParseException exception = assertThrows(ParseException.class, () -> parser.parse(null, runConfig));
         assertTrue(exception.getMessage().contains("No source paths provided"));
@@ -45,12 +66,43 @@ class JavaSourceParserBehaviorTest {
     @Test
     void throwsWhenSourcePathsListIsEmpty() {
         JavaSourceParser parser = new JavaSourceParser();
-        RunConfig runConfig = new RunConfig(List.of(tempDir), tempDir.resolve("out.puml"), null, null, false, false);
+        RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(tempDir)).outputPath(tempDir.resolve("out.puml"))
+                .build();
 
         ParseException exception = assertThrows(ParseException.class, () -> parser.parse(List.of(), runConfig));
         assertTrue(exception.getMessage().contains("No source paths provided"));
     }
 
+    @Test
+    void parsesSourcesInsideZipArchiveLikeExtractedSources() throws Exception {
+        Path src = tempDir.resolve("repo/src/main/java/com/example");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Customer.java"), "package com.example; public class Customer {}");
+        Files.writeString(src.resolve("Order.java"),
+                "package com.example; public class Order { private Customer customer; }");
+        Path zip = tempDir.resolve("repo.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (String name : List.of("Customer.java", "Order.java")) {
+                out.putNextEntry(new ZipEntry("repo/src/main/java/com/example/" + name));
+                out.write(Files.readAllBytes(src.resolve(name)));
+                out.closeEntry();
+            }
+        }
+        Path extractedRoot = tempDir.resolve("repo/src/main/java");
+        Path archiveRoot = Path.of(zip + "!/repo/src/main/java");
+
+        UmlModel extracted = new JavaSourceParser().parse(List.of(extractedRoot),
+                RunConfig.builder().sourcePaths(List.of(extractedRoot)).outputPath(tempDir.resolve("out.puml"))
+                        .build());
+        UmlModel archived = new JavaSourceParser().parse(List.of(archiveRoot),
+                RunConfig.builder().sourcePaths(List.of(archiveRoot)).outputPath(tempDir.resolve("out.puml")).build());
+
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(extracted, PlantUmlConfig.defaults()),
+                writer.render(archived, PlantUmlConfig.defaults()));
+        assertTrue(archived.hasType("com.example.Order"));
+    }
+
     @Test
     void continuesParsingWhenOneFileHasSyntaxError() throws Exception {
         Path src = tempDir.resolve("src");
@@ -59,19 +111,332 @@ class JavaSourceParserBehaviorTest {
         Files.writeString(src.resolve("Bad.java"), "package com.example; public class Bad {");
 
         JavaSourceParser parser = new JavaSourceParser();
-        RunConfig runConfig = new RunConfig(List.of(src), tempDir.resolve("out.puml"), null, null, false, false);
+        RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(src)).outputPath(tempDir.resolve("out.puml"))
+                .build();
         UmlModel model = parser.parse(List.of(src), runConfig);
 
         assertTrue(model.hasType("com.example.Good"));
     }
 
+    @Test
+    void parallelParseProducesSameModelAsSequentialParse() throws Exception {
+        Path src = tempDir.resolve("src");
+        Path pkg = src.resolve("com/example");
+        Files.createDirectories(pkg);
+        for (int i = 0; i < 24; i++) {
+            Files.writeString(pkg.resolve("Node" + i + ".java"), """
+                    package com.example;
+
+                    import java.util.List;
+
+                    public class Node%d extends Base implements Marker {
+                        private final List<Node%d> children;
+                        private Node%d next;
+
+                        public Node%d(List<Node%d> children) {
+                            this.children = children;
+                        }
+
+                        public Node%d visit(Base base) throws IllegalStateException {
+                            return null;
+                        }
+                    }
+                    """.formatted(i, (i + 1) % 24, (i + 2) % 24, i, (i + 1) % 24, (i + 3) % 24));
+        }
+        Files.writeString(pkg.resolve("Base.java"), "package com.example; public abstract class Base {}");
+        Files.writeString(pkg.resolve("Marker.java"), "package com.example; public interface Marker {}");
+        Files.writeString(pkg.resolve("Broken.java"), "package com.example; public class Broken {");
+        Files.writeString(src.resolve("Duplicate.java"), "package com.example; public class Node3 { int a; }");
+
+        Path out = tempDir.resolve("out.puml");
+        UmlModel sequential = new JavaSourceParser().parse(List.of(src),
+                RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                        .parseOptions(ParseOptions.builder().threads(1).build()).build());
+        UmlModel parallel = new JavaSourceParser().parse(List.of(src),
+                RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                        .parseOptions(ParseOptions.builder().threads(4).build()).build());
+
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(sequential, PlantUmlConfig.defaults()),
+                writer.render(parallel, PlantUmlConfig.defaults()));
+        assertEquals(sequential.getRelations(), parallel.getRelations());
+        assertEquals(sequential.getTypesSorted(), parallel.getTypesSorted());
+    }
+
+    @Test
+    void parallelParseResolvingAcrossSourceFilesMatchesSequentialParse() throws Exception {
+        Path src = tempDir.resolve("src");
+        for (int p = 0; p < 4; p++) {
+            Path pkg = src.resolve("com/example/p" + p);
+            Files.createDirectories(pkg);
+            for (int i = 0; i < 12; i++) {
+                // Each type extends and refers to types of the next package, so every worker's
+                // solver walks the ancestors of units other workers visit as well.
+                int next = (p + 1) % 4;
+                Files.writeString(pkg.resolve("Item" + i + ".java"), """
+                        package com.example.p%d;
+
+                        import com.example.p%d.*;
+                        import java.util.Map;
+
+                        public class Item%d extends Item%d.Part<Item%d> implements Comparable<Item%d> {
+                            private Map<String, Item%d.Part<Item%d>> parts;
+                            private Item%d.Part<? extends Item%d> first;
+
+                            public static class Part<T> extends Base { }
+
+                            public int compareTo(Item%d other) { return 0; }
+                        }
+                        """.formatted(p, next, i, (i + 1) % 12, i, i, (i + 2) % 12, i, (i + 3) % 12, (i + 4) % 12,
+                        i));
+            }
+            Files.writeString(pkg.resolve("Base.java"), "package com.example.p" + p + "; public class Base { }");
+        }
+        Path out = tempDir.resolve("out.puml");
+        PlantUmlWriter writer = new PlantUmlWriter();
+        UmlModel sequential = new JavaSourceParser().parse(List.of(src),
+                RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                        .parseOptions(ParseOptions.builder().threads(1).build()).build());
+        String expected = writer.render(sequential, PlantUmlConfig.defaults());
+
+        for (int run = 0; run < 3; run++) {
+            UmlModel parallel = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                    .outputPath(out).parseOptions(ParseOptions.builder().threads(8).build()).build());
+
+            assertEquals(expected, writer.render(parallel, PlantUmlConfig.defaults()));
+            assertEquals(sequential.getRelations(), parallel.getRelations());
+            assertEquals(sequential.getTypesSorted(), parallel.getTypesSorted());
+        }
+    }
+
+    @Test
+    void boundedAndReleasedSolverCachesProduceSameModelAsUnboundedCaches() throws Exception {
+        Path src = tempDir.resolve("src/com/example");
+        Files.createDirectories(src);
+        for (int i = 0; i < 6; i++) {
+            Files.writeString(src.resolve("Part" + i + ".java"), """
+                    package com.example;
+
+                    import java.util.List;
+
+                    public class Part%d extends Base {
+                        private List<Part%d> next;
+
+                        public Part%d copy(Base base) {
+                            return null;
+                        }
+                    }
+                    """.formatted(i, (i + 1) % 6, (i + 2) % 6));
+        }
+        Files.writeString(src.resolve("Base.java"), "package com.example; public abstract class Base {}");
+        Path root = tempDir.resolve("src");
+        Path out = tempDir.resolve("out.puml");
+
+        UmlModel unbounded = new JavaSourceParser().parse(List.of(root), RunConfig.builder().sourcePaths(List.of(root))
+                .outputPath(out).parseOptions(ParseOptions.builder().threads(1).solverCacheEntries(0).build()).build());
+        JavaSourceParser boundedParser = new JavaSourceParser();
+        UmlModel bounded = boundedParser.parse(List.of(root), RunConfig.builder().sourcePaths(List.of(root))
+                .outputPath(out)
+                .parseOptions(ParseOptions.builder().threads(1).solverCacheEntries(2).releaseSolverCachesEvery(2)
+                        .build())
+                .build());
+
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(unbounded, PlantUmlConfig.defaults()),
+                writer.render(bounded, PlantUmlConfig.defaults()));
+        assertEquals(unbounded.getRelations(), bounded.getRelations());
+        SolverCacheReport report = boundedParser.lastRunReport().solverCaches();
+        assertEquals(2, report.maxEntries());
+        assertEquals(3, report.releases());
+        assertTrue(report.evictions() > 0);
+        assertTrue(report.hits() + report.misses() > 0);
+    }
+
+    @Test
+    void reportsScheduleAndSwitchesToRecordedCostsOnLaterRuns() throws Exception {
+        Path src = tempDir.resolve("src/com/example");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Small.java"), "package com.example; public class Small {}");
+        Files.writeString(src.resolve("Large.java"), "package com.example; public class Large { "
+                + "private Small a; private Small b; private Small c; public Small get() { return a; } }");
+        Path root = tempDir.resolve("src");
+        RunConfig config = RunConfig.builder().sourcePaths(List.of(root)).outputPath(tempDir.resolve("out.puml"))
+                .parseOptions(ParseOptions.builder().threads(2).cacheDirectory(tempDir.resolve("cache"))
+                        .cacheMaxBytes(0).build())
+                .build();
+
+        JavaSourceParser first = new JavaSourceParser();
+        first.parse(List.of(root), config);
+        ParseScheduleReport firstReport = first.lastRunReport().schedule();
+
+        assertEquals(ParseScheduleReport.FILE_SIZE, firstReport.costModel());
+        assertEquals(2, firstReport.workers());
+        assertEquals(2, firstReport.fileCount());
+        assertEquals(0, firstReport.filesWithHistory());
+        assertTrue(firstReport.coreUtilization() > 0.0d && firstReport.coreUtilization() <= 1.0d);
+        assertTrue(Files.exists(tempDir.resolve("cache").resolve(ParseCostModel.HISTORY_FILE)));
+
+        // Every file is a cache hit now, so the recorded visit times stay those of the first run.
+        JavaSourceParser second = new JavaSourceParser();
+        second.parse(List.of(root), config);
+        ParseScheduleReport secondReport = second.lastRunReport().schedule();
+
+        assertEquals(ParseScheduleReport.HISTORY, secondReport.costModel());
+        assertEquals(2, secondReport.filesWithHistory());
+    }
+
+    @Test
+    void sequentialParseReportsFileOrderSchedule() throws Exception {
+        Path file = tempDir.resolve("Single.java");
+        Files.writeString(file, "package com.example; public class Single {}");
+
+        JavaSourceParser parser = new JavaSourceParser();
+        parser.parse(List.of(file), RunConfig.builder().sourcePaths(List.of(file))
+                .outputPath(tempDir.resolve("out.puml")).build());
+
+        assertEquals(ParseScheduleReport.FILE_ORDER, parser.lastRunReport().schedule().costModel());
+        assertEquals(1, parser.lastRunReport().schedule().workers());
+        assertEquals(file.toString(), parser.lastRunReport().schedule().slowestFile());
+    }
+
+    @Test
+    void cachedParseProducesSameModelAsUncachedParse() throws Exception {
+        Path src = tempDir.resolve("src");
+        Path pkg = src.resolve("com/example");
+        Files.createDirectories(pkg);
+        Files.writeString(pkg.resolve("Repository.java"), """
+                package com.example;
+
+                import java.util.List;
+                import java.util.Map;
+
+                @Deprecated
+                public abstract class Repository<T extends Comparable<T>> implements Iterable<T> {
+                    protected static final int LIMIT = 10;
+                    private final Map<String, List<T>> index = null;
+
+                    public abstract <R> R find(String key, Class<R> type) throws java.io.IOException;
+
+                    public static class Entry {
+                        private Repository<?> owner;
+                    }
+
+                    enum State { OPEN, CLOSED }
+                }
+                """);
+        Files.writeString(pkg.resolve("Point.java"),
+                "package com.example; public record Point(int x, int y) implements Comparable<Point> {"
+                        + " public int compareTo(Point o) { return 0; } }");
+        Files.writeString(pkg.resolve("Unknown.java"),
+                "package com.example; public class Unknown { private Missing missing; }");
+        Files.writeString(pkg.resolve("Broken.java"), "package com.example; public class Broken {");
+
+        Path out = tempDir.resolve("out.puml");
+        Path cacheDir = tempDir.resolve("cache");
+        RunConfig uncachedConfig = RunConfig.builder().sourcePaths(List.of(src)).outputPath(out).build();
+        RunConfig cachedConfig = RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                .parseOptions(ParseOptions.builder().cacheDirectory(cacheDir).build()).build();
+
+        UmlModel uncached = new JavaSourceParser().parse(List.of(src), uncachedConfig);
+        UmlModel cold = new JavaSourceParser().parse(List.of(src), cachedConfig);
+        UmlModel warm = new JavaSourceParser().parse(List.of(src), cachedConfig);
+
+        try (var entries = Files.walk(cacheDir)) {
+            assertEquals(3, entries.filter(path -> path.toString().endsWith(".frag")).count());
+        }
+        PlantUmlWriter writer = new PlantUmlWriter();
+        String expected = writer.render(uncached, PlantUmlConfig.defaults());
+        assertEquals(expected, writer.render(cold, PlantUmlConfig.defaults()));
+        assertEquals(expected, writer.render(warm, PlantUmlConfig.defaults()));
+        assertEquals(uncached.getRelations(), warm.getRelations());
+        assertEquals(uncached.getTypesSorted(), warm.getTypesSorted());
+    }
+
+    @Test
+    void addingFileToAnotherPackageKeepsCachedEntries() throws Exception {
+        Path src = tempDir.resolve("src");
+        Path pkg = src.resolve("com/example");
+        Files.createDirectories(pkg);
+        Files.writeString(pkg.resolve("Order.java"), "package com.example; public class Order { private Line line; }");
+        Files.writeString(pkg.resolve("Line.java"), "package com.example; public class Line {}");
+        Files.writeString(pkg.resolve("Customer.java"), "package com.example; public class Customer {}");
+        Path cacheDir = tempDir.resolve("cache");
+        RunConfig config = RunConfig.builder().sourcePaths(List.of(src)).outputPath(tempDir.resolve("out.puml"))
+                .parseOptions(ParseOptions.builder().cacheDirectory(cacheDir).build()).build();
+
+        new JavaSourceParser().parse(List.of(src), config);
+        assertEquals(3, countCacheEntries(cacheDir));
+
+        Files.createDirectories(src.resolve("com/other"));
+        Files.writeString(src.resolve("com/other/Audit.java"), "package com.other; public class Audit {}");
+        new JavaSourceParser().parse(List.of(src), config);
+
+        // Only the new file missed; the three others were hits and wrote nothing.
+        assertEquals(4, countCacheEntries(cacheDir));
+    }
+
+    @Test
+    void fingerprintRootKeepsCachedEntriesForSourcesWrittenElsewhere() throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        for (String run : List.of("first", "second")) {
+            Path root = tempDir.resolve(run);
+            Path pkg = root.resolve("src/com/example");
+            Files.createDirectories(pkg);
+            Files.writeString(pkg.resolve("Order.java"),
+                    "package com.example; public class Order { private Line line; }");
+            Files.writeString(pkg.resolve("Line.java"), "package com.example; public class Line {}");
+            Path src = root.resolve("src");
+            RunConfig config = RunConfig.builder().sourcePaths(List.of(src)).outputPath(tempDir.resolve("out.puml"))
+                    .parseOptions(ParseOptions.builder().cacheDirectory(cacheDir).fingerprintRoot(root).build())
+                    .build();
+
+            new JavaSourceParser().parse(List.of(src), config);
+        }
+
+        // The second run only differs in where the sources are, so both files were hits.
+        assertEquals(2, countCacheEntries(cacheDir));
+    }
+
+    @Test
+    void removingNestedTypeInvalidatesCachedFilesThatCanNameIt() throws Exception {
+        Path src = tempDir.resolve("src");
+        Path pkg = src.resolve("com/example");
+        Files.createDirectories(pkg);
+        Files.writeString(pkg.resolve("Foo.java"),
+                "package com.example; public class Foo { public static class Inner {} }");
+        Files.writeString(pkg.resolve("Bar.java"), "package com.example; public class Bar { private Foo.Inner inner; }");
+        Path cacheDir = tempDir.resolve("cache");
+        Path out = tempDir.resolve("out.puml");
+        RunConfig cachedConfig = RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                .parseOptions(ParseOptions.builder().cacheDirectory(cacheDir).build()).build();
+
+        new JavaSourceParser().parse(List.of(src), cachedConfig);
+        Files.writeString(pkg.resolve("Foo.java"), "package com.example; public class Foo {}");
+        UmlModel cached = new JavaSourceParser().parse(List.of(src), cachedConfig);
+        UmlModel uncached = new JavaSourceParser().parse(List.of(src),
+                RunConfig.builder().sourcePaths(List.of(src)).outputPath(out).build());
+
+        // Bar.java is unchanged but can no longer name Foo.Inner, so it was visited again.
+        assertEquals(4, countCacheEntries(cacheDir));
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(uncached, PlantUmlConfig.defaults()),
+                writer.render(cached, PlantUmlConfig.defaults()));
+    }
+
+    private static long countCacheEntries(Path cacheDir) throws IOException {
+        try (var entries = Files.walk(cacheDir)) {
+            return entries.filter(path -> path.toString().endsWith(".frag")).count();
+        }
+    }
+
     @Test
     void supportsParsingSingleJavaFilePath() throws Exception {
         Path file = tempDir.resolve("Single.java");
         Files.writeString(file, "package com.example; public class Single {}");
 
         JavaSourceParser parser = new JavaSourceParser();
-        RunConfig runConfig = new RunConfig(List.of(file), tempDir.resolve("out.puml"), null, null, false, false);
+        RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(file)).outputPath(tempDir.resolve("out.puml"))
+                .build();
         UmlModel model = parser.parse(List.of(file), runConfig);
 
         assertEquals(1, model.getTypes().stream().filter(t -> t.getFqn().equals("com.example.Single")).count());
@@ -87,13 +452,321 @@ class JavaSourceParserBehaviorTest {
         Files.writeString(testSrc.resolve("MainTest.java"), "package com.example; public class MainTest {}");
 
         JavaSourceParser parser = new JavaSourceParser();
-        RunConfig runConfig = new RunConfig(List.of(tempDir), tempDir.resolve("out.puml"), null, null, false, false);
+        RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(tempDir)).outputPath(tempDir.resolve("out.puml"))
+                .build();
         UmlModel model = parser.parse(List.of(tempDir), runConfig);
 
         assertTrue(model.hasType("com.example.Main"));
         assertFalse(model.hasType("com.example.MainTest"));
     }
 
+    @Test
+    void parsesPackagesNamedBuildButSkipsBuildOutput() throws Exception {
+        Path module = tempDir.resolve("app");
+        Path src = module.resolve("src/main/java");
+        Files.createDirectories(src.resolve("com/acme/build"));
+        Files.createDirectories(module.resolve("build/generated/com/acme"));
+        Files.writeString(module.resolve("build.gradle"), "");
+        Files.writeString(src.resolve("com/acme/build/Pipeline.java"),
+                "package com.acme.build; public class Pipeline {}");
+        Files.writeString(module.resolve("build/generated/com/acme/Stub.java"),
+                "package com.acme; public class Stub {}");
+
+        UmlModel model = new JavaSourceParser().parse(List.of(module), RunConfig.builder().sourcePaths(List.of(module))
+                .outputPath(tempDir.resolve("out.puml")).build());
+
+        assertTrue(model.hasType("com.acme.build.Pipeline"));
+        assertFalse(model.hasType("com.acme.Stub"));
+    }
+
+    @Test
+    void packageSelectionSkipsOtherPackagesButStillResolvesAgainstThem() throws Exception {
+        Path root = tempDir.resolve("src/main/java");
+        Path billing = root.resolve("com/acme/billing");
+        Path billingTax = root.resolve("com/acme/billing/tax");
+        Path crm = root.resolve("com/acme/crm");
+        Files.createDirectories(billingTax);
+        Files.createDirectories(crm);
+        Files.writeString(billing.resolve("Invoice.java"), """
+                /* License header */
+                package com.acme.billing;
+
+                import com.acme.crm.*;
+
+                public class Invoice {
+                    private Customer customer;
+                }
+                """);
+        Files.writeString(billingTax.resolve("TaxRule.java"), "package com.acme.billing.tax; public class TaxRule {}");
+        Files.writeString(crm.resolve("Customer.java"), "package com.acme.crm; public class Customer {}");
+
+        SourceFilter filter = SourceFilter.defaults()
+                .withPackages(List.of("com.acme.billing.*"), List.of("com.acme.billing.tax"));
+        JavaSourceParser parser = new JavaSourceParser();
+        UmlModel model = parser.parse(List.of(root), RunConfig.builder().sourcePaths(List.of(root))
+                .outputPath(tempDir.resolve("out.puml")).sourceFilter(filter).build());
+
+        assertTrue(model.hasType("com.acme.billing.Invoice"));
+        assertFalse(model.hasType("com.acme.billing.tax.TaxRule"));
+        assertFalse(model.hasType("com.acme.crm.Customer"));
+        assertEquals("com.acme.crm.Customer",
+                model.getType("com.acme.billing.Invoice").orElseThrow().getFields().getFirst().getType());
+        assertEquals(List.of(billing.resolve("Invoice.java")), parser.lastSourceFiles());
+    }
+
+    @Test
+    void packageSelectionKeepsExcludedTypesVisibleToLexicalAndTieredResolution() throws Exception {
+        Path root = tempDir.resolve("src/main/java");
+        Path billing = root.resolve("com/acme/billing");
+        Path crm = root.resolve("com/acme/crm");
+        Files.createDirectories(billing);
+        Files.createDirectories(crm);
+        Files.writeString(billing.resolve("Invoice.java"), """
+                package com.acme.billing;
+
+                import com.acme.crm.*;
+
+                public class Invoice {
+                    private Customer customer;
+                }
+                """);
+        Files.writeString(crm.resolve("Customer.java"), "package com.acme.crm; public class Customer {}");
+        SourceFilter filter = SourceFilter.defaults().withPackages(List.of(), List.of("com.acme.crm"));
+
+        for (TypeResolution resolution : List.of(TypeResolution.LEXICAL, TypeResolution.TIERED)) {
+            UmlModel model = new JavaSourceParser().parse(List.of(root), RunConfig.builder().sourcePaths(List.of(root))
+                    .outputPath(tempDir.resolve("out.puml"))
+                    .parseOptions(ParseOptions.builder().typeResolution(resolution).build()).sourceFilter(filter)
+                    .build());
+
+            assertFalse(model.hasType("com.acme.crm.Customer"));
+            assertEquals("com.acme.crm.Customer",
+                    model.getType("com.acme.billing.Invoice").orElseThrow().getFields().getFirst().getType(),
+                    resolution.id());
+        }
+    }
+
+    @Test
+    void declarationOnlyParseProducesSameModelAsFullParse() throws Exception {
+        Path src = tempDir.resolve("src/com/example");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Shop.java"), """
+                package com.example;
+
+                import java.util.List;
+
+                public class Shop {
+                    private final List<Item> items = List.of(); // stock
+                    /* none yet */
+                    private int count = 0;
+
+                    static {
+                        System.out.println("loaded }");
+                    }
+
+                    public Shop(List<Item> items) {
+                        Runnable r = () -> { };
+                    }
+
+                    public Item first() throws IllegalStateException {
+                        class Cursor {
+                        }
+                        return items.get(0);
+                    }
+
+                    enum Mode { OPEN, CLOSED { @Override public String toString() { return "x"; } } }
+                }
+                """);
+        Files.writeString(src.resolve("Item.java"), "package com.example; public record Item(String name) { "
+                + "public Item { if (name == null) throw new IllegalArgumentException(); } }");
+        Path out = tempDir.resolve("out.puml");
+
+        UmlModel full = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).parseOptions(ParseOptions.builder().declarationsOnlyAboveBytes(0).build()).build());
+        UmlModel declarations = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).parseOptions(ParseOptions.builder().declarationsOnly(true).build()).build());
+
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(full, PlantUmlConfig.defaults()),
+                writer.render(declarations, PlantUmlConfig.defaults()));
+        assertEquals(full.getRelations(), declarations.getRelations());
+        assertEquals(full.getTypesSorted(), declarations.getTypesSorted());
+        assertTrue(declarations.getType("com.example.Shop").orElseThrow().getFields().stream()
+                .anyMatch(field -> field.getAnnotations().contains("init:0")));
+    }
+
+    @Test
+    void fullParseKeepsCommentsInsideFieldInitializers() throws Exception {
+        Path src = tempDir.resolve("src/com/example");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Counter.java"),
+                "package com.example; public class Counter { private int count = /* none */ 0; }");
+        Path out = tempDir.resolve("out.puml");
+
+        UmlModel full = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).build());
+        UmlModel declarations = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).parseOptions(ParseOptions.builder().declarationsOnly(true).build()).build());
+
+        // Skeletons are parsed without comment attribution, so only the full parse prints the comment.
+        assertTrue(full.getType("com.example.Counter").orElseThrow().getFields().getFirst().getAnnotations()
+                .stream().anyMatch(annotation -> annotation.startsWith("init:/* none */")));
+        assertTrue(declarations.getType("com.example.Counter").orElseThrow().getFields().getFirst()
+                .getAnnotations().contains("init:0"));
+    }
+
+    @Test
+    void largeFilesSwitchToDeclarationOnlyParsing() throws Exception {
+        Path src = tempDir.resolve("src");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Big.java"), """
+                package com.example;
+                public class Big {
+                    public void broken() { int x = ; }
+                }
+                """);
+        Path out = tempDir.resolve("out.puml");
+
+        UmlModel small = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).build());
+        UmlModel large = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).parseOptions(ParseOptions.builder().declarationsOnlyAboveBytes(16).build()).build());
+
+        assertFalse(small.hasType("com.example.Big"));
+        assertTrue(large.hasType("com.example.Big"));
+    }
+
+    @Test
+    void lexicalResolutionMatchesSolverForSourceAndJdkTypes() throws Exception {
+        Path src = tempDir.resolve("src");
+        writeShopSources(src);
+        Path out = tempDir.resolve("out.puml");
+
+        UmlModel solver = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).build());
+        UmlModel lexical = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).parseOptions(ParseOptions.builder().typeResolution(TypeResolution.LEXICAL).build())
+                .build());
+
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(solver, PlantUmlConfig.defaults()),
+                writer.render(lexical, PlantUmlConfig.defaults()));
+        assertEquals(solver.getTypesSorted(), lexical.getTypesSorted());
+        assertEquals(solver.getRelations(), lexical.getRelations());
+        assertEquals(fieldTypes(solver), fieldTypes(lexical));
+        assertEquals("java.util.Map<java.lang.String, ? extends com.example.model.Item>",
+                lexical.getType("com.example.app.Shop").orElseThrow().getFields().get(1).getType());
+        assertTrue(lexical.getRelations().stream().anyMatch(relation ->
+                relation.getFromTypeFqn().equals("com.example.app.Shop")
+                        && relation.getToTypeFqn().equals("com.example.model.Entity")
+                        && relation.getKind() == RelationKind.EXTENDS));
+    }
+
+    @Test
+    void tieredResolutionMatchesSolverAndFallsBackToItForClasspathTypes() throws Exception {
+        Path src = tempDir.resolve("src");
+        writeShopSources(src);
+        Files.writeString(src.resolve("com/example/app/Cli.java"), """
+                package com.example.app;
+
+                import picocli.*;
+
+                class Cli {
+                    private CommandLine line;
+                }
+                """);
+        Path out = tempDir.resolve("out.puml");
+
+        UmlModel solver = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).build());
+        UmlModel tiered = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).parseOptions(ParseOptions.builder().typeResolution(TypeResolution.TIERED).build())
+                .build());
+
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(solver, PlantUmlConfig.defaults()),
+                writer.render(tiered, PlantUmlConfig.defaults()));
+        assertEquals(solver.getRelations(), tiered.getRelations());
+        assertEquals(fieldTypes(solver), fieldTypes(tiered));
+        assertEquals("picocli.CommandLine",
+                tiered.getType("com.example.app.Cli").orElseThrow().getFields().getFirst().getType());
+    }
+
+    @Test
+    void lexicalResolutionLeavesUnknownNamesUnqualified() throws Exception {
+        Path src = tempDir.resolve("src");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Holder.java"), """
+                package com.example;
+
+                import org.acme.*;
+
+                public class Holder {
+                    private Widget widget;
+                }
+                """);
+
+        UmlModel model = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(tempDir.resolve("out.puml"))
+                .parseOptions(ParseOptions.builder().typeResolution(TypeResolution.LEXICAL).build()).build());
+
+        assertEquals("Widget", model.getType("com.example.Holder").orElseThrow().getFields().getFirst().getType());
+    }
+
+    @Test
+    void projectedParseSkipsHiddenMembersAndRendersLikeTheFullModel() throws Exception {
+        Path root = tempDir.resolve("src");
+        Path src = root.resolve("com/example");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Order.java"), """
+                package com.example;
+
+                public class Order extends Base {
+                    private Customer customer;
+                    protected int total;
+
+                    public Order(Customer customer) {
+                        this.customer = customer;
+                    }
+
+                    public Line add(Line line) {
+                        return line;
+                    }
+
+                    private void recalculate(Customer customer) {
+                    }
+                }
+                """);
+        Files.writeString(src.resolve("Customer.java"), "package com.example; public class Customer {}");
+        Files.writeString(src.resolve("Line.java"), "package com.example; public record Line(int amount) {}");
+        Files.writeString(src.resolve("Base.java"), "package com.example; public abstract class Base {}");
+        Path configFile = tempDir.resolve("config.yaml");
+        Files.writeString(configFile, """
+                writers:
+                  plantuml:
+                    hidePrivate: true
+                    showComposition: false
+                    showAggregation: false
+                    showAssociation: false
+                    showDependency: false
+                """);
+        PlantUmlConfig config = ConfigLoader.loadPlantUmlConfig(configFile);
+        RunConfig full = RunConfig.builder().sourcePaths(List.of(root)).outputPath(tempDir.resolve("out.puml")).build();
+
+        UmlModel fullModel = new JavaSourceParser().parse(List.of(root), full);
+        UmlModel projected = new JavaSourceParser().parse(List.of(root),
+                full.withModelProjection(ModelProjection.of(config)));
+
+        UmlType order = projected.getType("com.example.Order").orElseThrow();
+        assertEquals(List.of("total"), order.getFields().stream().map(UmlField::getName).toList());
+        assertFalse(order.getMethods().stream().anyMatch(method -> method.getName().equals("recalculate")));
+        assertTrue(projected.getType("com.example.Line").orElseThrow().getFields().isEmpty());
+        assertTrue(projected.getRelations().stream().noneMatch(r -> r.getKind() == RelationKind.DEPENDENCY));
+        assertTrue(fullModel.getRelations().stream().anyMatch(r -> r.getKind() == RelationKind.DEPENDENCY));
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(fullModel, config), writer.render(projected, config));
+    }
+
     @Test
     void isTestDirectoryMatchesSrcTest() {
         assertTrue(JavaSourceParser.isTestDirectory(Path.of("/project/src/test")));
@@ -125,7 +798,8 @@ class JavaSourceParserBehaviorTest {
                 "package com.example; public class IntegrationOnly {}");
 
         JavaSourceParser parser = new JavaSourceParser();
-        RunConfig runConfig = new RunConfig(List.of(tempDir), tempDir.resolve("out.puml"), null, null, false, false);
+        RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(tempDir)).outputPath(tempDir.resolve("out.puml"))
+                .build();
         UmlModel model = parser.parse(List.of(tempDir), runConfig);
 
         assertTrue(model.hasType("com.example.Main"));
@@ -133,12 +807,63 @@ class JavaSourceParserBehaviorTest {
         assertFalse(model.hasType("com.example.IntegrationOnly"));
     }
 
+    @Test
+    void skipsBuildOutputDirectoriesByDefault() throws Exception {
+        Path mainSrc = tempDir.resolve("src/main/java");
+        Path generated = tempDir.resolve("build/generated/sources");
+        Path mavenGenerated = tempDir.resolve("module/target/generated-sources");
+        Files.createDirectories(mainSrc);
+        Files.createDirectories(generated);
+        Files.createDirectories(mavenGenerated);
+        Files.writeString(tempDir.resolve("build.gradle"), "");
+        Files.writeString(tempDir.resolve("module/pom.xml"), "<project/>");
+        Files.writeString(mainSrc.resolve("Main.java"), "package com.example; public class Main {}");
+        Files.writeString(generated.resolve("Generated.java"), "package com.example; public class Generated {}");
+        Files.writeString(mavenGenerated.resolve("Stub.java"), "package com.example; public class Stub {}");
+
+        JavaSourceParser parser = new JavaSourceParser();
+        RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(tempDir)).outputPath(tempDir.resolve("out.puml"))
+                .build();
+        UmlModel model = parser.parse(List.of(tempDir), runConfig);
+
+        assertTrue(model.hasType("com.example.Main"));
+        assertFalse(model.hasType("com.example.Generated"));
+        assertFalse(model.hasType("com.example.Stub"));
+        assertEquals(List.of(mainSrc.resolve("Main.java").toAbsolutePath().normalize()),
+                parser.lastSourceFiles());
+    }
+
+    @Test
+    void sourceFilterAppliesIncludesExcludesAndCanDropDefaultExcludes() throws Exception {
+        Path pkg = tempDir.resolve("src/main/java/com/example");
+        Path buildPkg = tempDir.resolve("src/main/java/com/example/build");
+        Files.createDirectories(buildPkg);
+        Files.writeString(pkg.resolve("Main.java"), "package com.example; public class Main {}");
+        Files.writeString(pkg.resolve("Message_pb2.java"), "package com.example; public class Message_pb2 {}");
+        Files.writeString(buildPkg.resolve("Builder.java"), "package com.example.build; public class Builder {}");
+        Path root = tempDir.resolve("src/main/java");
+
+        SourceFilter filter = SourceFilter.of(List.of("com/**"), List.of("*_pb2.java"), false);
+        RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(root)).outputPath(tempDir.resolve("out.puml"))
+                .sourceFilter(filter).build();
+        UmlModel model = new JavaSourceParser().parse(List.of(root), runConfig);
+
+        assertTrue(model.hasType("com.example.Main"));
+        assertTrue(model.hasType("com.example.build.Builder"));
+        assertFalse(model.hasType("com.example.Message_pb2"));
+
+        SourceFilter onlyOther = SourceFilter.of(List.of("org/**"), List.of(), true);
+        UmlModel empty = new JavaSourceParser().parse(List.of(root), RunConfig.builder().sourcePaths(List.of(root))
+                .outputPath(tempDir.resolve("out.puml")).sourceFilter(onlyOther).build());
+        assertTrue(empty.getTypes().isEmpty());
+    }
+
     @Test
     void detectTypeSolverRootsIncludesSrcMainJavaForModuleRoot() throws Exception {
         Path moduleRoot = tempDir.resolve("module");
         Files.createDirectories(moduleRoot.resolve("src/main/java"));
 
-        Set<Path> roots = JavaSourceParser.detectTypeSolverRoots(moduleRoot);
+        Set<Path> roots = JavaSourceParser.detectTypeSolverRoots(moduleRoot, BuildModelCache.load(null));
 
         assertTrue(roots.contains(moduleRoot));
         assertTrue(roots.contains(moduleRoot.resolve("src/main/java")));
@@ -155,7 +880,8 @@ class JavaSourceParserBehaviorTest {
         Files.writeString(pkg.resolve("A.java"), "package com.example; public class A { private B b; }\n");
 
         JavaSourceParser parser = new JavaSourceParser();
-        RunConfig runConfig = new RunConfig(List.of(moduleRoot), tempDir.resolve("out.puml"), null, null, false, false);
+        RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(moduleRoot))
+                .outputPath(tempDir.resolve("out.puml")).build();
         UmlModel model = parser.parse(List.of(moduleRoot), runConfig);
 
         assertTrue(model.hasType("com.example.A"));
@@ -204,20 +930,185 @@ class JavaSourceParserBehaviorTest {
         Files.createDirectories(modA.resolve("src/main/java"));
         Files.createDirectories(modB.resolve("src/main/java"));
 
-        Set<Path> roots = JavaSourceParser.detectTypeSolverRoots(modA);
+        Set<Path> roots = JavaSourceParser.detectTypeSolverRoots(modA, BuildModelCache.load(null));
 
         assertTrue(roots.contains(modA));
         assertTrue(roots.contains(modA.resolve("src/main/java")));
         assertTrue(roots.contains(modB.resolve("src/main/java")));
     }
 
+    @Test
+    void detectClassOutputDirectoriesFindsOutputsOfMavenAndGradleSiblings() throws Exception {
+        Path mavenRoot = tempDir.resolve("maven");
+        Files.createDirectories(mavenRoot);
+        Files.writeString(mavenRoot.resolve("pom.xml"), """
+                <project>
+                    <modules>
+                        <module>app</module>
+                        <module> lib </module>
+                    </modules>
+                </project>
+                """);
+        Path app = mavenRoot.resolve("app");
+        Files.createDirectories(app.resolve("src/main/java"));
+        Files.createDirectories(app.resolve("target/classes"));
+        Files.createDirectories(mavenRoot.resolve("lib/target/classes"));
+
+        Path gradleRoot = tempDir.resolve("gradle");
+        Files.createDirectories(gradleRoot.resolve("core/build/classes/java/main"));
+        Files.createDirectories(gradleRoot.resolve("web/src/main/java"));
+        Files.writeString(gradleRoot.resolve("settings.gradle"), "include(\"core\", \"web\")\n");
+
+        BuildModelCache build = BuildModelCache.load(null);
+        Set<Path> mavenOutputs = JavaSourceParser.detectClassOutputDirectories(List.of(app.resolve("src/main/java")),
+                build);
+        Set<Path> gradleOutputs = JavaSourceParser.detectClassOutputDirectories(
+                List.of(gradleRoot.resolve("web/src/main/java")), build);
+
+        assertEquals(Set.of(app.resolve("target/classes").toAbsolutePath().normalize(),
+                mavenRoot.resolve("lib/target/classes").toAbsolutePath().normalize()), mavenOutputs);
+        assertEquals(Set.of(gradleRoot.resolve("core/build/classes/java/main").toAbsolutePath().normalize()),
+                gradleOutputs);
+    }
+
+    @Test
+    void resolvesSiblingModuleTypesFromCompiledOutput() throws Exception {
+        Path repoRoot = tempDir.resolve("repo");
+        Files.createDirectories(repoRoot);
+        Files.writeString(repoRoot.resolve("pom.xml"),
+                "<project><modules><module>app</module><module>lib</module></modules></project>");
+        Path libSource = tempDir.resolve("lib-src/com/example/lib/Money.java");
+        Files.createDirectories(libSource.getParent());
+        Files.writeString(libSource, """
+                package com.example.lib;
+
+                public class Money {
+                    public static class Currency {
+                    }
+                }
+                """);
+        Path libClasses = repoRoot.resolve("lib/target/classes");
+        Files.createDirectories(libClasses);
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                "-d", libClasses.toString(), libSource.toString()));
+
+        Path src = repoRoot.resolve("app/src/main/java");
+        Files.createDirectories(src.resolve("com/example/app"));
+        Files.writeString(src.resolve("com/example/app/Account.java"), """
+                package com.example.app;
+
+                import com.example.lib.Money;
+
+                public class Account {
+                    private Money balance;
+                    private Money.Currency currency;
+                }
+                """);
+
+        UmlModel model = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(tempDir.resolve("out.puml")).build());
+
+        UmlType account = model.getType("com.example.app.Account").orElseThrow();
+        assertEquals("com.example.lib.Money", account.getFields().get(0).getType());
+        assertEquals("com.example.lib.Money.Currency", account.getFields().get(1).getType());
+    }
+
+    @Test
+    void prunesLocalJarsHoldingNoImportedPackage() throws Exception {
+        Path module = tempDir.resolve("app");
+        Files.createDirectories(module);
+        Files.writeString(module.resolve("pom.xml"), "<project/>");
+        Path money = compiledJar(module.resolve("libs/money.jar"), "com/example/lib/Money.java", """
+                package com.example.lib;
+
+                public class Money {
+                }
+                """);
+        Path clock = compiledJar(module.resolve("libs/clock.jar"), "com/example/clock/Clock.java", """
+                package com.example.clock;
+
+                public class Clock {
+                }
+                """);
+        Path src = module.resolve("src/main/java");
+        Files.createDirectories(src.resolve("com/example/app"));
+        Files.writeString(src.resolve("com/example/app/Account.java"), """
+                package com.example.app;
+
+                import com.example.lib.Money;
+
+                public class Account {
+                    private Money balance;
+                }
+                """);
+        Path out = tempDir.resolve("out.puml");
+
+        JavaSourceParser parser = new JavaSourceParser();
+        UmlModel pruned = parser.parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                .parseOptions(ParseOptions.builder().pruneClasspath(true).build()).build());
+        ClasspathPruningReport report = parser.lastRunReport().classpathPruning();
+        JavaSourceParser unprunedParser = new JavaSourceParser();
+        UmlModel unpruned = unprunedParser.parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).build());
+
+        assertTrue(report.applied());
+        assertTrue(report.prunedJars().contains(clock));
+        assertFalse(report.prunedJars().contains(money));
+        assertTrue(report.keptJars() >= 1);
+        assertFalse(unprunedParser.lastRunReport().classpathPruning().applied());
+        assertEquals("com.example.lib.Money",
+                pruned.getType("com.example.app.Account").orElseThrow().getFields().getFirst().getType());
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(unpruned, PlantUmlConfig.defaults()),
+                writer.render(pruned, PlantUmlConfig.defaults()));
+    }
+
+    @Test
+    void keepsJarsNamedOnlyFullyQualifiedUnlessPruningIsRequested() throws Exception {
+        Path module = tempDir.resolve("app");
+        Files.createDirectories(module);
+        Files.writeString(module.resolve("pom.xml"), "<project/>");
+        Path money = compiledJar(module.resolve("libs/money.jar"), "com/example/lib/Money.java", """
+                package com.example.lib;
+
+                public class Money {
+                    public static class Currency {
+                    }
+                }
+                """);
+        Path src = module.resolve("src/main/java");
+        Files.createDirectories(src.resolve("com/example/app"));
+        Files.writeString(src.resolve("com/example/app/Account.java"), """
+                package com.example.app;
+
+                public class Account {
+                    private com.example.lib.Money balance;
+                    private com.example.lib.Money.Currency currency;
+                }
+                """);
+        Path out = tempDir.resolve("out.puml");
+
+        JavaSourceParser parser = new JavaSourceParser();
+        UmlModel model = parser.parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                .build());
+        JavaSourceParser pruningParser = new JavaSourceParser();
+        pruningParser.parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src)).outputPath(out)
+                .parseOptions(ParseOptions.builder().pruneClasspath(true).build()).build());
+
+        assertFalse(parser.lastRunReport().classpathPruning().applied());
+        UmlType account = model.getType("com.example.app.Account").orElseThrow();
+        assertEquals("com.example.lib.Money", account.getFields().get(0).getType());
+        assertEquals("com.example.lib.Money.Currency", account.getFields().get(1).getType());
+        assertTrue(pruningParser.lastRunReport().classpathPruning().prunedJars().contains(money));
+    }
+
     @Test
     void detectGradleSiblingSourceRootsReturnsEmptyWhenSettingsFileMissing() throws Exception {
         Path repoRoot = tempDir.resolve("repo-no-settings");
         Path module = repoRoot.resolve("mod");
         Files.createDirectories(module.resolve("src/main/java"));
 
-        Set<Path> roots = JavaSourceParser.detectGradleSiblingSourceRoots(module);
+        Set<Path> roots = JavaSourceParser.detectGradleSiblingSourceRoots(module, BuildModelCache.load(null));
 
         assertTrue(roots.isEmpty());
     }
@@ -278,14 +1169,14 @@ class JavaSourceParserBehaviorTest {
         Files.writeString(moduleJar, "");
         Files.writeString(repoJar, "");
 
-        Set<Path> jarFiles = JavaSourceParser.detectLocalJarFiles(List.of(moduleRoot));
+        Set<Path> jarFiles = JavaSourceParser.detectLocalJarFiles(List.of(moduleRoot), BuildModelCache.load(null));
 
         assertTrue(jarFiles.contains(moduleJar.toAbsolutePath().normalize()));
         assertTrue(jarFiles.contains(repoJar.toAbsolutePath().normalize()));
     }
 
     @Test
-    void parseGradleDependencyCoordinatesFindsJarCoordinates() throws Exception {
+    void buildScriptListsGradleDependencyCoordinates() throws Exception {
         Path buildFile = tempDir.resolve("build.gradle.kts");
         Files.writeString(buildFile, """
                 dependencies {
@@ -294,7 +1185,7 @@ class JavaSourceParserBehaviorTest {
                 }
                 """);
 
-        Set<String> coordinates = JavaSourceParser.parseGradleDependencyCoordinates(buildFile);
+        List<String> coordinates = BuildModelCache.load(null).script(buildFile).dependencyCoordinates();
 
         assertTrue(coordinates.contains("io.get-coursier.util:directories-jni:0.1.4"));
         assertTrue(coordinates.contains("org.jetbrains:annotations:24.1.0"));
@@ -312,9 +1203,8 @@ class JavaSourceParserBehaviorTest {
         Files.createDirectories(jar.getParent());
         Files.writeString(jar, "");
 
-        Set<Path> jars = JavaSourceParser.resolveGradleDependencyJars(
-                Set.of("io.get-coursier.util:directories-jni:0.1.4"),
-                gradleCacheRoot);
+        Set<Path> jars = DependencyCacheIndex.load(null, gradleCacheRoot, null).gradleJars(
+                Set.of("io.get-coursier.util:directories-jni:0.1.4"));
 
         assertTrue(jars.contains(jar.toAbsolutePath().normalize()));
     }
@@ -348,9 +1238,8 @@ class JavaSourceParserBehaviorTest {
         Files.writeString(companionJar, "");
         Files.writeString(sourcesJar, "");
 
-        Set<Path> jars = JavaSourceParser.resolveGradleDependencyJars(
-                Set.of("io.get-coursier.util:directories-jni:0.1.4"),
-                gradleCacheRoot);
+        Set<Path> jars = DependencyCacheIndex.load(null, gradleCacheRoot, null).gradleJars(
+                Set.of("io.get-coursier.util:directories-jni:0.1.4"));
 
         assertTrue(jars.contains(directJar.toAbsolutePath().normalize()));
         assertTrue(jars.contains(companionJar.toAbsolutePath().normalize()));
@@ -362,124 +1251,267 @@ class JavaSourceParserBehaviorTest {
         Path gradleCacheRoot = tempDir.resolve(".gradle/caches/modules-2/files-2.1");
         Files.createDirectories(gradleCacheRoot);
 
-        Set<Path> jars = JavaSourceParser.resolveGradleDependencyJars(
-                Set.of("org.example:missingVersion", "notACoordinate"),
-                gradleCacheRoot);
+        Set<Path> jars = DependencyCacheIndex.load(null, gradleCacheRoot, null).gradleJars(
+                Set.of("org.example:missingVersion", "notACoordinate"));
 
         assertTrue(jars.isEmpty());
     }
 
     @Test
     void detectGradleDependencyJarFilesIncludesBuildSrcPluginDependencies() throws Exception {
-        Path originalUserHome = Path.of(System.getProperty("user.home"));
-        Path fakeHome = tempDir.resolve("home");
-        Files.createDirectories(fakeHome);
-        System.setProperty("user.home", fakeHome.toString());
-        try {
-            Path repoRoot = tempDir.resolve("repo");
-            Path moduleRoot = repoRoot.resolve("mod");
-            Files.createDirectories(moduleRoot);
-            Files.writeString(moduleRoot.resolve("build.gradle.kts"), """
-                    plugins {
-                        id("my-lib")
-                    }
-                    """);
-            Path pluginFile = repoRoot.resolve("buildSrc/src/main/kotlin/my-lib.gradle.kts");
-            Files.createDirectories(pluginFile.getParent());
-            Files.writeString(pluginFile, """
-                    plugins {
-                        id("my-base")
-                    }
-                    dependencies {
-                        implementation("org.example:via-lib:1.0.0")
-                    }
-                    """);
-            Path basePluginFile = repoRoot.resolve("buildSrc/src/main/kotlin/my-base.gradle.kts");
-            Files.createDirectories(basePluginFile.getParent());
-            Files.writeString(basePluginFile, """
-                    dependencies {
-                        implementation("org.example:via-base:2.0.0")
-                    }
-                    """);
-            Files.writeString(repoRoot.resolve("settings.gradle.kts"), "include(\"mod\")");
-
-            Path gradleCacheRoot = fakeHome.resolve(".gradle/caches/modules-2/files-2.1");
-            Path viaLibJar = gradleCacheRoot
-                    .resolve("org.example")
-                    .resolve("via-lib")
-                    .resolve("1.0.0")
-                    .resolve("x1")
-                    .resolve("via-lib-1.0.0.jar");
-            Path viaBaseJar = gradleCacheRoot
-                    .resolve("org.example")
-                    .resolve("via-base")
-                    .resolve("2.0.0")
-                    .resolve("x2")
-                    .resolve("via-base-2.0.0.jar");
-            Files.createDirectories(viaLibJar.getParent());
-            Files.createDirectories(viaBaseJar.getParent());
-            Files.writeString(viaLibJar, "");
-            Files.writeString(viaBaseJar, "");
-
-            Set<Path> jars = JavaSourceParser.detectGradleDependencyJarFiles(List.of(moduleRoot));
-
-            assertTrue(jars.contains(viaLibJar.toAbsolutePath().normalize()));
-            assertTrue(jars.contains(viaBaseJar.toAbsolutePath().normalize()));
-        } finally {
-            System.setProperty("user.home", originalUserHome.toString());
-        }
+        Path repoRoot = tempDir.resolve("repo");
+        Path moduleRoot = repoRoot.resolve("mod");
+        Files.createDirectories(moduleRoot);
+        Files.writeString(moduleRoot.resolve("build.gradle.kts"), """
+                plugins {
+                    id("my-lib")
+                }
+                """);
+        Path pluginFile = repoRoot.resolve("buildSrc/src/main/kotlin/my-lib.gradle.kts");
+        Files.createDirectories(pluginFile.getParent());
+        Files.writeString(pluginFile, """
+                plugins {
+                    id("my-base")
+                }
+                dependencies {
+                    implementation("org.example:via-lib:1.0.0")
+                }
+                """);
+        Path basePluginFile = repoRoot.resolve("buildSrc/src/main/kotlin/my-base.gradle.kts");
+        Files.createDirectories(basePluginFile.getParent());
+        Files.writeString(basePluginFile, """
+                dependencies {
+                    implementation("org.example:via-base:2.0.0")
+                }
+                """);
+        Files.writeString(repoRoot.resolve("settings.gradle.kts"), "include(\"mod\")");
+
+        Path gradleCacheRoot = tempDir.resolve("home/.gradle/caches/modules-2/files-2.1");
+        Path viaLibJar = gradleCacheRoot
+                .resolve("org.example")
+                .resolve("via-lib")
+                .resolve("1.0.0")
+                .resolve("x1")
+                .resolve("via-lib-1.0.0.jar");
+        Path viaBaseJar = gradleCacheRoot
+                .resolve("org.example")
+                .resolve("via-base")
+                .resolve("2.0.0")
+                .resolve("x2")
+                .resolve("via-base-2.0.0.jar");
+        Files.createDirectories(viaLibJar.getParent());
+        Files.createDirectories(viaBaseJar.getParent());
+        Files.writeString(viaLibJar, "");
+        Files.writeString(viaBaseJar, "");
+
+        Set<Path> jars = JavaSourceParser.detectGradleDependencyJarFiles(List.of(moduleRoot),
+                DependencyCacheIndex.load(null, gradleCacheRoot, null), BuildModelCache.load(null));
+
+        assertTrue(jars.contains(viaLibJar.toAbsolutePath().normalize()));
+        assertTrue(jars.contains(viaBaseJar.toAbsolutePath().normalize()));
     }
 
     @Test
     void detectGradleDependencyJarFilesIncludesChildModuleBuildFilesFromAggregateSource() throws Exception {
-        Path originalUserHome = Path.of(System.getProperty("user.home"));
-        Path fakeHome = tempDir.resolve("home2");
-        Files.createDirectories(fakeHome);
-        System.setProperty("user.home", fakeHome.toString());
-        try {
-            Path repoRoot = tempDir.resolve("repo");
-            Path aggregate = repoRoot.resolve("commons");
-            Path appModule = aggregate.resolve("app");
-            Path zipModule = aggregate.resolve("zip");
-            Files.createDirectories(appModule);
-            Files.createDirectories(zipModule);
-            Files.writeString(repoRoot.resolve("settings.gradle.kts"), "include(\"commons:app\", \"commons:zip\")");
-
-            Files.writeString(appModule.resolve("build.gradle.kts"), """
-                    dependencies {
-                      implementation("org.example:dep-app:1.0.0")
+        Path repoRoot = tempDir.resolve("repo");
+        Path aggregate = repoRoot.resolve("commons");
+        Path appModule = aggregate.resolve("app");
+        Path zipModule = aggregate.resolve("zip");
+        Files.createDirectories(appModule);
+        Files.createDirectories(zipModule);
+        Files.writeString(repoRoot.resolve("settings.gradle.kts"), "include(\"commons:app\", \"commons:zip\")");
+
+        Files.writeString(appModule.resolve("build.gradle.kts"), """
+                dependencies {
+                  implementation("org.example:dep-app:1.0.0")
+                }
+                """);
+        Files.writeString(zipModule.resolve("build.gradle.kts"), """
+                dependencies {
+                  implementation("org.example:dep-zip:2.0.0")
+                }
+                """);
+
+        Path gradleCacheRoot = tempDir.resolve("home2/.gradle/caches/modules-2/files-2.1");
+        Path appJar = gradleCacheRoot
+                .resolve("org.example")
+                .resolve("dep-app")
+                .resolve("1.0.0")
+                .resolve("a1")
+                .resolve("dep-app-1.0.0.jar");
+        Path zipJar = gradleCacheRoot
+                .resolve("org.example")
+                .resolve("dep-zip")
+                .resolve("2.0.0")
+                .resolve("z2")
+                .resolve("dep-zip-2.0.0.jar");
+        Files.createDirectories(appJar.getParent());
+        Files.createDirectories(zipJar.getParent());
+        Files.writeString(appJar, "");
+        Files.writeString(zipJar, "");
+
+        Set<Path> jars = JavaSourceParser.detectGradleDependencyJarFiles(List.of(aggregate),
+                DependencyCacheIndex.load(null, gradleCacheRoot, null), BuildModelCache.load(null));
+
+        assertTrue(jars.contains(appJar.toAbsolutePath().normalize()));
+        assertTrue(jars.contains(zipJar.toAbsolutePath().normalize()));
+    }
+
+    @Test
+    void reportsBuildDiscoveryAndReusesBuildScriptsOnTheNextRun() throws Exception {
+        Path repo = tempDir.resolve("gradle-repo");
+        Path src = repo.resolve("app/src/main/java");
+        Files.createDirectories(src.resolve("demo"));
+        Files.writeString(repo.resolve("settings.gradle.kts"), "include(\"app\")");
+        Files.writeString(repo.resolve("app/build.gradle.kts"), """
+                dependencies {
+                  implementation("org.example:missing:1.0")
+                }
+                """);
+        Files.writeString(src.resolve("demo/App.java"), "package demo; public class App {}");
+        RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(src)).outputPath(tempDir.resolve("out.puml"))
+                .parseOptions(ParseOptions.builder().cacheDirectory(tempDir.resolve("cache")).build()).build();
+
+        JavaSourceParser first = new JavaSourceParser();
+        first.parse(List.of(src), runConfig);
+        JavaSourceParser second = new JavaSourceParser();
+        second.parse(List.of(src), runConfig);
+
+        BuildDiscoveryReport cold = first.lastRunReport().buildDiscovery();
+        BuildDiscoveryReport warm = second.lastRunReport().buildDiscovery();
+        assertEquals(1, cold.modulesWalked());
+        assertEquals(1, cold.scriptsRead());
+        assertTrue(cold.nanos() > 0);
+        assertEquals(0, warm.scriptsRead());
+        assertEquals(1, warm.scriptsReused());
+    }
+
+    @Test
+    void parseMavenDependencyCoordinatesFillsInPropertiesAndManagedVersions() throws Exception {
+        Path parent = tempDir.resolve("maven-parent");
+        Path module = parent.resolve("core");
+        Files.createDirectories(module);
+        Files.writeString(parent.resolve("pom.xml"), """
+                <project>
+                  <properties><jackson.version>2.17.1</jackson.version></properties>
+                  <dependencyManagement>
+                    <dependencies>
+                      <dependency>
+                        <groupId>com.fasterxml.jackson.core</groupId>
+                        <artifactId>jackson-databind</artifactId>
+                        <version>${jackson.version}</version>
+                      </dependency>
+                    </dependencies>
+                  </dependencyManagement>
+                  <modules><module>core</module></modules>
+                </project>
+                """);
+        Files.writeString(module.resolve("pom.xml"), """
+                <project>
+                  <properties><guava.version>33.0.0-jre</guava.version></properties>
+                  <dependencies>
+                    <dependency>
+                      <groupId>com.fasterxml.jackson.core</groupId>
+                      <artifactId>jackson-databind</artifactId>
+                    </dependency>
+                    <dependency>
+                      <groupId>com.google.guava</groupId>
+                      <artifactId>guava</artifactId>
+                      <version>${guava.version}</version>
+                    </dependency>
+                    <!-- <dependency><groupId>commented</groupId><artifactId>out</artifactId></dependency> -->
+                    <dependency>
+                      <groupId>org.example</groupId>
+                      <artifactId>unpinned</artifactId>
+                      <version>${missing.version}</version>
+                    </dependency>
+                  </dependencies>
+                </project>
+                """);
+
+        assertEquals(Set.of("com.fasterxml.jackson.core:jackson-databind:2.17.1", "com.google.guava:guava:33.0.0-jre",
+                "org.example:unpinned"), JavaSourceParser.parseMavenDependencyCoordinates(module.resolve("pom.xml")));
+    }
+
+    private Path compiledJar(Path jar, String sourceFile, String content) throws Exception {
+        Path work = tempDir.resolve("jar-" + jar.getFileName());
+        Path source = work.resolve("src").resolve(sourceFile);
+        Path classes = work.resolve("classes");
+        Files.createDirectories(source.getParent());
+        Files.createDirectories(classes);
+        Files.createDirectories(jar.getParent());
+        Files.writeString(source, content);
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                "-d", classes.toString(), source.toString()));
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar));
+                Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                zip.putNextEntry(new ZipEntry(classes.relativize(file).toString().replace('\\', '/')));
+                zip.write(Files.readAllBytes(file));
+                zip.closeEntry();
+            }
+        }
+        return jar.toAbsolutePath().normalize();
+    }
+
+    private static void writeShopSources(Path src) throws Exception {
+        Path model = src.resolve("com/example/model");
+        Path app = src.resolve("com/example/app");
+        Files.createDirectories(model);
+        Files.createDirectories(app);
+        Files.writeString(model.resolve("Item.java"), """
+                package com.example.model;
+
+                public record Item(String name, Kind kind) {
+                    public enum Kind { BOOK, FOOD }
+                }
+                """);
+        Files.writeString(model.resolve("Entity.java"), """
+                package com.example.model;
+
+                public abstract class Entity<T> implements Comparable<T> {
+                    protected T id;
+                }
+                """);
+        Files.writeString(app.resolve("Shop.java"), """
+                package com.example.app;
+
+                import com.example.model.*;
+                import java.util.*;
+
+                public class Shop extends Entity<Long> implements Runnable {
+                    private List<Item> items;
+                    private Map<String, ? extends Item> byName;
+                    private Item.Kind focus;
+                    private Clerk clerk;
+                    private Inner inner;
+                    private int[] counts;
+
+                    public Optional<Item> find(String name) throws IllegalStateException {
+                        return Optional.empty();
                     }
-                    """);
-            Files.writeString(zipModule.resolve("build.gradle.kts"), """
-                    dependencies {
-                      implementation("org.example:dep-zip:2.0.0")
+
+                    public int compareTo(Long other) {
+                        return 0;
                     }
-                    """);
-
-            Path gradleCacheRoot = fakeHome.resolve(".gradle/caches/modules-2/files-2.1");
-            Path appJar = gradleCacheRoot
-                    .resolve("org.example")
-                    .resolve("dep-app")
-                    .resolve("1.0.0")
-                    .resolve("a1")
-                    .resolve("dep-app-1.0.0.jar");
-            Path zipJar = gradleCacheRoot
-                    .resolve("org.example")
-                    .resolve("dep-zip")
-                    .resolve("2.0.0")
-                    .resolve("z2")
-                    .resolve("dep-zip-2.0.0.jar");
-            Files.createDirectories(appJar.getParent());
-            Files.createDirectories(zipJar.getParent());
-            Files.writeString(appJar, "");
-            Files.writeString(zipJar, "");
-
-            Set<Path> jars = JavaSourceParser.detectGradleDependencyJarFiles(List.of(aggregate));
-
-            assertTrue(jars.contains(appJar.toAbsolutePath().normalize()));
-            assertTrue(jars.contains(zipJar.toAbsolutePath().normalize()));
-        } finally {
-            System.setProperty("user.home", originalUserHome.toString());
-        }
+
+                    public void run() {
+                    }
+
+                    static class Inner {
+                        private Shop owner;
+                    }
+                }
+
+                class Clerk {
+                }
+                """);
+    }
+
+    private static List<String> fieldTypes(UmlModel model) {
+        return model.getTypesSorted().stream()
+                .flatMap(type -> type.getFields().stream())
+                .map(UmlField::getType)
+                .toList();
     }
 }
@@ -1,6 +1,8 @@
 package no.ntnu.eitri.parser.java;
 
+import no.ntnu.eitri.config.ParseOptions;
 import no.ntnu.eitri.config.RunConfig;
+import no.ntnu.eitri.config.TypeResolution;
 import no.ntnu.eitri.model.UmlModel;
 import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
@@ -44,13 +46,8 @@ class JavaSourceParserWarningsTest {
         logger.setUseParentHandlers(false);
 
         try {
-            RunConfig runConfig = new RunConfig(
-                    List.of(tempDir),
-                    tempDir.resolve("out.puml"),
-                    null,
-                    null,
-                    true,
-                    false);
+            RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(tempDir))
+                    .outputPath(tempDir.resolve("out.puml")).verbose(true).build();
 
             JavaSourceParser parser = new JavaSourceParser();
             UmlModel model = parser.parse(List.of(tempDir), runConfig);
@@ -90,13 +87,8 @@ class JavaSourceParserWarningsTest {
         logger.setUseParentHandlers(false);
 
         try {
-            RunConfig runConfig = new RunConfig(
-                    List.of(src),
-                    tempDir.resolve("out.puml"),
-                    null,
-                    null,
-                    true,
-                    false);
+            RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(src)).outputPath(tempDir.resolve("out.puml"))
+                    .verbose(true).build();
 
             JavaSourceParser parser = new JavaSourceParser();
             UmlModel model = parser.parse(List.of(src), runConfig);
@@ -110,6 +102,54 @@ class JavaSourceParserWarningsTest {
         }
     }
 
+    @Test
+    void logsResolutionTiersInTieredMode() throws Exception {
+        Path src = tempDir.resolve("src/com/example");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Holder.java"), """
+                package com.example;
+
+                import java.util.function.Supplier;
+
+                public class Holder<C> {
+                    private Supplier<C> supplier;
+                    private Part part;
+                    private String name;
+                }
+                """);
+        Files.writeString(src.resolve("Part.java"), "package com.example; class Part {}");
+
+        Logger logger = Logger.getLogger(JavaSourceParser.class.getName());
+        CapturingHandler handler = new CapturingHandler();
+        Level previous = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        logger.addHandler(handler);
+        logger.setUseParentHandlers(false);
+
+        try {
+            Path root = tempDir.resolve("src");
+            RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(root)).outputPath(tempDir.resolve("out.puml"))
+                    .verbose(true).parseOptions(ParseOptions.builder().typeResolution(TypeResolution.TIERED).build())
+                    .build();
+
+            new JavaSourceParser().parse(List.of(root), runConfig);
+
+            String tiers = handler.messages.stream()
+                    .filter(msg -> msg.startsWith("Type name resolution by tier:"))
+                    .findFirst()
+                    .orElseThrow();
+            assertTrue(tiers.contains("compilation-unit=1 hit(s)"), tiers);
+            assertTrue(tiers.contains("import=1 hit(s)"), tiers);
+            assertTrue(tiers.contains("same-package=1 hit(s)"), tiers);
+            assertTrue(tiers.contains("language=1 hit(s)"), tiers);
+            assertTrue(tiers.contains("solver=0 hit(s)"), tiers);
+        } finally {
+            logger.removeHandler(handler);
+            logger.setLevel(previous);
+            logger.setUseParentHandlers(true);
+        }
+    }
+
     private static final class CapturingHandler extends Handler {
         private final List<String> messages = new ArrayList<>();
 
@@ -0,0 +1,254 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.config.ParseOptions;
+import no.ntnu.eitri.config.PlantUmlConfig;
+import no.ntnu.eitri.config.RunConfig;
+import no.ntnu.eitri.model.UmlModel;
+import no.ntnu.eitri.parser.ParseContext;
+import no.ntnu.eitri.writer.plantuml.PlantUmlWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavacSourceParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void javacModelMatchesSolverJavaParserModel() throws Exception {
+        Path src = tempDir.resolve("src");
+        writeSources(src);
+        Path out = tempDir.resolve("out.puml");
+
+        UmlModel parsed = new JavaSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).parseOptions(ParseOptions.builder().threads(1).build()).build());
+        UmlModel compiled = new JavacSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).parseOptions(ParseOptions.builder().threads(1).build()).build());
+
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(parsed, PlantUmlConfig.defaults()),
+                writer.render(compiled, PlantUmlConfig.defaults()));
+        assertEquals(parsed.getTypesSorted(), compiled.getTypesSorted());
+        assertEquals(parsed.getRelations(), compiled.getRelations());
+    }
+
+    @Test
+    void batchesOnParallelCompilersProduceSameModelAsOneBatch() throws Exception {
+        Path src = tempDir.resolve("src");
+        writeSources(src);
+        Files.writeString(src.resolve("com/example/app/Duplicate.java"),
+                "package com.example.app; class Clerk {}");
+        Path out = tempDir.resolve("out.puml");
+
+        UmlModel sequential = new JavacSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).parseOptions(ParseOptions.builder().threads(1).build()).build());
+        UmlModel parallel = new JavacSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                .outputPath(out).parseOptions(ParseOptions.builder().threads(4).build()).build());
+
+        PlantUmlWriter writer = new PlantUmlWriter();
+        assertEquals(writer.render(sequential, PlantUmlConfig.defaults()),
+                writer.render(parallel, PlantUmlConfig.defaults()));
+        assertEquals(sequential.getTypesSorted(), parallel.getTypesSorted());
+        assertEquals(sequential.getRelations(), parallel.getRelations());
+    }
+
+    @Test
+    void splitsFilesIntoContiguousBatches() {
+        List<Path> files = List.of(Path.of("A.java"), Path.of("B.java"), Path.of("C.java"), Path.of("D.java"),
+                Path.of("E.java"));
+
+        assertEquals(List.of(files.subList(0, 2), files.subList(2, 5)), JavacSourceParser.batches(files, 2));
+        assertEquals(5, JavacSourceParser.batches(files, 8).size());
+        assertEquals(List.of(files), JavacSourceParser.batches(files, 1));
+    }
+
+    @Test
+    void reportsSyntaxErrorsAndUnresolvedTypes() throws Exception {
+        Path src = tempDir.resolve("src");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("Holder.java"), """
+                package com.example;
+
+                import org.acme.*;
+
+                public class Holder {
+                    private Widget widget;
+                }
+                """);
+        Files.writeString(src.resolve("Broken.java"), """
+                package com.example;
+
+                class Broken {
+                    private = 3;
+                }
+                """);
+
+        Logger logger = Logger.getLogger(ParseContext.class.getName());
+        List<String> warnings = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord logRecord) {
+                warnings.add(logRecord.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(handler);
+        logger.setUseParentHandlers(false);
+        UmlModel model;
+        try {
+            model = new JavacSourceParser().parse(List.of(src), RunConfig.builder().sourcePaths(List.of(src))
+                    .outputPath(tempDir.resolve("out.puml")).verbose(true).build());
+        } finally {
+            logger.removeHandler(handler);
+            logger.setUseParentHandlers(true);
+        }
+
+        assertEquals("Widget", model.getType("com.example.Holder").orElseThrow().getFields().getFirst().getType());
+        assertTrue(model.getType("com.example.Broken").isEmpty());
+        assertTrue(warnings.stream().anyMatch(warning -> warning.startsWith("Failed to parse file: ")
+                && warning.contains("Broken.java") && warning.contains("(line 4,col")), warnings::toString);
+        assertTrue(warnings.stream().anyMatch(warning -> warning.startsWith("Failed to resolve type 'Widget'")
+                && warning.contains("(line 6,col 13)")), warnings::toString);
+    }
+
+    private static void writeSources(Path src) throws Exception {
+        Path model = src.resolve("com/example/model");
+        Path app = src.resolve("com/example/app");
+        Files.createDirectories(model);
+        Files.createDirectories(app);
+        Files.writeString(model.resolve("Item.java"), """
+                package com.example.model;
+
+                import java.io.Serializable;
+
+                public record Item(String name, Kind kind) implements Serializable {
+                    public Item {
+                        if (name == null) throw new IllegalArgumentException();
+                    }
+
+                    public static Item of(String name) {
+                        return new Item(name, Kind.BOOK);
+                    }
+
+                    public enum Kind { BOOK, FOOD { @Override public String toString() { return "food"; } } }
+                }
+                """);
+        Files.writeString(model.resolve("Entity.java"), """
+                package com.example.model;
+
+                /** Base of everything with an id. */
+                public abstract class Entity<T extends Comparable<T>> implements Comparable<Entity<T>> {
+                    protected T id;
+                    protected static final String PREFIX = "e-", SUFFIX = "";
+
+                    protected abstract T nextId();
+
+                    public final int compareTo(Entity<T> other) {
+                        return id.compareTo(other.id);
+                    }
+                }
+                """);
+        Files.writeString(model.resolve("Audited.java"), """
+                package com.example.model;
+
+                import java.lang.annotation.Retention;
+                import java.lang.annotation.RetentionPolicy;
+
+                @Retention(RetentionPolicy.RUNTIME)
+                public @interface Audited {
+                    String value() default "";
+                    int level() default 1;
+                }
+                """);
+        Files.writeString(app.resolve("Shop.java"), """
+                package com.example.app;
+
+                import com.example.model.*;
+                import java.util.*;
+                import java.util.function.Function;
+
+                @Audited(value = "shop", level = 2)
+                public final class Shop extends Entity<Long> implements Runnable, Comparator<Item> {
+                    private final List<Item> items = new ArrayList<>();
+                    private Map<String, ? extends Item> byName;
+                    private Item.Kind focus = Item.Kind.BOOK;
+                    Clerk clerk;
+                    private Inner inner;
+                    private int[] counts = { 1, 2 };
+                    private transient volatile long version;
+
+                    static {
+                        System.out.println("loaded }");
+                    }
+
+                    public Shop(Clerk clerk, Item... initial) throws IllegalArgumentException {
+                        Runnable r = () -> { };
+                        this.clerk = clerk;
+                    }
+
+                    @Override
+                    public void run() {
+                        new Thread(() -> { }).start();
+                    }
+
+                    @Override
+                    public int compare(Item a, Item b) {
+                        return 0;
+                    }
+
+                    @Deprecated
+                    public synchronized <R> Optional<R> find(String name, Function<? super Item, R> mapper) {
+                        return Optional.empty();
+                    }
+
+                    @Override
+                    protected Long nextId() {
+                        return 1L;
+                    }
+
+                    static class Inner implements Iterable<Item> {
+                        public Iterator<Item> iterator() {
+                            return null;
+                        }
+                    }
+
+                    private class Cursor<E> {
+                        E current;
+                        Entry<String, E> entry;
+                    }
+                }
+                """);
+        Files.writeString(app.resolve("Clerk.java"), """
+                package com.example.app;
+
+                public interface Clerk extends Runnable {
+                    default void greet() {
+                    }
+
+                    String name();
+
+                    static Clerk of(String name) {
+                        return null;
+                    }
+                }
+                """);
+    }
+}
@@ -0,0 +1,37 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdkClassFilesTest {
+
+    @Test
+    void findsJdkClassFilesAndTheirFlagsWithoutLoading() {
+        JdkClassFiles jdk = JdkClassFiles.system();
+
+        assertNotNull(jdk.find("java.util.Map$Entry"));
+        assertNull(jdk.find("java.util.Map.Entry"));
+        assertTrue(jdk.contains("java.util.Map.Entry"));
+        assertFalse(jdk.contains("com.example.Missing"));
+
+        assertTrue(jdk.isEnum("java.util.concurrent.TimeUnit"));
+        assertTrue(jdk.isEnum("java.lang.Thread.State"));
+        assertFalse(jdk.isEnum("java.lang.String"));
+        assertFalse(jdk.isEnum("com.example.Missing"));
+    }
+
+    @Test
+    void solvesJdkTypesFromClassFiles() {
+        CombinedTypeSolver typeSolver = new CombinedTypeSolver(BytecodeTypeSolver.jdk());
+
+        assertEquals("java.util.Map.Entry", typeSolver.solveType("java.util.Map.Entry").getQualifiedName());
+        assertTrue(typeSolver.solveType("java.util.concurrent.TimeUnit").isEnum());
+        assertFalse(typeSolver.tryToSolveType("com.example.Missing").isSolved());
+    }
+}
@@ -0,0 +1,56 @@
+package no.ntnu.eitri.parser.java;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PackageSnifferTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsPackageAfterCommentsAndAnnotations() {
+        assertEquals("com.acme.billing", PackageSniffer.scan("package com.acme.billing;\nclass A {}", true)
+                .packageName);
+        assertEquals("com.acme.b", PackageSniffer.scan("""
+                /* License */
+                // header
+                package  com . acme /* odd */ .b ;
+                """, true).packageName);
+        assertEquals("p", PackageSniffer.scan(
+                "\uFEFF@Deprecated @a.b.C(value = \")\", x = {1, 2}) package p;", true).packageName);
+    }
+
+    @Test
+    void reportsDefaultPackageWhenAnotherTokenComesFirst() {
+        assertEquals("", PackageSniffer.scan("import java.util.*; class A {}", true).packageName);
+        assertEquals("", PackageSniffer.scan("public class A {}", true).packageName);
+        assertEquals("", PackageSniffer.scan("@interface Marker {}", true).packageName);
+        assertEquals("", PackageSniffer.scan("", true).packageName);
+    }
+
+    @Test
+    void asksForMoreWhenPrefixEndsInsideTheDeclaration() {
+        assertSame(PackageSniffer.Result.NEED_MORE, PackageSniffer.scan("/* unterminated", false));
+        assertSame(PackageSniffer.Result.NEED_MORE, PackageSniffer.scan("pack", false));
+        assertSame(PackageSniffer.Result.NEED_MORE, PackageSniffer.scan("package com.ac", false));
+        assertSame(PackageSniffer.Result.UNKNOWN, PackageSniffer.scan("package com.acme", true));
+    }
+
+    @Test
+    void readsPastLongHeadersUpToTheLimit() throws Exception {
+        Path file = tempDir.resolve("Long.java");
+        Files.writeString(file, "/*" + "æ".repeat(PackageSniffer.INITIAL_BYTES) + "*/ package big.one; class X {}");
+        assertEquals("big.one", PackageSniffer.sniff(file));
+
+        Files.writeString(file, "/*" + "x".repeat(PackageSniffer.MAX_BYTES) + "*/ package big.one;");
+        assertNull(PackageSniffer.sniff(file));
+    }
+}
@@ -0,0 +1,83 @@
+package no.ntnu.eitri.parser.java;
+
+import no.ntnu.eitri.parser.ParseScheduleReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ParseCostModelTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void ordersBySizeWithoutHistory() throws IOException {
+        List<Path> files = List.of(file("A.java", 10), file("B.java", 300), file("C.java", 10), file("D.java", 50));
+
+        ParseCostModel.Schedule schedule = ParseCostModel.load(null).schedule(files);
+
+        assertArrayEquals(new int[] { 1, 3, 0, 2 }, schedule.order());
+        assertEquals(ParseScheduleReport.FILE_SIZE, schedule.costModel());
+        assertEquals(0, schedule.withHistory());
+        assertEquals(List.of(files.get(1), files.get(3), files.get(0), files.get(2)), schedule.apply(files));
+    }
+
+    @Test
+    void recordedTimingsOverrideSizeOnLaterRuns() throws IOException {
+        Path cache = tempDir.resolve("cache");
+        Path generated = file("Generated.java", 100);
+        Path handWritten = file("HandWritten.java", 400);
+        Path unseen = file("Unseen.java", 200);
+
+        ParseCostModel first = ParseCostModel.load(cache);
+        // The smaller file was far slower to visit, e.g. deeply nested generated code.
+        first.record(generated, 9_000_000L);
+        first.record(handWritten, 1_000_000L);
+        first.save();
+
+        ParseCostModel.Schedule schedule = ParseCostModel.load(cache)
+                .schedule(List.of(handWritten, unseen, generated));
+
+        // Unseen is estimated at the average rate: 200 bytes * 20 000 ns/byte = 4 ms.
+        assertArrayEquals(new int[] { 2, 1, 0 }, schedule.order());
+        assertEquals(ParseScheduleReport.HISTORY, schedule.costModel());
+        assertEquals(2, schedule.withHistory());
+    }
+
+    @Test
+    void withoutCacheDirectoryNothingIsWritten() throws IOException {
+        Path file = file("A.java", 10);
+        ParseCostModel model = ParseCostModel.load(null);
+        model.record(file, 1_000L);
+        model.save();
+
+        try (var entries = Files.list(tempDir)) {
+            assertEquals(List.of(file), entries.toList());
+        }
+    }
+
+    @Test
+    void unreadableHistoryFallsBackToSize() throws IOException {
+        Path cache = Files.createDirectories(tempDir.resolve("cache"));
+        Files.writeString(cache.resolve(ParseCostModel.HISTORY_FILE), "not-a-number\t1\tfile:///x\0");
+        List<Path> files = List.of(file("A.java", 10), file("B.java", 20));
+
+        ParseCostModel.Schedule schedule = ParseCostModel.load(cache).schedule(files);
+
+        assertEquals(ParseScheduleReport.FILE_SIZE, schedule.costModel());
+        assertArrayEquals(new int[] { 1, 0 }, schedule.order());
+        assertFalse(schedule.withHistory() > 0);
+    }
+
+    private Path file(String name, int size) throws IOException {
+        return Files.writeString(tempDir.resolve(name), "x".repeat(size));
+    }
+}
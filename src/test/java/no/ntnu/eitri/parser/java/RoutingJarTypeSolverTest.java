@@ -0,0 +1,107 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutingJarTypeSolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void opensOnlyTheJarsHoldingTheLookedUpPackage() throws Exception {
+        Path money = jar("money", "com/example/money/Money.java", """
+                package com.example.money;
+
+                public class Money {
+                    public static class Currency { }
+                }
+                """);
+        Path clock = jar("clock", "com/example/clock/Clock.java", """
+                package com.example.clock;
+
+                public class Clock { }
+                """);
+        Path broken = tempDir.resolve("broken.jar");
+        Files.writeString(broken, "not a jar");
+
+        JarPackageIndex index = JarPackageIndex.build(List.of(money, clock, broken));
+        CombinedTypeSolver typeSolver = new CombinedTypeSolver(new ReflectionTypeSolver(false));
+        typeSolver.add(new RoutingJarTypeSolver(index));
+
+        assertEquals(List.of(money, clock), index.jars());
+        assertEquals(List.of(broken), index.skipped());
+        assertEquals(List.of(money), index.jarsFor("com.example.money"));
+        assertEquals(0, index.openedCount());
+
+        assertFalse(typeSolver.tryToSolveType("org.elsewhere.Missing").isSolved());
+        assertEquals(0, index.openedCount());
+
+        assertTrue(typeSolver.tryToSolveType("com.example.money.Money.Currency").isSolved());
+        assertEquals("com.example.money.Money",
+                typeSolver.solveType("com.example.money.Money").getQualifiedName());
+        assertEquals(1, index.openedCount());
+    }
+
+    @Test
+    void prunesJarsHoldingNoReferencedPackage() throws Exception {
+        Path money = jar("money", "com/example/money/Money.java", """
+                package com.example.money;
+
+                public class Money { }
+                """);
+        Path clock = jar("clock", "com/example/clock/Clock.java", """
+                package com.example.clock;
+
+                public class Clock { }
+                """);
+
+        JarPackageIndex index = JarPackageIndex.build(List.of(money, clock), JarIndexCache.load(null),
+                Set.of("com.example", "com.example.money"));
+        CombinedTypeSolver typeSolver = new CombinedTypeSolver(new ReflectionTypeSolver(false));
+        typeSolver.add(new RoutingJarTypeSolver(index));
+
+        assertEquals(List.of(money), index.jars());
+        assertEquals(List.of(clock), index.pruned());
+        assertEquals(List.of(), index.jarsFor("com.example.clock"));
+        assertTrue(typeSolver.tryToSolveType("com.example.money.Money").isSolved());
+        assertFalse(typeSolver.tryToSolveType("com.example.clock.Clock").isSolved());
+    }
+
+    private Path jar(String name, String sourceFile, String content) throws Exception {
+        Path src = tempDir.resolve(name + "-src");
+        Path classes = tempDir.resolve(name + "-classes");
+        Path source = src.resolve(sourceFile);
+        Files.createDirectories(source.getParent());
+        Files.createDirectories(classes);
+        Files.writeString(source, content);
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                "-d", classes.toString(), source.toString()));
+
+        Path jar = tempDir.resolve(name + ".jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar));
+                Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                out.putNextEntry(new ZipEntry(classes.relativize(file).toString().replace('\\', '/')));
+                out.write(Files.readAllBytes(file));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,94 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import no.ntnu.eitri.parser.SolverCacheReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolverCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void evictsLeastRecentlyUsedEntryBeyondCapAndCountsUsage() {
+        SolverCaches caches = new SolverCaches(2, 0);
+        SolverCache<String, String> cache = caches.newCache();
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        assertEquals(Optional.of("A"), cache.get("a"));
+        cache.put("c", "C");
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertEquals(Optional.empty(), cache.get("b"));
+
+        SolverCacheReport report = caches.report();
+        assertEquals(1, report.hits());
+        assertEquals(1, report.misses());
+        assertEquals(1, report.evictions());
+        assertEquals(0.5d, report.hitRate());
+        assertEquals(1, cache.stats().evictionCount());
+    }
+
+    @Test
+    void unboundedCacheNeverEvicts() {
+        SolverCaches caches = SolverCaches.unbounded();
+        SolverCache<Integer, Integer> cache = caches.newCache();
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.put(i, i);
+        }
+
+        assertEquals(1_000, cache.size());
+        assertEquals(0, caches.report().evictions());
+    }
+
+    @Test
+    void releaseDropsTheWorkersSourceUnits() throws Exception {
+        Path root = tempDir.resolve("src");
+        Files.createDirectories(root.resolve("com/example"));
+        Files.writeString(root.resolve("com/example/Shop.java"), "package com.example; public class Shop { }");
+        Files.writeString(root.resolve("com/example/Item.java"), "package com.example; public class Item { }");
+        JavaParserFactory factory = JavaParserFactory.create(Set.of(root), Set.of(), Set.of(), null,
+                JarIndexCache.load(null), new SolverCaches(0, 2), null);
+        JavaParserFactory.WorkerParser worker = factory.newWorkerParser();
+
+        worker.sourceUnits().find("com.example.Shop").orElseThrow();
+        worker.sourceUnits().find("com.example.Item").orElseThrow();
+        assertEquals(2, worker.sourceUnits().size());
+        worker.visited();
+        assertEquals(2, worker.sourceUnits().size());
+        worker.visited();
+
+        assertEquals(0, worker.sourceUnits().size());
+        assertEquals(1, factory.solverCacheReport().releases());
+    }
+
+    @Test
+    void sessionInvalidationLeavesOtherSolversFacadesAlone() {
+        TypeSolver unrelated = new ReflectionTypeSolver();
+        JavaParserFacade facade = JavaParserFacade.get(unrelated);
+        JavaParserFactory.SessionParser session = JavaParserFactory.create(Set.of(), Set.of(), Set.of(), null,
+                JarIndexCache.load(null), SolverCaches.unbounded(), null).newSessionParser();
+
+        session.invalidate(List.of(Path.of("Changed.java")));
+
+        assertSame(facade, JavaParserFacade.get(unrelated));
+    }
+}
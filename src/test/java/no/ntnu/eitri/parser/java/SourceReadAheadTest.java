@@ -0,0 +1,124 @@
+package no.ntnu.eitri.parser.java;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourceReadAheadTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void decodeStripsUtf8Bom() {
+        byte[] body = "class Å {}".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[body.length + 3];
+        bytes[0] = (byte) 0xEF;
+        bytes[1] = (byte) 0xBB;
+        bytes[2] = (byte) 0xBF;
+        System.arraycopy(body, 0, bytes, 3, body.length);
+
+        SourceReadAhead.DecodedSource decoded = SourceReadAhead.decode(ByteBuffer.wrap(bytes));
+
+        assertEquals("class Å {}", decoded.text());
+        assertEquals(StandardCharsets.UTF_8, decoded.charset());
+    }
+
+    @Test
+    void decodeDetectsUtf16Boms() {
+        byte[] bigEndian = withPrefix(new byte[] { (byte) 0xFE, (byte) 0xFF },
+                "class A {}".getBytes(StandardCharsets.UTF_16BE));
+        byte[] littleEndian = withPrefix(new byte[] { (byte) 0xFF, (byte) 0xFE },
+                "class A {}".getBytes(StandardCharsets.UTF_16LE));
+
+        SourceReadAhead.DecodedSource be = SourceReadAhead.decode(ByteBuffer.wrap(bigEndian));
+        SourceReadAhead.DecodedSource le = SourceReadAhead.decode(ByteBuffer.wrap(littleEndian));
+
+        assertEquals("class A {}", be.text());
+        assertEquals(StandardCharsets.UTF_16BE, be.charset());
+        assertEquals("class A {}", le.text());
+        assertEquals(StandardCharsets.UTF_16LE, le.charset());
+    }
+
+    @Test
+    void decodeReplacesInvalidUtf8LikeJavaParser() {
+        byte[] bytes = "class Ø {}".getBytes(StandardCharsets.ISO_8859_1);
+
+        SourceReadAhead.DecodedSource decoded = SourceReadAhead.decode(ByteBuffer.wrap(bytes));
+
+        assertEquals("class \uFFFD {}", decoded.text());
+        assertEquals(StandardCharsets.UTF_8, decoded.charset());
+    }
+
+    @Test
+    void takeReturnsFilesInOrderWithinSmallBudget() throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            files.add(write("F" + i + ".java", "class F" + i + " { /* padding */ }"));
+        }
+
+        try (SourceReadAhead readAhead = SourceReadAhead.start(files, 64)) {
+            for (int i = 0; i < files.size(); i++) {
+                SourceReadAhead.SourceText text = readAhead.take(i);
+                assertEquals(files.get(i), text.file());
+                assertEquals("class F" + i + " { /* padding */ }", text.text());
+            }
+            SourceReadAhead.ReadAheadStats stats = readAhead.stats();
+            assertEquals(64, stats.budgetBytes());
+            assertTrue(stats.peakBufferedBytes() <= 64);
+            assertTrue(stats.bytesRead() > 0);
+        }
+    }
+
+    @Test
+    void takeReportsReadErrorForMissingFile() throws Exception {
+        Path present = write("A.java", "class A {}");
+        Path missing = tempDir.resolve("Missing.java");
+
+        try (SourceReadAhead readAhead = SourceReadAhead.start(List.of(missing, present), 1024)) {
+            SourceReadAhead.SourceText failed = readAhead.take(0);
+            SourceReadAhead.SourceText ok = readAhead.take(1);
+
+            assertNotNull(failed.error());
+            assertNull(failed.text());
+            assertNull(ok.error());
+            assertEquals("class A {}", ok.text());
+        }
+    }
+
+    @Test
+    void zeroBudgetReadsSynchronously() throws Exception {
+        Path file = write("A.java", "class A {}");
+
+        try (SourceReadAhead readAhead = SourceReadAhead.start(List.of(file), 0)) {
+            assertEquals("class A {}", readAhead.take(0).text());
+            assertEquals(0, readAhead.stats().budgetBytes());
+            assertEquals(0, readAhead.stats().peakBufferedBytes());
+        }
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private static byte[] withPrefix(byte[] prefix, byte[] body) {
+        byte[] bytes = new byte[prefix.length + body.length];
+        System.arraycopy(prefix, 0, bytes, 0, prefix.length);
+        System.arraycopy(body, 0, bytes, prefix.length, body.length);
+        return bytes;
+    }
+}
@@ -0,0 +1,132 @@
+package no.ntnu.eitri.parser.java;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.symbolsolver.cache.InMemoryCache;
+import no.ntnu.eitri.util.SourceArchives;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourceTypeIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void findsTypesAcrossNestedRootsByTheirPackageNames() throws Exception {
+        Path module = tempDir.resolve("app");
+        Path sources = module.resolve("src/main/java");
+        Path other = tempDir.resolve("lib/src/main/java");
+        write(sources.resolve("com/example/Shop.java"), """
+                package com.example;
+
+                public class Shop {
+                    int first;
+
+                    class Cursor { }
+                }
+
+                class Helper { }
+                """);
+        write(other.resolve("com/example/Shop.java"), """
+                package com.example;
+
+                public class Shop {
+                    int second;
+                }
+                """);
+        write(other.resolve("com/example/lib/Money.java"),
+                "package com.example.lib; public record Money(long cents) { }");
+        write(other.resolve("not-a-package/Stray.java"), "public class Stray { }");
+
+        SourceTypeIndex index = SourceTypeIndex.build(List.of(module, sources, other));
+        SourceTypeIndex.Units units = index.newUnits();
+
+        assertEquals(3, index.rootCount());
+        TypeDeclaration<?> shop = units.find("com.example.Shop").orElseThrow();
+        assertTrue(shop.getFieldByName("first").isPresent());
+        assertEquals("Cursor", units.find("com.example.Shop.Cursor").orElseThrow().getNameAsString());
+        assertEquals("Helper", units.find("com.example.Helper").orElseThrow().getNameAsString());
+        assertEquals("Money", units.find("com.example.lib.Money").orElseThrow().getNameAsString());
+        // The nested root is not indexed a second time under the module root.
+        assertFalse(units.find("src.main.java.com.example.Shop").isPresent());
+        assertFalse(units.find("Stray").isPresent());
+        assertFalse(units.find("com.example.Missing").isPresent());
+    }
+
+    @Test
+    void parsesEachFileOncePerWorkerAndReusesSharedUnits() throws Exception {
+        Path root = tempDir.resolve("src");
+        Path shop = write(root.resolve("com/example/Shop.java"), "package com.example; public class Shop { }");
+        Path item = write(root.resolve("com/example/Item.java"), "package com.example; public class Item { }");
+        SourceTypeIndex index = SourceTypeIndex.build(List.of(root));
+        SourceTypeIndex.Units units = index.newUnits();
+
+        TypeDeclaration<?> first = units.find("com.example.Shop").orElseThrow();
+        assertSame(first, units.find("com.example.Shop").orElseThrow());
+        assertEquals(1, index.parsedFiles());
+
+        CompilationUnit visited = StaticJavaParser.parse(Files.readString(item));
+        units.share(item, visited);
+        units.share(shop, StaticJavaParser.parse(Files.readString(shop)));
+        units.share(tempDir.resolve("Elsewhere.java"), StaticJavaParser.parse("class Elsewhere { }"));
+
+        assertSame(visited.getType(0), units.find("com.example.Item").orElseThrow());
+        assertSame(first, units.find("com.example.Shop").orElseThrow());
+        assertEquals(1, index.parsedFiles());
+        assertEquals(1, index.sharedFiles());
+        assertEquals(2, units.size());
+
+        // Another worker never reads this worker's units: it parses its own.
+        SourceTypeIndex.Units other = index.newUnits();
+        TypeDeclaration<?> otherShop = other.find("com.example.Shop").orElseThrow();
+        assertNotSame(first, otherShop);
+        assertNotSame(visited.getType(0), other.find("com.example.Item").orElseThrow());
+        assertEquals(3, index.parsedFiles());
+    }
+
+    @Test
+    void resolvesTypesFromArchiveMountedRoots() throws Exception {
+        Path zip = tempDir.resolve("repo.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("repo/src/com/example/Shop.java"));
+            out.write("package com.example; public class Shop { class Cursor { } } class Helper { }"
+                    .getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("repo/src/com/example/lib/Money.java"));
+            out.write("package com.example.lib; public record Money(long cents) { }".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        try (SourceArchives archives = SourceArchives.mount(List.of(Path.of(zip + "!/repo/src")), List.of(".java"))) {
+            SourceTypeIndex index = SourceTypeIndex.build(archives.paths());
+            SourceIndexTypeSolver solver = new SourceIndexTypeSolver(index.newUnits(), InMemoryCache.create());
+
+            assertEquals(2, index.size());
+            assertEquals("com.example.Shop", solver.solveType("com.example.Shop").getQualifiedName());
+            assertEquals("com.example.Shop.Cursor", solver.solveType("com.example.Shop.Cursor").getQualifiedName());
+            assertEquals("com.example.Helper", solver.solveType("com.example.Helper").getQualifiedName());
+            assertTrue(solver.solveType("com.example.lib.Money").isRecord());
+            assertFalse(solver.tryToSolveType("com.example.Missing").isSolved());
+        }
+    }
+
+    private static Path write(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}
@@ -1,5 +1,8 @@
 package no.ntnu.eitri.service;
 
+import no.ntnu.eitri.config.ParseOptions;
+import no.ntnu.eitri.config.SourceFilter;
+import no.ntnu.eitri.config.TypeResolution;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -88,6 +91,221 @@ class EitriServiceManifestLoaderTest {
         assertEquals(List.of("demo.a", "demo.b"), plantuml.get("packages"));
     }
 
+    @Test
+    void loadsParseThreadsIntoParseOptions() throws Exception {
+        Path manifest = tempDir.resolve("manifest.yaml");
+        Files.writeString(manifest, """
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                parse_threads: 4
+                """);
+
+        EitriServiceManifest loaded = EitriServiceManifestLoader.load(manifest);
+
+        assertEquals(4, loaded.parseOptions().threads());
+        assertEquals(ParseOptions.DEFAULT_READ_AHEAD_BYTES, loaded.parseOptions().readAheadBytes());
+    }
+
+    @Test
+    void loadsReadAheadBudgetInMegabytes() throws Exception {
+        Path manifest = tempDir.resolve("manifest.yaml");
+        Files.writeString(manifest, """
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                read_ahead_mb: 8
+                """);
+
+        EitriServiceManifest loaded = EitriServiceManifestLoader.load(manifest);
+
+        assertEquals(8L * 1024 * 1024, loaded.parseOptions().readAheadBytes());
+    }
+
+    @Test
+    void loadsParseCacheSettings() throws Exception {
+        Path manifest = tempDir.resolve("manifest.yaml");
+        Path cacheDir = tempDir.resolve("cache").toAbsolutePath();
+        Files.writeString(manifest, """
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                parse_cache_dir: %s
+                parse_cache_max_mb: 16
+                """.formatted(cacheDir));
+
+        EitriServiceManifest loaded = EitriServiceManifestLoader.load(manifest);
+
+        assertEquals(cacheDir, loaded.parseOptions().cacheDirectory());
+        assertEquals(16L * 1024 * 1024, loaded.parseOptions().cacheMaxBytes());
+    }
+
+    @Test
+    void loadsSourceGlobs() throws Exception {
+        Path manifest = tempDir.resolve("manifest.yaml");
+        Files.writeString(manifest, """
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                include_globs:
+                  - "com/example/**"
+                exclude_globs:
+                  - "*_pb2.java"
+                default_excludes: false
+                """);
+
+        EitriServiceManifest loaded = EitriServiceManifestLoader.load(manifest);
+
+        assertEquals(List.of("com/example/**"), loaded.sourceFilter().includes());
+        assertEquals(List.of("*_pb2.java"), loaded.sourceFilter().excludes());
+        assertFalse(loaded.sourceFilter().defaultExcludes());
+    }
+
+    @Test
+    void defaultsToDefaultSourceExcludes() throws Exception {
+        Path manifest = tempDir.resolve("manifest.yaml");
+        Files.writeString(manifest, """
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                """);
+
+        EitriServiceManifest loaded = EitriServiceManifestLoader.load(manifest);
+
+        assertEquals(SourceFilter.defaults(), loaded.sourceFilter());
+    }
+
+    @Test
+    void loadsDeclarationsOnlySettings() throws Exception {
+        Path manifest = tempDir.resolve("manifest.yaml");
+        Files.writeString(manifest, """
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                declarations_only: true
+                declarations_only_above_mb: 4
+                """);
+
+        EitriServiceManifest loaded = EitriServiceManifestLoader.load(manifest);
+
+        assertTrue(loaded.parseOptions().declarationsOnly());
+        assertEquals(4L * 1024 * 1024, loaded.parseOptions().declarationsOnlyAboveBytes());
+    }
+
+    @Test
+    void loadsSolverCacheSettings() throws Exception {
+        Path manifest = tempDir.resolve("manifest.yaml");
+        Files.writeString(manifest, """
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                solver_cache_entries: 2000
+                release_solver_caches_every: 100
+                """);
+
+        EitriServiceManifest loaded = EitriServiceManifestLoader.load(manifest);
+
+        assertEquals(2000, loaded.parseOptions().solverCacheEntries());
+        assertEquals(100, loaded.parseOptions().releaseSolverCachesEvery());
+    }
+
+    @Test
+    void loadsClasspathPruningSwitch() throws Exception {
+        Path manifest = tempDir.resolve("manifest.yaml");
+        Files.writeString(manifest, """
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                prune_classpath: true
+                """);
+
+        EitriServiceManifest loaded = EitriServiceManifestLoader.load(manifest);
+
+        assertTrue(loaded.parseOptions().pruneClasspath());
+    }
+
+    @Test
+    void loadsTypeResolutionMode() throws Exception {
+        Path manifest = tempDir.resolve("manifest.yaml");
+        Files.writeString(manifest, """
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                type_resolution: lexical
+                """);
+
+        EitriServiceManifest loaded = EitriServiceManifestLoader.load(manifest);
+
+        assertEquals(TypeResolution.LEXICAL, loaded.parseOptions().typeResolution());
+    }
+
+    @Test
+    void rejectsUnknownTypeResolutionMode() throws Exception {
+        EitriServiceManifestException error = assertManifestError("""
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                type_resolution: guess
+                """);
+
+        assertEquals("invalid-manifest", error.reasonCode());
+        assertTrue(error.getMessage().contains("type_resolution"));
+    }
+
+    @Test
+    void loadsProjectModelFlag() throws Exception {
+        Path manifest = tempDir.resolve("manifest.yaml");
+        Files.writeString(manifest, """
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                project_model: true
+                """);
+
+        assertTrue(EitriServiceManifestLoader.load(manifest).projectModel());
+        assertFalse(EitriServiceManifest.empty("run").projectModel());
+    }
+
+    @Test
+    void rejectsInvalidSourceGlob() throws Exception {
+        EitriServiceManifestException error = assertManifestError("""
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                exclude_globs:
+                  - "gen/[a-"
+                """);
+
+        assertEquals("invalid-manifest", error.reasonCode());
+        assertTrue(error.getMessage().contains("gen/[a-"));
+    }
+
+    @Test
+    void rejectsRelativeParseCacheDir() throws Exception {
+        EitriServiceManifestException error = assertManifestError("""
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                parse_cache_dir: cache
+                """);
+
+        assertEquals("invalid-manifest", error.reasonCode());
+        assertTrue(error.getMessage().contains("'parse_cache_dir'"));
+    }
+
+    @Test
+    void rejectsNegativeParseThreads() throws Exception {
+        EitriServiceManifestException error = assertManifestError("""
+                version: 1
+                source_relpaths:
+                  - src/main/java
+                parse_threads: -2
+                """);
+
+        assertEquals("invalid-manifest", error.reasonCode());
+        assertTrue(error.getMessage().contains("'parse_threads'"));
+    }
+
     @Test
     void rejectsMissingManifestFile() {
         Path manifest = tempDir.resolve("missing.yaml");
@@ -0,0 +1,124 @@
+package no.ntnu.eitri.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceArchivesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void archiveFileRecognizesArchivesAndEntrySeparator() throws Exception {
+        Path zip = tempDir.resolve("repo.zip");
+        Files.write(zip, new byte[0]);
+        Path plain = tempDir.resolve("src");
+        Files.createDirectories(plain);
+
+        assertEquals(zip, SourceArchives.archiveFile(zip));
+        assertEquals(Path.of("repo.tar.gz"), SourceArchives.archiveFile(Path.of("repo.tar.gz!/src/main/java")));
+        assertNull(SourceArchives.archiveFile(plain));
+        assertNull(SourceArchives.archiveFile(null));
+        assertFalse(SourceArchives.containsArchive(List.of(plain)));
+    }
+
+    @Test
+    void classJarHoldsClassesAndNoSources() throws Exception {
+        Path classes = tempDir.resolve("classes.jar");
+        Path sources = tempDir.resolve("sources.jar");
+        Path zip = tempDir.resolve("classes.zip");
+        for (Path archive : List.of(classes, sources, zip)) {
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+                out.putNextEntry(new ZipEntry("demo/Sample.class"));
+                out.closeEntry();
+                if (archive.equals(sources)) {
+                    out.putNextEntry(new ZipEntry("demo/Sample.java"));
+                    out.closeEntry();
+                }
+            }
+        }
+
+        assertTrue(SourceArchives.isClassJar(classes));
+        assertFalse(SourceArchives.isClassJar(sources));
+        assertFalse(SourceArchives.isClassJar(zip));
+        assertFalse(SourceArchives.isClassJar(tempDir.resolve("missing.jar")));
+    }
+
+    @Test
+    void mountsZipEntryDirectory() throws Exception {
+        Path zip = tempDir.resolve("repo.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("repo/src/main/java/demo/Sample.java"));
+            out.write("package demo; class Sample {}".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        Path plain = tempDir.resolve("plain");
+        try (SourceArchives archives = SourceArchives.mount(
+                List.of(Path.of(zip + "!/repo/src/main/java"), plain), List.of(".java"))) {
+            Path root = archives.paths().getFirst();
+            assertTrue(Files.isRegularFile(root.resolve("demo/Sample.java")));
+            assertEquals(plain, archives.paths().get(1));
+        }
+    }
+
+    @Test
+    void mountsTarArchiveWithLongNames() throws Exception {
+        String longName = "repo/" + "nested/".repeat(20) + "Sample.java";
+        Path tar = tempDir.resolve("repo.tar");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeTarEntry(bytes, "././@LongLink", 'L', (longName + "\0").getBytes(StandardCharsets.UTF_8));
+        writeTarEntry(bytes, longName.substring(0, 99), '0', "class Sample {}".getBytes(StandardCharsets.UTF_8));
+        writeTarEntry(bytes, "repo/dir/", '5', new byte[0]);
+        bytes.write(new byte[1024]);
+        Files.write(tar, bytes.toByteArray());
+
+        try (SourceArchives archives = SourceArchives.mount(List.of(tar), List.of(".java"))) {
+            Path file = archives.paths().getFirst().resolve(longName);
+            assertEquals("class Sample {}", Files.readString(file));
+        }
+    }
+
+    @Test
+    void stagesOnlyTarEntriesAParseReads() throws Exception {
+        Path tar = tempDir.resolve("repo.tar");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeTarEntry(bytes, "repo/src/Sample.java", '0', "class Sample {}".getBytes(StandardCharsets.UTF_8));
+        writeTarEntry(bytes, "repo/build.gradle", '0', "plugins { id 'java' }".getBytes(StandardCharsets.UTF_8));
+        writeTarEntry(bytes, "repo/libs/dep.jar", '0', new byte[] { 1, 2, 3 });
+        writeTarEntry(bytes, "repo/docs/logo.png", '0', new byte[] { 4, 5, 6 });
+        bytes.write(new byte[1024]);
+        Files.write(tar, bytes.toByteArray());
+
+        try (SourceArchives archives = SourceArchives.mount(List.of(tar), List.of(".java"))) {
+            Path root = archives.paths().getFirst();
+            assertTrue(Files.isRegularFile(root.resolve("repo/src/Sample.java")));
+            assertTrue(Files.isRegularFile(root.resolve("repo/build.gradle")));
+            assertTrue(Files.isRegularFile(root.resolve("repo/libs/dep.jar")));
+            assertFalse(Files.exists(root.resolve("repo/docs")));
+        }
+    }
+
+    private static void writeTarEntry(OutputStream out, String name, char type, byte[] content) throws Exception {
+        byte[] header = new byte[512];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+        byte[] size = String.format("%011o", content.length).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(size, 0, header, 124, size.length);
+        header[156] = (byte) type;
+        out.write(header);
+        out.write(content);
+        out.write(new byte[(512 - content.length % 512) % 512]);
+    }
+}
@@ -748,8 +748,8 @@ class PlantUmlWriterTest {
                                 """);
 
                 JavaSourceParser parser = new JavaSourceParser();
-                RunConfig runConfig = new RunConfig(List.of(src), tempDir.resolve("out.puml"), null, null, false,
-                                false);
+                RunConfig runConfig = RunConfig.builder().sourcePaths(List.of(src))
+                        .outputPath(tempDir.resolve("out.puml")).build();
                 UmlModel model = parser.parse(List.of(src), runConfig);
 
                 String output = new PlantUmlWriter().render(model, PlantUmlConfig.defaults());